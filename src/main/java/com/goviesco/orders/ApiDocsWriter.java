@@ -0,0 +1,51 @@
+package com.goviesco.orders;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Writes the Swagger document of the API to orders.api-docs.output once the application is ready, and stops it. The
+// build runs it before packaging, so the document is packaged and served at /api-docs.json, also by the fast-start
+// profile, which does not scan the handlers at startup.
+@Component
+@ConditionalOnProperty(name = "orders.api-docs.output")
+public class ApiDocsWriter implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiDocsWriter.class);
+
+    private final Path output;
+
+    public ApiDocsWriter(@Value("${orders.api-docs.output}") String output) {
+        this.output = Paths.get(output);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        String docs = new RestTemplate().getForObject("http://localhost:" + port + "/v2/api-docs", String.class);
+        try {
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            Files.write(output, docs.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Wrote the API docs to {}, exiting", output);
+        System.exit(SpringApplication.exit(context));
+    }
+}
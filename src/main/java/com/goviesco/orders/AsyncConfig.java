@@ -0,0 +1,41 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.deadline.DeadlineTaskDecorator;
+import com.goviesco.orders.tracing.Tracing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+
+// Runs the asynchronous controller methods on orders.async.threads threads. When orders.async.queue-capacity requests
+// are waiting as well, new ones are rejected with 503 instead of queueing.
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    public AsyncConfig(@Value("${orders.async.threads:32}") int threads,
+                       @Value("${orders.async.queue-capacity:64}") int queueCapacity) {
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("orders-request-");
+        DeadlineTaskDecorator deadline = new DeadlineTaskDecorator();
+        // The handler runs in the trace of its request, when the request is sampled.
+        executor.setTaskDecorator(runnable -> deadline.decorate(Tracing.propagate(runnable)));
+        executor.initialize();
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
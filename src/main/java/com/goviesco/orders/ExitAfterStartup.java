@@ -0,0 +1,26 @@
+package com.goviesco.orders;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+// Stops the application once it is ready when orders.exit-after-startup is true. Used to time startup and to record
+// the classes loaded at startup for the AppCDS archive.
+@Component
+@ConditionalOnProperty(name = "orders.exit-after-startup", havingValue = "true")
+public class ExitAfterStartup implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(ExitAfterStartup.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        log.info("Started in {} ms of JVM uptime, exiting", ManagementFactory.getRuntimeMXBean().getUptime());
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -0,0 +1,21 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.generator.OrderDataGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Seeds orders.generator.count synthetic orders at startup when orders.generator.enabled is true. Used for load tests.
+@Configuration
+@ConditionalOnProperty(name = "orders.generator.enabled", havingValue = "true")
+public class GenerateDatabase {
+
+    @Bean
+    CommandLineRunner generateOrders(OrderDataGenerator generator,
+                                     @Value("${orders.generator.count:100000}") long count,
+                                     @Value("${orders.generator.seed:42}") long seed) {
+        return args -> generator.generate(count, seed);
+    }
+}
@@ -5,9 +5,13 @@ import com.goviesco.orders.entity.Order;
 import com.goviesco.orders.entity.OrderLine;
 import com.goviesco.orders.enumeration.Status;
 import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.service.CustomerService;
+import com.goviesco.orders.service.OrderSummaries;
+import com.goviesco.orders.service.ProductCatalog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -16,7 +20,10 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+// The hand-written orders are not loaded when GenerateDatabase seeds synthetic ones, or when orders.seed.enabled is
+// false, as in the fast-start profile.
 @Configuration
+@ConditionalOnExpression("${orders.seed.enabled:true} and !${orders.generator.enabled:false}")
 public class LoadDatabase {
 
     private static final Logger log = LoggerFactory.getLogger(LoadDatabase.class);
@@ -24,7 +31,8 @@ public class LoadDatabase {
     // Spring Boot will run ALL CommandLineRunner beans once the application context is loaded.
 
     @Bean
-    CommandLineRunner initDatabase(OrderRepository repository) {
+    CommandLineRunner initDatabase(OrderRepository repository, CustomerService customers, ProductCatalog catalog,
+                                   OrderSummaries summaries) {
         OrderLine orderLine1 = new OrderLine(1L,"Apple", "Phone", new BigDecimal("1000"), 1);
         OrderLine orderLine2 = new OrderLine(2L, "Apple", "Tablet", new BigDecimal("5000"), 2);
         OrderLine orderLine3 = new OrderLine(3L, "Samsung", "Watch", new BigDecimal("3500"), 1);
@@ -59,9 +67,14 @@ public class LoadDatabase {
                 new BigDecimal("200"), new BigDecimal("1200"), new BigDecimal("1500"));
 
         return args -> {
-            log.info("Preloading " + repository.save(order1));
-            log.info("Preloading " + repository.save(order2));
-            log.info("Preloading " + repository.save(order3));
+            for (Order order : List.of(order1, order2, order3)) {
+                // Nothing else writes while the database is loaded, so the customer and address need not be stored in the
+                // transaction of the order.
+                Order saved = repository.save(catalog.attach(customers.attach(order)));
+                // Saved without the OrderService, so the summary is told here.
+                summaries.replace(null, OrderSummaries.Entry.of(saved));
+                log.info("Preloading " + saved);
+            }
         };
     }
 }
@@ -2,10 +2,13 @@ package com.goviesco.orders;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 // @SpringBootApplication is a meta-annotation that pulls in component scanning, autoconfiguration, and property support.
 // Spring Boot will fire up a servlet container and serve up the service.
+// @EnableScheduling runs the @Scheduled background tasks, such as the OrderArchiver.
 @SpringBootApplication
+@EnableScheduling
 public class OrdersApplication {
 
 	public static void main(String[] args) {
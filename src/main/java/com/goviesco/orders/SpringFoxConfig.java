@@ -2,6 +2,7 @@ package com.goviesco.orders;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -16,9 +17,12 @@ public class SpringFoxConfig {
     public Docket api() {
         return new Docket(DocumentationType.SWAGGER_2)
                 .select()
-                .apis(RequestHandlerSelectors.any())
+                // Only the handlers of this application, not those of Spring Boot and the actuator.
+                .apis(RequestHandlerSelectors.basePackage("com.goviesco.orders"))
                 .paths(PathSelectors.any())
                 .build()
+                // Documents the body of the asynchronous OrderController methods.
+                .genericModelSubstitutes(WebAsyncTask.class)
                 .apiInfo(getApiInfo());
     }
 
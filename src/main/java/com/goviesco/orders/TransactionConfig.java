@@ -0,0 +1,20 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.deadline.DeadlineTransactionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+// Replaces the JpaTransactionManager of Spring Boot with one that keeps transactions within the request deadline.
+@Configuration
+public class TransactionConfig {
+
+    @Bean
+    public PlatformTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        DeadlineTransactionManager transactionManager = new DeadlineTransactionManager();
+        customizers.ifAvailable(available -> available.customize(transactionManager));
+        return transactionManager;
+    }
+}
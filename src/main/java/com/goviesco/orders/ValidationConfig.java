@@ -0,0 +1,24 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.validation.OrderValidator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Puts the allocation-free OrderValidator in front of the bean validator that validates @Valid request bodies.
+@Configuration
+public class ValidationConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<javax.validation.Validator> validator;
+
+    public ValidationConfig(ObjectProvider<javax.validation.Validator> validator) {
+        this.validator = validator;
+    }
+
+    @Override
+    public Validator getValidator() {
+        return new OrderValidator(new SpringValidatorAdapter(validator.getObject()));
+    }
+}
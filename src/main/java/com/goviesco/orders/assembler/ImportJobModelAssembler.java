@@ -0,0 +1,33 @@
+package com.goviesco.orders.assembler;
+
+import com.goviesco.orders.controller.OrderImportController;
+import com.goviesco.orders.entity.ImportJob;
+import com.goviesco.orders.enumeration.JobState;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.server.RepresentationModelAssembler;
+import org.springframework.stereotype.Component;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@Component
+public class ImportJobModelAssembler implements RepresentationModelAssembler<ImportJob, EntityModel<ImportJob>> {
+
+    @Override
+    public EntityModel<ImportJob> toModel(ImportJob job) {
+
+        EntityModel<ImportJob> jobModel = EntityModel.of(job,
+                linkTo(methodOn(OrderImportController.class).read(job.getId())).withSelfRel(),
+                linkTo(methodOn(OrderImportController.class).readAll()).withRel("jobs"),
+                linkTo(methodOn(OrderImportController.class).errors(job.getId())).withRel("errors"));
+
+        if (job.getState() == JobState.PENDING || job.getState() == JobState.RUNNING) {
+            jobModel.add(linkTo(methodOn(OrderImportController.class).cancel(job.getId())).withRel("cancel"));
+        }
+        if (job.getState() == JobState.CANCELED || job.getState() == JobState.FAILED) {
+            jobModel.add(linkTo(methodOn(OrderImportController.class).resume(job.getId())).withRel("resume"));
+        }
+
+        return jobModel;
+    }
+}
@@ -17,9 +17,15 @@ public class OrderModelAssembler implements RepresentationModelAssembler<Order,
     public EntityModel<Order> toModel(Order order) {
 
         // EntityModel<T> is a generic container from Spring HATEOAS that includes not only the data but a collection of links.
+        // The orders link is expanded without a status, so that it is /orders rather than the template /orders{?status}.
         EntityModel<Order> orderModel = EntityModel.of(order,
                 linkTo(methodOn(OrderController.class).read(order.getId())).withSelfRel(),
-                linkTo(methodOn(OrderController.class).readAll()).withRel("orders"));
+                linkTo(methodOn(OrderController.class).readAll(null)).withRel("orders").expand());
+
+        if (order.getCustomer() != null) {
+            orderModel.add(linkTo(methodOn(OrderController.class).readByCustomer(order.getCustomer().getId()))
+                    .withRel("customerOrders"));
+        }
 
         if (order.getStatus() == Status.PROCESSING) {
             orderModel.add(linkTo(methodOn(OrderController.class).cancel(order.getId())).withRel("cancel"));
@@ -0,0 +1,33 @@
+package com.goviesco.orders.assembler;
+
+import com.goviesco.orders.controller.StatusTransitionJobController;
+import com.goviesco.orders.entity.StatusTransitionJob;
+import com.goviesco.orders.enumeration.JobState;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.server.RepresentationModelAssembler;
+import org.springframework.stereotype.Component;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@Component
+public class StatusTransitionJobModelAssembler
+        implements RepresentationModelAssembler<StatusTransitionJob, EntityModel<StatusTransitionJob>> {
+
+    @Override
+    public EntityModel<StatusTransitionJob> toModel(StatusTransitionJob job) {
+
+        EntityModel<StatusTransitionJob> jobModel = EntityModel.of(job,
+                linkTo(methodOn(StatusTransitionJobController.class).read(job.getId())).withSelfRel(),
+                linkTo(methodOn(StatusTransitionJobController.class).readAll()).withRel("jobs"));
+
+        if (job.getState() == JobState.PENDING || job.getState() == JobState.RUNNING) {
+            jobModel.add(linkTo(methodOn(StatusTransitionJobController.class).cancel(job.getId())).withRel("cancel"));
+        }
+        if (job.getState() == JobState.CANCELED || job.getState() == JobState.FAILED) {
+            jobModel.add(linkTo(methodOn(StatusTransitionJobController.class).resume(job.getId())).withRel("resume"));
+        }
+
+        return jobModel;
+    }
+}
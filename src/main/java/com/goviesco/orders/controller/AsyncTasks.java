@@ -0,0 +1,24 @@
+package com.goviesco.orders.controller;
+
+import com.goviesco.orders.deadline.RequestDeadline;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.concurrent.Callable;
+
+// Hands the work of the controllers to the bounded request executor instead of the Tomcat thread.
+final class AsyncTasks {
+
+    private AsyncTasks() {
+    }
+
+    // Runs the work on the request executor, within the request deadline.
+    static <T> WebAsyncTask<T> async(Callable<T> work) {
+        long remaining = RequestDeadline.remainingMillis();
+        Callable<T> task = () -> {
+            // The request may have waited in the queue until its deadline passed.
+            RequestDeadline.check();
+            return work.call();
+        };
+        return remaining == Long.MAX_VALUE ? new WebAsyncTask<>(task) : new WebAsyncTask<>(Math.max(1, remaining), task);
+    }
+}
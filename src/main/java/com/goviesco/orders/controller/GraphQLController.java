@@ -0,0 +1,38 @@
+package com.goviesco.orders.controller;
+
+import com.goviesco.orders.graphql.OrderGraph;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.Map;
+
+import static com.goviesco.orders.controller.AsyncTasks.async;
+
+@RestController
+public class GraphQLController {
+
+    private final OrderGraph graph;
+
+    public GraphQLController(OrderGraph graph) {
+        this.graph = graph;
+    }
+
+    @ApiOperation(value = "Runs a GraphQL query of orders",
+            notes = "The body holds the query, and optionally its operationName and variables. Only the selected " +
+                    "fields are returned. Errors, including a query that is too deep or too complex, are listed " +
+                    "under errors with status 200, as GraphQL does.")
+    @SuppressWarnings("unchecked")
+    @PostMapping("/graphql")
+    public WebAsyncTask<ResponseEntity<Map<String, Object>>> query(@RequestBody Map<String, Object> request) {
+        Object query = request.get("query");
+        Object operationName = request.get("operationName");
+        Object variables = request.get("variables");
+        return async(() -> ResponseEntity.ok(graph.execute(query instanceof String ? (String) query : null,
+                operationName instanceof String ? (String) operationName : null,
+                variables instanceof Map ? (Map<String, Object>) variables : null)));
+    }
+}
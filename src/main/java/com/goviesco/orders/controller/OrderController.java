@@ -3,14 +3,18 @@ package com.goviesco.orders.controller;
 import com.goviesco.orders.assembler.OrderModelAssembler;
 import com.goviesco.orders.entity.Order;
 import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.exception.CustomerNotFoundException;
 import com.goviesco.orders.exception.OrderNotFoundException;
 import com.goviesco.orders.repository.OrderRepository;
 import com.goviesco.orders.service.OrderService;
 import io.swagger.annotations.ApiOperation;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.RepresentationModel;
 import org.springframework.hateoas.mediatype.problem.Problem;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -19,13 +23,18 @@ import org.springframework.validation.FieldError;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import javax.validation.Valid;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
+import static com.goviesco.orders.controller.AsyncTasks.async;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
@@ -34,124 +43,203 @@ public class OrderController {
 
     private final OrderService service;
     private final OrderModelAssembler assembler;
+    private final int maxLookupIds;
 
-    public OrderController(OrderService service, OrderModelAssembler assembler) {
+    public OrderController(OrderService service, OrderModelAssembler assembler,
+                           @Value("${orders.lookup.max-ids:1000}") int maxLookupIds) {
         this.service = service;
         this.assembler = assembler;
+        this.maxLookupIds = maxLookupIds;
     }
 
     // CollectionModel<> is another Spring HATEOAS container that encapsulates collections of resources, instead of a single
     // resource entity, like EntityModel<>. It also lets you include links.
-    @ApiOperation(value = "Retrieves all orders",
+    @ApiOperation(value = "Retrieves all orders, or only those with the status",
             notes = "Orders with status set to PROCESSING will contain links to change status to COMPLETED " +
-                    "and CANCELED. Status cannot be changed if it is set to COMPLETED or CANCELED.")
+                    "and CANCELED. Status cannot be changed if it is set to COMPLETED or CANCELED. " +
+                    "PROCESSING orders are answered from memory, without a query.")
     @GetMapping("/orders")
-    public ResponseEntity<CollectionModel<EntityModel<Order>>> readAll() {
-        return ResponseEntity.ok(assembler.toCollectionModel(service.findAll())
-                .add(linkTo(methodOn(OrderController.class).readAll()).withSelfRel()));
+    public WebAsyncTask<ResponseEntity<CollectionModel<EntityModel<Order>>>> readAll(
+            @RequestParam(required = false) Status status) {
+        return async(() -> ResponseEntity.ok(assembler.toCollectionModel(status == null
+                        ? service.findAll()
+                        : service.findByStatus(status))
+                .add(linkTo(methodOn(OrderController.class).readAll(status)).withSelfRel().expand())));
+    }
+
+    @ApiOperation(value = "Retrieves the orders of the customer with the id or else throws CustomerNotFoundException",
+            notes = "Orders are in id order. The customer is the one an order's email belongs to.")
+    @GetMapping("/customers/{id}/orders")
+    public WebAsyncTask<ResponseEntity<CollectionModel<EntityModel<Order>>>> readByCustomer(@PathVariable Long id) {
+        return async(() -> service.findByCustomer(id)
+                .map(orders -> assembler.toCollectionModel(orders)
+                        .add(linkTo(methodOn(OrderController.class).readByCustomer(id)).withSelfRel()))
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new CustomerNotFoundException(id)));
     }
 
     @ApiOperation(value="Creates an order",
             notes="All orders are created with status set to PROCESSING.")
     @PostMapping("/orders")
-    public ResponseEntity<EntityModel<Order>> create(@Valid @RequestBody Order order) {
-        order.setStatus(Status.PROCESSING);
-        order.setDate(LocalDate.now());
-        Order newOrder = service.save(order);
-
-        return ResponseEntity
-                .created(linkTo(methodOn(OrderController.class).read(newOrder.getId())).toUri())
-                .body(assembler.toModel(newOrder));
+    public WebAsyncTask<ResponseEntity<EntityModel<Order>>> create(@Valid @RequestBody Order order) {
+        return async(() -> {
+            order.setStatus(Status.PROCESSING);
+            order.setDate(LocalDate.now());
+            Order newOrder = service.save(order);
+
+            return ResponseEntity
+                    .created(linkTo(methodOn(OrderController.class).read(newOrder.getId())).toUri())
+                    .body(assembler.toModel(newOrder));
+        });
     }
 
     @ApiOperation(value = "Retrieves the order with the id or else throws OrderNotFoundException",
                     notes = "Orders with status set to PROCESSING will contain links to change status to COMPLETED " +
                             "and CANCELED. Status cannot be changed if it is set to COMPLETED or CANCELED.")
     @GetMapping("/orders/{id}")
-    public ResponseEntity<EntityModel<Order>> read(@PathVariable Long id) {
-        return service.findById(id)
+    public WebAsyncTask<ResponseEntity<EntityModel<Order>>> read(@PathVariable Long id) {
+        return async(() -> service.findById(id)
                 .map(assembler::toModel)
                 .map(ResponseEntity::ok)
-                .orElseThrow(() -> new OrderNotFoundException(id));
+                .orElseThrow(() -> new OrderNotFoundException(id)));
+    }
+
+    @ApiOperation(value = "Retrieves the orders with the ids, in the order of the ids",
+            notes = "The body is a JSON array of up to orders.lookup.max-ids ids. The orders are read together, " +
+                    "with their lines and address, instead of one request per order. An id given twice is answered " +
+                    "once. Ids without an order, in the orders table or the archive, are listed under missing.")
+    @PostMapping("/orders/lookup")
+    public WebAsyncTask<ResponseEntity<?>> lookup(@RequestBody List<Long> ids) {
+        return async(() -> {
+            if (ids.size() > maxLookupIds) {
+                return ResponseEntity
+                        .status(HttpStatus.BAD_REQUEST)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
+                        .body(Problem.create()
+                                .withTitle("Bad request")
+                                .withDetail(String.format("Cannot look up more than %d orders at once, not %d",
+                                        maxLookupIds, ids.size())));
+            }
+
+            LinkedHashSet<Long> requested = new LinkedHashSet<>(ids);
+            requested.remove(null);
+            Map<Long, Order> found = new HashMap<>();
+            service.findAllById(requested).forEach(order -> found.put(order.getId(), order));
+
+            List<EntityModel<Order>> orders = new ArrayList<>(requested.size());
+            List<Long> missing = new ArrayList<>();
+            for (Long id : requested) {
+                Order order = found.get(id);
+                if (order == null) {
+                    missing.add(id);
+                } else {
+                    orders.add(assembler.toModel(order));
+                }
+            }
+
+            return ResponseEntity.ok(new LookupModel(orders, missing)
+                    .add(linkTo(methodOn(OrderController.class).lookup(ids)).withSelfRel()));
+        });
     }
 
-    @ApiOperation(value = "Updates the order with the id or else throws OrderNotFoundException")
+    @ApiOperation(value = "Updates the order with the id or else throws OrderNotFoundException",
+            notes = "An order without a status keeps its status. Changing the status is only allowed from PROCESSING " +
+                    "to COMPLETED or CANCELED, which sends the webhooks of the order. If another request changed " +
+                    "the order meanwhile, the update fails with 409 Conflict.")
     @PutMapping("/orders/{id}")
-    public ResponseEntity<?> update(@Valid @RequestBody Order newOrder, @PathVariable Long id) {
-        Order updatedOrder = service.findById(id)
-                .map(order -> {
-                    order.setStatus(newOrder.getStatus());
-                    order.setFirstName(newOrder.getFirstName());
-                    order.setLastName(newOrder.getLastName());
-                    order.setEmail(newOrder.getEmail());
-                    order.setPhone(newOrder.getPhone());
-                    order.setAddress(newOrder.getAddress());
-                    // Note: the existing list is modified; reassigning it would lead to a persistence exception.
-                    order.getOrderLines().clear();
-                    order.getOrderLines().addAll(newOrder.getOrderLines());
-                    order.setShipping(newOrder.getShipping());
-                    order.setTax(newOrder.getTax());
-                    return service.save(order);
-                })
-                .orElseThrow(() -> new OrderNotFoundException(id));
-
-        EntityModel<Order> entityModel = assembler.toModel(updatedOrder);
-
-        return ResponseEntity
-                .created(entityModel.getRequiredLink(IanaLinkRelations.SELF).toUri())
-                .body(entityModel);
+    public WebAsyncTask<ResponseEntity<?>> update(@Valid @RequestBody Order newOrder, @PathVariable Long id) {
+        return async(() -> {
+            Order order = service.findById(id)
+                    .orElseThrow(() -> new OrderNotFoundException(id));
+
+            Status status = newOrder.getStatus() == null ? order.getStatus() : newOrder.getStatus();
+            if (status != order.getStatus() && !Status.canTransition(order.getStatus(), status)) {
+                return ResponseEntity
+                        .status(HttpStatus.METHOD_NOT_ALLOWED)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
+                        .body(Problem.create()
+                                .withTitle("Method not allowed")
+                                .withDetail(String.format("Not allowed to change the status of an order from %s to %s",
+                                        order.getStatus(), status)));
+            }
+
+            order.setStatus(status);
+            order.setFirstName(newOrder.getFirstName());
+            order.setLastName(newOrder.getLastName());
+            order.setEmail(newOrder.getEmail());
+            order.setPhone(newOrder.getPhone());
+            order.setAddress(newOrder.getAddress());
+            // Note: the existing list is modified; reassigning it would lead to a persistence exception.
+            order.getOrderLines().clear();
+            order.getOrderLines().addAll(newOrder.getOrderLines());
+            order.setShipping(newOrder.getShipping());
+            order.setTax(newOrder.getTax());
+            Order updatedOrder = service.save(order);
+
+            EntityModel<Order> entityModel = assembler.toModel(updatedOrder);
+
+            return ResponseEntity
+                    .created(entityModel.getRequiredLink(IanaLinkRelations.SELF).toUri())
+                    .body(entityModel);
+        });
     }
 
     @ApiOperation(value = "Removes the order with the id or else throws OrderNotFoundException")
     @DeleteMapping("/orders/{id}")
-    public ResponseEntity<?> delete(@PathVariable Long id) {
-        Order order = service.findById(id)
-                .orElseThrow(() -> new OrderNotFoundException(id));
+    public WebAsyncTask<ResponseEntity<?>> delete(@PathVariable Long id) {
+        return async(() -> {
+            Order order = service.findById(id)
+                    .orElseThrow(() -> new OrderNotFoundException(id));
 
-        service.delete(order);
-        return ResponseEntity.noContent().build();
+            service.delete(order);
+            return ResponseEntity.noContent().build();
+        });
     }
 
     @ApiOperation(value = "Changes the status of the order with the id from PROCESSING to CANCELED or else throws OrderNotFoundException",
-            notes = "If the status is not set to PROCESSING, this method is not allowed")
+            notes = "If the status is not set to PROCESSING, this method is not allowed. The webhooks of the order " +
+                    "are sent after the response, never delaying it.")
     @PutMapping("/orders/{id}/cancel")
-    public ResponseEntity<?> cancel(@PathVariable Long id) {
+    public WebAsyncTask<ResponseEntity<?>> cancel(@PathVariable Long id) {
+        return async(() -> {
+            Order order = service.findById(id)
+                    .orElseThrow(() -> new OrderNotFoundException(id));
 
-        Order order = service.findById(id)
-                .orElseThrow(() -> new OrderNotFoundException(id));
+            if (Status.canTransition(order.getStatus(), Status.CANCELED)) {
+                order.setStatus(Status.CANCELED);
+                return ResponseEntity.ok(assembler.toModel(service.save(order)));
+            }
 
-        if (order.getStatus() == Status.PROCESSING) {
-            order.setStatus(Status.CANCELED);
-            return ResponseEntity.ok(assembler.toModel(service.save(order)));
-        }
-
-        return ResponseEntity
-                .status(HttpStatus.METHOD_NOT_ALLOWED)
-                .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
-                .body(Problem.create()
-                        .withTitle("Method not allowed")
-                        .withDetail(String.format("Not allowed to cancel an order with status %s", order.getStatus())));
+            return ResponseEntity
+                    .status(HttpStatus.METHOD_NOT_ALLOWED)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
+                    .body(Problem.create()
+                            .withTitle("Method not allowed")
+                            .withDetail(String.format("Not allowed to cancel an order with status %s", order.getStatus())));
+        });
     }
 
     @ApiOperation(value = "Changes the status of the order with the id from PROCESSING to COMPLETED or else throws OrderNotFoundException",
-            notes = "If the status is not set to PROCESSING, this method is not allowed")
+            notes = "If the status is not set to PROCESSING, this method is not allowed. The webhooks of the order " +
+                    "are sent after the response, never delaying it.")
     @PutMapping("/orders/{id}/complete")
-    public ResponseEntity<?> complete(@PathVariable Long id) {
-
-        Order order = service.findById(id)
-                .orElseThrow(() -> new OrderNotFoundException(id));
+    public WebAsyncTask<ResponseEntity<?>> complete(@PathVariable Long id) {
+        return async(() -> {
+            Order order = service.findById(id)
+                    .orElseThrow(() -> new OrderNotFoundException(id));
 
-        if (order.getStatus() == Status.PROCESSING) {
-            order.setStatus(Status.COMPLETED);
-            return ResponseEntity.ok(assembler.toModel(service.save(order)));
-        }
+            if (Status.canTransition(order.getStatus(), Status.COMPLETED)) {
+                order.setStatus(Status.COMPLETED);
+                return ResponseEntity.ok(assembler.toModel(service.save(order)));
+            }
 
-        return ResponseEntity
-                .status(HttpStatus.METHOD_NOT_ALLOWED)
-                .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
-                .body(Problem.create()
-                        .withTitle("Method not allowed")
-                        .withDetail(String.format("Not allowed to complete an order with status %s", order.getStatus())));
+            return ResponseEntity
+                    .status(HttpStatus.METHOD_NOT_ALLOWED)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
+                    .body(Problem.create()
+                            .withTitle("Method not allowed")
+                            .withDetail(String.format("Not allowed to complete an order with status %s", order.getStatus())));
+        });
     }
 
     // Handles errors in user input.
@@ -166,4 +254,17 @@ public class OrderController {
         });
         return errors;
     }
+
+    // The orders found by a lookup, in the order of the ids asked for, and the ids of those that were not.
+    @Getter
+    public static class LookupModel extends RepresentationModel<LookupModel> {
+
+        private final List<EntityModel<Order>> orders;
+        private final List<Long> missing;
+
+        public LookupModel(List<EntityModel<Order>> orders, List<Long> missing) {
+            this.orders = orders;
+            this.missing = missing;
+        }
+    }
 }
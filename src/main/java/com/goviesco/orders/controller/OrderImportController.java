@@ -0,0 +1,146 @@
+package com.goviesco.orders.controller;
+
+import com.goviesco.orders.assembler.ImportJobModelAssembler;
+import com.goviesco.orders.entity.ImportJob;
+import com.goviesco.orders.enumeration.ImportFormat;
+import com.goviesco.orders.exception.ImportJobNotFoundException;
+import com.goviesco.orders.importing.OrderImportService;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.mediatype.problem.Problem;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@RestController
+public class OrderImportController {
+
+    private final OrderImportService service;
+    private final ImportJobModelAssembler assembler;
+
+    public OrderImportController(OrderImportService service, ImportJobModelAssembler assembler) {
+        this.service = service;
+        this.assembler = assembler;
+    }
+
+    @ApiOperation(value = "Retrieves all import jobs")
+    @GetMapping("/jobs/imports")
+    public ResponseEntity<CollectionModel<EntityModel<ImportJob>>> readAll() {
+        return ResponseEntity.ok(assembler.toCollectionModel(service.findAll())
+                .add(linkTo(methodOn(OrderImportController.class).readAll()).withSelfRel()));
+    }
+
+    @ApiOperation(value = "Uploads a file of orders and imports them in the background",
+            notes = "The body is the file itself: text/csv with a header row, or application/x-ndjson with one order " +
+                    "per line in the JSON of POST /orders. Orders are validated as in POST /orders; rows that fail " +
+                    "are listed by the errors link of the job.")
+    @PostMapping(value = "/jobs/imports", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<?> create(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body)
+            throws IOException {
+        ImportJob newJob;
+        try {
+            newJob = service.submit(ImportFormat.fromContentType(contentType), body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
+                    .body(Problem.create()
+                            .withTitle("Bad request")
+                            .withDetail(e.getMessage()));
+        }
+
+        return ResponseEntity
+                .accepted()
+                .location(linkTo(methodOn(OrderImportController.class).read(newJob.getId())).toUri())
+                .body(assembler.toModel(newJob));
+    }
+
+    @ApiOperation(value = "Retrieves the job with the id, including its progress, or else throws ImportJobNotFoundException")
+    @GetMapping("/jobs/imports/{id}")
+    public ResponseEntity<EntityModel<ImportJob>> read(@PathVariable Long id) {
+        return service.findById(id)
+                .map(assembler::toModel)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ImportJobNotFoundException(id));
+    }
+
+    @ApiOperation(value = "Retrieves the rows of the job that could not be imported as CSV (line,message), or else " +
+            "throws ImportJobNotFoundException")
+    @GetMapping(value = "/jobs/imports/{id}/errors", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> errors(@PathVariable Long id) {
+        service.findById(id).orElseThrow(() -> new ImportJobNotFoundException(id));
+
+        StreamingResponseBody report = out -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write("line,message\n");
+            try {
+                service.forEachError(id, error -> {
+                    try {
+                        writer.write(error.getLine() + ",\"" + error.getMessage().replace("\"", "\"\"") + "\"\n");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .body(report);
+    }
+
+    @ApiOperation(value = "Cancels the job with the id or else throws ImportJobNotFoundException",
+            notes = "Orders imported before the job was canceled are kept. If the job is not PENDING or RUNNING, this " +
+                    "method is not allowed")
+    @PutMapping("/jobs/imports/{id}/cancel")
+    public ResponseEntity<?> cancel(@PathVariable Long id) {
+        ImportJob job = service.findById(id)
+                .orElseThrow(() -> new ImportJobNotFoundException(id));
+
+        if (service.cancel(id)) {
+            return read(id);
+        }
+
+        return methodNotAllowed(String.format("Not allowed to cancel a job with state %s", job.getState()));
+    }
+
+    @ApiOperation(value = "Resumes the job with the id after the last rows it imported or else throws " +
+            "ImportJobNotFoundException", notes = "If the job is not CANCELED or FAILED, this method is not allowed")
+    @PutMapping("/jobs/imports/{id}/resume")
+    public ResponseEntity<?> resume(@PathVariable Long id) {
+        ImportJob job = service.findById(id)
+                .orElseThrow(() -> new ImportJobNotFoundException(id));
+
+        if (service.resume(id)) {
+            return read(id);
+        }
+
+        return methodNotAllowed(String.format("Not allowed to resume a job with state %s", job.getState()));
+    }
+
+    private static ResponseEntity<?> methodNotAllowed(String detail) {
+        return ResponseEntity
+                .status(HttpStatus.METHOD_NOT_ALLOWED)
+                .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
+                .body(Problem.create()
+                        .withTitle("Method not allowed")
+                        .withDetail(detail));
+    }
+}
@@ -0,0 +1,64 @@
+package com.goviesco.orders.controller;
+
+import com.goviesco.orders.assembler.OrderModelAssembler;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.search.OrderSearchIndex;
+import com.goviesco.orders.service.OrderService;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@RestController
+public class OrderSearchController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final OrderSearchIndex index;
+    private final OrderService service;
+    private final OrderModelAssembler assembler;
+
+    public OrderSearchController(OrderSearchIndex index, OrderService service, OrderModelAssembler assembler) {
+        this.index = index;
+        this.service = service;
+        this.assembler = assembler;
+    }
+
+    @ApiOperation(value = "Searches orders by partial first name, last name, email, phone, brand or model",
+            notes = "Every word of the query must match the start of a word in one of these fields. A query made of " +
+                    "digits matches any part of the phone number. The best matches come first.")
+    @GetMapping("/orders/search")
+    public ResponseEntity<CollectionModel<EntityModel<Order>>> search(@RequestParam String q,
+                                                                      @RequestParam(defaultValue = "20") int limit) {
+        List<Long> ids = index.search(q, Math.max(1, Math.min(limit, MAX_LIMIT)));
+
+        Map<Long, Order> orders = new HashMap<>();
+        service.findAllById(ids).forEach(order -> orders.put(order.getId(), order));
+
+        // Keeps the ranking of the index. Orders that are no longer in the orders table may be archived.
+        List<Order> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Order order = orders.get(id);
+            if (order == null) {
+                order = service.findById(id).orElse(null);
+            }
+            if (order != null) {
+                results.add(order);
+            }
+        }
+
+        return ResponseEntity.ok(assembler.toCollectionModel(results)
+                .add(linkTo(methodOn(OrderSearchController.class).search(q, limit)).withSelfRel()));
+    }
+}
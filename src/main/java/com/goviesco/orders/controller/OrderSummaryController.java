@@ -0,0 +1,56 @@
+package com.goviesco.orders.controller;
+
+import com.goviesco.orders.service.OrderSummaries;
+import com.goviesco.orders.service.OrderSummaryReport;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.mediatype.problem.Problem;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@RestController
+public class OrderSummaryController {
+
+    private final OrderSummaries summaries;
+
+    public OrderSummaryController(OrderSummaries summaries) {
+        this.summaries = summaries;
+    }
+
+    @ApiOperation(value = "Retrieves the number of orders and their revenue by status, for each date of a range",
+            notes = "Dates are yyyy-mm-dd; both default to today, and from defaults to to. The summary is kept up " +
+                    "to date as orders change, so the answer does not depend on how many orders there are; a range " +
+                    "may span up to orders.summary.max-days days.")
+    @GetMapping("/orders/summary")
+    public ResponseEntity<?> summary(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to == null ? LocalDate.now() : to;
+        LocalDate start = from == null ? end : from;
+        OrderSummaryReport report;
+        try {
+            report = summaries.report(start, end);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
+                    .body(Problem.create()
+                            .withTitle("Bad request")
+                            .withDetail(e.getMessage()));
+        }
+
+        return ResponseEntity.ok(EntityModel.of(report,
+                linkTo(methodOn(OrderSummaryController.class).summary(start, end)).withSelfRel()));
+    }
+}
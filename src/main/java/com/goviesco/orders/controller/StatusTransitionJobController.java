@@ -0,0 +1,109 @@
+package com.goviesco.orders.controller;
+
+import com.goviesco.orders.assembler.StatusTransitionJobModelAssembler;
+import com.goviesco.orders.entity.StatusTransitionJob;
+import com.goviesco.orders.exception.StatusTransitionJobNotFoundException;
+import com.goviesco.orders.service.StatusTransitionJobService;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.mediatype.problem.Problem;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@RestController
+public class StatusTransitionJobController {
+
+    private final StatusTransitionJobService service;
+    private final StatusTransitionJobModelAssembler assembler;
+
+    public StatusTransitionJobController(StatusTransitionJobService service, StatusTransitionJobModelAssembler assembler) {
+        this.service = service;
+        this.assembler = assembler;
+    }
+
+    @ApiOperation(value = "Retrieves all status transition jobs")
+    @GetMapping("/jobs/status-transitions")
+    public ResponseEntity<CollectionModel<EntityModel<StatusTransitionJob>>> readAll() {
+        return ResponseEntity.ok(assembler.toCollectionModel(service.findAll())
+                .add(linkTo(methodOn(StatusTransitionJobController.class).readAll()).withSelfRel()));
+    }
+
+    @ApiOperation(value = "Submits a job that changes the status of every matching order in the background",
+            notes = "Orders are matched by status (PROCESSING by default), date range and ids. Only the transitions " +
+                    "allowed for a single order are allowed: PROCESSING to COMPLETED or CANCELED.")
+    @PostMapping("/jobs/status-transitions")
+    public ResponseEntity<?> create(@Valid @RequestBody StatusTransitionJob job) {
+        StatusTransitionJob newJob;
+        try {
+            newJob = service.submit(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
+                    .body(Problem.create()
+                            .withTitle("Bad request")
+                            .withDetail(e.getMessage()));
+        }
+
+        return ResponseEntity
+                .accepted()
+                .location(linkTo(methodOn(StatusTransitionJobController.class).read(newJob.getId())).toUri())
+                .body(assembler.toModel(newJob));
+    }
+
+    @ApiOperation(value = "Retrieves the job with the id, including its progress, or else throws StatusTransitionJobNotFoundException")
+    @GetMapping("/jobs/status-transitions/{id}")
+    public ResponseEntity<EntityModel<StatusTransitionJob>> read(@PathVariable Long id) {
+        return service.findById(id)
+                .map(assembler::toModel)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new StatusTransitionJobNotFoundException(id));
+    }
+
+    @ApiOperation(value = "Cancels the job with the id or else throws StatusTransitionJobNotFoundException",
+            notes = "Orders changed before the job was canceled keep their new status. If the job is not PENDING or " +
+                    "RUNNING, this method is not allowed")
+    @PutMapping("/jobs/status-transitions/{id}/cancel")
+    public ResponseEntity<?> cancel(@PathVariable Long id) {
+        StatusTransitionJob job = service.findById(id)
+                .orElseThrow(() -> new StatusTransitionJobNotFoundException(id));
+
+        if (service.cancel(id)) {
+            return read(id);
+        }
+
+        return methodNotAllowed(String.format("Not allowed to cancel a job with state %s", job.getState()));
+    }
+
+    @ApiOperation(value = "Resumes the job with the id where it stopped or else throws StatusTransitionJobNotFoundException",
+            notes = "If the job is not CANCELED or FAILED, this method is not allowed")
+    @PutMapping("/jobs/status-transitions/{id}/resume")
+    public ResponseEntity<?> resume(@PathVariable Long id) {
+        StatusTransitionJob job = service.findById(id)
+                .orElseThrow(() -> new StatusTransitionJobNotFoundException(id));
+
+        if (service.resume(id)) {
+            return read(id);
+        }
+
+        return methodNotAllowed(String.format("Not allowed to resume a job with state %s", job.getState()));
+    }
+
+    private static ResponseEntity<?> methodNotAllowed(String detail) {
+        return ResponseEntity
+                .status(HttpStatus.METHOD_NOT_ALLOWED)
+                .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
+                .body(Problem.create()
+                        .withTitle("Method not allowed")
+                        .withDetail(detail));
+    }
+}
@@ -0,0 +1,53 @@
+package com.goviesco.orders.deadline;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Gives each request the number of milliseconds in the X-Request-Timeout header to complete, or
+ * orders.deadline.default-ms when it has none, but never more than orders.deadline.max-ms.
+ */
+@Component
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final long defaultMillis;
+    private final long maxMillis;
+
+    public DeadlineFilter(@Value("${orders.deadline.default-ms:10000}") long defaultMillis,
+                          @Value("${orders.deadline.max-ms:60000}") long maxMillis) {
+        this.defaultMillis = defaultMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestDeadline.start(budget(request.getHeader(TIMEOUT_HEADER)));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+
+    private long budget(String header) {
+        if (header == null || header.isBlank()) {
+            return defaultMillis;
+        }
+        try {
+            long millis = Long.parseLong(header.trim());
+            return millis > 0 ? Math.min(millis, maxMillis) : defaultMillis;
+        } catch (NumberFormatException e) {
+            return defaultMillis;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.goviesco.orders.deadline;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Runs the asynchronous part of a request with its deadline and its request attributes, which links and the replica
+ * routing read. The attributes are copied, because the originals are closed when the request thread is released.
+ */
+public class DeadlineTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        RequestAttributes copy = attributes instanceof ServletRequestAttributes
+                ? new ServletRequestAttributes(((ServletRequestAttributes) attributes).getRequest(),
+                        ((ServletRequestAttributes) attributes).getResponse())
+                : attributes;
+        Runnable task = RequestDeadline.propagate(runnable);
+        return () -> {
+            RequestContextHolder.setRequestAttributes(copy);
+            try {
+                task.run();
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package com.goviesco.orders.deadline;
+
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+/**
+ * Limits each transaction to the time left before the request deadline. Hibernate turns the transaction timeout into
+ * the query timeout of every statement, so a slow query is canceled by the database instead of holding the request.
+ */
+public class DeadlineTransactionManager extends JpaTransactionManager {
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        RequestDeadline.check();
+        super.doBegin(transaction, definition);
+    }
+
+    // JDBC timeouts are in whole seconds, so the remaining time is rounded up.
+    @Override
+    protected int determineTimeout(TransactionDefinition definition) {
+        int timeout = super.determineTimeout(definition);
+        long remaining = RequestDeadline.remainingMillis();
+        if (remaining == Long.MAX_VALUE) {
+            return timeout;
+        }
+        int seconds = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (remaining + 999) / 1000));
+        return timeout == TransactionDefinition.TIMEOUT_DEFAULT ? seconds : Math.min(timeout, seconds);
+    }
+}
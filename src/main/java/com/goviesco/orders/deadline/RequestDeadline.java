@@ -0,0 +1,86 @@
+package com.goviesco.orders.deadline;
+
+import com.goviesco.orders.exception.DeadlineExceededException;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The time by which the current request must be answered, set by the DeadlineFilter. Transactions started before it
+ * get the remaining time as their timeout, which Hibernate applies as the query timeout of every JDBC statement.
+ * Work handed to another thread must be wrapped with propagate() to keep the deadline.
+ */
+public final class RequestDeadline {
+
+    // From System.nanoTime().
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    public static void start(long budgetMillis) {
+        DEADLINE.set(System.nanoTime() + budgetMillis * 1_000_000L);
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    public static boolean isSet() {
+        return DEADLINE.get() != null;
+    }
+
+    // Long.MAX_VALUE when there is no deadline; zero or less once it passed.
+    public static long remainingMillis() {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.floorDiv(deadline - System.nanoTime(), 1_000_000L);
+    }
+
+    public static void check() {
+        if (remainingMillis() <= 0) {
+            throw new DeadlineExceededException();
+        }
+    }
+
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return task;
+        }
+        return () -> {
+            Long previous = DEADLINE.get();
+            DEADLINE.set(deadline);
+            try {
+                return task.call();
+            } finally {
+                if (previous == null) {
+                    DEADLINE.remove();
+                } else {
+                    DEADLINE.set(previous);
+                }
+            }
+        };
+    }
+
+    public static Runnable propagate(Runnable task) {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return task;
+        }
+        return () -> {
+            Long previous = DEADLINE.get();
+            DEADLINE.set(deadline);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    DEADLINE.remove();
+                } else {
+                    DEADLINE.set(previous);
+                }
+            }
+        };
+    }
+}
@@ -1,18 +1,27 @@
 package com.goviesco.orders.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Size;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
+// Addresses are shared: every order sent to the same address refers to one row, found by the hash of its content.
+// A shared row is never changed; an order whose address changes is given another row.
 @ToString @EqualsAndHashCode
 @Getter @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 @Entity
 @Table(name = "addresses")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "addresses")
 public class Address {
 
     @Id
@@ -43,4 +52,42 @@ public class Address {
     @Size(min = 5, max = 10, message = "Zip code must be between 5 and 10 characters, inclusive.")
     @Column(length = 10)
     private String zip;
+
+    // SHA-256 of the content, in hex. Unique, so concurrent inserts of one address cannot both succeed.
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @Column(length = 64, unique = true)
+    private String hash;
+
+    public Address(Long id, String address1, String address2, String city, String state, String zip) {
+        this.id = id;
+        this.address1 = address1;
+        this.address2 = address2;
+        this.city = city;
+        this.state = state;
+        this.zip = zip;
+    }
+
+    // Exact content: fields are not trimmed or case folded, so an order reads back the address it was sent.
+    public String contentHash() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (String field : new String[]{address1, address2, city, state, zip}) {
+            // Each field is tagged, so that null and "" differ, and ended, so that fields cannot run together.
+            digest.update((byte) (field == null ? 0 : 1));
+            if (field != null) {
+                digest.update(field.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
 }
@@ -0,0 +1,59 @@
+package com.goviesco.orders.entity;
+
+import com.goviesco.orders.enumeration.Status;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// A COMPLETED or CANCELED order moved out of the orders, addresses and order_lines tables.
+// The whole order, with its address and lines, is kept as gzipped JSON; see OrderArchiveCodec.
+@ToString @EqualsAndHashCode
+@Getter @Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "archived_orders")
+public class ArchivedOrder implements Persistable<Long> {
+
+    // Note: the id of the order is kept, so the order can still be read at /orders/{id}.
+    @Id
+    private Long id;
+
+    @Column(length = 4)
+    private Status status;
+
+    private LocalDate date;
+
+    private LocalDateTime archivedAt;
+
+    @Lob
+    @ToString.Exclude
+    private byte[] payload;
+
+    // Ids are assigned, so without this flag Spring Data would SELECT every archived order before inserting it.
+    @Transient
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    @ToString.Exclude @EqualsAndHashCode.Exclude
+    private boolean stored;
+
+    public ArchivedOrder(Long id, Status status, LocalDate date, LocalDateTime archivedAt, byte[] payload) {
+        this.id = id;
+        this.status = status;
+        this.date = date;
+        this.archivedAt = archivedAt;
+        this.payload = payload;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !stored;
+    }
+
+    @PostLoad
+    @PostPersist
+    private void markStored() {
+        this.stored = true;
+    }
+}
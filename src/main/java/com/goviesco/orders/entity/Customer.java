@@ -0,0 +1,38 @@
+package com.goviesco.orders.entity;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import javax.persistence.*;
+
+// The customer an order was placed by, found by email. Their name and phone are the ones of their first order, and are
+// never changed by a later one; each order keeps the name and phone it was placed with.
+@ToString @EqualsAndHashCode
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "customers")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customers")
+public class Customer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ApiModelProperty(value = "Customer Id - auto generated")
+    private Long id;
+
+    @Column(length = 50, unique = true)
+    private String email;
+
+    @Column(length = 25)
+    private String firstName;
+
+    @Column(length = 25)
+    private String lastName;
+
+    @Column(length = 25)
+    private String phone;
+}
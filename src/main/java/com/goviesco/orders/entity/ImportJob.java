@@ -0,0 +1,63 @@
+package com.goviesco.orders.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.goviesco.orders.enumeration.ImportFormat;
+import com.goviesco.orders.enumeration.JobState;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// A background job that imports the orders in an uploaded file. Rows that fail are recorded as ImportRowErrors.
+@ToString @EqualsAndHashCode
+@Getter @Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "import_jobs")
+public class ImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ApiModelProperty(value = "Job Id - auto generated")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    @ApiModelProperty(value = "Format of the file, from the Content-Type of the upload.")
+    private ImportFormat format;
+
+    @JsonIgnore
+    @Column(length = 255)
+    private String file;
+
+    @ApiModelProperty(value = "Size of the uploaded file in bytes.")
+    private long size;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    @ApiModelProperty(value = "State - automatically set to PENDING when the file is uploaded.")
+    private JobState state;
+
+    @ApiModelProperty(value = "Byte offset of the first row not yet imported. The job resumes from it.")
+    private long position;
+
+    @ApiModelProperty(value = "Number of lines of the file read up to the position.")
+    private long line;
+
+    @ApiModelProperty(value = "Number of orders imported so far.")
+    private long imported;
+
+    @ApiModelProperty(value = "Number of rows that could not be imported so far.")
+    private long failed;
+
+    @Column(length = 255)
+    @ApiModelProperty(value = "Reason the job failed, if it did.")
+    private String error;
+
+    @ApiModelProperty(value = "Auto generated when the file is uploaded.")
+    private LocalDateTime createdAt;
+
+    @ApiModelProperty(value = "Auto generated whenever progress is recorded.")
+    private LocalDateTime updatedAt;
+}
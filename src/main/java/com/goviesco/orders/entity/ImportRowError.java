@@ -0,0 +1,32 @@
+package com.goviesco.orders.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+// A row of an imported file that could not be parsed or validated.
+@ToString @EqualsAndHashCode
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "import_errors", indexes = @Index(columnList = "jobId, line"))
+public class ImportRowError {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long jobId;
+
+    private long line;
+
+    @Column(length = 1000)
+    private String message;
+
+    public ImportRowError(Long jobId, long line, String message) {
+        this.jobId = jobId;
+        this.line = line;
+        this.message = message;
+    }
+}
@@ -1,25 +1,34 @@
 package com.goviesco.orders.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.money.Money;
+import com.goviesco.orders.validation.EmailAddress;
+import com.goviesco.orders.validation.PhoneNumber;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.Valid;
 import javax.validation.constraints.*;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+// The email of an order is stored once, in its Customer, and its address is a shared Address row; the email is filled
+// in from the customer when the order is loaded, and CustomerService.attach() finds the customer on save. The name and
+// phone are the ones the order was placed with, so they stay on the order.
 @ToString @EqualsAndHashCode
 @Getter @Setter
 @Entity // JPA annotation to make this object ready for storage in a JPA-based data store.
 @NoArgsConstructor
-@AllArgsConstructor
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "orders_customer_id", columnList = "customer_id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "orders")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Order {
 
@@ -29,6 +38,13 @@ public class Order {
     @ApiModelProperty(value = "Order Id - auto generated")
     private Long id;
 
+    // Incremented by every update, so that a request saving an order another request changed after it was read fails
+    // with a conflict instead of overwriting that change. Rows inserted with JDBC start at 0.
+    @JsonIgnore
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     @ApiModelProperty(value = "Date - auto generated when order is created (yyyy-mm-dd).")
     private LocalDate date;
 
@@ -46,23 +62,30 @@ public class Order {
     @NotBlank(message = "Last name is required.")
     private String lastName;
 
-    @Column(length = 50)
+    @Transient
     @NotBlank(message = "Email is required.")
-    // Regexp provided by RFC 5322. Allows all characters except | and ' due to sql injection risk.
-    @Email(regexp = "^[a-zA-Z0-9_!#$%&'*+/=?`{|}~^.-]+@[a-zA-Z0-9.-]+$", message = "Email format is invalid.")
+    // Format based on RFC 5322, see OrderConstraints.isEmail(). Checked without a regular expression.
+    @EmailAddress(message = "Email format is invalid.")
     private String email;
 
     @Column(length = 25)
-    @Pattern(regexp = "^((\\+\\d{1,3}( )?)?((\\(\\d{3}\\))|\\d{3})[- .]?\\d{3}[- .]?\\d{4})?$", message = "Phone number format is invalid. Valid formats include (but are not limited to) 2134541324, (213) 454-1324, and +111 (213) 454-1324.")
+    @PhoneNumber(message = "Phone number format is invalid. Valid formats include (but are not limited to) 2134541324, (213) 454-1324, and +111 (213) 454-1324.")
     private String phone;
 
     @Valid
     @NotNull(message = "Address is required.")
-    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "address_id")
     private Address address;
 
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "customer_id")
+    private Customer customer;
+
     @Valid
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "order_line_collections")
     private List<OrderLine> orderLines;
 
     @NotNull(message = "Tax is required.")
@@ -81,6 +104,24 @@ public class Order {
     @ApiModelProperty(value = "Total is calculated.")
     private BigDecimal total;
 
+    public Order(Long id, LocalDate date, Status status, String firstName, String lastName, String email, String phone,
+                 Address address, List<OrderLine> orderLines, BigDecimal tax, BigDecimal shipping, BigDecimal subtotal,
+                 BigDecimal total) {
+        this.id = id;
+        this.date = date;
+        this.status = status;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.phone = phone;
+        this.address = address;
+        this.orderLines = orderLines;
+        this.tax = tax;
+        this.shipping = shipping;
+        this.subtotal = subtotal;
+        this.total = total;
+    }
+
     public Order(long id, Status status, String firstName, String lastName, String email, String phone, Address address,
                  List<OrderLine> orderLines, BigDecimal tax, BigDecimal shipping, BigDecimal subtotal, BigDecimal total) {
         
@@ -99,17 +140,31 @@ public class Order {
     }
 
     @PostLoad
-    private void calculateTotals() {
-        this.subtotal = new BigDecimal("0")
-                .setScale(2, RoundingMode.HALF_UP);
-
-        for(OrderLine line : orderLines) {
-            BigDecimal quantity = new BigDecimal(line.getQuantity());
-            BigDecimal lineTotal = quantity.multiply(line.getCost());
-            subtotal = subtotal.add(lineTotal);
+    void loaded() {
+        readCustomer();
+        calculateTotals();
+    }
+
+    // Fills in the email from the customer. Also called before the order is written, since a merge copies only the
+    // columns of the order, and the email of the copy is validated.
+    @PrePersist
+    @PreUpdate
+    public void readCustomer() {
+        if (customer != null) {
+            this.email = customer.getEmail();
+        }
+    }
+
+    // Also called for orders that are not loaded by JPA, such as those replayed from order events. Summed in cents,
+    // so an order with many lines does not build a BigDecimal per line; throws ArithmeticException on overflow.
+    public void calculateTotals() {
+        long subtotalCents = 0;
+        for (OrderLine line : orderLines) {
+            subtotalCents = Money.add(subtotalCents, Money.multiply(Money.cents(line.getCost()), line.getQuantity()));
         }
+        long totalCents = Money.add(subtotalCents, Money.add(Money.cents(this.tax), Money.cents(this.shipping)));
 
-        this.total = this.subtotal.add(this.tax)
-                .add(this.shipping);
+        this.subtotal = Money.toBigDecimal(subtotalCents);
+        this.total = Money.toBigDecimal(totalCents);
     }
 }
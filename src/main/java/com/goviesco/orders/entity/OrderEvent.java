@@ -0,0 +1,40 @@
+package com.goviesco.orders.entity;
+
+import com.goviesco.orders.enumeration.OrderEventType;
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// One change to an order in the append-only log of the event-sourced profile. The id orders all events; the version
+// orders the events of one order. The payload holds only the fields the event changed, as JSON.
+@ToString @EqualsAndHashCode
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "order_events", uniqueConstraints = @UniqueConstraint(columnNames = {"orderId", "version"}))
+public class OrderEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long orderId;
+
+    private long version;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private OrderEventType type;
+
+    private LocalDateTime occurredAt;
+
+    @Lob
+    private String payload;
+
+    public OrderEvent(OrderEventType type, String payload) {
+        this.type = type;
+        this.payload = payload;
+    }
+}
@@ -1,7 +1,10 @@
 package com.goviesco.orders.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -10,12 +13,15 @@ import javax.validation.constraints.PositiveOrZero;
 import javax.validation.constraints.Size;
 import java.math.BigDecimal;
 
+// The brand and model of a line are stored once per product, in its Product; the fields here are filled in from it when
+// the line is loaded, and ProductCatalog.attach() sets the product on save.
 @ToString @EqualsAndHashCode
 @Getter @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 @Entity
-@Table(name = "order_lines")
+@Table(name = "order_lines", indexes = @Index(name = "order_lines_product_id", columnList = "product_id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "order_lines")
 public class OrderLine {
 
     @Id
@@ -23,13 +29,13 @@ public class OrderLine {
     @ApiModelProperty(value = "OrderLine Id - auto generated")
     private Long id;
 
+    @Transient
     @Size(min = 1, max = 25, message = "Brand must be between 1 and 25 characters, inclusive.")
-    @Column(length = 25)
     @NotBlank(message = "Brand is required.")
     private String brand;
 
+    @Transient
     @Size(min = 1, max = 25, message = "Model must be between 1 and 25 characters, inclusive.")
-    @Column(length = 25)
     @NotBlank(message = "Model is required.")
     private String model;
 
@@ -41,4 +47,28 @@ public class OrderLine {
     @PositiveOrZero(message = "Quantity must be positive or zero.")
     private Integer quantity;
 
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "product_id")
+    private Product product;
+
+    public OrderLine(Long id, String brand, String model, BigDecimal cost, Integer quantity) {
+        this.id = id;
+        this.brand = brand;
+        this.model = model;
+        this.cost = cost;
+        this.quantity = quantity;
+    }
+
+    // Also called before the line is written, since a merge copies only the columns of the line, and the brand and model
+    // of the copy are validated.
+    @PostLoad
+    @PrePersist
+    @PreUpdate
+    public void readProduct() {
+        if (product != null) {
+            this.brand = product.getBrand();
+            this.model = product.getModel();
+        }
+    }
 }
@@ -0,0 +1,27 @@
+package com.goviesco.orders.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// The state of an order as of one version of its stream, as JSON. Only the events after it are replayed on a read.
+@ToString @EqualsAndHashCode
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "order_snapshots")
+public class OrderSnapshot {
+
+    @Id
+    private Long orderId;
+
+    private long version;
+
+    private LocalDateTime takenAt;
+
+    @Lob
+    @ToString.Exclude
+    private String payload;
+}
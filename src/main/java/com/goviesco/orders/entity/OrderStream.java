@@ -0,0 +1,27 @@
+package com.goviesco.orders.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// The event stream of one order in the event-sourced profile. Its id is the id of the order, and its version is that
+// of the last event appended, which is how concurrent changes to one order are detected.
+@ToString @EqualsAndHashCode
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "order_streams")
+public class OrderStream {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private long version;
+
+    private boolean deleted;
+
+    private LocalDateTime createdAt;
+}
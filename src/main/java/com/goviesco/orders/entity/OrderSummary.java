@@ -0,0 +1,38 @@
+package com.goviesco.orders.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.goviesco.orders.enumeration.Status;
+import lombok.*;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// The number of orders of one date that have the status, and the sum of their totals. Kept up to date by the
+// OrderSummaries in the transaction that changes the orders, so it is never read from the orders themselves.
+@ToString @EqualsAndHashCode
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "order_summaries", uniqueConstraints = @UniqueConstraint(name = "order_summaries_date_status",
+        columnNames = {"date", "status"}))
+public class OrderSummary {
+
+    // A converter is not applied to an @Id, so the status cannot be part of the key.
+    @JsonIgnore
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate date;
+
+    @Column(length = 4, nullable = false)
+    private Status status;
+
+    private long orderCount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+}
@@ -0,0 +1,32 @@
+package com.goviesco.orders.entity;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import javax.persistence.*;
+
+// One row per brand and model, referred to by every order line of that product. Rows are never changed.
+@ToString @EqualsAndHashCode
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "products", uniqueConstraints = @UniqueConstraint(name = "products_brand_model",
+        columnNames = {"brand", "model"}))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "products")
+public class Product {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ApiModelProperty(value = "Product Id - auto generated")
+    private Long id;
+
+    @Column(length = 25)
+    private String brand;
+
+    @Column(length = 25)
+    private String model;
+}
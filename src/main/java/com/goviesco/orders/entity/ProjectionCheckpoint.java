@@ -0,0 +1,21 @@
+package com.goviesco.orders.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+// The id of the last event a projection has applied.
+@ToString @EqualsAndHashCode
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "projection_checkpoints")
+public class ProjectionCheckpoint {
+
+    @Id
+    @Column(length = 25)
+    private String name;
+
+    private long position;
+}
@@ -0,0 +1,25 @@
+package com.goviesco.orders.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// A lease on a scheduled task: the instance named by owner runs the task until lockedUntil.
+@ToString @EqualsAndHashCode
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "scheduler_locks")
+public class SchedulerLock {
+
+    @Id
+    @Column(length = 25)
+    private String name;
+
+    @Column(length = 36)
+    private String owner;
+
+    private LocalDateTime lockedUntil;
+}
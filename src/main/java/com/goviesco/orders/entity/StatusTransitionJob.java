@@ -0,0 +1,71 @@
+package com.goviesco.orders.entity;
+
+import com.goviesco.orders.enumeration.JobState;
+import com.goviesco.orders.enumeration.Status;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.*;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// A background job that moves every order matching the filter (status, date range, ids) to the target status.
+@ToString @EqualsAndHashCode
+@Getter @Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "status_transition_jobs")
+public class StatusTransitionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ApiModelProperty(value = "Job Id - auto generated")
+    private Long id;
+
+    @Column(length = 4)
+    @ApiModelProperty(value = "Only orders with this status are changed. Defaults to PROCESSING.")
+    private Status status;
+
+    @NotNull(message = "Target status is required.")
+    @Column(length = 4)
+    @ApiModelProperty(value = "Status the orders are changed to.")
+    private Status targetStatus;
+
+    @ApiModelProperty(value = "Only orders created on or after this date are changed (yyyy-mm-dd). Optional.")
+    private LocalDate fromDate;
+
+    @ApiModelProperty(value = "Only orders created on or before this date are changed (yyyy-mm-dd). Optional.")
+    private LocalDate toDate;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @OrderColumn
+    @ApiModelProperty(value = "Only orders with these ids are changed. Optional.")
+    private List<Long> orderIds = new ArrayList<>();
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    @ApiModelProperty(value = "State - automatically set to PENDING when the job is submitted.")
+    private JobState state;
+
+    @ApiModelProperty(value = "Number of orders that matched the filter when the job was submitted.")
+    private long total;
+
+    @ApiModelProperty(value = "Number of orders changed so far.")
+    private long processed;
+
+    @ApiModelProperty(value = "Id of the last order handled. The job resumes after it.")
+    private Long lastOrderId;
+
+    @Column(length = 255)
+    @ApiModelProperty(value = "Reason the job failed, if it did.")
+    private String error;
+
+    @ApiModelProperty(value = "Auto generated when the job is submitted.")
+    private LocalDateTime createdAt;
+
+    @ApiModelProperty(value = "Auto generated whenever progress is recorded.")
+    private LocalDateTime updatedAt;
+}
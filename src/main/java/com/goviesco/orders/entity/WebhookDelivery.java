@@ -0,0 +1,49 @@
+package com.goviesco.orders.entity;
+
+import com.goviesco.orders.enumeration.DeliveryState;
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// One callback to one endpoint, kept until it was delivered or gave up. A PENDING delivery is sent once nextAttemptAt
+// has passed; while it is being sent, nextAttemptAt is the end of the sender's lease on it.
+@ToString @EqualsAndHashCode
+@Getter @Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "webhook_deliveries", indexes = @Index(name = "webhook_deliveries_state_next_attempt_at",
+        columnList = "state, nextAttemptAt"))
+public class WebhookDelivery {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 255, nullable = false)
+    private String url;
+
+    private Long orderId;
+
+    // The body sent, the same on every attempt, so the partner may check it against the signature of any of them.
+    @Column(length = 1000, nullable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10, nullable = false)
+    private DeliveryState state;
+
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    // HTTP status of the last attempt, or null if it got no response.
+    private Integer lastStatusCode;
+
+    @Column(length = 255)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,6 @@
+package com.goviesco.orders.enumeration;
+
+public enum DeliveryState {
+
+    PENDING, DELIVERED, FAILED
+}
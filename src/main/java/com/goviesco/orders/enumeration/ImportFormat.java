@@ -0,0 +1,27 @@
+package com.goviesco.orders.enumeration;
+
+// File formats accepted by POST /jobs/imports, by the Content-Type of the upload.
+public enum ImportFormat {
+
+    CSV("text/csv"), NDJSON("application/x-ndjson");
+
+    private final String contentType;
+
+    ImportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static ImportFormat fromContentType(String contentType) {
+        String type = contentType == null ? "" : contentType.split(";", 2)[0].trim();
+        for (ImportFormat format : values()) {
+            if (format.contentType.equalsIgnoreCase(type)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Imports must be text/csv or application/x-ndjson, not " + contentType);
+    }
+}
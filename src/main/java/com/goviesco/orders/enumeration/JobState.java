@@ -0,0 +1,6 @@
+package com.goviesco.orders.enumeration;
+
+public enum JobState {
+
+    PENDING, RUNNING, COMPLETED, CANCELED, FAILED
+}
@@ -0,0 +1,7 @@
+package com.goviesco.orders.enumeration;
+
+// Stored by ordinal in the order journal, so new types must be added last.
+public enum JournalRecordType {
+
+    SAVED, DELETED, STATUS_CHANGED
+}
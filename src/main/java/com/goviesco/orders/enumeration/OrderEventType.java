@@ -0,0 +1,6 @@
+package com.goviesco.orders.enumeration;
+
+public enum OrderEventType {
+
+    CREATED, DETAILS_CHANGED, LINES_CHANGED, STATUS_TRANSITIONED, DELETED
+}
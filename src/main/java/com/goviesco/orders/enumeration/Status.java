@@ -13,4 +13,23 @@ public enum Status {
     public String getDbColumn() {
         return this.dbData;
     }
+
+    // Orders can only leave PROCESSING, and only to COMPLETED or CANCELED. COMPLETED and CANCELED are final.
+    public static boolean canTransition(Status from, Status to) {
+        return from == PROCESSING && (to == COMPLETED || to == CANCELED);
+    }
+
+    // Resolves the status stored in the database. A switch on the code avoids cloning values() for every row read.
+    public static Status fromDbColumn(String dbData) {
+        switch (dbData) {
+            case "PROC":
+                return PROCESSING;
+            case "COMP":
+                return COMPLETED;
+            case "CAN":
+                return CANCELED;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown status %s", dbData));
+        }
+    }
 }
@@ -2,7 +2,6 @@ package com.goviesco.orders.enumeration;
 
 import javax.persistence.AttributeConverter;
 import javax.persistence.Converter;
-import java.util.stream.Stream;
 
 @Converter(autoApply = true)
 public class StatusConverter implements AttributeConverter<Status, String> {
@@ -20,9 +19,6 @@ public class StatusConverter implements AttributeConverter<Status, String> {
         if (dbData == null) {
             return null;
         }
-        return Stream.of(Status.values())
-                .filter(val -> val.getDbColumn().equals(dbData))
-                .findFirst()
-                .orElseThrow(IllegalArgumentException::new);
+        return Status.fromDbColumn(dbData);
     }
 }
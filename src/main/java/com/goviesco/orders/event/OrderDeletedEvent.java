@@ -0,0 +1,17 @@
+package com.goviesco.orders.event;
+
+import com.goviesco.orders.entity.Order;
+
+// Published by the OrderService after an order is deleted.
+public class OrderDeletedEvent {
+
+    private final Order order;
+
+    public OrderDeletedEvent(Order order) {
+        this.order = order;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+}
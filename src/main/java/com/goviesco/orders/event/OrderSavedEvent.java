@@ -0,0 +1,17 @@
+package com.goviesco.orders.event;
+
+import com.goviesco.orders.entity.Order;
+
+// Published by the OrderService after an order is created or updated.
+public class OrderSavedEvent {
+
+    private final Order order;
+
+    public OrderSavedEvent(Order order) {
+        this.order = order;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+}
@@ -0,0 +1,24 @@
+package com.goviesco.orders.event;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.Status;
+
+// Published by the OrderService in the transaction that changed the status of one order, before it commits.
+public class OrderTransitionedEvent {
+
+    private final Order order;
+    private final Status from;
+
+    public OrderTransitionedEvent(Order order, Status from) {
+        this.order = order;
+        this.from = from;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public Status getFrom() {
+        return from;
+    }
+}
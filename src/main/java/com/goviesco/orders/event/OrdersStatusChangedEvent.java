@@ -0,0 +1,45 @@
+package com.goviesco.orders.event;
+
+import com.goviesco.orders.enumeration.Status;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Published by a status transition job after it changed a chunk of orders with one set-based update. Of the ids, only
+// those of orders with the from status and a date in range were changed.
+public class OrdersStatusChangedEvent {
+
+    private final List<Long> ids;
+    private final Status from;
+    private final Status to;
+    private final LocalDate fromDate;
+    private final LocalDate toDate;
+
+    public OrdersStatusChangedEvent(List<Long> ids, Status from, Status to, LocalDate fromDate, LocalDate toDate) {
+        this.ids = ids;
+        this.from = from;
+        this.to = to;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public Status getFrom() {
+        return from;
+    }
+
+    public Status getTo() {
+        return to;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+}
@@ -0,0 +1,102 @@
+package com.goviesco.orders.eventsourcing;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderEvent;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.event.OrderDeletedEvent;
+import com.goviesco.orders.event.OrderSavedEvent;
+import com.goviesco.orders.exception.OrderConflictException;
+import com.goviesco.orders.service.OrderService;
+import com.goviesco.orders.service.OrderServiceImpl;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Saves orders as events in the OrderEventStore instead of overwriting their rows. An order is read from its events,
+ * so it is always current; lists are read from the orders table, which the OrderProjector rebuilds from the events a
+ * moment after they are appended.
+ */
+@Primary
+@Component
+@Profile("event-sourced")
+public class EventSourcedOrderService implements OrderService {
+
+    private final OrderEventStore store;
+    private final OrderServiceImpl projection;
+    private final ApplicationEventPublisher events;
+
+    public EventSourcedOrderService(OrderEventStore store, OrderServiceImpl projection,
+                                    ApplicationEventPublisher events) {
+        this.store = store;
+        this.projection = projection;
+        this.events = events;
+    }
+
+    @Override
+    public Iterable<Order> findAll() {
+        return projection.findAll();
+    }
+
+    @Override
+    public Optional<Order> findById(Long id) {
+        return store.load(id).map(OrderEventStore.State::getOrder);
+    }
+
+    @Override
+    public Iterable<Order> findAllById(Iterable<Long> ids) {
+        return projection.findAllById(ids);
+    }
+
+    @Override
+    public Iterable<Order> findByStatus(Status status) {
+        return projection.findByStatus(status);
+    }
+
+    @Override
+    public Optional<List<Order>> findByCustomer(Long customerId) {
+        return projection.findByCustomer(customerId);
+    }
+
+    // Only what changed is appended: details, lines and status are separate events. Throws OrderConflictException when
+    // the order was read at another version of its stream, or its status cannot move to the new one from the latest.
+    // The version of the order given is brought up to date, so the caller may go on to change it.
+    @Override
+    public Order save(Order order) {
+        Optional<OrderEventStore.State> current = order.getId() == null ? Optional.empty() : store.load(order.getId());
+        Order saved;
+        if (current.isPresent()) {
+            Order latest = current.get().getOrder();
+            if (order.getVersion() != current.get().getVersion()) {
+                throw new OrderConflictException(order.getId());
+            }
+            if (order.getStatus() != latest.getStatus() && !Status.canTransition(latest.getStatus(), order.getStatus())) {
+                throw new OrderConflictException(order.getId());
+            }
+            List<OrderEvent> changes = store.changes(latest, order);
+            saved = changes.isEmpty() ? latest : store.append(current.get(), changes).getOrder();
+        } else {
+            saved = store.create(order).getOrder();
+        }
+        order.setVersion(saved.getVersion());
+        events.publishEvent(new OrderSavedEvent(saved));
+        return saved;
+    }
+
+    @Override
+    public void delete(Order order) {
+        if (order.getId() == null) {
+            return;
+        }
+        Optional<OrderEventStore.State> current = store.load(order.getId());
+        if (current.isPresent()) {
+            store.append(current.get(), Collections.singletonList(store.deleted()));
+            events.publishEvent(new OrderDeletedEvent(order));
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.goviesco.orders.eventsourcing;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderEvent;
+import com.goviesco.orders.entity.OrderLine;
+import com.goviesco.orders.entity.OrderSnapshot;
+import com.goviesco.orders.entity.OrderStream;
+import com.goviesco.orders.enumeration.OrderEventType;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.event.OrderTransitionedEvent;
+import com.goviesco.orders.exception.OrderConflictException;
+import com.goviesco.orders.repository.OrderEventRepository;
+import com.goviesco.orders.repository.OrderSnapshotRepository;
+import com.goviesco.orders.repository.OrderStreamRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * The append-only log of order events. An order is read by replaying the events after its latest snapshot.
+ * Appends are serialized, and each commits in its own transaction before the next begins, so events become visible
+ * in id order and the OrderProjector never passes over an event that has yet to commit.
+ */
+@Component
+@Profile("event-sourced")
+public class OrderEventStore {
+
+    private final OrderStreamRepository streams;
+    private final OrderEventRepository events;
+    private final OrderSnapshotRepository snapshots;
+    private final TransactionTemplate appendTransaction;
+    private final ObjectMapper mapper;
+    private final ApplicationEventPublisher publisher;
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    public OrderEventStore(OrderStreamRepository streams, OrderEventRepository events,
+                           OrderSnapshotRepository snapshots, PlatformTransactionManager transactionManager,
+                           ObjectMapper mapper, ApplicationEventPublisher publisher) {
+        this.streams = streams;
+        this.events = events;
+        this.snapshots = snapshots;
+        this.appendTransaction = new TransactionTemplate(transactionManager);
+        this.appendTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Payloads hold only the fields an event sets.
+        this.mapper = mapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        this.publisher = publisher;
+    }
+
+    // Starts the stream of a new order with a CREATED event. Ids of the address and lines are not kept.
+    public State create(Order order) {
+        Order state = detached(order);
+        OrderEvent created = new OrderEvent(OrderEventType.CREATED, write(state));
+        LocalDateTime now = LocalDateTime.now();
+        Long id = locked(() -> {
+            OrderStream stream = streams.save(new OrderStream(null, 1, false, now));
+            created.setOrderId(stream.getId());
+            created.setVersion(1);
+            created.setOccurredAt(now);
+            events.save(created);
+            return stream.getId();
+        });
+        state.setId(id);
+        state.calculateTotals();
+        return new State(state, 1, 1);
+    }
+
+    // Starts the streams of orders that were written to the orders table directly, under their ids.
+    public void adopt(Iterable<Order> orders) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderEvent> created = new ArrayList<>();
+        for (Order order : orders) {
+            created.add(new OrderEvent(null, order.getId(), 1, OrderEventType.CREATED, now, write(detached(order))));
+        }
+        locked(() -> {
+            created.forEach(event -> streams.adopt(event.getOrderId(), now));
+            return events.saveAll(created);
+        });
+    }
+
+    // Appends the changes from the current state of an order, which must still be the latest, or else throws
+    // OrderConflictException. Returns the new state; its order is null once the order is deleted. A change of status
+    // is published in the transaction of the append, before it commits.
+    public State append(State current, List<OrderEvent> changes) {
+        Long id = current.getOrder().getId();
+        Status from = current.getOrder().getStatus();
+        LocalDateTime now = LocalDateTime.now();
+        long version = current.getVersion();
+        for (OrderEvent change : changes) {
+            change.setOrderId(id);
+            change.setVersion(++version);
+            change.setOccurredAt(now);
+        }
+        long newVersion = version;
+        boolean deleted = changes.stream().anyMatch(change -> change.getType() == OrderEventType.DELETED);
+        Order order = current.getOrder();
+        for (OrderEvent change : changes) {
+            order = apply(id, order, change);
+        }
+        if (order != null) {
+            order.calculateTotals();
+        }
+        Order changed = order;
+        locked(() -> {
+            if (streams.advance(id, current.getVersion(), newVersion, deleted) == 0) {
+                throw new OrderConflictException(id);
+            }
+            List<OrderEvent> appended = events.saveAll(changes);
+            if (changed != null && changed.getStatus() != from) {
+                publisher.publishEvent(new OrderTransitionedEvent(changed, from));
+            }
+            return appended;
+        });
+        return new State(order, newVersion, current.getTail() + changes.size());
+    }
+
+    // Replays the events after the latest snapshot. Empty if the order was never created or has been deleted.
+    @Transactional(readOnly = true)
+    public Optional<State> load(Long id) {
+        Optional<OrderSnapshot> snapshot = snapshots.findById(id);
+        Order order = snapshot.map(taken -> read(taken.getPayload())).orElse(null);
+        long version = snapshot.map(OrderSnapshot::getVersion).orElse(0L);
+        List<OrderEvent> tail = events.findByOrderIdAndVersionGreaterThanOrderByVersion(id, version);
+        for (OrderEvent event : tail) {
+            order = apply(id, order, event);
+            version = event.getVersion();
+        }
+        if (order == null) {
+            return Optional.empty();
+        }
+        order.calculateTotals();
+        return Optional.of(new State(order, version, tail.size()));
+    }
+
+    // Every change to the order, oldest first.
+    @Transactional(readOnly = true)
+    public List<OrderEvent> history(Long id) {
+        return events.findByOrderIdOrderByVersion(id);
+    }
+
+    @Transactional
+    public void snapshot(State state) {
+        snapshots.save(new OrderSnapshot(state.getOrder().getId(), state.getVersion(), LocalDateTime.now(),
+                write(state.getOrder())));
+    }
+
+    // The events that turn the current order into the updated one. Empty if nothing changed.
+    public List<OrderEvent> changes(Order current, Order updated) {
+        List<OrderEvent> changes = new ArrayList<>();
+        if (!sameDetails(current, updated)) {
+            changes.add(new OrderEvent(OrderEventType.DETAILS_CHANGED, write(details(updated))));
+        }
+        if (!sameLines(current.getOrderLines(), updated.getOrderLines())) {
+            Order lines = new Order();
+            lines.setOrderLines(detached(updated).getOrderLines());
+            changes.add(new OrderEvent(OrderEventType.LINES_CHANGED, write(lines)));
+        }
+        if (current.getStatus() != updated.getStatus()) {
+            Order status = new Order();
+            status.setStatus(updated.getStatus());
+            changes.add(new OrderEvent(OrderEventType.STATUS_TRANSITIONED, write(status)));
+        }
+        return changes;
+    }
+
+    public OrderEvent deleted() {
+        return new OrderEvent(OrderEventType.DELETED, "{}");
+    }
+
+    private <T> T locked(Supplier<T> append) {
+        appendLock.lock();
+        try {
+            return appendTransaction.execute(status -> append.get());
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private Order apply(Long id, Order order, OrderEvent event) {
+        if (event.getType() == OrderEventType.CREATED) {
+            Order created = read(event.getPayload());
+            created.setId(id);
+            return created;
+        }
+        if (order == null) {
+            throw new IllegalStateException(String.format("Event %d of order %d does not follow a CREATED event",
+                    event.getVersion(), id));
+        }
+        Order change = read(event.getPayload());
+        switch (event.getType()) {
+            case DETAILS_CHANGED:
+                // Note: every detail is written with the event, so a detail missing from it was cleared.
+                order.setFirstName(change.getFirstName());
+                order.setLastName(change.getLastName());
+                order.setEmail(change.getEmail());
+                order.setPhone(change.getPhone());
+                order.setAddress(change.getAddress());
+                order.setTax(change.getTax());
+                order.setShipping(change.getShipping());
+                return order;
+            case LINES_CHANGED:
+                order.setOrderLines(change.getOrderLines());
+                return order;
+            case STATUS_TRANSITIONED:
+                order.setStatus(change.getStatus());
+                return order;
+            default:
+                return null;
+        }
+    }
+
+    // A copy without the ids of the order, address and lines, or the totals.
+    private static Order detached(Order order) {
+        Order copy = details(order);
+        copy.setDate(order.getDate());
+        copy.setStatus(order.getStatus());
+        List<OrderLine> orderLines = new ArrayList<>();
+        if (order.getOrderLines() != null) {
+            order.getOrderLines().forEach(line -> orderLines.add(new OrderLine(null, line.getBrand(),
+                    line.getModel(), line.getCost(), line.getQuantity())));
+        }
+        copy.setOrderLines(orderLines);
+        return copy;
+    }
+
+    private static Order details(Order order) {
+        Order details = new Order();
+        details.setFirstName(order.getFirstName());
+        details.setLastName(order.getLastName());
+        details.setEmail(order.getEmail());
+        details.setPhone(order.getPhone());
+        Address address = order.getAddress();
+        if (address != null) {
+            details.setAddress(new Address(null, address.getAddress1(), address.getAddress2(), address.getCity(),
+                    address.getState(), address.getZip()));
+        }
+        details.setTax(order.getTax());
+        details.setShipping(order.getShipping());
+        return details;
+    }
+
+    private static boolean sameDetails(Order a, Order b) {
+        return Objects.equals(a.getFirstName(), b.getFirstName())
+                && Objects.equals(a.getLastName(), b.getLastName())
+                && Objects.equals(a.getEmail(), b.getEmail())
+                && Objects.equals(a.getPhone(), b.getPhone())
+                && sameAddress(a.getAddress(), b.getAddress())
+                && sameAmount(a.getTax(), b.getTax())
+                && sameAmount(a.getShipping(), b.getShipping());
+    }
+
+    private static boolean sameAddress(Address a, Address b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Objects.equals(a.getAddress1(), b.getAddress1())
+                && Objects.equals(a.getAddress2(), b.getAddress2())
+                && Objects.equals(a.getCity(), b.getCity())
+                && Objects.equals(a.getState(), b.getState())
+                && Objects.equals(a.getZip(), b.getZip());
+    }
+
+    private static boolean sameLines(List<OrderLine> a, List<OrderLine> b) {
+        int size = a == null ? 0 : a.size();
+        if (size != (b == null ? 0 : b.size())) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            OrderLine x = a.get(i);
+            OrderLine y = b.get(i);
+            if (!Objects.equals(x.getBrand(), y.getBrand()) || !Objects.equals(x.getModel(), y.getModel())
+                    || !sameAmount(x.getCost(), y.getCost()) || !Objects.equals(x.getQuantity(), y.getQuantity())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 100 and 100.00 are the same amount.
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.compareTo(b) == 0;
+    }
+
+    private String write(Order order) {
+        try {
+            return mapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Order read(String payload) {
+        try {
+            return mapper.readValue(payload, Order.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // An order as of a version of its stream; the tail is the number of events replayed since the last snapshot. The
+    // order carries the version, so that saving it later can tell whether the stream moved on meanwhile.
+    public static class State {
+
+        private final Order order;
+        private final long version;
+        private final int tail;
+
+        State(Order order, long version, int tail) {
+            this.order = order;
+            this.version = version;
+            this.tail = tail;
+            if (order != null) {
+                order.setVersion(version);
+            }
+        }
+
+        public Order getOrder() {
+            return order;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public int getTail() {
+            return tail;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.goviesco.orders.eventsourcing;
+
+import com.goviesco.orders.entity.OrderEvent;
+import com.goviesco.orders.entity.ProjectionCheckpoint;
+import com.goviesco.orders.repository.OrderEventRepository;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.repository.OrderTableWriter;
+import com.goviesco.orders.repository.ProjectionCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Rebuilds the orders, addresses and order_lines tables from the order events, so that lists and searches keep
+ * working in the event-sourced profile. Each order with new events is rewritten whole from its latest state, and
+ * is snapshotted once the events replayed to read it reach orders.events.snapshot-every.
+ */
+@Lazy(false)
+@Component
+@Profile("event-sourced")
+public class OrderProjector {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderProjector.class);
+
+    private static final String NAME = "orders";
+
+    private final OrderEventStore store;
+    private final OrderEventRepository events;
+    private final ProjectionCheckpointRepository checkpoints;
+    private final OrderRepository orders;
+    private final OrderTableWriter writer;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+    private final int snapshotEvery;
+
+    public OrderProjector(OrderEventStore store, OrderEventRepository events,
+                          ProjectionCheckpointRepository checkpoints, OrderRepository orders, OrderTableWriter writer,
+                          JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+                          @Value("${orders.events.batch-size}") int batchSize,
+                          @Value("${orders.events.snapshot-every}") int snapshotEvery) {
+        this.store = store;
+        this.events = events;
+        this.checkpoints = checkpoints;
+        this.orders = orders;
+        this.writer = writer;
+        this.jdbc = jdbc;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.snapshotEvery = snapshotEvery;
+    }
+
+    // Orders already in the tables, such as those preloaded at startup, are given a stream that starts with them.
+    @EventListener(ApplicationReadyEvent.class)
+    public void adoptExistingOrders() {
+        List<Long> ids = jdbc.queryForList("select o.id from orders o " +
+                "where not exists (select 1 from order_streams s where s.id = o.id) order by o.id", Long.class);
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            transaction.executeWithoutResult(status -> store.adopt(orders.findAllById(chunk)));
+        }
+        Long maxId = jdbc.queryForObject("select greatest((select coalesce(max(id), 0) from orders), " +
+                "(select coalesce(max(id), 0) from order_streams), " +
+                "(select coalesce(max(id), 0) from archived_orders))", Long.class);
+        jdbc.execute("alter table order_streams alter column id restart with " + (maxId + 1));
+        if (!ids.isEmpty()) {
+            log.info("Adopted " + ids.size() + " existing orders into the order event log");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${orders.events.projection-interval-ms}")
+    public synchronized void project() {
+        Integer projected;
+        do {
+            projected = transaction.execute(status -> projectBatch());
+        } while (projected != null && projected == batchSize);
+    }
+
+    private int projectBatch() {
+        long position = checkpoints.findById(NAME).map(ProjectionCheckpoint::getPosition).orElse(0L);
+        List<OrderEvent> batch = events.findByIdGreaterThanOrderById(position, PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        // An order with several new events is rewritten once.
+        Set<Long> orderIds = new LinkedHashSet<>();
+        batch.forEach(event -> orderIds.add(event.getOrderId()));
+        orderIds.forEach(this::project);
+        checkpoints.save(new ProjectionCheckpoint(NAME, batch.get(batch.size() - 1).getId()));
+        return batch.size();
+    }
+
+    private void project(Long id) {
+        Optional<OrderEventStore.State> state = store.load(id);
+        writer.replace(id, state.map(OrderEventStore.State::getOrder).orElse(null));
+        if (state.isPresent() && state.get().getTail() >= snapshotEvery) {
+            store.snapshot(state.get());
+        }
+    }
+}
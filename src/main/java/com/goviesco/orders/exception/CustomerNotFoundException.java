@@ -0,0 +1,8 @@
+package com.goviesco.orders.exception;
+
+public class CustomerNotFoundException extends RuntimeException {
+
+    public CustomerNotFoundException(Long id) {
+        super(String.format("Customer %d not found", id));
+    }
+}
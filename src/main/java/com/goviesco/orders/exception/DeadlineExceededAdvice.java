@@ -0,0 +1,27 @@
+package com.goviesco.orders.exception;
+
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.mediatype.problem.Problem;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+
+// A request that runs out of time, in the controller, while queued or in a query, is answered with 504.
+@ControllerAdvice
+public class DeadlineExceededAdvice {
+
+    @ExceptionHandler({DeadlineExceededException.class, QueryTimeoutException.class,
+            AsyncRequestTimeoutException.class})
+    ResponseEntity<?> deadlineExceededHandler(Exception ex) {
+        return ResponseEntity
+                .status(HttpStatus.GATEWAY_TIMEOUT)
+                .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
+                .body(Problem.create()
+                        .withTitle("Gateway Timeout")
+                        .withDetail(new DeadlineExceededException().getMessage()));
+    }
+}
@@ -0,0 +1,8 @@
+package com.goviesco.orders.exception;
+
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException() {
+        super("The request did not complete before its deadline");
+    }
+}
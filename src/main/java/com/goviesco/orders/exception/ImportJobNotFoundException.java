@@ -0,0 +1,8 @@
+package com.goviesco.orders.exception;
+
+public class ImportJobNotFoundException extends RuntimeException {
+
+    public ImportJobNotFoundException(Long id) {
+        super(String.format("Import job %d not found", id));
+    }
+}
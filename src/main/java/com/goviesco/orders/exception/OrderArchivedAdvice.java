@@ -0,0 +1,23 @@
+package com.goviesco.orders.exception;
+
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.mediatype.problem.Problem;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+@ControllerAdvice
+public class OrderArchivedAdvice {
+
+    @ExceptionHandler(OrderArchivedException.class)
+    ResponseEntity<?> orderArchivedHandler(OrderArchivedException ex) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
+                .body(Problem.create()
+                        .withTitle("Conflict")
+                        .withDetail(ex.getMessage()));
+    }
+}
@@ -0,0 +1,8 @@
+package com.goviesco.orders.exception;
+
+public class OrderArchivedException extends RuntimeException {
+
+    public OrderArchivedException(Long id) {
+        super(String.format("Order %d is archived and cannot be changed", id));
+    }
+}
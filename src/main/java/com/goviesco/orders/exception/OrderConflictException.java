@@ -0,0 +1,8 @@
+package com.goviesco.orders.exception;
+
+public class OrderConflictException extends RuntimeException {
+
+    public OrderConflictException(Long id) {
+        super(String.format("Order %d was changed by another request; read it again and retry", id));
+    }
+}
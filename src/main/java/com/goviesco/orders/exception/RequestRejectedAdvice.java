@@ -0,0 +1,27 @@
+package com.goviesco.orders.exception;
+
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.mediatype.problem.Problem;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import java.util.concurrent.RejectedExecutionException;
+
+// The request executor is full: the client is told to retry instead of waiting in an unbounded queue.
+@ControllerAdvice
+public class RequestRejectedAdvice {
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    ResponseEntity<?> requestRejectedHandler(RejectedExecutionException ex) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Problem.create()
+                        .withTitle("Service Unavailable")
+                        .withDetail("Too many requests in progress"));
+    }
+}
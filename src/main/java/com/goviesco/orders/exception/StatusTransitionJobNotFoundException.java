@@ -0,0 +1,8 @@
+package com.goviesco.orders.exception;
+
+public class StatusTransitionJobNotFoundException extends RuntimeException {
+
+    public StatusTransitionJobNotFoundException(Long id) {
+        super(String.format("Status transition job %d not found", id));
+    }
+}
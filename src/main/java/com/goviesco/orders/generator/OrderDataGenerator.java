@@ -0,0 +1,225 @@
+package com.goviesco.orders.generator;
+
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.service.OrderSummaries;
+import com.goviesco.orders.service.ProductCatalog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds the database with synthetic orders for load testing. The data is reproducible: the same seed always yields the
+ * same orders. The number of lines per order and the status of each order follow configurable weights. Each order
+ * is placed by one of orders.generator.customers customers, picked at random, and sent to that customer's address.
+ *
+ * Orders are written with JDBC batch inserts, because the IDENTITY ids of the entities keep Hibernate from batching.
+ * Ids are assigned here, after the current maximum, and the identity columns are moved past them when done.
+ */
+@Component
+public class OrderDataGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderDataGenerator.class);
+
+    private static final String[] FIRST_NAMES = {"Ada", "Alan", "Albert", "Barbara", "Carl", "Dorothy", "Edsger",
+            "Emmy", "Grace", "Isaac", "Johannes", "Katherine", "Leonhard", "Lise", "Marie", "Max", "Niels", "Nikola",
+            "Richard", "Rosalind", "Stephen", "Werner"};
+    private static final String[] LAST_NAMES = {"Bohr", "Curie", "Einstein", "Euler", "Feynman", "Franklin", "Hawking",
+            "Heisenberg", "Hopper", "Johnson", "Kepler", "Liskov", "Lovelace", "McClintock", "Meitner", "Newton",
+            "Noether", "Planck", "Sagan", "Tesla", "Turing", "Dijkstra"};
+    private static final String[] STREETS = {"Camelback Rd", "Wilshire Blvd", "Sunset Blvd", "Main St", "Broadway",
+            "Market St", "Mill Ave", "Central Ave"};
+    private static final String[][] CITIES = {{"Phoenix", "AZ", "850"}, {"Tempe", "AZ", "852"},
+            {"Los Angeles", "CA", "900"}, {"San Diego", "CA", "921"}, {"Seattle", "WA", "981"},
+            {"Austin", "TX", "787"}, {"Denver", "CO", "802"}, {"Chicago", "IL", "606"}};
+    private static final String[] BRANDS = {"Apple", "Samsung", "LG", "Sony", "Dell", "Lenovo", "Emerson", "Google"};
+    private static final String[] MODELS = {"Phone", "Tablet", "Watch", "TV", "Laptop", "Monitor", "Headphones",
+            "Speaker"};
+
+    private final JdbcTemplate jdbc;
+    private final ProductCatalog catalog;
+    private final OrderSummaries summaries;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+    private final int customers;
+    private final int[] lineCountWeights;
+    private final int[] statusWeights;
+    private final int days;
+
+    public OrderDataGenerator(JdbcTemplate jdbc, ProductCatalog catalog, OrderSummaries summaries,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${orders.generator.batch-size:1000}") int batchSize,
+                              @Value("${orders.generator.customers:20000}") int customers,
+                              @Value("${orders.generator.line-count-weights:40,30,15,10,5}") int[] lineCountWeights,
+                              @Value("${orders.generator.status-weights:20,70,10}") int[] statusWeights,
+                              @Value("${orders.generator.days:730}") int days) {
+        if (statusWeights.length != Status.values().length) {
+            throw new IllegalArgumentException("orders.generator.status-weights needs one weight per status: "
+                    + Status.values().length);
+        }
+        this.jdbc = jdbc;
+        this.catalog = catalog;
+        this.summaries = summaries;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.customers = customers;
+        this.lineCountWeights = lineCountWeights;
+        this.statusWeights = statusWeights;
+        this.days = days;
+    }
+
+    // Inserts count orders generated from seed, batchSize orders per transaction.
+    public void generate(long count, long seed) {
+        Random random = new Random(seed);
+        LocalDate today = LocalDate.now();
+        long orderId = maxId("orders");
+        // Customer n of this run has the id customerBase + n and its address the id addressBase + n.
+        long customerBase = maxId("customers") + 1;
+        long addressBase = maxId("addresses") + 1;
+        long lineId = maxId("order_lines");
+        int pool = (int) Math.max(1, Math.min(customers, count));
+        long[][] products = new long[BRANDS.length][MODELS.length];
+        for (int brand = 0; brand < BRANDS.length; brand++) {
+            for (int model = 0; model < MODELS.length; model++) {
+                products[brand][model] = catalog.intern(BRANDS[brand], MODELS[model]).getId();
+            }
+        }
+        BitSet inserted = new BitSet(pool);
+        long started = System.nanoTime();
+
+        for (long done = 0; done < count; ) {
+            int size = (int) Math.min(batchSize, count - done);
+            long firstId = orderId + 1;
+            Batch batch = new Batch();
+            for (int i = 0; i < size; i++) {
+                int customer = random.nextInt(pool);
+                if (!inserted.get(customer)) {
+                    inserted.set(customer);
+                    addCustomer(batch, customerBase + customer, addressBase + customer);
+                }
+                addOrder(batch, random, today, ++orderId, customerBase + customer, addressBase + customer);
+                int lines = 1 + pick(random, lineCountWeights);
+                for (int j = 0; j < lines; j++) {
+                    addLine(batch, random, products, orderId, ++lineId);
+                }
+            }
+            long lastId = orderId;
+            transaction.executeWithoutResult(tx -> {
+                batch.insert(jdbc);
+                summaries.addInserted(firstId, lastId);
+            });
+            done += size;
+            if (done % (batchSize * 100L) == 0 || done == count) {
+                log.info(String.format("Generated %d of %d orders", done, count));
+            }
+        }
+
+        restartIdentity("orders", orderId);
+        restartIdentity("customers", customerBase + pool - 1);
+        restartIdentity("addresses", addressBase + pool - 1);
+        restartIdentity("order_lines", lineId);
+        log.info(String.format("Generated %d orders in %d ms", count, (System.nanoTime() - started) / 1_000_000));
+    }
+
+    // The details of a customer follow from its id, so they need not be kept until its next order. Ids differ between
+    // runs, and so do the emails and street numbers made from them, which must be unique.
+    private void addCustomer(Batch batch, long customerId, long addressId) {
+        String firstName = firstName(customerId);
+        String lastName = lastName(customerId);
+        String email = (firstName + "." + lastName + customerId + "@example.com").toLowerCase();
+        batch.customers.add(new Object[]{customerId, email, firstName, lastName, phone(customerId)});
+
+        String[] city = CITIES[(int) (customerId % CITIES.length)];
+        String street = STREETS[(int) (customerId / CITIES.length % STREETS.length)];
+        Address address = new Address(addressId, (100 + customerId) + " " + street,
+                customerId % 4 == 0 ? "Apt " + (1 + customerId % 40) : "", city[0], city[1],
+                city[2] + String.format("%02d", customerId % 100));
+        batch.addresses.add(new Object[]{addressId, address.getAddress1(), address.getAddress2(), address.getCity(),
+                address.getState(), address.getZip(), address.contentHash()});
+    }
+
+    private void addOrder(Batch batch, Random random, LocalDate today, long orderId, long customerId, long addressId) {
+        Status status = Status.values()[pick(random, statusWeights)];
+        batch.orders.add(new Object[]{orderId, Date.valueOf(today.minusDays(random.nextInt(days))),
+                status.getDbColumn(), firstName(customerId), lastName(customerId), phone(customerId), customerId,
+                addressId, BigDecimal.valueOf(random.nextInt(50000), 2),
+                BigDecimal.valueOf(random.nextInt(5000), 2)});
+    }
+
+    private void addLine(Batch batch, Random random, long[][] products, long orderId, long lineId) {
+        batch.lines.add(new Object[]{lineId, products[random.nextInt(BRANDS.length)][random.nextInt(MODELS.length)],
+                BigDecimal.valueOf(1000 + random.nextInt(500000), 2), 1 + random.nextInt(3)});
+        batch.links.add(new Object[]{orderId, lineId});
+    }
+
+    // Every order of a customer is placed with the customer's name and phone.
+    private static String firstName(long customerId) {
+        return FIRST_NAMES[(int) (customerId % FIRST_NAMES.length)];
+    }
+
+    private static String lastName(long customerId) {
+        return LAST_NAMES[(int) (customerId / FIRST_NAMES.length % LAST_NAMES.length)];
+    }
+
+    private static String phone(long customerId) {
+        return String.valueOf(2000000000L + customerId % 8000000000L);
+    }
+
+    // Index of the weight that was picked, with probability proportional to the weight.
+    private static int pick(Random random, int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int value = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            value -= weights[i];
+            if (value < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private long maxId(String table) {
+        Long max = jdbc.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+        return max == null ? 0 : max;
+    }
+
+    private void restartIdentity(String table, long maxId) {
+        jdbc.execute("alter table " + table + " alter column id restart with " + (maxId + 1));
+    }
+
+    // Rows of one batch, inserted parents first.
+    private static class Batch {
+
+        private final List<Object[]> customers = new ArrayList<>();
+        private final List<Object[]> addresses = new ArrayList<>();
+        private final List<Object[]> orders = new ArrayList<>();
+        private final List<Object[]> lines = new ArrayList<>();
+        private final List<Object[]> links = new ArrayList<>();
+
+        private void insert(JdbcTemplate jdbc) {
+            jdbc.batchUpdate("insert into customers (id, email, first_name, last_name, phone) values (?, ?, ?, ?, ?)",
+                    customers);
+            jdbc.batchUpdate("insert into addresses (id, address1, address2, city, state, zip, hash) " +
+                    "values (?, ?, ?, ?, ?, ?, ?)", addresses);
+            jdbc.batchUpdate("insert into orders (id, date, status, first_name, last_name, phone, customer_id, " +
+                    "address_id, tax, shipping) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", orders);
+            jdbc.batchUpdate("insert into order_lines (id, product_id, cost, quantity) values (?, ?, ?, ?)", lines);
+            jdbc.batchUpdate("insert into orders_order_lines (order_id, order_lines_id) values (?, ?)", links);
+        }
+    }
+}
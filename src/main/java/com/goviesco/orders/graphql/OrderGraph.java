@@ -0,0 +1,250 @@
+package com.goviesco.orders.graphql;
+
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.OrderLine;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.money.Money;
+import com.goviesco.orders.repository.AddressRepository;
+import com.goviesco.orders.sharding.ShardContext;
+import com.goviesco.orders.sharding.ShardRouter;
+import graphql.ExecutionInput;
+import graphql.ExecutionResultImpl;
+import graphql.GraphQL;
+import graphql.GraphqlErrorBuilder;
+import graphql.analysis.FieldComplexityCalculator;
+import graphql.analysis.MaxQueryComplexityInstrumentation;
+import graphql.analysis.MaxQueryDepthInstrumentation;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.execution.instrumentation.dataloader.DataLoaderDispatcherInstrumentation;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeRuntimeWiring;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderOptions;
+import org.dataloader.DataLoaderRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Runs GraphQL queries of orders against the schema in graphql/orders.graphqls. Only the fields a query selects are
+ * resolved, and the address and lines of the orders are loaded by DataLoaders, which collect the keys of a whole level
+ * of the query and load them in one query per level: a page of orders with their addresses and lines costs three
+ * statements however many orders it has, fewer when the addresses are in the second-level cache.
+ * <p>
+ * A query is rejected before it runs when it nests deeper than orders.graphql.max-depth, or when its complexity is over
+ * orders.graphql.max-complexity. Each field counts 1, and the fields under a list count once per element the list may
+ * have: first for the orders, orders.graphql.lines-per-order for the lines of an order.
+ * <p>
+ * In the sharded profile a page is filled from the shards in order, as the ids of each shard lie above those of the
+ * shards before it, and the addresses and lines are loaded from the shards their ids name, with one query per shard.
+ */
+@Component
+public class OrderGraph {
+
+    private static final String SCHEMA = "graphql/orders.graphqls";
+
+    private final OrderRowRepository rows;
+    private final AddressRepository addresses;
+    private final ShardRouter router;
+    private final TransactionTemplate transaction;
+    private final GraphQL graphQL;
+    private final int maxPageSize;
+    private final int linesPerOrder;
+
+    public OrderGraph(OrderRowRepository rows, AddressRepository addresses, ObjectProvider<ShardRouter> router,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${orders.graphql.max-complexity:5000}") int maxComplexity,
+                      @Value("${orders.graphql.max-depth:5}") int maxDepth,
+                      @Value("${orders.graphql.max-page-size:500}") int maxPageSize,
+                      @Value("${orders.graphql.lines-per-order:5}") int linesPerOrder) {
+        this.rows = rows;
+        this.addresses = addresses;
+        // Without sharding, the one database is the only shard.
+        this.router = router.getIfAvailable(() -> new ShardRouter(1));
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setReadOnly(true);
+        this.maxPageSize = maxPageSize;
+        this.linesPerOrder = linesPerOrder;
+        this.graphQL = GraphQL.newGraphQL(schema())
+                .instrumentation(new ChainedInstrumentation(List.of(
+                        new MaxQueryDepthInstrumentation(maxDepth),
+                        new MaxQueryComplexityInstrumentation(maxComplexity, complexity()),
+                        new DataLoaderDispatcherInstrumentation())))
+                .build();
+    }
+
+    // Returns the result as the GraphQL specification lays it out: data, and errors if there are any. All levels of
+    // the query are read in one read-only transaction, so they see the same orders. Shards cannot share a
+    // transaction, so with several each read has one of its own, on its shard. Without a query there is only an error.
+    public Map<String, Object> execute(String query, String operationName, Map<String, Object> variables) {
+        if (query == null) {
+            return ExecutionResultImpl.newExecutionResult()
+                    .addError(GraphqlErrorBuilder.newError().message("The request has no query").build())
+                    .build()
+                    .toSpecification();
+        }
+        ExecutionInput input = ExecutionInput.newExecutionInput()
+                .query(query)
+                .operationName(operationName)
+                .variables(variables == null ? Map.of() : variables)
+                .dataLoaderRegistry(loaders())
+                .build();
+        if (router.getShards() > 1) {
+            return graphQL.execute(input).toSpecification();
+        }
+        return transaction.execute(status -> graphQL.execute(input).toSpecification());
+    }
+
+    private GraphQLSchema schema() {
+        try (Reader reader = new InputStreamReader(new ClassPathResource(SCHEMA).getInputStream(),
+                StandardCharsets.UTF_8)) {
+            RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
+                    .type(TypeRuntimeWiring.newTypeWiring("Query")
+                            .dataFetcher("orders", this::orders)
+                            .dataFetcher("order", this::order))
+                    .type(TypeRuntimeWiring.newTypeWiring("Order")
+                            .dataFetcher("address", this::address)
+                            .dataFetcher("orderLines", this::orderLines)
+                            .dataFetcher("subtotal", env -> amount(env, row -> 0))
+                            .dataFetcher("total", env -> amount(env,
+                                    row -> Money.add(Money.cents(row.getTax()), Money.cents(row.getShipping())))))
+                    .type(TypeRuntimeWiring.newTypeWiring("Status").enumValues(Status::valueOf))
+                    .build();
+            return new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(reader), wiring);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + SCHEMA, e);
+        }
+    }
+
+    // A new registry per query, so that nothing loaded is cached beyond the query that loaded it.
+    private DataLoaderRegistry loaders() {
+        DataLoaderOptions options = DataLoaderOptions.newOptions().setMaxBatchSize(maxPageSize);
+        DataLoaderRegistry registry = new DataLoaderRegistry();
+        registry.register("address", DataLoader.<Long, Address>newMappedDataLoader(ids -> {
+            Map<Long, Address> byId = new HashMap<>();
+            byShard(ids).forEach((shard, shardIds) -> onShard(shard, () -> addresses.findAllById(shardIds))
+                    .forEach(address -> byId.put(address.getId(), address)));
+            return CompletableFuture.completedFuture(byId);
+        }, options));
+        registry.register("orderLines", DataLoader.<Long, List<OrderLine>>newMappedDataLoader(ids -> {
+            Map<Long, List<OrderLine>> byOrder = new HashMap<>();
+            ids.forEach(id -> byOrder.put(id, new ArrayList<>()));
+            byShard(ids).forEach((shard, shardIds) -> {
+                for (Object[] line : onShard(shard, () -> rows.findLines(shardIds))) {
+                    byOrder.get((Long) line[0]).add((OrderLine) line[1]);
+                }
+            });
+            return CompletableFuture.completedFuture(byOrder);
+        }, options));
+        return registry;
+    }
+
+    private List<OrderRow> orders(DataFetchingEnvironment env) {
+        Status status = env.getArgument("status");
+        Integer first = env.getArgument("first");
+        String after = env.getArgument("after");
+        Set<Status> statuses = status == null ? EnumSet.allOf(Status.class) : EnumSet.of(status);
+        long afterId = after == null ? 0L : Long.valueOf(after);
+        int pageSize = pageSize(first);
+        List<OrderRow> page = new ArrayList<>();
+        // The shard of the last order of the previous page, or the first shard.
+        int shard = afterId <= 0 ? 0 : router.shardOf(afterId);
+        for (; shard >= 0 && shard < router.getShards() && page.size() < pageSize; shard++) {
+            int remaining = pageSize - page.size();
+            page.addAll(onShard(shard, () -> rows.findPage(statuses, afterId, PageRequest.of(0, remaining))));
+        }
+        return page;
+    }
+
+    private OrderRow order(DataFetchingEnvironment env) {
+        Long id = Long.valueOf(env.<String>getArgument("id"));
+        int shard = router.shardOf(id);
+        if (shard < 0) {
+            return null;
+        }
+        List<OrderRow> found = onShard(shard, () -> rows.findRow(id));
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    // The ids by the shard that holds them. Ids that belong to no shard are left out.
+    private Map<Integer, List<Long>> byShard(Set<Long> ids) {
+        Map<Integer, List<Long>> byShard = new TreeMap<>();
+        for (Long id : ids) {
+            int shard = router.shardOf(id);
+            if (shard >= 0) {
+                byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(id);
+            }
+        }
+        return byShard;
+    }
+
+    // Without shards, the read joins the transaction of the query.
+    private <T> T onShard(int shard, Supplier<T> work) {
+        return ShardContext.call(shard, () -> transaction.execute(status -> work.get()));
+    }
+
+    private CompletableFuture<Address> address(DataFetchingEnvironment env) {
+        Long addressId = env.<OrderRow>getSource().getAddressId();
+        if (addressId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return env.<Long, Address>getDataLoader("address").load(addressId);
+    }
+
+    private CompletableFuture<List<OrderLine>> orderLines(DataFetchingEnvironment env) {
+        return env.<Long, List<OrderLine>>getDataLoader("orderLines").load(env.<OrderRow>getSource().getId());
+    }
+
+    // The sum of the lines of the order, in cents as Order.calculateTotals() sums them, plus what the row adds to it.
+    private CompletableFuture<String> amount(DataFetchingEnvironment env, ToLongFunction<OrderRow> plus) {
+        OrderRow row = env.getSource();
+        return orderLines(env).thenApply(lines -> {
+            long cents = plus.applyAsLong(row);
+            for (OrderLine line : lines) {
+                cents = Money.add(cents, Money.multiply(Money.cents(line.getCost()), line.getQuantity()));
+            }
+            return Money.toBigDecimal(cents).toString();
+        });
+    }
+
+    private FieldComplexityCalculator complexity() {
+        return (env, childComplexity) -> {
+            switch (env.getField().getName()) {
+                case "orders":
+                    return pageSize((Integer) env.getArguments().get("first")) * (1 + childComplexity);
+                case "orderLines":
+                    return linesPerOrder * (1 + childComplexity);
+                default:
+                    return 1 + childComplexity;
+            }
+        };
+    }
+
+    private int pageSize(Integer first) {
+        return Math.max(1, Math.min(first == null ? 100 : first, maxPageSize));
+    }
+}
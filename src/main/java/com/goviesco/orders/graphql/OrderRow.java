@@ -0,0 +1,26 @@
+package com.goviesco.orders.graphql;
+
+import com.goviesco.orders.enumeration.Status;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// The columns of an order and its customer, without its address and lines, which the OrderGraph loads in batches.
+// Reading rows rather than orders keeps Order's @PostLoad from loading the lines of each order one by one.
+@Getter
+@AllArgsConstructor
+public class OrderRow {
+
+    private final Long id;
+    private final LocalDate date;
+    private final Status status;
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final String phone;
+    private final Long addressId;
+    private final BigDecimal tax;
+    private final BigDecimal shipping;
+}
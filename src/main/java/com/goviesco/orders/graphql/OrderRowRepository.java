@@ -0,0 +1,30 @@
+package com.goviesco.orders.graphql;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.Status;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Transactional(readOnly = true)
+public interface OrderRowRepository extends Repository<Order, Long> {
+
+    String ROW = "select new com.goviesco.orders.graphql.OrderRow(o.id, o.date, o.status, o.firstName, o.lastName, " +
+            "c.email, o.phone, o.address.id, o.tax, o.shipping) from Order o left join o.customer c ";
+
+    @Query(ROW + "where o.status in :statuses and o.id > :afterId order by o.id")
+    List<OrderRow> findPage(@Param("statuses") Collection<Status> statuses, @Param("afterId") Long afterId,
+                            Pageable pageable);
+
+    @Query(ROW + "where o.id = :id")
+    List<OrderRow> findRow(@Param("id") Long id);
+
+    // The lines of the orders, each with the id of its order, in the order they were added.
+    @Query("select o.id, l from Order o join o.orderLines l join fetch l.product where o.id in :ids order by l.id")
+    List<Object[]> findLines(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,170 @@
+package com.goviesco.orders.importing;
+
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderLine;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One order per row. The header names the columns, in any order: firstName, lastName, email, phone, address1,
+ * address2, city, state, zip, tax and shipping, then brand1, model1, cost1 and quantity1 for the first line of the
+ * order, brand2, model2, cost2 and quantity2 for the second, and so on. A line whose four columns are all empty is left
+ * out. Fields may be quoted, with "" for a quote inside, but cannot contain line breaks. Empty fields are null.
+ */
+class CsvOrderParser extends OrderRowParser {
+
+    private static final List<String> ORDER_COLUMNS = Arrays.asList("firstName", "lastName", "email", "phone",
+            "address1", "address2", "city", "state", "zip", "tax", "shipping");
+    private static final List<String> LINE_COLUMNS = Arrays.asList("brand", "model", "cost", "quantity");
+
+    // Index of each order column in a row, or -1 if the file does not have it.
+    private final int[] orderColumns = new int[ORDER_COLUMNS.size()];
+    // Index of the brand, model, cost and quantity columns of each line.
+    private final List<int[]> lineColumns = new ArrayList<>();
+    private final int width;
+
+    CsvOrderParser(String header) {
+        List<String> names = fields(header);
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i) == null ? "" : names.get(i).trim();
+            if (!isKnown(name)) {
+                throw new IllegalArgumentException("Unknown column in the CSV header: " + name);
+            }
+            if (indexes.put(name, i) != null) {
+                throw new IllegalArgumentException("Column repeated in the CSV header: " + name);
+            }
+        }
+        for (int i = 0; i < orderColumns.length; i++) {
+            orderColumns[i] = indexes.getOrDefault(ORDER_COLUMNS.get(i), -1);
+        }
+        for (int n = 1; indexes.containsKey("brand" + n); n++) {
+            int[] columns = new int[LINE_COLUMNS.size()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = indexes.getOrDefault(LINE_COLUMNS.get(i) + n, -1);
+            }
+            lineColumns.add(columns);
+        }
+        width = names.size();
+    }
+
+    @Override
+    ImportRow parseRow(byte[] chunk, int start, int end, long line) {
+        List<String> fields = fields(new String(chunk, start, end - start, StandardCharsets.UTF_8));
+        if (fields.size() != width) {
+            return ImportRow.failed(line, String.format("Expected %d fields but found %d", width, fields.size()));
+        }
+
+        Order order = new Order();
+        order.setFirstName(field(fields, 0));
+        order.setLastName(field(fields, 1));
+        order.setEmail(field(fields, 2));
+        order.setPhone(field(fields, 3));
+        order.setAddress(new Address(null, field(fields, 4), field(fields, 5), field(fields, 6), field(fields, 7),
+                field(fields, 8)));
+        order.setTax(amount(field(fields, 9), "tax"));
+        order.setShipping(amount(field(fields, 10), "shipping"));
+
+        List<OrderLine> lines = new ArrayList<>(lineColumns.size());
+        for (int n = 0; n < lineColumns.size(); n++) {
+            int[] columns = lineColumns.get(n);
+            String brand = at(fields, columns[0]);
+            String model = at(fields, columns[1]);
+            String cost = at(fields, columns[2]);
+            String quantity = at(fields, columns[3]);
+            if (brand == null && model == null && cost == null && quantity == null) {
+                continue;
+            }
+            lines.add(new OrderLine(null, brand, model, amount(cost, "cost" + (n + 1)),
+                    quantity(quantity, "quantity" + (n + 1))));
+        }
+        order.setOrderLines(lines);
+        return ImportRow.of(line, order);
+    }
+
+    private String field(List<String> fields, int orderColumn) {
+        return at(fields, orderColumns[orderColumn]);
+    }
+
+    private static String at(List<String> fields, int index) {
+        return index < 0 ? null : fields.get(index);
+    }
+
+    private static BigDecimal amount(String value, String column) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a number: " + value);
+        }
+    }
+
+    private static Integer quantity(String value, String column) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a whole number: " + value);
+        }
+    }
+
+    private static boolean isKnown(String name) {
+        if (ORDER_COLUMNS.contains(name)) {
+            return true;
+        }
+        for (String column : LINE_COLUMNS) {
+            if (name.startsWith(column) && name.length() > column.length()
+                    && name.substring(column.length()).chars().allMatch(Character::isDigit)
+                    && name.charAt(column.length()) != '0') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Splits a line at the commas outside quotes. Empty fields are null.
+    static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quote");
+        }
+        fields.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,27 @@
+package com.goviesco.orders.importing;
+
+import com.goviesco.orders.entity.Order;
+import lombok.Getter;
+
+// A parsed row of an import file: the order it describes, or the reason it could not be read.
+@Getter
+class ImportRow {
+
+    private final long line;
+    private final Order order;
+    private final String error;
+
+    private ImportRow(long line, Order order, String error) {
+        this.line = line;
+        this.order = order;
+        this.error = error;
+    }
+
+    static ImportRow of(long line, Order order) {
+        return new ImportRow(line, order, null);
+    }
+
+    static ImportRow failed(long line, String error) {
+        return new ImportRow(line, null, error);
+    }
+}
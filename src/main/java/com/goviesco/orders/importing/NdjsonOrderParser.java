@@ -0,0 +1,29 @@
+package com.goviesco.orders.importing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.goviesco.orders.entity.Order;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Each line is an order in the JSON accepted by POST /orders.
+class NdjsonOrderParser extends OrderRowParser {
+
+    private final ObjectMapper mapper;
+
+    NdjsonOrderParser(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    @Override
+    ImportRow parseRow(byte[] chunk, int start, int end, long line) {
+        try {
+            return ImportRow.of(line, mapper.readValue(chunk, start, end - start, Order.class));
+        } catch (JsonProcessingException e) {
+            return ImportRow.failed(line, e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
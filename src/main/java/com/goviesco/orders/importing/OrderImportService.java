@@ -0,0 +1,386 @@
+package com.goviesco.orders.importing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.goviesco.orders.entity.ImportJob;
+import com.goviesco.orders.entity.ImportRowError;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.ImportFormat;
+import com.goviesco.orders.enumeration.JobState;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.repository.ImportJobRepository;
+import com.goviesco.orders.repository.ImportRowErrorRepository;
+import com.goviesco.orders.service.OrderService;
+import com.goviesco.orders.validation.OrderConstraints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Runs {@link ImportJob}s in the background. The uploaded file is read with a FileChannel in chunks of
+ * orders.imports.chunk-bytes, cut at the last line break. Chunks are parsed on orders.imports.parser-threads threads,
+ * and at most orders.imports.chunks-in-flight of them are read ahead of the one being written, so a file of any size
+ * is imported in bounded memory and reading waits for writing.
+ *
+ * Chunks are written in file order. Each is written in one transaction together with its row errors and the byte
+ * offset after it, so an interrupted, canceled or failed job resumes after the last chunk written. The valid orders
+ * of a chunk are saved with one OrderService.saveAll(). When the OrderService does not join the transaction of the
+ * chunk (the sharded and event-sourced profiles), the orders of a chunk in flight when the job stopped are imported
+ * again on resume.
+ */
+@Component
+public class OrderImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderImportService.class);
+
+    private static final int MAX_MESSAGE = 1000;
+
+    private final ImportJobRepository jobs;
+    private final ImportRowErrorRepository errors;
+    private final OrderService orders;
+    private final Validator validator;
+    private final ObjectMapper mapper;
+    private final TransactionTemplate transaction;
+    private final Path directory;
+    private final int chunkBytes;
+    private final int chunksInFlight;
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService parsers;
+
+    // Ids of the jobs that are queued or running on this instance.
+    private final Set<Long> active = ConcurrentHashMap.newKeySet();
+
+    public OrderImportService(ImportJobRepository jobs, ImportRowErrorRepository errors, OrderService orders,
+                              Validator validator, ObjectMapper mapper, PlatformTransactionManager transactionManager,
+                              @Value("${orders.imports.directory:imports}") String directory,
+                              @Value("${orders.imports.chunk-bytes:262144}") int chunkBytes,
+                              @Value("${orders.imports.parser-threads:4}") int parserThreads,
+                              @Value("${orders.imports.chunks-in-flight:8}") int chunksInFlight,
+                              @Value("${orders.imports.threads:1}") int threads,
+                              @Value("${orders.imports.queue-capacity:20}") int queueCapacity) {
+        this.jobs = jobs;
+        this.errors = errors;
+        this.orders = orders;
+        this.validator = validator;
+        this.mapper = mapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.directory = Paths.get(directory);
+        this.chunkBytes = chunkBytes;
+        this.chunksInFlight = chunksInFlight;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+        this.parsers = Executors.newFixedThreadPool(parserThreads);
+    }
+
+    public Iterable<ImportJob> findAll() {
+        return jobs.findAll();
+    }
+
+    public Optional<ImportJob> findById(Long id) {
+        return jobs.findById(id);
+    }
+
+    // Copies the upload to orders.imports.directory, saves the job as PENDING and queues it.
+    public ImportJob submit(ImportFormat format, InputStream upload) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("import-" + UUID.randomUUID() + "." + format.name().toLowerCase());
+        long size;
+        try {
+            size = Files.copy(upload, file);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        ImportJob job = new ImportJob();
+        job.setFormat(format);
+        job.setFile(file.toString());
+        job.setSize(size);
+        job.setState(JobState.PENDING);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+
+        ImportJob saved = jobs.save(job);
+        start(saved.getId());
+        return saved;
+    }
+
+    // Returns false if the job already finished.
+    public boolean cancel(Long id) {
+        return jobs.changeState(id, Arrays.asList(JobState.PENDING, JobState.RUNNING), JobState.CANCELED,
+                LocalDateTime.now()) == 1;
+    }
+
+    // Returns false unless the job was canceled or failed.
+    public boolean resume(Long id) {
+        if (jobs.changeState(id, Arrays.asList(JobState.CANCELED, JobState.FAILED), JobState.PENDING,
+                LocalDateTime.now()) == 0) {
+            return false;
+        }
+        start(id);
+        return true;
+    }
+
+    // Calls the consumer with the row errors of the job in line order, a page at a time.
+    public void forEachError(Long id, Consumer<ImportRowError> consumer) {
+        long after = 0;
+        List<ImportRowError> page;
+        do {
+            page = errors.findByJobIdAndLineGreaterThanOrderByLine(id, after, PageRequest.of(0, 1000));
+            page.forEach(consumer);
+            after = page.isEmpty() ? after : page.get(page.size() - 1).getLine();
+        } while (!page.isEmpty());
+    }
+
+    // Jobs that were queued or running when the application stopped are picked up again.
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        jobs.findByStateIn(Arrays.asList(JobState.PENDING, JobState.RUNNING))
+                .forEach(job -> start(job.getId()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        parsers.shutdownNow();
+    }
+
+    private void start(Long id) {
+        if (active.add(id)) {
+            try {
+                executor.execute(() -> run(id));
+            } catch (RejectedExecutionException e) {
+                // The queue is full. The job is marked as failed, so it can be resumed later.
+                active.remove(id);
+                jobs.fail(id, JobState.FAILED, "Too many jobs queued", LocalDateTime.now());
+            }
+        }
+    }
+
+    private void run(Long id) {
+        Deque<Chunk> inFlight = new ArrayDeque<>();
+        try {
+            jobs.changeState(id, Arrays.asList(JobState.PENDING), JobState.RUNNING, LocalDateTime.now());
+            ImportJob job = jobs.findById(id).orElse(null);
+            if (job == null || job.getState() != JobState.RUNNING) {
+                return;
+            }
+
+            Path file = Paths.get(job.getFile());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long position = job.getPosition();
+                long line = job.getLine() + 1;
+                OrderRowParser parser = new NdjsonOrderParser(mapper);
+                if (job.getFormat() == ImportFormat.CSV && job.getSize() > 0) {
+                    Chunk chunk = read(channel, 0, 1, job.getSize());
+                    int headerEnd = 0;
+                    while (headerEnd < chunk.length && chunk.bytes[headerEnd] != '\n') {
+                        headerEnd++;
+                    }
+                    parser = new CsvOrderParser(new String(chunk.bytes, 0, trimCarriageReturn(chunk.bytes, headerEnd),
+                            StandardCharsets.UTF_8));
+                    if (position == 0) {
+                        position = Math.min(headerEnd + 1, chunk.length);
+                        line = 2;
+                    }
+                }
+
+                while (position < job.getSize() || !inFlight.isEmpty()) {
+                    if (position < job.getSize() && inFlight.size() < chunksInFlight) {
+                        Chunk chunk = read(channel, position, line, job.getSize());
+                        OrderRowParser chunkParser = parser;
+                        chunk.rows = parsers.submit(() -> chunkParser.parse(chunk.bytes, chunk.length, chunk.firstLine));
+                        inFlight.addLast(chunk);
+                        position = chunk.end;
+                        line = chunk.firstLine + chunk.lines;
+                        continue;
+                    }
+                    Chunk chunk = inFlight.removeFirst();
+                    List<ImportRow> rows = chunk.rows.get();
+                    if (!write(id, chunk, rows) || Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                }
+            }
+            jobs.changeState(id, Arrays.asList(JobState.RUNNING), JobState.COMPLETED, LocalDateTime.now());
+            Files.deleteIfExists(file);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | ExecutionException | RuntimeException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            log.error("Import job " + id + " failed", cause);
+            jobs.fail(id, JobState.FAILED, truncate(String.valueOf(cause.getMessage()), 255), LocalDateTime.now());
+        } finally {
+            inFlight.forEach(chunk -> chunk.rows.cancel(true));
+            active.remove(id);
+        }
+    }
+
+    // Orders join the transaction of the chunk if the OrderService can; otherwise it saves them in its own.
+    private boolean write(Long id, Chunk chunk, List<ImportRow> rows) {
+        if (orders.joinsTransaction()) {
+            return Boolean.TRUE.equals(transaction.execute(tx -> writeChunk(id, chunk, rows)));
+        }
+        return writeChunk(id, chunk, rows);
+    }
+
+    // Saves the valid orders of a chunk and records the others. Returns false if the job is no longer running.
+    private boolean writeChunk(Long id, Chunk chunk, List<ImportRow> rows) {
+        ImportJob job = jobs.findById(id).orElse(null);
+        if (job == null || job.getState() != JobState.RUNNING) {
+            return false;
+        }
+
+        List<ImportRowError> failures = new ArrayList<>();
+        List<Order> valid = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            String error = row.getError() != null ? row.getError() : validate(row.getOrder());
+            if (error != null) {
+                failures.add(new ImportRowError(id, row.getLine(), truncate(error, MAX_MESSAGE)));
+                continue;
+            }
+            Order order = row.getOrder();
+            order.setId(null);
+            if (order.getAddress() != null) {
+                order.getAddress().setId(null);
+            }
+            if (order.getOrderLines() == null) {
+                order.setOrderLines(new ArrayList<>());
+            }
+            order.getOrderLines().forEach(orderLine -> orderLine.setId(null));
+            order.setStatus(Status.PROCESSING);
+            order.setDate(LocalDate.now());
+            valid.add(order);
+        }
+        orders.saveAll(valid);
+        long importedRows = valid.size();
+        // The errors and the position after the chunk are recorded together.
+        transaction.executeWithoutResult(tx -> {
+            errors.saveAll(failures);
+            jobs.addProgress(id, chunk.end, chunk.firstLine + chunk.lines - 1, importedRows, failures.size(),
+                    LocalDateTime.now());
+        });
+        return true;
+    }
+
+    // The same constraints as POST /orders; valid orders, the common case, are checked without the bean validator.
+    private String validate(Order order) {
+        if (OrderConstraints.isValid(order)) {
+            return null;
+        }
+        Set<ConstraintViolation<Order>> violations = validator.validate(order);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    // Reads whole lines from the position: chunkBytes, or more if one line is longer.
+    private Chunk read(FileChannel channel, long position, long firstLine, long size) throws IOException {
+        int length = chunkBytes;
+        if (position >= size) {
+            return new Chunk(new byte[0], 0, firstLine, position);
+        }
+        while (true) {
+            int capacity = (int) Math.min(length, size - position);
+            ByteBuffer buffer = ByteBuffer.allocate(capacity);
+            while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+                // Reads until the buffer is full or the file ends.
+            }
+            byte[] bytes = buffer.array();
+            int filled = buffer.position();
+            boolean last = position + filled >= size;
+            int cut = filled;
+            if (!last) {
+                while (cut > 0 && bytes[cut - 1] != '\n') {
+                    cut--;
+                }
+            }
+            if (cut > 0) {
+                Chunk chunk = new Chunk(bytes, cut, firstLine, position + cut);
+                for (int i = 0; i < cut; i++) {
+                    if (bytes[i] == '\n') {
+                        chunk.lines++;
+                    }
+                }
+                if (bytes[cut - 1] != '\n') {
+                    chunk.lines++;
+                }
+                return chunk;
+            }
+            if (length > Integer.MAX_VALUE / 2) {
+                throw new IllegalStateException("Line " + firstLine + " is too long to import");
+            }
+            length *= 2;
+        }
+    }
+
+    private static int trimCarriageReturn(byte[] bytes, int length) {
+        return length > 0 && bytes[length - 1] == '\r' ? length - 1 : length;
+    }
+
+    private static String truncate(String message, int max) {
+        return message.length() <= max ? message : message.substring(0, max);
+    }
+
+    // Whole lines of the file, from the line numbered firstLine up to the byte offset end.
+    private static class Chunk {
+
+        private final byte[] bytes;
+        private final int length;
+        private final long firstLine;
+        private final long end;
+        private long lines;
+        private Future<List<ImportRow>> rows;
+
+        private Chunk(byte[] bytes, int length, long firstLine, long end) {
+            this.bytes = bytes;
+            this.length = length;
+            this.firstLine = firstLine;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.goviesco.orders.importing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a chunk of an import file. Every row is one line, ended by \n or \r\n, so a chunk cut at a line break can be
+ * parsed on its own, in parallel with the others. Blank lines are skipped. Parsers are shared by the parsing threads,
+ * so they keep no state of their own.
+ */
+abstract class OrderRowParser {
+
+    // The chunk holds whole lines; firstLine is the line number of the first.
+    List<ImportRow> parse(byte[] chunk, int length, long firstLine) {
+        List<ImportRow> rows = new ArrayList<>();
+        long line = firstLine;
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            while (end < length && chunk[end] != '\n') {
+                end++;
+            }
+            int contentEnd = end > start && chunk[end - 1] == '\r' ? end - 1 : end;
+            if (!isBlank(chunk, start, contentEnd)) {
+                try {
+                    rows.add(parseRow(chunk, start, contentEnd, line));
+                } catch (RuntimeException e) {
+                    rows.add(ImportRow.failed(line, String.valueOf(e.getMessage())));
+                }
+            }
+            line++;
+            start = end + 1;
+        }
+        return rows;
+    }
+
+    abstract ImportRow parseRow(byte[] chunk, int start, int end, long line);
+
+    private static boolean isBlank(byte[] chunk, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (chunk[i] != ' ' && chunk[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
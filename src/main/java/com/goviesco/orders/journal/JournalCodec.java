@@ -0,0 +1,211 @@
+package com.goviesco.orders.journal;
+
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderLine;
+import com.goviesco.orders.enumeration.JournalRecordType;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.event.OrdersStatusChangedEvent;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary layout of the body of a journal record. Numbers have fixed sizes, strings are length-prefixed UTF-8:
+ *
+ *   byte type, long epoch millis, then by type
+ *   SAVED           long id, long epoch day, status, first name, last name, email, phone, address, tax, shipping,
+ *                   short line count, and per line: brand, model, cost, int quantity
+ *   DELETED         long id
+ *   STATUS_CHANGED  status from, status to, long from epoch day, long to epoch day, int id count, long ids
+ *
+ * An address is a byte that is 0 when it is missing, then its five strings. An amount is a byte scale and a long
+ * unscaled value. A status is the string of its database column, which does not change when statuses are added or
+ * reordered. Nulls are -1 for strings, bytes and quantities, and Long.MIN_VALUE for dates.
+ */
+final class JournalCodec {
+
+    private static final byte NULL = -1;
+    private static final long NULL_DAY = Long.MIN_VALUE;
+    private static final BigInteger MIN_UNSCALED = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger MAX_UNSCALED = BigInteger.valueOf(Long.MAX_VALUE);
+    private static final JournalRecordType[] TYPES = JournalRecordType.values();
+
+    private JournalCodec() {
+    }
+
+    // Throws BufferOverflowException if the body does not fit.
+    static void encode(JournalRecord record, ByteBuffer out) {
+        out.put((byte) record.getType().ordinal());
+        out.putLong(record.getTimestamp());
+        switch (record.getType()) {
+            case SAVED:
+                encodeOrder(record.getOrder(), out);
+                break;
+            case DELETED:
+                out.putLong(record.getOrderId());
+                break;
+            case STATUS_CHANGED:
+                OrdersStatusChangedEvent change = record.getStatusChange();
+                putStatus(out, change.getFrom());
+                putStatus(out, change.getTo());
+                out.putLong(day(change.getFromDate()));
+                out.putLong(day(change.getToDate()));
+                out.putInt(change.getIds().size());
+                change.getIds().forEach(out::putLong);
+                break;
+        }
+    }
+
+    static JournalRecord decode(ByteBuffer in) {
+        JournalRecordType type = TYPES[in.get()];
+        long timestamp = in.getLong();
+        switch (type) {
+            case SAVED:
+                Order order = decodeOrder(in);
+                return new JournalRecord(type, timestamp, order.getId(), order, null);
+            case DELETED:
+                return new JournalRecord(type, timestamp, in.getLong(), null, null);
+            default:
+                Status from = getStatus(in);
+                Status to = getStatus(in);
+                LocalDate fromDate = day(in.getLong());
+                LocalDate toDate = day(in.getLong());
+                int count = in.getInt();
+                List<Long> ids = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    ids.add(in.getLong());
+                }
+                return new JournalRecord(type, timestamp, null, null,
+                        new OrdersStatusChangedEvent(ids, from, to, fromDate, toDate));
+        }
+    }
+
+    private static void encodeOrder(Order order, ByteBuffer out) {
+        out.putLong(order.getId());
+        out.putLong(day(order.getDate()));
+        putStatus(out, order.getStatus());
+        putString(out, order.getFirstName());
+        putString(out, order.getLastName());
+        putString(out, order.getEmail());
+        putString(out, order.getPhone());
+        Address address = order.getAddress();
+        out.put((byte) (address == null ? 0 : 1));
+        if (address != null) {
+            putString(out, address.getAddress1());
+            putString(out, address.getAddress2());
+            putString(out, address.getCity());
+            putString(out, address.getState());
+            putString(out, address.getZip());
+        }
+        putAmount(out, order.getTax());
+        putAmount(out, order.getShipping());
+        List<OrderLine> lines = order.getOrderLines() == null ? List.of() : order.getOrderLines();
+        if (lines.size() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many lines to journal: " + lines.size());
+        }
+        out.putShort((short) lines.size());
+        for (OrderLine line : lines) {
+            putString(out, line.getBrand());
+            putString(out, line.getModel());
+            putAmount(out, line.getCost());
+            out.putInt(line.getQuantity() == null ? NULL : line.getQuantity());
+        }
+    }
+
+    private static Order decodeOrder(ByteBuffer in) {
+        Order order = new Order();
+        order.setId(in.getLong());
+        order.setDate(day(in.getLong()));
+        order.setStatus(getStatus(in));
+        order.setFirstName(getString(in));
+        order.setLastName(getString(in));
+        order.setEmail(getString(in));
+        order.setPhone(getString(in));
+        if (in.get() != 0) {
+            order.setAddress(new Address(null, getString(in), getString(in), getString(in), getString(in),
+                    getString(in)));
+        }
+        order.setTax(getAmount(in));
+        order.setShipping(getAmount(in));
+        int count = in.getShort();
+        List<OrderLine> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String brand = getString(in);
+            String model = getString(in);
+            BigDecimal cost = getAmount(in);
+            int quantity = in.getInt();
+            lines.add(new OrderLine(null, brand, model, cost, quantity == NULL ? null : quantity));
+        }
+        order.setOrderLines(lines);
+        return order;
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort(NULL);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length == NULL) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Amounts are money, so the unscaled value always fits a long; anything larger is rejected rather than cut.
+    private static void putAmount(ByteBuffer out, BigDecimal amount) {
+        if (amount == null) {
+            out.put(NULL);
+            return;
+        }
+        if (amount.scale() < 0) {
+            amount = amount.setScale(0);
+        }
+        BigInteger unscaled = amount.unscaledValue();
+        if (amount.scale() > Byte.MAX_VALUE
+                || unscaled.compareTo(MIN_UNSCALED) < 0 || unscaled.compareTo(MAX_UNSCALED) > 0) {
+            throw new IllegalArgumentException("Amount cannot be journaled: " + amount);
+        }
+        out.put((byte) amount.scale());
+        out.putLong(unscaled.longValue());
+    }
+
+    private static BigDecimal getAmount(ByteBuffer in) {
+        byte scale = in.get();
+        if (scale == NULL) {
+            return null;
+        }
+        return BigDecimal.valueOf(in.getLong(), scale);
+    }
+
+    private static void putStatus(ByteBuffer out, Status status) {
+        putString(out, status == null ? null : status.getDbColumn());
+    }
+
+    private static Status getStatus(ByteBuffer in) {
+        String dbData = getString(in);
+        return dbData == null ? null : Status.fromDbColumn(dbData);
+    }
+
+    private static long day(LocalDate date) {
+        return date == null ? NULL_DAY : date.toEpochDay();
+    }
+
+    private static LocalDate day(long epochDay) {
+        return epochDay == NULL_DAY ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
@@ -0,0 +1,62 @@
+package com.goviesco.orders.journal;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.JournalRecordType;
+import com.goviesco.orders.event.OrdersStatusChangedEvent;
+
+// One order mutation in the OrderJournal: the whole order after a save, the id of a deleted order, or a chunk of a
+// status transition job.
+public class JournalRecord {
+
+    private final JournalRecordType type;
+    private final long timestamp;
+    private final Long orderId;
+    private final Order order;
+    private final OrdersStatusChangedEvent statusChange;
+
+    JournalRecord(JournalRecordType type, long timestamp, Long orderId, Order order,
+                  OrdersStatusChangedEvent statusChange) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.orderId = orderId;
+        this.order = order;
+        this.statusChange = statusChange;
+    }
+
+    public static JournalRecord saved(Order order) {
+        return new JournalRecord(JournalRecordType.SAVED, System.currentTimeMillis(), order.getId(), order, null);
+    }
+
+    public static JournalRecord deleted(Long orderId) {
+        return new JournalRecord(JournalRecordType.DELETED, System.currentTimeMillis(), orderId, null, null);
+    }
+
+    public static JournalRecord statusChanged(OrdersStatusChangedEvent statusChange) {
+        return new JournalRecord(JournalRecordType.STATUS_CHANGED, System.currentTimeMillis(), null, null,
+                statusChange);
+    }
+
+    public JournalRecordType getType() {
+        return type;
+    }
+
+    // Milliseconds since the epoch.
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    // Null for STATUS_CHANGED.
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    // Only for SAVED.
+    public Order getOrder() {
+        return order;
+    }
+
+    // Only for STATUS_CHANGED.
+    public OrdersStatusChangedEvent getStatusChange() {
+        return statusChange;
+    }
+}
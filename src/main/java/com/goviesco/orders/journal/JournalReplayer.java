@@ -0,0 +1,140 @@
+package com.goviesco.orders.journal;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.event.OrdersStatusChangedEvent;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.repository.OrderTableWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Replays the OrderJournal. With orders.journal.replay-on-start set to database, every order in the journal is
+ * written back to the orders tables as it was last recorded, and deleted orders are removed; with cache, the orders
+ * are read into the second-level cache. Runs before the other listeners of ApplicationReadyEvent, so the search index
+ * and the status view are built from the replayed tables.
+ */
+@Component
+@ConditionalOnProperty(name = "orders.journal.enabled", havingValue = "true")
+public class JournalReplayer {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalReplayer.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final OrderJournal journal;
+    private final OrderRepository orders;
+    private final OrderTableWriter writer;
+    private final TransactionTemplate transaction;
+    private final String replayOnStart;
+
+    public JournalReplayer(OrderJournal journal, OrderRepository orders, OrderTableWriter writer,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${orders.journal.replay-on-start:none}") String replayOnStart) {
+        this.journal = journal;
+        this.orders = orders;
+        this.writer = writer;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.replayOnStart = replayOnStart;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @org.springframework.core.annotation.Order(Ordered.HIGHEST_PRECEDENCE)
+    public void replayOnStart() {
+        switch (replayOnStart) {
+            case "database":
+                rebuildDatabase();
+                break;
+            case "cache":
+                warmCache();
+                break;
+            case "none":
+                break;
+            default:
+                throw new IllegalArgumentException("orders.journal.replay-on-start must be none, database or cache: "
+                        + replayOnStart);
+        }
+    }
+
+    // The last recorded state of every order in the journal by id; null for orders that were deleted.
+    public Map<Long, Order> replay() {
+        Map<Long, Order> state = new TreeMap<>();
+        long[] skipped = {0};
+        journal.forEach(record -> {
+            switch (record.getType()) {
+                case SAVED:
+                    state.put(record.getOrderId(), record.getOrder());
+                    break;
+                case DELETED:
+                    state.put(record.getOrderId(), null);
+                    break;
+                case STATUS_CHANGED:
+                    skipped[0] += changeStatus(state, record.getStatusChange());
+                    break;
+            }
+        });
+        if (skipped[0] > 0) {
+            log.warn("Skipped " + skipped[0] + " status changes of orders saved before the journal began");
+        }
+        return state;
+    }
+
+    // Returns the number of orders written or deleted.
+    public int rebuildDatabase() {
+        List<Map.Entry<Long, Order>> entries = new ArrayList<>(replay().entrySet());
+        for (int from = 0; from < entries.size(); from += BATCH_SIZE) {
+            List<Map.Entry<Long, Order>> batch = entries.subList(from, Math.min(from + BATCH_SIZE, entries.size()));
+            transaction.executeWithoutResult(status -> batch.forEach(entry ->
+                    writer.replace(entry.getKey(), entry.getValue())));
+        }
+        writer.restartOrderIds();
+        log.info("Rebuilt " + entries.size() + " orders from the journal");
+        return entries.size();
+    }
+
+    // Returns the number of orders read into the cache.
+    public int warmCache() {
+        List<Long> ids = new ArrayList<>();
+        replay().forEach((id, order) -> {
+            if (order != null) {
+                ids.add(id);
+            }
+        });
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            transaction.executeWithoutResult(status -> orders.findAllById(batch)
+                    .forEach(order -> order.getOrderLines().size()));
+        }
+        log.info("Read " + ids.size() + " journaled orders into the cache");
+        return ids.size();
+    }
+
+    // Applies a chunk of a status transition job the way its UPDATE did. Returns the number of orders not in the state.
+    private static int changeStatus(Map<Long, Order> state, OrdersStatusChangedEvent change) {
+        int skipped = 0;
+        for (Long id : change.getIds()) {
+            if (!state.containsKey(id)) {
+                skipped++;
+                continue;
+            }
+            Order order = state.get(id);
+            if (order != null && order.getStatus() == change.getFrom() && order.getDate() != null
+                    && !order.getDate().isBefore(change.getFromDate()) && !order.getDate().isAfter(change.getToDate())) {
+                order.setStatus(change.getTo());
+            }
+        }
+        return skipped;
+    }
+}
@@ -0,0 +1,226 @@
+package com.goviesco.orders.journal;
+
+import com.goviesco.orders.event.OrderDeletedEvent;
+import com.goviesco.orders.event.OrderSavedEvent;
+import com.goviesco.orders.event.OrdersStatusChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only journal of every committed order mutation, in orders.journal.directory. Records are appended to a
+ * memory-mapped segment file of orders.journal.segment-bytes; when one is full the next is started. An append only
+ * copies the record into the mapped memory, without a database round trip or a system call; the operating system
+ * writes the pages out, and they are forced to disk every orders.journal.flush-interval-ms.
+ *
+ * Each record is an int body length, an int CRC32 of the body, and the body laid out by {@link JournalCodec}. The body
+ * and checksum are written before the length, and a new segment is all zeros, so a length of 0 marks the end. At
+ * startup a torn record at the end of the last segment is found by its checksum and cleared.
+ */
+@Component
+@Lazy(false) // A lazy bean is never created, so it would never be scheduled.
+@ConditionalOnProperty(name = "orders.journal.enabled", havingValue = "true")
+public class OrderJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderJournal.class);
+
+    static final int HEADER_BYTES = 8;
+    private static final String PREFIX = "orders-";
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer body = ByteBuffer.allocate(64 * 1024);
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+
+    public OrderJournal(@Value("${orders.journal.directory}") String directory,
+                        @Value("${orders.journal.segment-bytes}") int segmentBytes) throws IOException {
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(this.directory);
+        List<Path> segments = segments(this.directory);
+        segmentIndex = segments.isEmpty() ? 0 : index(segments.get(segments.size() - 1));
+        segment = map(segmentIndex, FileChannel.MapMode.READ_WRITE);
+        segment.position(recover(segment));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSaved(OrderSavedEvent event) {
+        append(JournalRecord.saved(event.getOrder()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeleted(OrderDeletedEvent event) {
+        append(JournalRecord.deleted(event.getOrder().getId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(OrdersStatusChangedEvent event) {
+        append(JournalRecord.statusChanged(event));
+    }
+
+    // The mutation has already committed, so a record that cannot be written is logged rather than failing the caller.
+    public synchronized void append(JournalRecord record) {
+        try {
+            encode(record);
+            int length = body.remaining();
+            if (HEADER_BYTES + length + Integer.BYTES > segmentBytes) {
+                throw new IllegalArgumentException("Journal record of " + length + " bytes is larger than a segment");
+            }
+            // Room is left for the 0 length that ends the segment.
+            if (segment.remaining() < HEADER_BYTES + length + Integer.BYTES) {
+                roll();
+            }
+            crc.reset();
+            crc.update(body.duplicate());
+            int position = segment.position();
+            segment.position(position + Integer.BYTES);
+            segment.putInt((int) crc.getValue());
+            segment.put(body);
+            segment.putInt(position, length);
+        } catch (RuntimeException e) {
+            log.error("Could not journal a " + record.getType() + " record", e);
+        }
+    }
+
+    // Calls the consumer with every record in the journal, oldest first.
+    public void forEach(Consumer<JournalRecord> consumer) {
+        List<Path> segments;
+        synchronized (this) {
+            segment.force();
+            segments = segments(directory);
+        }
+        for (Path path : segments) {
+            ByteBuffer records = map(index(path), FileChannel.MapMode.READ_ONLY);
+            while (next(records) > 0) {
+                int length = records.getInt();
+                records.getInt();
+                ByteBuffer record = records.slice();
+                record.limit(length);
+                consumer.accept(JournalCodec.decode(record));
+                records.position(records.position() + length);
+            }
+        }
+    }
+
+    // Forced outside the lock, so appends do not wait for the disk.
+    @Scheduled(fixedDelayString = "${orders.journal.flush-interval-ms:1000}")
+    public void flush() {
+        MappedByteBuffer current;
+        synchronized (this) {
+            current = segment;
+        }
+        current.force();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        segment.force();
+    }
+
+    private void encode(JournalRecord record) {
+        while (true) {
+            body.clear();
+            try {
+                JournalCodec.encode(record, body);
+                body.flip();
+                return;
+            } catch (BufferOverflowException e) {
+                body = ByteBuffer.allocate(body.capacity() * 2);
+            }
+        }
+    }
+
+    private void roll() {
+        segment.force();
+        segmentIndex++;
+        segment = map(segmentIndex, FileChannel.MapMode.READ_WRITE);
+        log.info("Started journal segment " + segmentIndex);
+    }
+
+    // Returns the position after the last whole record, and clears whatever follows it.
+    private static int recover(ByteBuffer records) {
+        while (next(records) > 0) {
+            records.position(records.position() + HEADER_BYTES + records.getInt(records.position()));
+        }
+        int end = records.position();
+        if (records.remaining() >= Integer.BYTES && records.getInt(end) != 0) {
+            log.warn("Clearing a torn record at " + end + " of the last journal segment");
+            for (int position = end; position < records.limit(); position++) {
+                records.put(position, (byte) 0);
+            }
+        }
+        return end;
+    }
+
+    // The body length of the whole record at the position, or 0 at the end of the records or a torn record.
+    private static int next(ByteBuffer records) {
+        int position = records.position();
+        if (records.remaining() < HEADER_BYTES) {
+            return 0;
+        }
+        int length = records.getInt(position);
+        if (length <= 0 || length > records.remaining() - HEADER_BYTES) {
+            return 0;
+        }
+        ByteBuffer record = records.duplicate();
+        record.position(position + HEADER_BYTES);
+        record.limit(position + HEADER_BYTES + length);
+        CRC32 checksum = new CRC32();
+        checksum.update(record);
+        return (int) checksum.getValue() == records.getInt(position + Integer.BYTES) ? length : 0;
+    }
+
+    private MappedByteBuffer map(long index, FileChannel.MapMode mode) {
+        Path path = directory.resolve(String.format("%s%016d%s", PREFIX, index, SUFFIX));
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        // The mapping stays valid once the channel is closed.
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            return channel.map(mode, 0, mode == FileChannel.MapMode.READ_ONLY ? channel.size() : segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Path> segments(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(PREFIX)
+                            && path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long index(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
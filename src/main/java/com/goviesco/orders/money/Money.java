@@ -0,0 +1,40 @@
+package com.goviesco.orders.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Arithmetic on amounts of money held as a long count of cents. It allocates nothing, and throws ArithmeticException
+ * on overflow instead of wrapping, so loops such as the totals of an order need not build a BigDecimal per step.
+ *
+ * Amounts are stored in decimal(19, 2) columns, so two decimal places is all the precision an amount has; a
+ * BigDecimal with more is rounded half up, as the database would.
+ *
+ * The entities keep their amounts as BigDecimal, which JSON writes with the scale they were given; only the sums of
+ * them are done in cents. See Money in the README.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    // Throws ArithmeticException if the amount does not fit a long count of cents.
+    public static long cents(BigDecimal amount) {
+        BigDecimal scaled = amount.scale() == SCALE ? amount : amount.setScale(SCALE, RoundingMode.HALF_UP);
+        return scaled.unscaledValue().longValueExact();
+    }
+
+    public static long add(long cents, long otherCents) {
+        return Math.addExact(cents, otherCents);
+    }
+
+    public static long multiply(long cents, long quantity) {
+        return Math.multiplyExact(cents, quantity);
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+}
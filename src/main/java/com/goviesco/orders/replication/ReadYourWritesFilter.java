@@ -0,0 +1,134 @@
+package com.goviesco.orders.replication;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pins the reads of a client to the primary for orders.replication.sticky-ms after it wrote, so it reads its own
+ * writes although the replica lags behind. Clients are told apart by the X-Client-Id header, or else by address.
+ */
+@Component
+@Profile("replicated")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String CLIENT_HEADER = "X-Client-Id";
+
+    // Request attribute that keeps the request on the primary.
+    private static final String PRIMARY_ONLY = ReadYourWritesFilter.class.getName() + ".PRIMARY_ONLY";
+
+    private static final Set<String> SAFE_METHODS = new HashSet<>(Arrays.asList("GET", "HEAD", "OPTIONS", "TRACE"));
+
+    // Expired entries are dropped once the map grows past this size.
+    private static final int PURGE_THRESHOLD = 10_000;
+
+    private final long stickyNanos;
+
+    // Client to the time of its last write, from System.nanoTime().
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadYourWritesFilter(@Value("${orders.replication.sticky-ms:5000}") long stickyMillis) {
+        this.stickyNanos = stickyMillis * 1_000_000L;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String client = client(request);
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        if (write) {
+            recordWrite(client);
+        }
+        if (write || wroteRecently(client)) {
+            request.setAttribute(PRIMARY_ONLY, Boolean.TRUE);
+        }
+        if (write) {
+            whenAsyncWriteIsDone(request, client);
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            // The window starts again when the write is done, as replication starts from the committed data. A write
+            // handled asynchronously is still running when the filter returns; the interceptors record it instead.
+            if (write && !isAsyncStarted(request)) {
+                recordWrite(client);
+            }
+        }
+    }
+
+    // Whether the current request must read from the primary.
+    public static boolean isPinnedToPrimary() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        return request != null && request.getAttribute(PRIMARY_ONLY, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+
+    // The result of the handler is ready before its response is sent, so the window starts before the client can read.
+    // A handler that timed out may still be writing then, so the window starts again when the request completes.
+    private void whenAsyncWriteIsDone(HttpServletRequest request, String client) {
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.registerCallableInterceptor(ReadYourWritesFilter.class.getName(),
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object result) {
+                        recordWrite(client);
+                    }
+
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                        recordWrite(client);
+                    }
+                });
+        asyncManager.registerDeferredResultInterceptor(ReadYourWritesFilter.class.getName(),
+                new DeferredResultProcessingInterceptor() {
+                    @Override
+                    public <T> void postProcess(NativeWebRequest request, DeferredResult<T> result,
+                                                Object concurrentResult) {
+                        recordWrite(client);
+                    }
+
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest request, DeferredResult<T> result) {
+                        recordWrite(client);
+                    }
+                });
+    }
+
+    private boolean wroteRecently(String client) {
+        Long lastWrite = lastWrites.get(client);
+        return lastWrite != null && System.nanoTime() - lastWrite < stickyNanos;
+    }
+
+    private void recordWrite(String client) {
+        long now = System.nanoTime();
+        lastWrites.put(client, now);
+        if (lastWrites.size() > PURGE_THRESHOLD) {
+            lastWrites.values().removeIf(lastWrite -> now - lastWrite >= stickyNanos);
+        }
+    }
+
+    private static String client(HttpServletRequest request) {
+        String client = request.getHeader(CLIENT_HEADER);
+        return client == null || client.isBlank() ? request.getRemoteAddr() : client;
+    }
+}
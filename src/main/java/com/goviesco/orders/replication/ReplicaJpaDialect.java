@@ -0,0 +1,64 @@
+package com.goviesco.orders.replication;
+
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.sql.SQLException;
+
+/**
+ * Keeps transactions that read the replica away from the second-level cache, which is shared with the primary. An
+ * order the replica has not caught up with would otherwise be cached as if it were current, and served to every
+ * client, including the one that just wrote it. Such transactions neither read nor fill the cache; the entity manager,
+ * which lives as long as the request, uses the cache again once the transaction is done.
+ */
+public class ReplicaJpaDialect extends HibernateJpaDialect {
+
+    private static final String RETRIEVE_MODE = "javax.persistence.cache.retrieveMode";
+    private static final String STORE_MODE = "javax.persistence.cache.storeMode";
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        // The transaction is not yet marked read-only, so the routing data source would not pick the replica yet.
+        if (!ReplicaRoutingDataSource.readsReplica(definition.isReadOnly())) {
+            return transactionData;
+        }
+        ReplicaRead read = new ReplicaRead(entityManager, transactionData);
+        entityManager.setProperty(RETRIEVE_MODE, CacheRetrieveMode.BYPASS);
+        entityManager.setProperty(STORE_MODE, CacheStoreMode.BYPASS);
+        return read;
+    }
+
+    // Only called for an entity manager that outlives the transaction; one opened for it is closed instead.
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReplicaRead) {
+            ReplicaRead read = (ReplicaRead) transactionData;
+            read.entityManager.setProperty(RETRIEVE_MODE, read.retrieveMode);
+            read.entityManager.setProperty(STORE_MODE, read.storeMode);
+            transactionData = read.transactionData;
+        }
+        super.cleanupTransaction(transactionData);
+    }
+
+    private static final class ReplicaRead {
+
+        private final EntityManager entityManager;
+        private final Object transactionData;
+        private final Object retrieveMode;
+        private final Object storeMode;
+
+        private ReplicaRead(EntityManager entityManager, Object transactionData) {
+            this.entityManager = entityManager;
+            this.transactionData = transactionData;
+            this.retrieveMode = entityManager.getProperties().getOrDefault(RETRIEVE_MODE, CacheRetrieveMode.USE);
+            this.storeMode = entityManager.getProperties().getOrDefault(STORE_MODE, CacheStoreMode.USE);
+        }
+    }
+}
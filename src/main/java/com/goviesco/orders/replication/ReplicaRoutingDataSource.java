@@ -0,0 +1,64 @@
+package com.goviesco.orders.replication;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions of HTTP requests to the replica and everything else to the primary. Requests that the
+ * ReadYourWritesFilter pinned to the primary, and background work such as jobs, archiving and index rebuilds, always
+ * use the primary. It must be wrapped in a LazyConnectionDataSourceProxy, so the connection is only chosen once the
+ * transaction is marked read-only.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private enum Target { PRIMARY, REPLICA }
+
+    private final DataSource primary;
+    private final DataSource replica;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Target.PRIMARY, primary);
+        targets.put(Target.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public DataSource getReplica() {
+        return replica;
+    }
+
+    // Whether a transaction begun now, read-only or not, reads the replica.
+    static boolean readsReplica(boolean readOnly) {
+        return readOnly && RequestContextHolder.getRequestAttributes() != null
+                && !ReadYourWritesFilter.isPinnedToPrimary();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return readsReplica(TransactionSynchronizationManager.isCurrentTransactionReadOnly()) ? Target.REPLICA
+                : Target.PRIMARY;
+    }
+
+    @Override
+    public void destroy() {
+        for (DataSource dataSource : new DataSource[]{primary, replica}) {
+            if (dataSource instanceof HikariDataSource) {
+                ((HikariDataSource) dataSource).close();
+            }
+        }
+    }
+}
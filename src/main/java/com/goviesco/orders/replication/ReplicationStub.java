@@ -0,0 +1,130 @@
+package com.goviesco.orders.replication;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stands in for database replication between two local H2 databases. It copies the schema that Hibernate created on
+ * the primary to the replica at startup, then copies all rows every orders.replication.interval-ms. Each copy
+ * replaces the rows of every table in one transaction, so readers of the replica see either the old or the new copy.
+ * The replica lags behind the primary by up to the interval, like a real asynchronous replica.
+ */
+@Component
+@Lazy(false)
+@Profile("replicated")
+public class ReplicationStub {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationStub.class);
+
+    private final ReplicaRoutingDataSource dataSource;
+
+    // Depends on the EntityManagerFactory so that Hibernate has created the schema first.
+    public ReplicationStub(ReplicaRoutingDataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    void initialize() throws SQLException {
+        List<String> schema = new ArrayList<>();
+        try (Connection primary = dataSource.getPrimary().getConnection();
+             Statement statement = primary.createStatement();
+             ResultSet script = statement.executeQuery("script nodata")) {
+            while (script.next()) {
+                String sql = script.getString(1);
+                if (!sql.startsWith("--") && !sql.startsWith("CREATE USER")) {
+                    schema.add(sql);
+                }
+            }
+        }
+        try (Connection replica = dataSource.getReplica().getConnection();
+             Statement statement = replica.createStatement()) {
+            for (String sql : schema) {
+                statement.execute(sql);
+            }
+            // Tables are copied one after the other, so foreign keys would reject the intermediate states.
+            statement.execute("set referential_integrity false");
+        }
+        replicate();
+    }
+
+    @Scheduled(fixedDelayString = "${orders.replication.interval-ms:1000}",
+            initialDelayString = "${orders.replication.interval-ms:1000}")
+    public synchronized void replicate() throws SQLException {
+        try (Connection primary = dataSource.getPrimary().getConnection();
+             Connection replica = dataSource.getReplica().getConnection()) {
+            replica.setAutoCommit(false);
+            try {
+                for (String table : tables(replica)) {
+                    copy(primary, replica, table);
+                }
+                replica.commit();
+            } catch (SQLException | RuntimeException e) {
+                replica.rollback();
+                throw e;
+            }
+        }
+        log.debug("Replicated the primary");
+    }
+
+    private static List<String> tables(Connection connection) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (ResultSet result = connection.getMetaData()
+                .getTables(null, "PUBLIC", "%", new String[]{"TABLE"})) {
+            while (result.next()) {
+                tables.add(result.getString("TABLE_NAME"));
+            }
+        }
+        return tables;
+    }
+
+    private static void copy(Connection primary, Connection replica, String table) throws SQLException {
+        try (Statement delete = replica.createStatement()) {
+            delete.executeUpdate("delete from \"" + table + "\"");
+        }
+        try (Statement select = primary.createStatement();
+             ResultSet rows = select.executeQuery("select * from \"" + table + "\"")) {
+            int columns = rows.getMetaData().getColumnCount();
+            String insert = "insert into \"" + table + "\" values ("
+                    + String.join(", ", Collections.nCopies(columns, "?")) + ")";
+            try (PreparedStatement statement = replica.prepareStatement(insert)) {
+                while (rows.next()) {
+                    for (int column = 1; column <= columns; column++) {
+                        statement.setObject(column, value(rows.getObject(column)));
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+    }
+
+    // Lobs are bound to the connection that read them.
+    private static Object value(Object value) throws SQLException {
+        if (value instanceof Blob) {
+            Blob blob = (Blob) value;
+            return blob.getBytes(1, (int) blob.length());
+        }
+        if (value instanceof Clob) {
+            Clob clob = (Clob) value;
+            return clob.getSubString(1, (int) clob.length());
+        }
+        return value;
+    }
+}
@@ -0,0 +1,28 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.Address;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+public interface AddressRepository extends JpaRepository<Address, Long> {
+
+    Optional<Address> findByHash(String hash);
+
+    // Locks the row of the address until the transaction ends. Empty if the address was deleted.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Address a where a.id = :id")
+    Optional<Address> lock(@Param("id") Long id);
+
+    // Deletes the address if no order refers to it any more. Pending deletes of orders are flushed first.
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("delete from Address a where a.id = :id and not exists (select o.id from Order o where o.address.id = :id)")
+    int deleteIfUnused(@Param("id") Long id);
+}
@@ -0,0 +1,17 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.ArchivedOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    // Deletes without loading the payload first. Returns the number of archived orders deleted.
+    @Transactional
+    @Modifying
+    @Query("delete from ArchivedOrder a where a.id = :id")
+    int deleteArchived(@Param("id") Long id);
+}
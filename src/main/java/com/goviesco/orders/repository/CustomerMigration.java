@@ -0,0 +1,108 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.Address;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves a database written before orders referred to customers onto the current schema. Each email of the orders
+ * becomes a customer, with the name and phone of its first order; each order keeps its own. Addresses get their
+ * content hash, and orders are pointed at one row per distinct address. The email column of the orders is dropped
+ * last, so a migration that stops part way runs again at the next start.
+ * <p>
+ * Does nothing when the orders table has no email column, as in a schema Hibernate has just created. Runs
+ * before the application uses the tables, on the database of the default data source.
+ */
+@Component
+@Lazy(false) // A lazy bean is never created, so the migration would never run.
+public class CustomerMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerMigration.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbc;
+    private final SessionFactory sessionFactory;
+    private final TransactionTemplate transaction;
+
+    // Depends on the EntityManagerFactory so that Hibernate has created or updated the schema first.
+    public CustomerMigration(JdbcTemplate jdbc, EntityManagerFactory entityManagerFactory,
+                             PlatformTransactionManager transactionManager) {
+        this.jdbc = jdbc;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        if (!hasColumn("ORDERS", "EMAIL")) {
+            return;
+        }
+
+        // One order had one address, so the old schema may keep address_id unique.
+        jdbc.queryForList("select constraint_name from information_schema.constraints where table_name = 'ORDERS' " +
+                "and constraint_type = 'UNIQUE' and column_list = 'ADDRESS_ID'", String.class)
+                .forEach(name -> jdbc.execute("alter table orders drop constraint " + name));
+
+        int customers = transaction.execute(status -> {
+            int inserted = jdbc.update("insert into customers (email, first_name, last_name, phone) " +
+                    "select o.email, o.first_name, o.last_name, o.phone from orders o " +
+                    "where o.email is not null and o.id = (select min(l.id) from orders l where l.email = o.email) " +
+                    "and not exists (select 1 from customers c where c.email = o.email)");
+            jdbc.update("update orders o set customer_id = (select c.id from customers c where c.email = o.email) " +
+                    "where o.customer_id is null and o.email is not null");
+            return inserted;
+        });
+
+        int merged = 0;
+        List<Map<String, Object>> batch;
+        do {
+            batch = jdbc.queryForList("select id, address1, address2, city, state, zip from addresses " +
+                    "where hash is null order by id limit " + BATCH_SIZE);
+            List<Map<String, Object>> rows = batch;
+            merged += transaction.execute(status -> hash(rows));
+        } while (batch.size() == BATCH_SIZE);
+
+        jdbc.execute("alter table orders drop column if exists email");
+        sessionFactory.getCache().evictAllRegions();
+        log.info("Migrated orders to customers: " + customers + " customers created, " + merged +
+                " duplicate addresses merged");
+    }
+
+    // Sets the hash of each address, or merges it into the address that already has that hash. Returns the number
+    // merged.
+    private int hash(List<Map<String, Object>> rows) {
+        int merged = 0;
+        for (Map<String, Object> row : rows) {
+            Long id = ((Number) row.get("ID")).longValue();
+            String hash = new Address(id, (String) row.get("ADDRESS1"), (String) row.get("ADDRESS2"),
+                    (String) row.get("CITY"), (String) row.get("STATE"), (String) row.get("ZIP")).contentHash();
+            List<Long> existing = jdbc.queryForList("select id from addresses where hash = ?", Long.class, hash);
+            if (existing.isEmpty()) {
+                jdbc.update("update addresses set hash = ? where id = ?", hash, id);
+            } else {
+                jdbc.update("update orders set address_id = ? where address_id = ?", existing.get(0), id);
+                jdbc.update("delete from addresses where id = ?", id);
+                merged++;
+            }
+        }
+        return merged;
+    }
+
+    private boolean hasColumn(String table, String column) {
+        Integer count = jdbc.queryForObject("select count(*) from information_schema.columns " +
+                "where table_schema = schema() and table_name = ? and column_name = ?", Integer.class, table, column);
+        return count != null && count > 0;
+    }
+}
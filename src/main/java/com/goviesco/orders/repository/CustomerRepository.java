@@ -0,0 +1,11 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.Customer;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface CustomerRepository extends JpaRepository<Customer, Long> {
+
+    Optional<Customer> findByEmail(String email);
+}
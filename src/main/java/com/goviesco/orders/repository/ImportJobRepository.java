@@ -0,0 +1,39 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.ImportJob;
+import com.goviesco.orders.enumeration.JobState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+
+    List<ImportJob> findByStateIn(Collection<JobState> states);
+
+    // Note: as for StatusTransitionJobs, state and progress are changed with targeted updates.
+    @Transactional
+    @Modifying
+    @Query("update ImportJob j set j.state = :to, j.updatedAt = :updatedAt where j.id = :id and j.state in :from")
+    int changeState(@Param("id") Long id, @Param("from") Collection<JobState> from, @Param("to") JobState to,
+                    @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Transactional
+    @Modifying
+    @Query("update ImportJob j set j.state = :state, j.error = :error, j.updatedAt = :updatedAt where j.id = :id")
+    int fail(@Param("id") Long id, @Param("state") JobState state, @Param("error") String error,
+             @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Transactional
+    @Modifying
+    @Query("update ImportJob j set j.position = :position, j.line = :line, j.imported = j.imported + :imported, " +
+            "j.failed = j.failed + :failed, j.updatedAt = :updatedAt where j.id = :id")
+    int addProgress(@Param("id") Long id, @Param("position") long position, @Param("line") long line,
+                    @Param("imported") long imported, @Param("failed") long failed,
+                    @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,13 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.ImportRowError;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface ImportRowErrorRepository extends JpaRepository<ImportRowError, Long> {
+
+    // Read a page at a time after the last line read, so a long report is never held in memory.
+    List<ImportRowError> findByJobIdAndLineGreaterThanOrderByLine(Long jobId, long line, Pageable pageable);
+}
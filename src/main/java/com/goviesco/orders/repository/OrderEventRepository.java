@@ -0,0 +1,17 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.OrderEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface OrderEventRepository extends JpaRepository<OrderEvent, Long> {
+
+    List<OrderEvent> findByOrderIdOrderByVersion(Long orderId);
+
+    // The tail of a stream after its snapshot.
+    List<OrderEvent> findByOrderIdAndVersionGreaterThanOrderByVersion(Long orderId, long version);
+
+    List<OrderEvent> findByIdGreaterThanOrderById(Long id, Pageable pageable);
+}
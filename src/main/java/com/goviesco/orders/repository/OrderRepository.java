@@ -1,7 +1,79 @@
 package com.goviesco.orders.repository;
 
 import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.Status;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    // The ids of the result are kept in the order_queries cache region; the orders themselves come from the orders region.
+    // Hibernate invalidates the result whenever the orders table changes.
+    @Override
+    @QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "order_queries")})
+    List<Order> findAll();
+
+    // The lines are fetched in the same query, so the orders can be copied once the transaction has ended.
+    @Transactional(readOnly = true)
+    @Query("select distinct o from Order o left join fetch o.orderLines where o.status = :status order by o.id")
+    List<Order> findWithLinesByStatus(@Param("status") Status status);
+
+    // The lines, their products, the address and the customer are fetched in the same query, so a set of orders costs
+    // one statement instead of one per order and association.
+    @Transactional(readOnly = true)
+    @Query("select distinct o from Order o left join fetch o.orderLines l left join fetch l.product " +
+            "left join fetch o.address left join fetch o.customer where o.id in :ids")
+    List<Order> findWithLinesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Read before an order is updated, to release the address it no longer uses.
+    @Query("select o.address.id from Order o where o.id = :id")
+    Optional<Long> findAddressId(@Param("id") Long id);
+
+    // Served by the orders_customer_id index.
+    List<Order> findByCustomerIdOrderById(Long customerId);
+
+    // Used to load the OrderStatusView in pages of the orders after the given id, so that no order is missed or read
+    // twice when others are inserted or deleted meanwhile.
+    List<Order> findByStatusInAndIdGreaterThanOrderById(Collection<Status> statuses, Long afterId, Pageable pageable);
+
+    // Used to rebuild the search index in pages of the orders after the given id.
+    List<Order> findByIdGreaterThanOrderById(Long afterId, Pageable pageable);
+
+    // Oldest orders first; used to archive orders in batches.
+    List<Order> findByStatusInAndDateBeforeOrderById(Collection<Status> statuses, LocalDate date, Pageable pageable);
+
+    // Ids of the orders with the status and date in range, after the given id. Used to walk the table in chunks.
+    @Query("select o.id from Order o where o.status = :status and o.date between :fromDate and :toDate " +
+            "and o.id > :afterId order by o.id")
+    List<Long> findIds(@Param("status") Status status, @Param("fromDate") LocalDate fromDate,
+                       @Param("toDate") LocalDate toDate, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select count(o) from Order o where o.status = :status and o.date between :fromDate and :toDate")
+    long countMatching(@Param("status") Status status, @Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    @Query("select count(o) from Order o where o.status = :status and o.date between :fromDate and :toDate " +
+            "and o.id in :ids")
+    long countMatching(@Param("status") Status status, @Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate,
+               @Param("ids") Collection<Long> ids);
+
+    // Set-based status change. Orders whose status or date changed since the ids were selected are left alone. The
+    // version is incremented as an update through the entity does, so a request holding an older copy conflicts.
+    @Transactional
+    @Modifying
+    @Query("update Order o set o.status = :to, o.version = o.version + 1 where o.id in :ids and o.status = :from " +
+            "and o.date between :fromDate and :toDate")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("from") Status from, @Param("to") Status to,
+                     @Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
 }
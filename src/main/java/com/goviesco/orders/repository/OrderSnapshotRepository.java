@@ -0,0 +1,7 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.OrderSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OrderSnapshotRepository extends JpaRepository<OrderSnapshot, Long> {
+}
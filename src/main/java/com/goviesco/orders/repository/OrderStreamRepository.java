@@ -0,0 +1,28 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.OrderStream;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface OrderStreamRepository extends JpaRepository<OrderStream, Long> {
+
+    // Returns 0 when another change was appended since the expected version was read.
+    @Transactional
+    @Modifying
+    @Query("update OrderStream s set s.version = :version, s.deleted = :deleted " +
+            "where s.id = :id and s.version = :expected and s.deleted = false")
+    int advance(@Param("id") Long id, @Param("expected") long expected, @Param("version") long version,
+                @Param("deleted") boolean deleted);
+
+    // Starts a stream under the id of an order that is already in the orders table.
+    @Transactional
+    @Modifying
+    @Query(value = "insert into order_streams (id, version, deleted, created_at) values (:id, 1, false, :createdAt)",
+            nativeQuery = true)
+    int adopt(@Param("id") Long id, @Param("createdAt") LocalDateTime createdAt);
+}
@@ -0,0 +1,12 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.OrderSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface OrderSummaryRepository extends JpaRepository<OrderSummary, Long> {
+
+    List<OrderSummary> findByDateBetweenOrderByDate(LocalDate from, LocalDate to);
+}
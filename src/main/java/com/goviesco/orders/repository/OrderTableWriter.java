@@ -0,0 +1,126 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderLine;
+import com.goviesco.orders.service.OrderSummaries;
+import com.goviesco.orders.service.ProductCatalog;
+import org.hibernate.SessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Writes whole orders, with their address and lines, to the orders tables with JDBC, keeping the id of the order.
+ * Used to rebuild the tables from another record of the orders, such as the order events or the order journal.
+ * The customer and address are found by email and content hash, as CustomerService does, and are never deleted here;
+ * the product of each line comes from the ProductCatalog. The OrderSummaries follow each replaced order.
+ */
+@Component
+public class OrderTableWriter {
+
+    private final JdbcTemplate jdbc;
+    private final SessionFactory sessionFactory;
+    private final ProductCatalog catalog;
+    private final OrderSummaries summaries;
+
+    public OrderTableWriter(JdbcTemplate jdbc, EntityManagerFactory entityManagerFactory, ProductCatalog catalog,
+                            OrderSummaries summaries) {
+        this.jdbc = jdbc;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.catalog = catalog;
+        this.summaries = summaries;
+    }
+
+    // Replaces the rows of the order, or only deletes them if the order is null. Must run in a transaction.
+    public void replace(Long id, Order order) {
+        OrderSummaries.Entry before = summaries.lock(id);
+        List<Long> lineIds = jdbc.queryForList("select order_lines_id from orders_order_lines where order_id = ?",
+                Long.class, id);
+        jdbc.update("delete from orders_order_lines where order_id = ?", id);
+        jdbc.update("delete from orders where id = ?", id);
+        lineIds.forEach(lineId -> jdbc.update("delete from order_lines where id = ?", lineId));
+        evict(id, lineIds);
+        if (order == null) {
+            summaries.replace(before, null);
+            return;
+        }
+
+        Long customerId = customer(order);
+        Long addressId = address(order.getAddress());
+        jdbc.update("insert into orders (id, date, status, first_name, last_name, phone, customer_id, address_id, " +
+                        "tax, shipping) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", id,
+                order.getDate() == null ? null : Date.valueOf(order.getDate()),
+                order.getStatus() == null ? null : order.getStatus().getDbColumn(), order.getFirstName(),
+                order.getLastName(), order.getPhone(), customerId, addressId, order.getTax(), order.getShipping());
+        if (order.getOrderLines() != null) {
+            for (OrderLine line : order.getOrderLines()) {
+                long lineId = insert("insert into order_lines (product_id, cost, quantity) values (?, ?, ?)",
+                        catalog.intern(line.getBrand(), line.getModel()).getId(), line.getCost(), line.getQuantity());
+                jdbc.update("insert into orders_order_lines (order_id, order_lines_id) values (?, ?)", id, lineId);
+            }
+        }
+        summaries.replace(before, OrderSummaries.Entry.of(order));
+    }
+
+    // Moves the identity of the orders table past every id written with replace(). Not transactional: in H2 the
+    // statement commits the current transaction.
+    public void restartOrderIds() {
+        Long maxId = jdbc.queryForObject("select coalesce(max(id), 0) from orders", Long.class);
+        jdbc.execute("alter table orders alter column id restart with " + (maxId + 1));
+    }
+
+    // The customer with the email of the order, unchanged, or a new one with the order's name and phone.
+    private Long customer(Order order) {
+        if (order.getEmail() == null) {
+            return null;
+        }
+        List<Long> ids = jdbc.queryForList("select id from customers where email = ?", Long.class, order.getEmail());
+        if (ids.isEmpty()) {
+            return insert("insert into customers (email, first_name, last_name, phone) values (?, ?, ?, ?)",
+                    order.getEmail(), order.getFirstName(), order.getLastName(), order.getPhone());
+        }
+        return ids.get(0);
+    }
+
+    private Long address(Address address) {
+        if (address == null) {
+            return null;
+        }
+        String hash = address.contentHash();
+        List<Long> ids = jdbc.queryForList("select id from addresses where hash = ?", Long.class, hash);
+        if (!ids.isEmpty()) {
+            return ids.get(0);
+        }
+        return insert("insert into addresses (address1, address2, city, state, zip, hash) values (?, ?, ?, ?, ?, ?)",
+                address.getAddress1(), address.getAddress2(), address.getCity(), address.getState(),
+                address.getZip(), hash);
+    }
+
+    // The rows were rewritten with JDBC, so the second-level cache would otherwise keep the old order.
+    private void evict(Long id, List<Long> lineIds) {
+        org.hibernate.Cache cache = sessionFactory.getCache();
+        cache.evictEntityData(Order.class, id);
+        cache.evictCollectionData(Order.class.getName() + ".orderLines", id);
+        lineIds.forEach(lineId -> cache.evictEntityData(OrderLine.class, lineId));
+    }
+
+    private long insert(String sql, Object... args) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+            return statement;
+        }, keys);
+        return keys.getKey().longValue();
+    }
+}
@@ -0,0 +1,62 @@
+package com.goviesco.orders.repository;
+
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Moves a database written before order lines referred to products onto the current schema. Each distinct brand and
+ * model of the lines becomes a product and every line is pointed at its product; the brand and model columns of the
+ * lines are dropped last, so a migration that stops part way runs again at the next start.
+ * <p>
+ * Does nothing when the order_lines table has no brand column, as in a schema Hibernate has just created. Runs
+ * before the application uses the tables, on the database of the default data source.
+ */
+@Component
+@Lazy(false) // A lazy bean is never created, so the migration would never run.
+public class ProductMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductMigration.class);
+
+    private final JdbcTemplate jdbc;
+    private final SessionFactory sessionFactory;
+    private final TransactionTemplate transaction;
+
+    // Depends on the EntityManagerFactory so that Hibernate has created or updated the schema first.
+    public ProductMigration(JdbcTemplate jdbc, EntityManagerFactory entityManagerFactory,
+                            PlatformTransactionManager transactionManager) {
+        this.jdbc = jdbc;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        Integer legacy = jdbc.queryForObject("select count(*) from information_schema.columns " +
+                "where table_schema = schema() and table_name = 'ORDER_LINES' and column_name = 'BRAND'", Integer.class);
+        if (legacy == null || legacy == 0) {
+            return;
+        }
+
+        int[] counts = transaction.execute(status -> new int[]{
+                jdbc.update("insert into products (brand, model) select distinct l.brand, l.model from order_lines l " +
+                        "where l.brand is not null and l.model is not null and not exists " +
+                        "(select 1 from products p where p.brand = l.brand and p.model = l.model)"),
+                jdbc.update("update order_lines l set product_id = (select p.id from products p " +
+                        "where p.brand = l.brand and p.model = l.model) where l.product_id is null")});
+
+        jdbc.execute("alter table order_lines drop column if exists brand");
+        jdbc.execute("alter table order_lines drop column if exists model");
+        sessionFactory.getCache().evictAllRegions();
+        log.info("Migrated order lines to products: " + counts[0] + " products created, " + counts[1] +
+                " lines updated");
+    }
+}
@@ -0,0 +1,11 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.Product;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    Optional<Product> findByBrandAndModel(String brand, String model);
+}
@@ -0,0 +1,7 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.ProjectionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ProjectionCheckpointRepository extends JpaRepository<ProjectionCheckpoint, String> {
+}
@@ -0,0 +1,26 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.SchedulerLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLock, String> {
+
+    // Takes or extends the lease when it has expired or is already held by the owner. Returns 1 when it did.
+    @Transactional
+    @Modifying
+    @Query("update SchedulerLock l set l.owner = :owner, l.lockedUntil = :until " +
+            "where l.name = :name and (l.owner = :owner or l.lockedUntil < :now)")
+    int acquire(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now,
+                @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("update SchedulerLock l set l.lockedUntil = :now where l.name = :name and l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,60 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.StatusTransitionJob;
+import com.goviesco.orders.enumeration.JobState;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface StatusTransitionJobRepository extends JpaRepository<StatusTransitionJob, Long> {
+
+    List<StatusTransitionJob> findByStateIn(Collection<JobState> states);
+
+    // The id of the last order the job handled; empty unless the job is in the state. Reads neither the job nor its ids.
+    @Query("select j.lastOrderId from StatusTransitionJob j where j.id = :id and j.state = :state")
+    Optional<Long> findLastOrderId(@Param("id") Long id, @Param("state") JobState state);
+
+    // The explicit order ids of the job after the given one, in id order. Used to walk them in chunks.
+    @Query("select i from StatusTransitionJob j join j.orderIds i where j.id = :id and i > :afterId order by i")
+    List<Long> findOrderIds(@Param("id") Long id, @Param("afterId") Long afterId, Pageable pageable);
+
+    // Note: state and progress are changed with targeted updates, so a cancel never races with a running chunk.
+    @Transactional
+    @Modifying
+    @Query("update StatusTransitionJob j set j.state = :to, j.updatedAt = :updatedAt where j.id = :id and j.state in :from")
+    int changeState(@Param("id") Long id, @Param("from") Collection<JobState> from, @Param("to") JobState to,
+                    @Param("updatedAt") LocalDateTime updatedAt);
+
+    // Like changeState(), and records the error. A job that left the from states, such as one canceled meanwhile, is
+    // left as it is.
+    @Transactional
+    @Modifying
+    @Query("update StatusTransitionJob j set j.state = :to, j.error = :error, j.updatedAt = :updatedAt " +
+            "where j.id = :id and j.state in :from")
+    int fail(@Param("id") Long id, @Param("from") Collection<JobState> from, @Param("to") JobState to,
+             @Param("error") String error, @Param("updatedAt") LocalDateTime updatedAt);
+
+    // Queues again the jobs in the from state that were not updated since staleBefore, as those of an instance that
+    // stopped. Returns their number.
+    @Transactional
+    @Modifying
+    @Query("update StatusTransitionJob j set j.state = :to, j.updatedAt = :updatedAt " +
+            "where j.state = :from and j.updatedAt < :staleBefore")
+    int requeueStale(@Param("from") JobState from, @Param("to") JobState to,
+                     @Param("staleBefore") LocalDateTime staleBefore, @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Transactional
+    @Modifying
+    @Query("update StatusTransitionJob j set j.processed = j.processed + :processed, j.lastOrderId = :lastOrderId, " +
+            "j.updatedAt = :updatedAt where j.id = :id")
+    int addProgress(@Param("id") Long id, @Param("processed") long processed, @Param("lastOrderId") Long lastOrderId,
+                    @Param("updatedAt") LocalDateTime updatedAt);
+}
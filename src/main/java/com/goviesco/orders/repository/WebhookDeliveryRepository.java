@@ -0,0 +1,43 @@
+package com.goviesco.orders.repository;
+
+import com.goviesco.orders.entity.WebhookDelivery;
+import com.goviesco.orders.enumeration.DeliveryState;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface WebhookDeliveryRepository extends JpaRepository<WebhookDelivery, Long> {
+
+    // Served by the webhook_deliveries_state_next_attempt_at index. Oldest due first.
+    List<WebhookDelivery> findByStateAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(DeliveryState state,
+                                                                                       LocalDateTime now,
+                                                                                       Pageable pageable);
+
+    // The same, less the deliveries to the URLs, which must not be empty.
+    List<WebhookDelivery> findByStateAndNextAttemptAtLessThanEqualAndUrlNotInOrderByNextAttemptAt(
+            DeliveryState state, LocalDateTime now, Collection<String> urls, Pageable pageable);
+
+    // Takes a lease on a due delivery and counts the attempt. Returns 1 when it did; 0 when another sender took it.
+    @Transactional
+    @Modifying
+    @Query("update WebhookDelivery d set d.attempts = d.attempts + 1, d.nextAttemptAt = :leaseUntil, " +
+            "d.updatedAt = :now where d.id = :id and d.state = :pending and d.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("pending") DeliveryState pending, @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Records the outcome of an attempt. A PENDING delivery is tried again at nextAttemptAt.
+    @Transactional
+    @Modifying
+    @Query("update WebhookDelivery d set d.state = :state, d.nextAttemptAt = :nextAttemptAt, " +
+            "d.lastStatusCode = :statusCode, d.lastError = :error, d.updatedAt = :now where d.id = :id")
+    int record(@Param("id") Long id, @Param("state") DeliveryState state,
+               @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("statusCode") Integer statusCode,
+               @Param("error") String error, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,268 @@
+package com.goviesco.orders.search;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderLine;
+import com.goviesco.orders.event.OrderDeletedEvent;
+import com.goviesco.orders.event.OrderSavedEvent;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.sharding.ShardContext;
+import com.goviesco.orders.sharding.ShardRouter;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Inverted index over the customer fields of {@link Order} and the brand and model of its {@link OrderLine}s, kept
+ * in a Lucene index in orders.search.directory on the local file system. It is updated when the OrderService saves or deletes an order and
+ * searched by prefix, so support staff can find orders by partial name, email, phone, brand or model. In the sharded
+ * profile it holds the orders of every shard.
+ */
+@Component
+@Lazy(false)
+public class OrderSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderSearchIndex.class);
+
+    private static final String ID = "id";
+    private static final String TEXT = "text";
+    private static final String EMAIL = "email";
+    private static final String PHONE = "phone";
+
+    // Phone numbers are indexed by every suffix of at least this many digits, so any part of a number can be found.
+    private static final int MIN_PHONE_DIGITS = 4;
+
+    private final OrderRepository orders;
+    private final ShardRouter router;
+    private final TransactionTemplate transaction;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final boolean rebuildOnStart;
+
+    public OrderSearchIndex(OrderRepository orders, ObjectProvider<ShardRouter> router,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${orders.search.directory:}") String directory,
+                            @Value("${orders.search.rebuild-on-start:true}") boolean rebuildOnStart) throws IOException {
+        this.orders = orders;
+        // Without sharding, the one database is the only shard.
+        this.router = router.getIfAvailable(() -> new ShardRouter(1));
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setReadOnly(true);
+        this.rebuildOnStart = rebuildOnStart;
+        // Without a directory the index is kept in memory, like the default H2 database it is built from.
+        Directory store = directory.isBlank() ? new ByteBuffersDirectory() : FSDirectory.open(Paths.get(directory));
+        this.writer = new IndexWriter(store, new IndexWriterConfig(analyzer));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    // Returns the ids of the best matching orders, best match first. Every word of the query must match.
+    public List<Long> search(String text, int limit) {
+        Query query = parse(text);
+        List<Long> ids = new ArrayList<>();
+        if (query == null) {
+            return ids;
+        }
+
+        try {
+            searcherManager.maybeRefresh();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                for (ScoreDoc scoreDoc : searcher.search(query, limit).scoreDocs) {
+                    ids.add(Long.valueOf(searcher.doc(scoreDoc.doc).get(ID)));
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ids;
+    }
+
+    // Note: when the order is saved inside a transaction, the index is only updated once it commits.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSaved(OrderSavedEvent event) {
+        index(event.getOrder());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeleted(OrderDeletedEvent event) {
+        try {
+            writer.deleteDocuments(new Term(ID, event.getOrder().getId().toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The index lives outside the database, so it is rebuilt from the orders table unless told otherwise.
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() throws IOException {
+        if (!rebuildOnStart) {
+            return;
+        }
+
+        writer.deleteAll();
+        long indexed = 0;
+        for (int shard = 0; shard < router.getShards(); shard++) {
+            indexed += ShardContext.call(shard, this::indexAll);
+        }
+        writer.commit();
+        log.info("Indexed " + indexed + " orders for search");
+    }
+
+    // Updates become searchable on refresh; a periodic commit makes them durable.
+    @Scheduled(fixedDelayString = "${orders.search.commit-interval-ms:10000}")
+    public void commit() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+    }
+
+    // Indexes the orders of the current shard in pages of the orders after the last one indexed, so that every page is
+    // found through the primary key instead of skipping the orders of the pages before it.
+    private long indexAll() {
+        PageRequest pageRequest = PageRequest.of(0, 500);
+        long indexed = 0;
+        Long lastId = 0L;
+        while (lastId != null) {
+            Long afterId = lastId;
+            List<Order> page = transaction.execute(tx -> {
+                List<Order> result = orders.findByIdGreaterThanOrderById(afterId, pageRequest);
+                result.forEach(this::index);
+                return result;
+            });
+            indexed += page == null ? 0 : page.size();
+            lastId = page == null || page.size() < pageRequest.getPageSize() ? null : page.get(page.size() - 1).getId();
+        }
+        return indexed;
+    }
+
+    private void index(Order order) {
+        Document document = new Document();
+        document.add(new StringField(ID, order.getId().toString(), Field.Store.YES));
+        addText(document, order.getFirstName());
+        addText(document, order.getLastName());
+        addText(document, order.getEmail());
+        if (order.getEmail() != null) {
+            document.add(new StringField(EMAIL, order.getEmail().toLowerCase(Locale.ROOT), Field.Store.NO));
+        }
+        if (order.getOrderLines() != null) {
+            for (OrderLine line : order.getOrderLines()) {
+                addText(document, line.getBrand());
+                addText(document, line.getModel());
+            }
+        }
+        String digits = digits(order.getPhone());
+        for (int start = 0; start <= digits.length() - MIN_PHONE_DIGITS; start++) {
+            document.add(new StringField(PHONE, digits.substring(start), Field.Store.NO));
+        }
+
+        try {
+            writer.updateDocument(new Term(ID, order.getId().toString()), document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void addText(Document document, String value) {
+        if (value != null && !value.isEmpty()) {
+            document.add(new TextField(TEXT, value, Field.Store.NO));
+        }
+    }
+
+    // A query without letters and with enough digits is a phone number; anything else is matched word by word.
+    private Query parse(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+
+        String digits = digits(text);
+        if (digits.length() >= MIN_PHONE_DIGITS && text.chars().noneMatch(Character::isLetter)) {
+            return new PrefixQuery(new Term(PHONE, digits));
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        String email = text.trim().toLowerCase(Locale.ROOT);
+        for (String word : words(text)) {
+            query.add(new BooleanQuery.Builder()
+                    .add(new PrefixQuery(new Term(TEXT, word)), BooleanClause.Occur.SHOULD)
+                    .add(new PrefixQuery(new Term(EMAIL, email)), BooleanClause.Occur.SHOULD)
+                    .build(), BooleanClause.Occur.MUST);
+        }
+        return query.build();
+    }
+
+    private List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(TEXT, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                words.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return words;
+    }
+
+    private static String digits(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+}
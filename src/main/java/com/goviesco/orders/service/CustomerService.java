@@ -0,0 +1,73 @@
+package com.goviesco.orders.service;
+
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.Customer;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.repository.AddressRepository;
+import com.goviesco.orders.repository.CustomerRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores the customer and address of an order ahead of the order, in the transaction that writes the order, so that
+ * they roll back with it. The customer is found by email, or inserted with the name and phone of the order; an
+ * existing customer is never changed, as each order keeps its own name and phone. The address is found by the hash of
+ * its content, or inserted.
+ * <p>
+ * When a concurrent save inserts the same email or address first, the unique constraint fails the transaction, which
+ * the caller runs again once; the second attempt finds the row the other one inserted. An address found may belong
+ * to another order only, so the transaction must hold() it too; otherwise release() of that order could delete it in
+ * between.
+ */
+@Component
+public class CustomerService {
+
+    private final CustomerRepository customers;
+    private final AddressRepository addresses;
+
+    public CustomerService(CustomerRepository customers, AddressRepository addresses) {
+        this.customers = customers;
+        this.addresses = addresses;
+    }
+
+    // Points the order at the stored customer and address, and returns it. The id sent with an address is ignored.
+    // Must run in the transaction that writes the order, before it does.
+    public Order attach(Order order) {
+        if (order.getEmail() != null) {
+            order.setCustomer(customers.findByEmail(order.getEmail()).orElseGet(() -> customers.saveAndFlush(
+                    new Customer(null, order.getEmail(), order.getFirstName(), order.getLastName(), order.getPhone()))));
+        }
+
+        Address address = order.getAddress();
+        if (address != null) {
+            String hash = address.contentHash();
+            order.setAddress(addresses.findByHash(hash).orElseGet(() -> {
+                Address stored = new Address(null, address.getAddress1(), address.getAddress2(), address.getCity(),
+                        address.getState(), address.getZip());
+                stored.setHash(hash);
+                return addresses.saveAndFlush(stored);
+            }));
+        }
+        return order;
+    }
+
+    // Must run in the transaction that writes the order, after attach() and before the order is written. Locks the
+    // address of the order until that commits, so that release() waits for the order to refer to it; an address
+    // deleted since it was found is stored again.
+    public void hold(Order order) {
+        Address address = order.getAddress();
+        if (address == null || address.getId() == null || addresses.lock(address.getId()).isPresent()) {
+            return;
+        }
+        Address stored = new Address(null, address.getAddress1(), address.getAddress2(), address.getCity(),
+                address.getState(), address.getZip());
+        stored.setHash(address.contentHash());
+        order.setAddress(addresses.saveAndFlush(stored));
+    }
+
+    // Deletes the address once no order refers to it. Must run after the order that used it was deleted or changed.
+    public void release(Long addressId) {
+        if (addressId != null) {
+            addresses.deleteIfUnused(addressId);
+        }
+    }
+}
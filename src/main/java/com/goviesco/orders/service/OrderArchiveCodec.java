@@ -0,0 +1,46 @@
+package com.goviesco.orders.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.goviesco.orders.entity.ArchivedOrder;
+import com.goviesco.orders.entity.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Converts orders to and from their archived form: the order, its address and lines as gzipped JSON.
+@Component
+public class OrderArchiveCodec {
+
+    private final ObjectMapper mapper;
+
+    public OrderArchiveCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public ArchivedOrder archive(Order order) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            mapper.writeValue(out, order);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ArchivedOrder(order.getId(), order.getStatus(), order.getDate(), LocalDateTime.now(),
+                bytes.toByteArray());
+    }
+
+    public Order restore(ArchivedOrder archivedOrder) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(archivedOrder.getPayload()))) {
+            return mapper.readValue(in, Order.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
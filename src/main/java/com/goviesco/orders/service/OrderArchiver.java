@@ -0,0 +1,119 @@
+package com.goviesco.orders.service;
+
+import com.goviesco.orders.entity.ArchivedOrder;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.event.OrderDeletedEvent;
+import com.goviesco.orders.repository.AddressRepository;
+import com.goviesco.orders.repository.ArchivedOrderRepository;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.sharding.ShardContext;
+import com.goviesco.orders.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Moves COMPLETED and CANCELED orders older than orders.archive.min-age-days out of the hot tables, in batches of
+ * orders.archive.batch-size. Each batch is copied to archived_orders and deleted, with its lines and the addresses
+ * no other order shares, in one transaction. Archived orders stay readable through {@link OrderService#findById(Long)}.
+ * In the sharded profile each shard is archived in turn, to its own archived_orders table.
+ */
+@Component
+@Lazy(false) // A lazy bean is never created, so it would never be scheduled.
+public class OrderArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderArchiver.class);
+
+    private static final List<Status> TERMINAL = Arrays.asList(Status.COMPLETED, Status.CANCELED);
+
+    private final OrderRepository orders;
+    private final ArchivedOrderRepository archivedOrders;
+    private final AddressRepository addresses;
+    private final OrderArchiveCodec codec;
+    private final ShardRouter router;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate transaction;
+    private final boolean enabled;
+    private final int minAgeDays;
+    private final int batchSize;
+
+    public OrderArchiver(OrderRepository orders, ArchivedOrderRepository archivedOrders, AddressRepository addresses,
+                         OrderArchiveCodec codec, ObjectProvider<ShardRouter> router,
+                         ApplicationEventPublisher events, PlatformTransactionManager transactionManager,
+                         @Value("${orders.archive.enabled:false}") boolean enabled,
+                         @Value("${orders.archive.min-age-days:365}") int minAgeDays,
+                         @Value("${orders.archive.batch-size:200}") int batchSize) {
+        this.orders = orders;
+        this.archivedOrders = archivedOrders;
+        this.addresses = addresses;
+        this.codec = codec;
+        // Without sharding, the one database is the only shard.
+        this.router = router.getIfAvailable(() -> new ShardRouter(1));
+        this.events = events;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.minAgeDays = minAgeDays;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${orders.archive.initial-delay-ms:60000}",
+            fixedDelayString = "${orders.archive.interval-ms:3600000}")
+    public void archiveOldOrders() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDate cutoff = LocalDate.now().minusDays(minAgeDays);
+        long archived = 0;
+        for (int shard = 0; shard < router.getShards() && !Thread.currentThread().isInterrupted(); shard++) {
+            archived += ShardContext.call(shard, () -> archiveShard(cutoff));
+        }
+
+        if (archived > 0) {
+            log.info("Archived " + archived + " orders dated before " + cutoff);
+        }
+    }
+
+    // Archives the old orders of the current shard, a batch at a time. Returns their number.
+    private long archiveShard(LocalDate cutoff) {
+        long archived = 0;
+        Integer batch;
+        do {
+            batch = transaction.execute(tx -> archiveBatch(cutoff));
+            archived += batch == null ? 0 : batch;
+        } while (batch != null && batch == batchSize && !Thread.currentThread().isInterrupted());
+        return archived;
+    }
+
+    // Archives one batch and returns its size.
+    int archiveBatch(LocalDate cutoff) {
+        List<Order> batch = orders.findByStatusInAndDateBeforeOrderById(TERMINAL, cutoff, PageRequest.of(0, batchSize));
+        List<ArchivedOrder> archived = batch.stream()
+                .map(codec::archive)
+                .collect(Collectors.toList());
+
+        archivedOrders.saveAll(archived);
+        orders.deleteAll(batch);
+        batch.stream()
+                .map(order -> order.getAddress().getId())
+                .distinct()
+                .forEach(addresses::deleteIfUnused);
+        // The orders left the orders table, so views of it such as the OrderStatusView drop them once this commits.
+        batch.forEach(order -> events.publishEvent(new OrderDeletedEvent(order)));
+        return batch.size();
+    }
+}
@@ -0,0 +1,276 @@
+package com.goviesco.orders.service;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.event.OrdersStatusChangedEvent;
+import com.goviesco.orders.eventsourcing.EventSourcedOrderService;
+import com.goviesco.orders.exception.OrderConflictException;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.sharding.ShardContext;
+import com.goviesco.orders.sharding.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Changes the status of orders that stayed too long in one status, as set by orders.expiry.rules: by default,
+ * PROCESSING orders dated 30 days ago or earlier are CANCELED. Each rule is applied in chunks of orders.expiry.chunk-size,
+ * each changed with one UPDATE in its own transaction, as a {@link StatusTransitionJobService} job does. In the sharded
+ * profile each rule is applied to every shard in turn; the lease is kept on shard 0. In the event-sourced profile the
+ * orders table is a projection that the OrderProjector would overwrite, so each order is changed through the
+ * EventSourcedOrderService instead, which appends its STATUS_TRANSITIONED event.
+ * <p>
+ * Runs every orders.expiry.interval-ms, plus a random delay of up to orders.expiry.jitter-ms so that instances
+ * started together do not query together, on a single thread of its own; a run therefore holds at most one
+ * connection. Only the instance holding the "order-expiry" lease of {@link SchedulerLocks} runs, and it stops when
+ * it loses the lease. Between chunks it waits orders.expiry.pause-ms, and longer while requests are waiting for a
+ * connection of the pool.
+ */
+@Component
+@Lazy(false) // A lazy bean is never created, so it would never be scheduled.
+public class OrderExpiryScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderExpiryScheduler.class);
+
+    static final String LOCK = "order-expiry";
+
+    private static final LocalDate EARLIEST = LocalDate.of(1, 1, 1);
+
+    // How many pauses a run waits at most for requests to get their connections, before it goes on regardless.
+    private static final int MAX_BACKOFFS = 20;
+
+    private final OrderRepository orders;
+    private final OrderService service;
+    private final ShardRouter router;
+    private final SchedulerLocks locks;
+    private final OrderSummaries summaries;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate transaction;
+    private final HikariDataSource pool;
+    private final List<Rule> rules = new ArrayList<>();
+    private final boolean enabled;
+    private final int chunkSize;
+    private final long intervalMs;
+    private final long jitterMs;
+    private final long pauseMs;
+    private final Duration lease;
+    private final ScheduledThreadPoolExecutor executor;
+
+    public OrderExpiryScheduler(OrderRepository orders, OrderService service, ObjectProvider<ShardRouter> router,
+                                SchedulerLocks locks,
+                                OrderSummaries summaries,
+                                ApplicationEventPublisher events, PlatformTransactionManager transactionManager,
+                                DataSource dataSource,
+                                @Value("${orders.expiry.enabled:false}") boolean enabled,
+                                @Value("${orders.expiry.rules:PROCESSING>CANCELED:30}") List<String> rules,
+                                @Value("${orders.expiry.chunk-size:500}") int chunkSize,
+                                @Value("${orders.expiry.interval-ms:600000}") long intervalMs,
+                                @Value("${orders.expiry.jitter-ms:60000}") long jitterMs,
+                                @Value("${orders.expiry.pause-ms:100}") long pauseMs,
+                                @Value("${orders.expiry.lease-ms:300000}") long leaseMs) {
+        this.orders = orders;
+        this.service = service;
+        // Without sharding, the one database is the only shard.
+        this.router = router.getIfAvailable(() -> new ShardRouter(1));
+        this.locks = locks;
+        this.summaries = summaries;
+        this.events = events;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.pool = pool(dataSource);
+        rules.stream().map(String::trim).filter(rule -> !rule.isEmpty()).map(Rule::parse).forEach(this.rules::add);
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.intervalMs = intervalMs;
+        this.jitterMs = jitterMs;
+        this.pauseMs = pauseMs;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.executor = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "order-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            schedule();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Applies every rule once, if this instance holds or can take the lease. Returns the number of orders changed.
+    public long expire() {
+        if (!locks.acquire(LOCK, lease)) {
+            return 0;
+        }
+        long changed = 0;
+        try {
+            for (Rule rule : rules) {
+                for (int shard = 0; shard < router.getShards(); shard++) {
+                    changed += ShardContext.call(shard, () -> expire(rule));
+                }
+            }
+        } finally {
+            locks.release(LOCK);
+        }
+        if (changed > 0) {
+            log.info("Expired " + changed + " orders");
+        }
+        return changed;
+    }
+
+    // Applies the rule to the orders of the current shard.
+    private long expire(Rule rule) {
+        LocalDate cutoff = LocalDate.now().minusDays(rule.days);
+        long changed = 0;
+        long after = 0;
+        List<Long> ids;
+        do {
+            long afterId = after;
+            ids = orders.findIds(rule.from, EARLIEST, cutoff, afterId, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            changed += service instanceof EventSourcedOrderService ? append(ids, rule, cutoff)
+                    : update(ids, rule, cutoff);
+            after = ids.get(ids.size() - 1);
+        } while (ids.size() == chunkSize && pause() && locks.acquire(LOCK, lease));
+        return changed;
+    }
+
+    // Changes the chunk with one UPDATE, in a transaction of its own.
+    private int update(List<Long> ids, Rule rule, LocalDate cutoff) {
+        Integer updated = transaction.execute(tx -> {
+            summaries.statusChanging(ids, rule.from, rule.to, EARLIEST, cutoff);
+            int count = orders.updateStatus(ids, rule.from, rule.to, EARLIEST, cutoff);
+            // Heard once the chunk commits, by the OrderStatusView among others.
+            events.publishEvent(new OrdersStatusChangedEvent(ids, rule.from, rule.to, EARLIEST, cutoff));
+            return count;
+        });
+        return updated == null ? 0 : updated;
+    }
+
+    // Changes the orders one at a time through the event-sourced service. The projection the ids were found in may lag
+    // behind the events, so each order is checked again as its events have it.
+    private int append(List<Long> ids, Rule rule, LocalDate cutoff) {
+        int count = 0;
+        for (Long id : ids) {
+            Optional<Order> order = service.findById(id);
+            if (order.isEmpty() || order.get().getStatus() != rule.from || order.get().getDate().isAfter(cutoff)) {
+                continue;
+            }
+            order.get().setStatus(rule.to);
+            try {
+                service.save(order.get());
+                count++;
+            } catch (OrderConflictException e) {
+                // Changed since it was read; the next run finds it again if it still matches.
+            }
+        }
+        return count;
+    }
+
+    // Waits between chunks, and for as long as requests are waiting for a connection. Returns false if interrupted.
+    private boolean pause() {
+        try {
+            int backoffs = 0;
+            do {
+                Thread.sleep(pauseMs);
+            } while (requestsWaiting() && ++backoffs < MAX_BACKOFFS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean requestsWaiting() {
+        // Null until the pool has handed out its first connection.
+        return pool != null && pool.getHikariPoolMXBean() != null
+                && pool.getHikariPoolMXBean().getThreadsAwaitingConnection() > 0;
+    }
+
+    private void schedule() {
+        long jitter = jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs) : 0;
+        executor.schedule(this::run, intervalMs + jitter, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        try {
+            expire();
+        } catch (RuntimeException e) {
+            log.error("Order expiry failed", e);
+        } finally {
+            if (!executor.isShutdown()) {
+                schedule();
+            }
+        }
+    }
+
+    // The pool of the data source, when it is a Hikari pool; routing data sources have several, and are not watched.
+    private static HikariDataSource pool(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class);
+            }
+        } catch (SQLException e) {
+            log.warn("Could not find the connection pool of the data source", e);
+        }
+        return null;
+    }
+
+    // Orders with status from and a date more than days ago change to status to.
+    private static class Rule {
+
+        private final Status from;
+        private final Status to;
+        private final int days;
+
+        private Rule(Status from, Status to, int days) {
+            this.from = from;
+            this.to = to;
+            this.days = days;
+        }
+
+        // Parses from>to:days, as in PROCESSING>CANCELED:30.
+        private static Rule parse(String rule) {
+            String[] parts = rule.split("[>:]");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expiry rule must be from>to:days, not " + rule);
+            }
+            Status from = Status.valueOf(parts[0].trim());
+            Status to = Status.valueOf(parts[1].trim());
+            if (!Status.canTransition(from, to)) {
+                throw new IllegalArgumentException(String.format("Not allowed to change orders with status %s to %s",
+                        from, to));
+            }
+            return new Rule(from, to, Integer.parseInt(parts[2].trim()));
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.goviesco.orders.service;
 
 import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.Status;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 public interface OrderService {
@@ -10,7 +13,30 @@ public interface OrderService {
 
     Optional<Order> findById(Long id);
 
+    // Archived orders included, as by findById(); ids without an order are left out.
+    Iterable<Order> findAllById(Iterable<Long> ids);
+
+    // In id order.
+    Iterable<Order> findByStatus(Status status);
+
+    // In id order; empty if there is no such customer.
+    Optional<List<Order>> findByCustomer(Long customerId);
+
     Order save(Order order);
 
+    // Saves new orders, such as those of an import, and returns them in the same order. An implementation may write
+    // them with fewer round trips than a save() each.
+    default List<Order> saveAll(List<Order> orders) {
+        List<Order> saved = new ArrayList<>(orders.size());
+        orders.forEach(order -> saved.add(save(order)));
+        return saved;
+    }
+
+    // Whether save() and saveAll() write in the caller's transaction, if there is one, so that the orders commit or
+    // roll back with whatever else it writes.
+    default boolean joinsTransaction() {
+        return false;
+    }
+
     void delete(Order order);
 }
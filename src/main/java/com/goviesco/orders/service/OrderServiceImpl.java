@@ -1,39 +1,390 @@
 package com.goviesco.orders.service;
 
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.Customer;
 import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderLine;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.event.OrderDeletedEvent;
+import com.goviesco.orders.event.OrderSavedEvent;
+import com.goviesco.orders.event.OrderTransitionedEvent;
+import com.goviesco.orders.event.OrdersStatusChangedEvent;
+import com.goviesco.orders.exception.OrderArchivedException;
+import com.goviesco.orders.exception.OrderConflictException;
+import com.goviesco.orders.replication.ReadYourWritesFilter;
+import com.goviesco.orders.repository.ArchivedOrderRepository;
+import com.goviesco.orders.repository.CustomerRepository;
 import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.sharding.ShardContext;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
+/**
+ * Concurrent identical reads are coalesced into one query. Every caller of findById gets its own detached copy of the
+ * order, since it may change and save it; callers of a list share one read-only copy. Only the caller that loads runs
+ * a transaction, so those waiting for it hold no connection, and a write makes later callers read again rather than
+ * wait for a read that began before it committed.
+ */
 @Component
 public class OrderServiceImpl implements OrderService {
 
+    // Key of findAll() among the list queries; findAllById() is keyed by its ids.
+    private static final String ALL = "all";
+
+    // Ids per IN list of findAllById(), so that no statement binds an unbounded number of parameters.
+    private static final int IN_CHUNK = 500;
+
     private final OrderRepository repo;
+    private final ArchivedOrderRepository archive;
+    private final OrderArchiveCodec codec;
+    private final OrderStatusView statusView;
+    private final CustomerService customerService;
+    private final ProductCatalog catalog;
+    private final CustomerRepository customers;
+    private final OrderSummaries summaries;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readTransaction;
+    private final SingleFlight<List<Object>, Optional<Order>> byId;
+    private final SingleFlight<List<Object>, List<Order>> lists;
 
     @Autowired
-    public OrderServiceImpl(OrderRepository repo) {
+    public OrderServiceImpl(OrderRepository repo, ArchivedOrderRepository archive, OrderArchiveCodec codec,
+                            OrderStatusView statusView, CustomerService customerService, ProductCatalog catalog,
+                            CustomerRepository customers, OrderSummaries summaries, ApplicationEventPublisher events,
+                            PlatformTransactionManager transactionManager, MeterRegistry registry) {
         this.repo = repo;
+        this.archive = archive;
+        this.codec = codec;
+        this.statusView = statusView;
+        this.customerService = customerService;
+        this.catalog = catalog;
+        this.customers = customers;
+        this.summaries = summaries;
+        this.events = events;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.byId = new SingleFlight<>("findById", registry);
+        this.lists = new SingleFlight<>("list", registry);
     }
 
     @Override
     public Iterable<Order> findAll() {
-        return repo.findAll();
+        return lists.call(key(ALL), () -> read(() -> copyAll(repo.findAll())), UnaryOperator.identity(),
+                UnaryOperator.identity());
     }
 
+    // Falls back to the archive for orders moved there by the OrderArchiver. Every caller gets a detached copy: with
+    // the session open in view, changes to the managed order would otherwise be flushed by the next transaction of
+    // the request, before save() reads what the order was.
     @Override
     public Optional<Order> findById(Long id) {
-        return repo.findById(id);
+        return byId.call(key(id), () -> read(() -> load(id).map(OrderServiceImpl::copy)),
+                order -> order.map(OrderServiceImpl::copy), order -> order.map(OrderServiceImpl::copy));
+    }
+
+    private Optional<Order> load(Long id) {
+        Optional<Order> order = repo.findById(id);
+        if (order.isPresent()) {
+            return order;
+        }
+        return archive.findById(id).map(codec::restore);
+    }
+
+    // In no particular order. The orders are read with their lines, address and customer, one query per IN_CHUNK ids;
+    // those not found are looked for in the archive together, as findById() does one by one.
+    @Override
+    public Iterable<Order> findAllById(Iterable<Long> ids) {
+        List<Long> idList = new ArrayList<>();
+        ids.forEach(idList::add);
+        return lists.call(key(idList), () -> read(() -> {
+            List<Order> orders = new ArrayList<>(idList.size());
+            for (int from = 0; from < idList.size(); from += IN_CHUNK) {
+                orders.addAll(repo.findWithLinesByIdIn(idList.subList(from, Math.min(from + IN_CHUNK, idList.size()))));
+            }
+            Set<Long> missing = new HashSet<>(idList);
+            orders.forEach(order -> missing.remove(order.getId()));
+            List<Long> archived = new ArrayList<>(missing);
+            for (int from = 0; from < archived.size(); from += IN_CHUNK) {
+                archive.findAllById(archived.subList(from, Math.min(from + IN_CHUNK, archived.size())))
+                        .forEach(order -> orders.add(codec.restore(order)));
+            }
+            return copyAll(orders);
+        }), UnaryOperator.identity(), UnaryOperator.identity());
+    }
+
+    // Statuses held by the OrderStatusView are answered from memory. This method is not transactional, so that
+    // path neither begins a transaction nor takes a connection; the query runs in a read-only one of its own.
+    @Override
+    public Iterable<Order> findByStatus(Status status) {
+        // The view holds the orders of every shard, so a call on one shard reads that shard's table instead. The
+        // ShardedOrderService reads the view itself.
+        Optional<List<Order>> held = ShardContext.current() == null ? statusView.findByStatus(status)
+                : Optional.empty();
+        if (held.isPresent()) {
+            return held.get();
+        }
+        return lists.call(key(status), () -> repo.findWithLinesByStatus(status), OrderServiceImpl::copyAll,
+                UnaryOperator.identity());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<List<Order>> findByCustomer(Long customerId) {
+        if (!customers.existsById(customerId)) {
+            return Optional.empty();
+        }
+        return Optional.of(copyAll(repo.findByCustomerIdOrderById(customerId)));
+    }
+
+    // Archived orders are read only: saving one throws OrderArchivedException. An address the order no longer uses is
+    // deleted if no other order shares it. Throws OrderConflictException when another request changed or deleted the
+    // order since it was read.
     @Override
     public Order save(Order order) {
-        return repo.save(order);
+        Optional<Long> previousAddress = order.getId() == null ? Optional.empty() : repo.findAddressId(order.getId());
+        Order saved = merge(catalog.attach(order));
+        saved.readCustomer();
+        if (saved.getOrderLines() != null) {
+            saved.getOrderLines().forEach(OrderLine::readProduct);
+        }
+        previousAddress
+                .filter(addressId -> saved.getAddress() == null || !addressId.equals(saved.getAddress().getId()))
+                .ifPresent(customerService::release);
+        forget(Set.of(saved.getId()));
+        events.publishEvent(new OrderSavedEvent(saved));
+        return saved;
     }
 
+    // New orders only. They are written in one transaction, the caller's if there is one, with one flush and one
+    // update of the summary. Each order and line is still inserted by a statement of its own, since their ids are
+    // identity columns, which Hibernate cannot batch.
+    @Override
+    public List<Order> saveAll(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return Collections.emptyList();
+        }
+        for (Order order : orders) {
+            if (order.getId() != null) {
+                throw new IllegalArgumentException("Order " + order.getId() + " is not new");
+            }
+            catalog.attach(order);
+        }
+        List<Order> saved = retryOnce(() -> transaction.execute(status -> {
+            orders.forEach(order -> customerService.hold(customerService.attach(order)));
+            List<Order> written = repo.saveAll(orders);
+            repo.flush();
+            summaries.added(written);
+            return written;
+        }), () -> orders.stream().allMatch(order -> order.getId() == null));
+        Set<Long> ids = new HashSet<>();
+        for (Order order : saved) {
+            order.readCustomer();
+            if (order.getOrderLines() != null) {
+                order.getOrderLines().forEach(OrderLine::readProduct);
+            }
+            ids.add(order.getId());
+        }
+        forget(ids);
+        saved.forEach(order -> events.publishEvent(new OrderSavedEvent(order)));
+        return saved;
+    }
+
+    @Override
+    public boolean joinsTransaction() {
+        return true;
+    }
+
+    // The version of the order given is brought up to date too, so the caller may go on to change or delete it. The
+    // order is flushed before the summary is changed, so the summary counts what was written. A change of status is
+    // published before the transaction commits, so that what it triggers commits or rolls back with it.
+    private Order merge(Order order) {
+        Long id = order.getId();
+        Order merged;
+        try {
+            merged = retryOnce(() -> transaction.execute(status -> {
+                // Read from the table, not the persistence context, which may hold the very order being saved.
+                OrderSummaries.Entry before = id == null ? null : summaries.lock(id);
+                customerService.hold(customerService.attach(order));
+                Order saved = repo.save(order);
+                repo.flush();
+                // Hibernate merges an order that is no longer in the table by inserting it under a new id. Only then is
+                // the archive read, rather than on every save.
+                if (id != null && !id.equals(saved.getId())) {
+                    throw gone(id);
+                }
+                summaries.replace(before, OrderSummaries.Entry.of(saved));
+                if (before != null && before.getStatus() != saved.getStatus()) {
+                    events.publishEvent(new OrderTransitionedEvent(saved, before.getStatus()));
+                }
+                return saved;
+            }), () -> id != null || order.getId() == null);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw gone(id);
+        } catch (DataIntegrityViolationException e) {
+            // The order was deleted or archived, and then the address it still referred to.
+            if (id != null && !repo.existsById(id)) {
+                throw gone(id);
+            }
+            throw e;
+        }
+        order.setVersion(merged.getVersion());
+        return merged;
+    }
+
+    // Runs the write again once when it failed, as when a concurrent save inserted the same customer or address first;
+    // the second attempt finds that row. Not when the write joined the caller's transaction, which is rolled back with
+    // it, or when unwritten says the failed attempt already gave the orders their ids.
+    private static <T> T retryOnce(Supplier<T> write, BooleanSupplier unwritten) {
+        boolean joined = TransactionSynchronizationManager.isActualTransactionActive();
+        try {
+            return write.get();
+        } catch (DataIntegrityViolationException e) {
+            if (joined || !unwritten.getAsBoolean()) {
+                throw e;
+            }
+            return write.get();
+        }
+    }
+
+    // The summary stops counting the order in the transaction that deletes it, archived or not.
     @Override
     public void delete(Order order) {
-        repo.delete(order);
+        if (order.getId() == null) {
+            return;
+        }
+        Long id = order.getId();
+        boolean archived;
+        try {
+            archived = Boolean.TRUE.equals(transaction.execute(status -> {
+                // The archive is only read for an order that is not in the table.
+                OrderSummaries.Entry before = summaries.lock(id);
+                if (before == null && !repo.existsById(id)) {
+                    Optional<Order> stored = archive.findById(id).map(codec::restore);
+                    if (stored.isPresent()) {
+                        archive.deleteArchived(id);
+                        summaries.replace(OrderSummaries.Entry.of(stored.get()), null);
+                        return true;
+                    }
+                }
+                repo.delete(order);
+                repo.flush();
+                summaries.replace(before, null);
+                return false;
+            }));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new OrderConflictException(id);
+        }
+        if (!archived) {
+            customerService.release(order.getAddress() == null ? null : order.getAddress().getId());
+        }
+        forget(Set.of(id));
+        events.publishEvent(new OrderDeletedEvent(order));
+    }
+
+    // The exception for a save or delete that found the order changed or gone; archived orders are read only.
+    private RuntimeException gone(Long id) {
+        return id != null && archive.existsById(id) ? new OrderArchivedException(id) : new OrderConflictException(id);
+    }
+
+    // Status transition jobs and expiry change orders without the service.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(OrdersStatusChangedEvent event) {
+        forget(new HashSet<>(event.getIds()));
+    }
+
+    // Runs the read in a read-only transaction of its own, which the replicated profile sends to the replica.
+    private <T> T read(Supplier<T> query) {
+        return readTransaction.execute(status -> query.get());
+    }
+
+    // Reads in flight of the orders, or of any list, may have begun before the write; later callers read again. Within
+    // an enclosing transaction the write is only seen once that commits, so they are forgotten again then.
+    private void forget(Set<Long> ids) {
+        Runnable forget = () -> {
+            byId.forget(key -> ids.contains(key.get(0)));
+            lists.forget(key -> true);
+        };
+        forget.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    forget.run();
+                }
+            });
+        }
+    }
+
+    // Calls only coalesce when they read the same database: the same shard, and the primary or the replica.
+    private static List<Object> key(Object query) {
+        return Arrays.asList(query, ShardContext.current(), ReadYourWritesFilter.isPinnedToPrimary());
+    }
+
+    private static List<Order> copyAll(List<Order> orders) {
+        List<Order> copies = new ArrayList<>(orders.size());
+        orders.forEach(order -> copies.add(copy(order)));
+        return Collections.unmodifiableList(copies);
+    }
+
+    // A detached deep copy, including the totals computed by @PostLoad.
+    static Order copy(Order order) {
+        Order copy = new Order();
+        copy.setId(order.getId());
+        copy.setVersion(order.getVersion());
+        copy.setDate(order.getDate());
+        copy.setStatus(order.getStatus());
+        copy.setFirstName(order.getFirstName());
+        copy.setLastName(order.getLastName());
+        copy.setEmail(order.getEmail());
+        copy.setPhone(order.getPhone());
+        Customer customer = order.getCustomer();
+        if (customer != null) {
+            copy.setCustomer(new Customer(customer.getId(), customer.getEmail(), customer.getFirstName(),
+                    customer.getLastName(), customer.getPhone()));
+        }
+        Address address = order.getAddress();
+        if (address != null) {
+            copy.setAddress(new Address(address.getId(), address.getAddress1(), address.getAddress2(),
+                    address.getCity(), address.getState(), address.getZip()));
+        }
+        List<OrderLine> orderLines = new ArrayList<>();
+        if (order.getOrderLines() != null) {
+            order.getOrderLines().forEach(line -> {
+                OrderLine lineCopy = new OrderLine(line.getId(), line.getBrand(), line.getModel(), line.getCost(),
+                        line.getQuantity());
+                // Products never change, so the copy shares it.
+                lineCopy.setProduct(line.getProduct());
+                orderLines.add(lineCopy);
+            });
+        }
+        copy.setOrderLines(orderLines);
+        copy.setTax(order.getTax());
+        copy.setShipping(order.getShipping());
+        copy.setSubtotal(order.getSubtotal());
+        copy.setTotal(order.getTotal());
+        return copy;
     }
 }
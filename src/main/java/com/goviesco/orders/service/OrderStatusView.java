@@ -0,0 +1,200 @@
+package com.goviesco.orders.service;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.event.OrderDeletedEvent;
+import com.goviesco.orders.event.OrderSavedEvent;
+import com.goviesco.orders.event.OrdersStatusChangedEvent;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.sharding.ShardContext;
+import com.goviesco.orders.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Copies of the orders with one of the orders.status-view.statuses, grouped by status and sorted by id, so the
+ * fulfillment workers polling GET /orders?status=PROCESSING are answered from memory. The view is rebuilt from the
+ * orders table at startup, from every shard in the sharded profile, and kept up to date by the events of the
+ * OrderService, the status transition jobs and the OrderArchiver. Until the rebuild finishes, or for any other status, the database is queried instead.
+ */
+@Component
+@Lazy(false)
+public class OrderStatusView {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStatusView.class);
+
+    private final OrderRepository orders;
+    private final ShardRouter router;
+    private final TransactionTemplate transaction;
+    private final Map<Status, ConcurrentSkipListMap<Long, Order>> byStatus = new EnumMap<>(Status.class);
+
+    // Orders changed while the view is rebuilt; the rebuild must not overwrite them with what it read earlier.
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+    private volatile boolean ready;
+
+    public OrderStatusView(OrderRepository orders, ObjectProvider<ShardRouter> router,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${orders.status-view.statuses:PROCESSING}") List<Status> statuses) {
+        this.orders = orders;
+        // Without sharding, the one database is the only shard.
+        this.router = router.getIfAvailable(() -> new ShardRouter(1));
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setReadOnly(true);
+        statuses.forEach(status -> byStatus.put(status, new ConcurrentSkipListMap<>()));
+    }
+
+    // The orders with the status in id order, or empty if the view does not hold that status. The orders are shared
+    // and must not be changed.
+    public Optional<List<Order>> findByStatus(Status status) {
+        ConcurrentSkipListMap<Long, Order> group = byStatus.get(status);
+        if (!ready || group == null) {
+            return Optional.empty();
+        }
+        return Optional.of(Collections.unmodifiableList(new ArrayList<>(group.values())));
+    }
+
+    public boolean covers(Status status) {
+        return ready && byStatus.containsKey(status);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSaved(OrderSavedEvent event) {
+        if (byStatus.isEmpty()) {
+            return;
+        }
+        Order order = event.getOrder();
+        Order copy = byStatus.containsKey(order.getStatus()) ? copy(order) : null;
+        synchronized (this) {
+            put(order.getId(), copy, order.getStatus());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeleted(OrderDeletedEvent event) {
+        if (byStatus.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            put(event.getOrder().getId(), null, null);
+        }
+    }
+
+    // Only orders still matching the status and date filter of the job were changed, as in the UPDATE itself.
+    // Orders the view does not hold yet are read from the database, since the job changed them without loading them.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(OrdersStatusChangedEvent event) {
+        if (byStatus.isEmpty()) {
+            return;
+        }
+        ConcurrentSkipListMap<Long, Order> from = byStatus.get(event.getFrom());
+        List<Order> loaded = new ArrayList<>();
+        if (from == null && byStatus.containsKey(event.getTo())) {
+            transaction.executeWithoutResult(tx -> orders.findAllById(event.getIds()).stream()
+                    .filter(order -> order.getStatus() == event.getTo())
+                    .forEach(order -> loaded.add(copy(order))));
+        }
+        synchronized (this) {
+            if (from == null) {
+                loaded.forEach(order -> put(order.getId(), order, order.getStatus()));
+                return;
+            }
+            for (Long id : event.getIds()) {
+                Order order = from.get(id);
+                if (order == null || order.getDate().isBefore(event.getFromDate())
+                        || order.getDate().isAfter(event.getToDate())) {
+                    continue;
+                }
+                Order moved = OrderServiceImpl.copy(order);
+                moved.setStatus(event.getTo());
+                put(id, moved, event.getTo());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (byStatus.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            changedDuringRebuild.clear();
+            ready = false;
+            byStatus.values().forEach(Map::clear);
+        }
+
+        List<Status> statuses = new ArrayList<>(byStatus.keySet());
+        long loaded = 0;
+        for (int shard = 0; shard < router.getShards(); shard++) {
+            loaded += ShardContext.call(shard, () -> load(statuses));
+        }
+
+        synchronized (this) {
+            changedDuringRebuild.clear();
+            ready = true;
+        }
+        log.info("Loaded " + loaded + " orders with status " + statuses + " into the status view");
+    }
+
+    // Loads the orders of the current shard in pages of the orders after the last one loaded. Returns their number.
+    private long load(List<Status> statuses) {
+        PageRequest pageRequest = PageRequest.of(0, 500);
+        long loaded = 0;
+        Long lastId = 0L;
+        while (lastId != null) {
+            Long afterId = lastId;
+            List<Order> page = transaction.execute(tx -> {
+                List<Order> result = orders.findByStatusInAndIdGreaterThanOrderById(statuses, afterId, pageRequest);
+                List<Order> copies = new ArrayList<>(result.size());
+                result.forEach(order -> copies.add(copy(order)));
+                synchronized (this) {
+                    copies.stream()
+                            .filter(order -> !changedDuringRebuild.contains(order.getId()))
+                            .forEach(order -> byStatus.get(order.getStatus()).put(order.getId(), order));
+                }
+                return result;
+            });
+            loaded += page == null ? 0 : page.size();
+            lastId = page == null || page.size() < pageRequest.getPageSize() ? null : page.get(page.size() - 1).getId();
+        }
+        return loaded;
+    }
+
+    // Must hold the lock. The order is moved to the group of its status, or only removed if the order is null.
+    private void put(Long id, Order order, Status status) {
+        if (!ready) {
+            changedDuringRebuild.add(id);
+        }
+        byStatus.values().forEach(group -> group.remove(id));
+        if (order != null && byStatus.containsKey(status)) {
+            byStatus.get(status).put(id, order);
+        }
+    }
+
+    private static Order copy(Order order) {
+        Order copy = OrderServiceImpl.copy(order);
+        if (copy.getTax() != null && copy.getShipping() != null) {
+            copy.calculateTotals();
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,253 @@
+package com.goviesco.orders.service;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderLine;
+import com.goviesco.orders.entity.OrderSummary;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.money.Money;
+import com.goviesco.orders.repository.OrderSummaryRepository;
+import com.goviesco.orders.sharding.ShardContext;
+import com.goviesco.orders.sharding.ShardRouter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts and revenue of the orders by date and status, in the ORDER_SUMMARIES table. Every path that writes the orders
+ * table changes the summary rows in the same transaction, by the difference it makes, so the summary commits or rolls
+ * back with the orders and a report reads a few rows per day instead of scanning the orders.
+ * <p>
+ * Rows are changed only after the orders they count were written, and in date and status order, so two transactions
+ * always lock rows in the same order and cannot deadlock. Orders moved to the archive are still counted.
+ * <p>
+ * With sharding, each shard counts its own orders, and a report adds up the rows of every shard.
+ */
+@Component
+public class OrderSummaries {
+
+    private final JdbcTemplate jdbc;
+    private final OrderSummaryRepository summaries;
+    private final ShardRouter router;
+    private final TransactionTemplate transaction;
+    private final int maxDays;
+
+    public OrderSummaries(JdbcTemplate jdbc, OrderSummaryRepository summaries, ObjectProvider<ShardRouter> router,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${orders.summary.max-days:366}") int maxDays) {
+        this.jdbc = jdbc;
+        this.summaries = summaries;
+        // Without sharding, the one database is the only shard.
+        this.router = router.getIfAvailable(() -> new ShardRouter(1));
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setReadOnly(true);
+        this.maxDays = maxDays;
+    }
+
+    // The rows of the dates from from to to, inclusive, and their sums per status. Throws IllegalArgumentException
+    // for a range longer than orders.summary.max-days, so a report reads a bounded number of rows. The rows of the
+    // same date and status on different shards are added up into one.
+    public OrderSummaryReport report(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("The range ends on " + to + ", before it starts on " + from + ".");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new IllegalArgumentException("The range cannot be longer than " + maxDays + " days.");
+        }
+        Map<LocalDate, Map<Status, long[]>> byDate = new TreeMap<>();
+        for (int shard = 0; shard < router.getShards(); shard++) {
+            List<OrderSummary> rows = ShardContext.call(shard, () ->
+                    transaction.execute(status -> summaries.findByDateBetweenOrderByDate(from, to)));
+            for (OrderSummary row : rows) {
+                long[] sum = byDate.computeIfAbsent(row.getDate(), date -> new EnumMap<>(Status.class))
+                        .computeIfAbsent(row.getStatus(), status -> new long[2]);
+                sum[0] += row.getOrderCount();
+                sum[1] = Money.add(sum[1], Money.cents(row.getRevenue()));
+            }
+        }
+
+        List<OrderSummary> days = new ArrayList<>();
+        Map<Status, long[]> sums = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            sums.put(status, new long[2]);
+        }
+        byDate.forEach((date, byStatus) -> byStatus.forEach((status, sum) -> {
+            days.add(new OrderSummary(null, date, status, sum[0], Money.toBigDecimal(sum[1])));
+            long[] total = sums.get(status);
+            total[0] += sum[0];
+            total[1] = Money.add(total[1], sum[1]);
+        }));
+        Map<Status, OrderSummaryReport.Totals> totals = new EnumMap<>(Status.class);
+        sums.forEach((status, sum) -> totals.put(status,
+                new OrderSummaryReport.Totals(sum[0], Money.toBigDecimal(sum[1]))));
+        return new OrderSummaryReport(from, to, totals, days);
+    }
+
+    // Moves the order from the row of before to the row of after. Either may be null, for an order created or
+    // deleted. Must run in the transaction that wrote the order, after it was written.
+    public void replace(Entry before, Entry after) {
+        Map<LocalDate, Map<Status, long[]>> deltas = new TreeMap<>();
+        add(deltas, before, -1);
+        add(deltas, after, 1);
+        apply(deltas);
+    }
+
+    // Counts orders that were just inserted. Must run in the transaction that wrote them, after it wrote them.
+    public void added(List<Order> orders) {
+        Map<LocalDate, Map<Status, long[]>> deltas = new TreeMap<>();
+        orders.forEach(order -> add(deltas, Entry.of(order), 1));
+        apply(deltas);
+    }
+
+    // The entry of the order as stored, or null if there is none. Locks the row of the order, so that nothing changes
+    // it before this transaction writes it.
+    public Entry lock(Long id) {
+        List<Entry> entries = read("id = ?", id);
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    // Moves the orders that a set-based update of the status is about to change, with the same filter as the update.
+    // Must run in the transaction of the update, before it; the rows of the orders stay locked until it commits.
+    public void statusChanging(List<Long> ids, Status from, Status to, LocalDate fromDate, LocalDate toDate) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Object[] args = new Object[ids.size() + 3];
+        ids.toArray(args);
+        args[ids.size()] = from.getDbColumn();
+        args[ids.size() + 1] = Date.valueOf(fromDate);
+        args[ids.size() + 2] = Date.valueOf(toDate);
+        Map<LocalDate, Map<Status, long[]>> deltas = new TreeMap<>();
+        for (Entry entry : read("id in (" + placeholders(ids.size()) + ") and status = ? and date between ? and ?",
+                args)) {
+            add(deltas, entry, -1);
+            add(deltas, new Entry(entry.date, to, entry.cents), 1);
+        }
+        apply(deltas);
+    }
+
+    // Counts the orders with ids from firstId to lastId, which were inserted without an OrderService, such as those
+    // of the OrderDataGenerator.
+    public void addInserted(long firstId, long lastId) {
+        Map<LocalDate, Map<Status, long[]>> deltas = new TreeMap<>();
+        read("id between ? and ?", firstId, lastId).forEach(entry -> add(deltas, entry, 1));
+        apply(deltas);
+    }
+
+    // The orders matching the condition, with their totals summed from their lines as Order.calculateTotals() does.
+    private List<Entry> read(String condition, Object... args) {
+        Map<Long, Entry> byId = new HashMap<>();
+        jdbc.query("select id, date, status, tax, shipping from orders where " + condition + " for update",
+                rs -> {
+                    Date date = rs.getDate("date");
+                    if (date != null && rs.getString("status") != null) {
+                        byId.put(rs.getLong("id"), new Entry(date.toLocalDate(),
+                                Status.fromDbColumn(rs.getString("status")),
+                                Money.add(cents(rs.getBigDecimal("tax")), cents(rs.getBigDecimal("shipping")))));
+                    }
+                }, args);
+        if (byId.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> ids = new ArrayList<>(byId.keySet());
+        jdbc.query("select ol.order_id, l.cost, l.quantity from orders_order_lines ol " +
+                "join order_lines l on l.id = ol.order_lines_id where ol.order_id in (" + placeholders(ids.size()) +
+                ")", rs -> {
+                    Entry entry = byId.get(rs.getLong(1));
+                    long line = Money.multiply(cents(rs.getBigDecimal(2)), rs.getInt(3));
+                    byId.put(rs.getLong(1), new Entry(entry.date, entry.status, Money.add(entry.cents, line)));
+                }, ids.toArray());
+        return new ArrayList<>(byId.values());
+    }
+
+    private static void add(Map<LocalDate, Map<Status, long[]>> deltas, Entry entry, int sign) {
+        if (entry == null) {
+            return;
+        }
+        long[] delta = deltas.computeIfAbsent(entry.date, date -> new EnumMap<>(Status.class))
+                .computeIfAbsent(entry.status, status -> new long[2]);
+        delta[0] += sign;
+        delta[1] = Money.add(delta[1], sign * entry.cents);
+    }
+
+    private void apply(Map<LocalDate, Map<Status, long[]>> deltas) {
+        deltas.forEach((date, byStatus) -> byStatus.forEach((status, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0) {
+                apply(date, status, delta[0], Money.toBigDecimal(delta[1]));
+            }
+        }));
+    }
+
+    // Adds to the row, or inserts it. When a concurrent transaction inserts it first, the insert fails and the update
+    // is tried again, once that transaction committed.
+    private void apply(LocalDate date, Status status, long orders, BigDecimal revenue) {
+        Object[] args = {orders, revenue, Date.valueOf(date), status.getDbColumn()};
+        String update = "update order_summaries set order_count = order_count + ?, revenue = revenue + ? " +
+                "where date = ? and status = ?";
+        if (jdbc.update(update, args) > 0) {
+            return;
+        }
+        try {
+            jdbc.update("insert into order_summaries (date, status, order_count, revenue) values (?, ?, ?, ?)",
+                    Date.valueOf(date), status.getDbColumn(), orders, revenue);
+        } catch (DuplicateKeyException e) {
+            jdbc.update(update, args);
+        }
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : Money.cents(amount);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    // What an order adds to the summary: one order of its date and status, and its total in cents.
+    public static final class Entry {
+
+        private final LocalDate date;
+        private final Status status;
+        private final long cents;
+
+        private Entry(LocalDate date, Status status, long cents) {
+            this.date = date;
+            this.status = status;
+            this.cents = cents;
+        }
+
+        // Null for an order without a date or status, which no row counts.
+        public static Entry of(Order order) {
+            if (order == null || order.getDate() == null || order.getStatus() == null) {
+                return null;
+            }
+            long total = Money.add(cents(order.getTax()), cents(order.getShipping()));
+            if (order.getOrderLines() != null) {
+                for (OrderLine line : order.getOrderLines()) {
+                    total = Money.add(total, Money.multiply(cents(line.getCost()), line.getQuantity()));
+                }
+            }
+            return new Entry(order.getDate(), order.getStatus(), total);
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+    }
+}
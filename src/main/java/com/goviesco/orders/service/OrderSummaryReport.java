@@ -0,0 +1,30 @@
+package com.goviesco.orders.service;
+
+import com.goviesco.orders.entity.OrderSummary;
+import com.goviesco.orders.enumeration.Status;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// The orders of the dates from from to to, inclusive: their count and revenue per status, and the rows of each date.
+@Getter
+@AllArgsConstructor
+public class OrderSummaryReport {
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final Map<Status, Totals> totals;
+    private final List<OrderSummary> days;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Totals {
+
+        private final long orderCount;
+        private final BigDecimal revenue;
+    }
+}
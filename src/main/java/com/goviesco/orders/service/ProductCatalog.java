@@ -0,0 +1,68 @@
+package com.goviesco.orders.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.Product;
+import com.goviesco.orders.repository.ProductRepository;
+import com.goviesco.orders.sharding.ShardContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Interns the brand and model of order lines as products. A product is looked up in memory first, so ingesting many
+ * lines of the same few products does not query the products table for each; a product not yet interned is found in
+ * the table, or inserted in a transaction of its own. Products never change, so an interned one never goes stale.
+ * At most orders.products.interned products are kept in memory.
+ */
+@Component
+public class ProductCatalog {
+
+    private final ProductRepository products;
+    private final TransactionTemplate transaction;
+    private final Cache<List<Object>, Product> interned;
+
+    public ProductCatalog(ProductRepository products, PlatformTransactionManager transactionManager,
+                          @Value("${orders.products.interned:10000}") long maxInterned) {
+        this.products = products;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.interned = Caffeine.newBuilder().maximumSize(maxInterned).build();
+    }
+
+    // Points every line of the order at its product, and returns the order.
+    public Order attach(Order order) {
+        if (order.getOrderLines() != null) {
+            order.getOrderLines().forEach(line -> line.setProduct(intern(line.getBrand(), line.getModel())));
+        }
+        return order;
+    }
+
+    public Product intern(String brand, String model) {
+        // Each shard numbers its products itself, so the shard is part of the key.
+        List<Object> key = Arrays.asList(ShardContext.current(), brand, model);
+        Product product = interned.getIfPresent(key);
+        if (product == null) {
+            product = lookUp(brand, model);
+            interned.put(key, product);
+        }
+        return product;
+    }
+
+    // When a concurrent insert of the same product wins, the unique constraint fails this one, which then finds it.
+    private Product lookUp(String brand, String model) {
+        try {
+            return transaction.execute(status -> products.findByBrandAndModel(brand, model)
+                    .orElseGet(() -> products.saveAndFlush(new Product(null, brand, model))));
+        } catch (DataIntegrityViolationException e) {
+            return transaction.execute(status -> products.findByBrandAndModel(brand, model).orElseThrow(() -> e));
+        }
+    }
+}
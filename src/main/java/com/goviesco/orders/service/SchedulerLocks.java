@@ -0,0 +1,66 @@
+package com.goviesco.orders.service;
+
+import com.goviesco.orders.entity.SchedulerLock;
+import com.goviesco.orders.repository.SchedulerLockRepository;
+import com.goviesco.orders.sharding.ShardContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Elects one instance to run a scheduled task, with a {@link SchedulerLock} row per task. An instance runs the task
+ * while it holds the lease, and extends the lease as it goes; when it stops without releasing it, another instance
+ * takes over once the lease expires. Leases are compared with the clock of each instance, so they must be much
+ * longer than the skew between those clocks. In the sharded profile the leases are kept on shard 0, even when the task
+ * asks for them while working on another shard.
+ */
+@Component
+public class SchedulerLocks {
+
+    private final SchedulerLockRepository locks;
+    private final JdbcTemplate jdbc;
+
+    // Identifies this instance as the owner of its leases.
+    private final String owner = UUID.randomUUID().toString();
+
+    public SchedulerLocks(SchedulerLockRepository locks, JdbcTemplate jdbc) {
+        this.locks = locks;
+        this.jdbc = jdbc;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    // Takes the lease on the task, or extends it. Returns false while another instance holds it.
+    public boolean acquire(String name, Duration lease) {
+        return ShardContext.call(0, () -> take(name, lease));
+    }
+
+    // Gives the lease up, so that any instance may take it at once.
+    public void release(String name) {
+        ShardContext.run(0, () -> locks.release(name, owner, LocalDateTime.now().minusSeconds(1)));
+    }
+
+    private boolean take(String name, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        if (locks.acquire(name, owner, now, now.plus(lease)) == 1) {
+            return true;
+        }
+        if (locks.existsById(name)) {
+            return false;
+        }
+        try {
+            jdbc.update("insert into scheduler_locks (name, owner, locked_until) values (?, ?, ?)", name, owner,
+                    now.plus(lease));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Another instance inserted the row first, and so holds the lease.
+            return false;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.goviesco.orders.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Coalesces concurrent calls with the same key: the first caller loads, and callers that arrive while it is loading
+ * wait for its result instead of loading again. The leader keeps what it loaded; the others get what share() makes of
+ * a snapshot, which is only taken when somebody waited. Counts loaded and coalesced calls as the
+ * orders.single.flight metric, tagged with the name of the call.
+ * <p>
+ * A writer calls forget() for the keys its write changes once it committed, so that a read which began before the
+ * write is not handed to callers that arrive after it.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter loaded;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry registry) {
+        this.loaded = Counter.builder("orders.single.flight")
+                .description("Calls that loaded or waited for a concurrent identical call")
+                .tag("call", name)
+                .tag("result", "loaded")
+                .register(registry);
+        this.coalesced = Counter.builder("orders.single.flight")
+                .description("Calls that loaded or waited for a concurrent identical call")
+                .tag("call", name)
+                .tag("result", "coalesced")
+                .register(registry);
+    }
+
+    /**
+     * @param snapshot called once, by the leader, on its result when others are waiting for it
+     * @param share    called by each caller that waited, on the snapshot
+     */
+    public V call(K key, Supplier<V> load, UnaryOperator<V> snapshot, UnaryOperator<V> share) {
+        while (true) {
+            Flight<V> flight = new Flight<>();
+            Flight<V> existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                return lead(key, flight, load, snapshot);
+            }
+            if (existing.join()) {
+                coalesced.increment();
+                return share.apply(existing.await());
+            }
+            // The leader finished before this caller could join; try again.
+        }
+    }
+
+    // Callers arriving from now on load again instead of joining a call in flight for a matching key, which may have
+    // read before a write committed. Callers already waiting for it still get its result.
+    public void forget(Predicate<? super K> matching) {
+        inFlight.keySet().removeIf(matching);
+    }
+
+    private V lead(K key, Flight<V> flight, Supplier<V> load, UnaryOperator<V> snapshot) {
+        loaded.increment();
+        V result;
+        try {
+            result = load.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.close();
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(key, flight);
+        if (!flight.close()) {
+            try {
+                flight.result.complete(snapshot.apply(result));
+            } catch (RuntimeException | Error e) {
+                flight.result.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return result;
+    }
+
+    private static class Flight<V> {
+
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        // Number of callers waiting, or -1 once the leader stopped taking them.
+        private final AtomicInteger followers = new AtomicInteger();
+
+        // Returns false if the flight no longer takes followers.
+        private boolean join() {
+            int count;
+            do {
+                count = followers.get();
+                if (count < 0) {
+                    return false;
+                }
+            } while (!followers.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        // Returns false if there are followers to hand the result to.
+        private boolean close() {
+            return followers.compareAndSet(0, -1);
+        }
+
+        private V await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.goviesco.orders.service;
+
+import com.goviesco.orders.entity.StatusTransitionJob;
+import com.goviesco.orders.enumeration.JobState;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.event.OrdersStatusChangedEvent;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.repository.StatusTransitionJobRepository;
+import com.goviesco.orders.sharding.ShardContext;
+import com.goviesco.orders.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs {@link StatusTransitionJob}s in the background. Each chunk of orders is changed with one UPDATE in its own
+ * transaction, and the job records the last order id it handled, so a canceled, failed or interrupted job resumes
+ * where it stopped. Orders are walked in id order, a chunk at a time after the last id handled, whether they are
+ * matched by the filter or listed by id, so no chunk reads more than chunkSize ids.
+ * <p>
+ * In the sharded profile the jobs are kept on shard 0, and the orders are walked shard by shard: the ids of each shard
+ * lie above those of the shards before it, so the last id handled still tells where to resume.
+ * <p>
+ * Several instances may share the jobs table. A job is run by the instance whose conditional update moves it from
+ * PENDING to RUNNING, so a job queued on two instances runs on one. Every chunk updates a running job, and a job that
+ * stayed RUNNING for orders.jobs.lease-ms without one, as when its instance stopped, is queued again; a chunk must
+ * therefore take less than the lease.
+ */
+@Component
+public class StatusTransitionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusTransitionJobService.class);
+
+    // Bounds used when the filter leaves the date range open.
+    private static final LocalDate EARLIEST = LocalDate.of(1, 1, 1);
+    private static final LocalDate LATEST = LocalDate.of(9999, 12, 31);
+
+    private final StatusTransitionJobRepository jobs;
+    private final OrderRepository orders;
+    private final ShardRouter router;
+    private final OrderSummaries summaries;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate shardTransaction;
+    private final ThreadPoolExecutor executor;
+    private final int chunkSize;
+    private final Duration lease;
+
+    // Ids of the jobs that are queued or running on this instance, so that a job is not queued here twice. Only the
+    // claim in run() keeps two instances from running it.
+    private final Set<Long> active = ConcurrentHashMap.newKeySet();
+
+    public StatusTransitionJobService(StatusTransitionJobRepository jobs, OrderRepository orders,
+                                      ObjectProvider<ShardRouter> router, OrderSummaries summaries, ApplicationEventPublisher events,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${orders.jobs.chunk-size:500}") int chunkSize,
+                                      @Value("${orders.jobs.threads:2}") int threads,
+                                      @Value("${orders.jobs.queue-capacity:100}") int queueCapacity,
+                                      @Value("${orders.jobs.lease-ms:60000}") long leaseMs) {
+        this.jobs = jobs;
+        this.orders = orders;
+        // Without sharding, the one database is the only shard.
+        this.router = router.getIfAvailable(() -> new ShardRouter(1));
+        this.summaries = summaries;
+        this.events = events;
+        this.transaction = new TransactionTemplate(transactionManager);
+        // The orders of a chunk are read and changed in a transaction on their shard. With several shards it is one
+        // of its own, which commits before the progress of the job on shard 0. A chunk run again after a failure in
+        // between changes nothing, since the UPDATE only changes orders that still have the status of the job.
+        this.shardTransaction = new TransactionTemplate(transactionManager);
+        if (this.router.getShards() > 1) {
+            this.shardTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+        this.chunkSize = chunkSize;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+    }
+
+    public Iterable<StatusTransitionJob> findAll() {
+        return jobs.findAll();
+    }
+
+    public Optional<StatusTransitionJob> findById(Long id) {
+        return jobs.findById(id);
+    }
+
+    // Saves the job as PENDING and queues it. The job must describe a transition that Status.canTransition() allows.
+    public StatusTransitionJob submit(StatusTransitionJob job) {
+        if (job.getStatus() == null) {
+            job.setStatus(Status.PROCESSING);
+        }
+        // Sorted once, so that the ids can be walked in order.
+        job.setOrderIds(job.getOrderIds() == null ? new ArrayList<>() : job.getOrderIds().stream()
+                .filter(Objects::nonNull)
+                .sorted()
+                .distinct()
+                .collect(Collectors.toCollection(ArrayList::new)));
+        if (!Status.canTransition(job.getStatus(), job.getTargetStatus())) {
+            throw new IllegalArgumentException(String.format("Not allowed to change orders with status %s to %s",
+                    job.getStatus(), job.getTargetStatus()));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        job.setId(null);
+        job.setState(JobState.PENDING);
+        job.setProcessed(0);
+        job.setLastOrderId(0L);
+        job.setError(null);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        job.setTotal(job.getOrderIds().isEmpty() ? count(job) : count(job, job.getOrderIds()));
+
+        StatusTransitionJob saved = jobs.save(job);
+        start(saved.getId());
+        return saved;
+    }
+
+    // Returns false if the job already finished.
+    public boolean cancel(Long id) {
+        return jobs.changeState(id, Arrays.asList(JobState.PENDING, JobState.RUNNING), JobState.CANCELED,
+                LocalDateTime.now()) == 1;
+    }
+
+    // Returns false unless the job was canceled or failed.
+    public boolean resume(Long id) {
+        if (jobs.changeState(id, Arrays.asList(JobState.CANCELED, JobState.FAILED), JobState.PENDING,
+                LocalDateTime.now()) == 0) {
+            return false;
+        }
+        start(id);
+        return true;
+    }
+
+    // Jobs that were queued when an instance stopped, or running without progress for the lease, are picked up again.
+    // At startup, and then every lease.
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${orders.jobs.lease-ms:60000}", fixedDelayString = "${orders.jobs.lease-ms:60000}")
+    public void resumeInterruptedJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        jobs.requeueStale(JobState.RUNNING, JobState.PENDING, now.minus(lease), now);
+        jobs.findByStateIn(Collections.singletonList(JobState.PENDING))
+                .forEach(job -> start(job.getId()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void start(Long id) {
+        if (active.add(id)) {
+            try {
+                executor.execute(() -> run(id));
+            } catch (RejectedExecutionException e) {
+                // The queue is full. The job is marked as failed, so it can be resumed later.
+                active.remove(id);
+                jobs.fail(id, Collections.singletonList(JobState.PENDING), JobState.FAILED, "Too many jobs queued",
+                        LocalDateTime.now());
+            }
+        }
+    }
+
+    private void run(Long id) {
+        try {
+            // Taken by another instance, or canceled before it ran.
+            if (jobs.changeState(id, Arrays.asList(JobState.PENDING), JobState.RUNNING, LocalDateTime.now()) == 0) {
+                return;
+            }
+            // The filter never changes, so the job is read once.
+            StatusTransitionJob job = jobs.findById(id).orElse(null);
+            if (job == null) {
+                return;
+            }
+            while (Boolean.TRUE.equals(transaction.execute(tx -> runChunk(job)))) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Status transition job " + id + " failed", e);
+            jobs.fail(id, Arrays.asList(JobState.PENDING, JobState.RUNNING), JobState.FAILED,
+                    String.valueOf(e.getMessage()), LocalDateTime.now());
+        } finally {
+            active.remove(id);
+        }
+    }
+
+    // Changes the next chunk of orders. Returns true while there is more work to do.
+    private boolean runChunk(StatusTransitionJob job) {
+        Long id = job.getId();
+        Optional<Long> lastOrderId = jobs.findLastOrderId(id, JobState.RUNNING);
+        if (lastOrderId.isEmpty()) {
+            return false;
+        }
+
+        List<Long> ids = nextChunk(job, lastOrderId.get() == null ? 0L : lastOrderId.get());
+        if (ids.isEmpty()) {
+            jobs.changeState(id, Arrays.asList(JobState.RUNNING), JobState.COMPLETED, LocalDateTime.now());
+            return false;
+        }
+
+        int changed = 0;
+        for (Map.Entry<Integer, List<Long>> part : byShard(ids).entrySet()) {
+            changed += onShard(part.getKey(), () -> change(job, part.getValue()));
+        }
+        jobs.addProgress(id, changed, ids.get(ids.size() - 1), LocalDateTime.now());
+        return true;
+    }
+
+    // Changes the orders, which are on the current shard. Returns how many changed.
+    private int change(StatusTransitionJob job, List<Long> ids) {
+        summaries.statusChanging(ids, job.getStatus(), job.getTargetStatus(), fromDate(job), toDate(job));
+        int changed = orders.updateStatus(ids, job.getStatus(), job.getTargetStatus(), fromDate(job), toDate(job));
+        // Heard once the chunk commits, by the OrderStatusView among others.
+        events.publishEvent(new OrdersStatusChangedEvent(ids, job.getStatus(), job.getTargetStatus(), fromDate(job),
+                toDate(job)));
+        return changed;
+    }
+
+    private List<Long> nextChunk(StatusTransitionJob job, long after) {
+        if (job.getOrderIds().isEmpty()) {
+            // The shard of the last order handled, or the first shard.
+            for (int shard = Math.max(0, router.shardOf(after)); shard < router.getShards(); shard++) {
+                List<Long> ids = onShard(shard, () -> orders.findIds(job.getStatus(), fromDate(job), toDate(job),
+                        after, PageRequest.of(0, chunkSize)));
+                if (!ids.isEmpty()) {
+                    return ids;
+                }
+            }
+            return List.of();
+        }
+        // Explicit ids are walked in order; the UPDATE itself applies the status and date filter.
+        return jobs.findOrderIds(job.getId(), after, PageRequest.of(0, chunkSize));
+    }
+
+    private long count(StatusTransitionJob job) {
+        long total = 0;
+        for (int shard = 0; shard < router.getShards(); shard++) {
+            total += onShard(shard, () -> orders.countMatching(job.getStatus(), fromDate(job), toDate(job)));
+        }
+        return total;
+    }
+
+    private long count(StatusTransitionJob job, List<Long> ids) {
+        long total = 0;
+        for (Map.Entry<Integer, List<Long>> part : byShard(ids).entrySet()) {
+            total += onShard(part.getKey(), () -> orders.countMatching(job.getStatus(), fromDate(job), toDate(job),
+                    part.getValue()));
+        }
+        return total;
+    }
+
+    // The ids by the shard that holds them, in shard order. Ids that belong to no shard are left out.
+    private Map<Integer, List<Long>> byShard(List<Long> ids) {
+        Map<Integer, List<Long>> byShard = new TreeMap<>();
+        for (Long id : ids) {
+            int shard = router.shardOf(id);
+            if (shard >= 0) {
+                byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(id);
+            }
+        }
+        return byShard;
+    }
+
+    private <T> T onShard(int shard, Supplier<T> work) {
+        return ShardContext.call(shard, () -> shardTransaction.execute(tx -> work.get()));
+    }
+
+    private static LocalDate fromDate(StatusTransitionJob job) {
+        return job.getFromDate() == null ? EARLIEST : job.getFromDate();
+    }
+
+    private static LocalDate toDate(StatusTransitionJob job) {
+        return job.getToDate() == null ? LATEST : job.getToDate();
+    }
+}
@@ -0,0 +1,38 @@
+package com.goviesco.orders.sharding;
+
+import java.util.function.Supplier;
+
+// The shard the current thread works on. ShardRoutingDataSource hands out connections to this shard.
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    // Null when no shard was chosen; the routing data source then uses shard 0.
+    public static Integer current() {
+        return SHARD.get();
+    }
+
+    public static <T> T call(int shard, Supplier<T> work) {
+        Integer previous = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                SHARD.remove();
+            } else {
+                SHARD.set(previous);
+            }
+        }
+    }
+
+    public static void run(int shard, Runnable work) {
+        call(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package com.goviesco.orders.sharding;
+
+import com.goviesco.orders.entity.Order;
+
+import java.util.Locale;
+
+/**
+ * Decides which shard holds an order. New orders go to the shard of their tenant key, the customer's email, so the
+ * orders of one customer stay together. Each shard numbers its rows from shard << ID_BITS, so the shard of an
+ * existing order is read from its id without a lookup.
+ */
+public class ShardRouter {
+
+    public static final int ID_BITS = 40;
+
+    private final int shards;
+
+    public ShardRouter(int shards) {
+        if (shards < 1 || shards > 1 << (Long.SIZE - 1 - ID_BITS)) {
+            throw new IllegalArgumentException("Unsupported number of shards: " + shards);
+        }
+        this.shards = shards;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    // The shard an existing order lives on, or -1 if the id belongs to none.
+    public int shardOf(Long id) {
+        if (id == null || id < 0) {
+            return -1;
+        }
+        long shard = id >>> ID_BITS;
+        return shard < shards ? (int) shard : -1;
+    }
+
+    // The shard a new order is written to.
+    public int shardFor(Order order) {
+        String key = order.getEmail() == null ? "" : order.getEmail().toLowerCase(Locale.ROOT);
+        // Spreads similar keys; String.hashCode() alone differs only in the low bits for similar emails.
+        int hash = key.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shards);
+    }
+
+    // The first id of the shard.
+    public static long firstId(int shard) {
+        return ((long) shard << ID_BITS) + 1;
+    }
+}
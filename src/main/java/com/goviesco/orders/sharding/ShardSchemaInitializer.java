@@ -0,0 +1,77 @@
+package com.goviesco.orders.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hibernate creates the schema on shard 0 only, since that is where the routing data source sends connections that
+ * have no shard. This copies it to the other shards and restarts the id columns of every shard at
+ * {@link ShardRouter#firstId(int)}, which makes ids unique across shards and tells which shard holds a row.
+ */
+@Component
+@Lazy(false)
+@Profile("sharded")
+public class ShardSchemaInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardSchemaInitializer.class);
+
+    // Tables whose ids are shared by the rows of every shard: the second-level cache is keyed by them.
+    private static final String[] SHARDED_TABLES = {"orders", "customers", "addresses", "order_lines", "products"};
+
+    private final ShardRoutingDataSource dataSource;
+
+    // Depends on the EntityManagerFactory so that Hibernate has created the schema first.
+    public ShardSchemaInitializer(ShardRoutingDataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    void initialize() throws SQLException {
+        List<DataSource> shards = dataSource.getShards();
+        List<String> schema = schema(shards.get(0));
+        for (int shard = 0; shard < shards.size(); shard++) {
+            try (Connection connection = shards.get(shard).getConnection();
+                 Statement statement = connection.createStatement()) {
+                if (shard > 0) {
+                    for (String sql : schema) {
+                        statement.execute(sql);
+                    }
+                }
+                for (String table : SHARDED_TABLES) {
+                    statement.execute("alter table " + table + " alter column id restart with "
+                            + ShardRouter.firstId(shard));
+                }
+            }
+        }
+        log.info("Initialized {} shards", shards.size());
+    }
+
+    // The DDL of shard 0, without users, comments or rows.
+    private static List<String> schema(DataSource shard) throws SQLException {
+        List<String> schema = new ArrayList<>();
+        try (Connection connection = shard.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet script = statement.executeQuery("script nodata")) {
+            while (script.next()) {
+                String sql = script.getString(1);
+                if (!sql.startsWith("--") && !sql.startsWith("CREATE USER")) {
+                    schema.add(sql);
+                }
+            }
+        }
+        return schema;
+    }
+}
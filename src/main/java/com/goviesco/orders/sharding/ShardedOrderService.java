@@ -0,0 +1,186 @@
+package com.goviesco.orders.sharding;
+
+import com.goviesco.orders.deadline.RequestDeadline;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.service.OrderService;
+import com.goviesco.orders.service.OrderServiceImpl;
+import com.goviesco.orders.service.OrderStatusView;
+import org.hibernate.Hibernate;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Runs each call of the OrderServiceImpl on the shard that holds the order, and reads that span shards on all of them
+ * in parallel. Results are merged in id order: every shard's ids are sorted and lie above those of the shards before
+ * it, so the merge appends them shard by shard.
+ * <p>
+ * Each call runs in its own transaction on its shard and loads the order lines before it ends, because one
+ * persistence context cannot span shards.
+ */
+@Component
+@Primary
+@Profile("sharded")
+public class ShardedOrderService implements OrderService {
+
+    private static final Comparator<Order> BY_ID = Comparator.comparing(Order::getId);
+
+    private final OrderServiceImpl delegate;
+    private final ShardRouter router;
+    private final OrderStatusView statusView;
+    private final TransactionTemplate transaction;
+    private final ExecutorService executor;
+
+    public ShardedOrderService(OrderServiceImpl delegate, ShardRouter router, OrderStatusView statusView,
+                               PlatformTransactionManager transactionManager) {
+        this.delegate = delegate;
+        this.router = router;
+        this.statusView = statusView;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.executor = Executors.newFixedThreadPool(router.getShards());
+    }
+
+    @Override
+    public Iterable<Order> findAll() {
+        return merge(scatter(shard -> onShard(shard, () -> loaded(delegate.findAll()))));
+    }
+
+    @Override
+    public Optional<Order> findById(Long id) {
+        int shard = router.shardOf(id);
+        if (shard < 0) {
+            return Optional.empty();
+        }
+        return onShard(shard, () -> delegate.findById(id).map(ShardedOrderService::loaded));
+    }
+
+    @Override
+    public Iterable<Order> findAllById(Iterable<Long> ids) {
+        Map<Integer, List<Long>> byShard = new TreeMap<>();
+        for (Long id : ids) {
+            int shard = router.shardOf(id);
+            if (shard >= 0) {
+                byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(id);
+            }
+        }
+        List<Future<List<Order>>> parts = new ArrayList<>();
+        byShard.forEach((shard, shardIds) ->
+                parts.add(executor.submit(RequestDeadline.propagate(
+                        () -> onShard(shard, () -> loaded(delegate.findAllById(shardIds)))))));
+        return merge(join(parts));
+    }
+
+    // The status view holds the orders of every shard; other statuses are read from each shard.
+    @Override
+    public Iterable<Order> findByStatus(Status status) {
+        Optional<List<Order>> held = statusView.findByStatus(status);
+        if (held.isPresent()) {
+            return held.get();
+        }
+        return merge(scatter(shard -> onShard(shard, () -> loaded(delegate.findByStatus(status)))));
+    }
+
+    // A customer is stored on the shard of the orders that refer to it, so its id names that shard.
+    @Override
+    public Optional<List<Order>> findByCustomer(Long customerId) {
+        int shard = router.shardOf(customerId);
+        if (shard < 0) {
+            return Optional.empty();
+        }
+        return onShard(shard, () -> delegate.findByCustomer(customerId));
+    }
+
+    // New orders go to the shard of their customer; existing orders stay where they are.
+    @Override
+    public Order save(Order order) {
+        int shard = router.shardOf(order.getId());
+        if (shard < 0) {
+            shard = router.shardFor(order);
+        }
+        return onShard(shard, () -> loaded(delegate.save(order)));
+    }
+
+    @Override
+    public void delete(Order order) {
+        int shard = router.shardOf(order.getId());
+        if (shard >= 0) {
+            ShardContext.run(shard, () -> delegate.delete(order));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T onShard(int shard, Supplier<T> work) {
+        return ShardContext.call(shard, () -> transaction.execute(status -> work.get()));
+    }
+
+    private <T> List<T> scatter(IntFunction<T> work) {
+        List<Future<T>> parts = new ArrayList<>();
+        for (int shard = 0; shard < router.getShards(); shard++) {
+            int target = shard;
+            parts.add(executor.submit(RequestDeadline.propagate(() -> work.apply(target))));
+        }
+        return join(parts);
+    }
+
+    private static <T> List<T> join(List<Future<T>> parts) {
+        List<T> results = new ArrayList<>(parts.size());
+        try {
+            for (Future<T> part : parts) {
+                results.add(part.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading the shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            parts.forEach(part -> part.cancel(true));
+        }
+        return results;
+    }
+
+    // The parts must be in shard order.
+    private static List<Order> merge(List<List<Order>> parts) {
+        List<Order> merged = new ArrayList<>();
+        for (List<Order> part : parts) {
+            part.sort(BY_ID);
+            merged.addAll(part);
+        }
+        return merged;
+    }
+
+    private static List<Order> loaded(Iterable<Order> orders) {
+        List<Order> loaded = new ArrayList<>();
+        orders.forEach(order -> loaded.add(loaded(order)));
+        return loaded;
+    }
+
+    private static Order loaded(Order order) {
+        Hibernate.initialize(order.getOrderLines());
+        return order;
+    }
+}
@@ -0,0 +1,39 @@
+package com.goviesco.orders.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// Splits the orders over orders.sharding.shards databases when the sharded profile is active.
+@Configuration
+@Profile("sharded")
+public class ShardingConfig {
+
+    @Bean
+    ShardRouter shardRouter(@Value("${orders.sharding.shards:4}") int shards) {
+        return new ShardRouter(shards);
+    }
+
+    // One pool per shard. The url is a format pattern that receives the shard number.
+    @Bean
+    ShardRoutingDataSource dataSource(ShardRouter router, DataSourceProperties properties,
+                                      @Value("${orders.sharding.url}") String url) {
+        List<DataSource> shards = new ArrayList<>();
+        for (int shard = 0; shard < router.getShards(); shard++) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(String.format(url, shard))
+                    .build();
+            dataSource.setPoolName("shard-" + shard);
+            shards.add(dataSource);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+}
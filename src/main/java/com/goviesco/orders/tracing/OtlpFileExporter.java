@@ -0,0 +1,97 @@
+package com.goviesco.orders.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends each finished trace to orders.tracing.otlp-file as one line of OTLP/JSON, the format of the file exporter
+ * of the OpenTelemetry Collector, so the file can be loaded into Jaeger or any other OTLP backend. Does nothing when
+ * the property is blank. Traces are written on a thread of their own; when orders.tracing.export-queue-capacity are
+ * already waiting, new ones are dropped rather than slow the requests down.
+ */
+@Component
+public class OtlpFileExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(OtlpFileExporter.class);
+
+    private final ObjectMapper mapper;
+    private final Path file;
+    private final ThreadPoolExecutor executor;
+
+    public OtlpFileExporter(ObjectMapper mapper, @Value("${orders.tracing.otlp-file:}") String file,
+                            @Value("${orders.tracing.export-queue-capacity:1000}") int queueCapacity) {
+        this.mapper = mapper;
+        this.file = file.isBlank() ? null : Paths.get(file);
+        this.executor = this.file == null ? null : new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    public void export(Trace trace) {
+        if (executor != null) {
+            executor.execute(() -> write(trace));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void write(Trace trace) {
+        try {
+            byte[] line = (mapper.writeValueAsString(toOtlp(trace)) + "\n").getBytes(StandardCharsets.UTF_8);
+            Files.write(file, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("Could not export trace " + trace.getId() + " to " + file, e);
+        }
+    }
+
+    private ObjectNode toOtlp(Trace trace) {
+        ObjectNode request = mapper.createObjectNode();
+        ObjectNode resourceSpans = request.putArray("resourceSpans").addObject();
+        resourceSpans.putObject("resource").putArray("attributes").addObject()
+                .put("key", "service.name")
+                .putObject("value").put("stringValue", "orders");
+        ObjectNode scopeSpans = resourceSpans.putArray("scopeSpans").addObject();
+        scopeSpans.putObject("scope").put("name", Tracing.class.getName());
+        ArrayNode spans = scopeSpans.putArray("spans");
+        for (Span span : trace.getSpans()) {
+            ObjectNode otlp = spans.addObject()
+                    .put("traceId", trace.getId())
+                    .put("spanId", span.getId())
+                    .put("name", span.getName())
+                    .put("kind", span.getParentId() == null ? 2 : 1) // SERVER or INTERNAL
+                    // Nanosecond timestamps are 64-bit integers, which OTLP/JSON writes as strings.
+                    .put("startTimeUnixNano", String.valueOf(span.getStartEpochNanos()))
+                    .put("endTimeUnixNano", String.valueOf(span.getStartEpochNanos() + span.getDurationNanos()));
+            if (span.getParentId() != null) {
+                otlp.put("parentSpanId", span.getParentId());
+            }
+            ArrayNode attributes = otlp.putArray("attributes");
+            attributes.addObject().put("key", "thread.name").putObject("value").put("stringValue", span.getThread());
+            if (span.getDetail() != null) {
+                attributes.addObject().put("key", "db.statement").putObject("value")
+                        .put("stringValue", span.getDetail());
+            }
+        }
+        return request;
+    }
+}
@@ -0,0 +1,62 @@
+package com.goviesco.orders.tracing;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+/**
+ * A timed step of a {@link Trace}: a request, a method of a service, repository or assembler, a JDBC statement or the
+ * serialization of the response. Opened and closed by {@link Tracing}; read once the trace is finished.
+ */
+@Getter
+public class Span {
+
+    @JsonIgnore
+    private final Trace trace;
+
+    @JsonIgnore
+    private final Span parent;
+
+    private final String id;
+    private String name;
+    private final String thread;
+
+    // The SQL of a JDBC statement.
+    private final String detail;
+
+    private final long startEpochNanos;
+
+    @JsonIgnore
+    private final long startNanos;
+
+    private long durationNanos = -1;
+
+    Span(Trace trace, Span parent, String id, String name, String detail) {
+        this.trace = trace;
+        this.parent = parent;
+        this.id = id;
+        this.name = name;
+        this.detail = detail;
+        this.thread = Thread.currentThread().getName();
+        this.startEpochNanos = System.currentTimeMillis() * 1_000_000L;
+        this.startNanos = System.nanoTime();
+    }
+
+    public String getParentId() {
+        return parent == null ? null : parent.id;
+    }
+
+    public double getDurationMillis() {
+        return durationNanos / 1_000_000.0;
+    }
+
+    // The root span is named after the endpoint once the handler mapping has matched it.
+    void rename(String name) {
+        this.name = name;
+    }
+
+    void end() {
+        if (durationNanos < 0) {
+            durationNanos = System.nanoTime() - startNanos;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.goviesco.orders.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+// The last orders.tracing.max-traces finished traces, newest first, which /actuator/traces lists. Each trace is also
+// handed to the OtlpFileExporter.
+@Component
+public class SpanStore {
+
+    private final OtlpFileExporter exporter;
+    private final int maxTraces;
+    private final Deque<Trace> traces = new ArrayDeque<>();
+
+    public SpanStore(OtlpFileExporter exporter, @Value("${orders.tracing.max-traces:200}") int maxTraces) {
+        this.exporter = exporter;
+        this.maxTraces = maxTraces;
+    }
+
+    public void add(Trace trace) {
+        synchronized (traces) {
+            traces.addFirst(trace);
+            while (traces.size() > maxTraces) {
+                traces.removeLast();
+            }
+        }
+        exporter.export(trace);
+    }
+
+    public List<Trace> findAll() {
+        synchronized (traces) {
+            return new ArrayList<>(traces);
+        }
+    }
+
+    public Optional<Trace> findById(String id) {
+        synchronized (traces) {
+            return traces.stream().filter(trace -> trace.getId().equals(id)).findFirst();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.goviesco.orders.tracing;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The spans of one sampled request, in the order they were opened. Spans are opened by the request thread and by the
+// threads the request hands its work to, so the list is synchronized.
+public class Trace {
+
+    private final String id;
+    private final Span root;
+    private final List<Span> spans = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicLong nextSpanId = new AtomicLong(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE);
+
+    Trace(String name) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.id = String.format("%016x%016x", random.nextLong(), random.nextLong());
+        this.root = open(null, name, null);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @JsonIgnore
+    public Span getRoot() {
+        return root;
+    }
+
+    public String getName() {
+        return root.getName();
+    }
+
+    public double getDurationMillis() {
+        return root.getDurationMillis();
+    }
+
+    // A copy, which is safe to iterate.
+    public List<Span> getSpans() {
+        synchronized (spans) {
+            return new ArrayList<>(spans);
+        }
+    }
+
+    Span open(Span parent, String name, String detail) {
+        Span span = new Span(this, parent, String.format("%016x", nextSpanId.getAndIncrement()), name, detail);
+        spans.add(span);
+        return span;
+    }
+}
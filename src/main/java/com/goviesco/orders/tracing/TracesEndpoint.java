@@ -0,0 +1,30 @@
+package com.goviesco.orders.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// /actuator/traces lists the traces in the SpanStore, and /actuator/traces/{id} returns one with its spans.
+@Component
+@Endpoint(id = "traces")
+public class TracesEndpoint {
+
+    private final SpanStore store;
+
+    public TracesEndpoint(SpanStore store) {
+        this.store = store;
+    }
+
+    @ReadOperation
+    public List<Trace> traces() {
+        return store.findAll();
+    }
+
+    @ReadOperation
+    public Trace trace(@Selector String id) {
+        return store.findById(id).orElse(null);
+    }
+}
@@ -0,0 +1,104 @@
+package com.goviesco.orders.tracing;
+
+/**
+ * The span the current thread is in, if its request is sampled. Spans are opened with start() and closed with end(),
+ * in a finally block; on a thread without a sampled request both do nothing but read a thread local, so the hot path
+ * pays next to nothing for unsampled requests. Work handed to another thread must be wrapped with propagate() to stay
+ * in the trace.
+ */
+public final class Tracing {
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    // The SQL Hibernate is about to run, kept for the span of its execution.
+    private static final ThreadLocal<String> STATEMENT = new ThreadLocal<>();
+
+    private Tracing() {
+    }
+
+    // Starts a trace on this thread, and returns its root span.
+    public static Span startTrace(String name) {
+        Span root = new Trace(name).getRoot();
+        CURRENT.set(root);
+        return root;
+    }
+
+    public static boolean isSampled() {
+        return CURRENT.get() != null;
+    }
+
+    // Opens a child of the current span. Returns null when the request is not sampled.
+    public static Span start(String name) {
+        return start(name, null);
+    }
+
+    // Opens a child of the current span for the statement Hibernate prepared last.
+    static Span startStatement(String name) {
+        String sql = STATEMENT.get();
+        STATEMENT.remove();
+        return start(name, sql);
+    }
+
+    private static Span start(String name, String detail) {
+        Span parent = CURRENT.get();
+        if (parent == null) {
+            return null;
+        }
+        Span span = parent.getTrace().open(parent, name, detail);
+        CURRENT.set(span);
+        return span;
+    }
+
+    // Closes the span, if any, and makes its parent current again.
+    public static void end(Span span) {
+        if (span == null) {
+            return;
+        }
+        span.end();
+        if (span.getParent() == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(span.getParent());
+        }
+    }
+
+    // Makes the span current on this thread without opening a new one, as when a request resumes on another thread.
+    public static void resume(Span span) {
+        CURRENT.set(span);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+        STATEMENT.remove();
+    }
+
+    static void statement(String sql) {
+        if (CURRENT.get() != null) {
+            STATEMENT.set(sql);
+        }
+    }
+
+    public static Runnable propagate(Runnable task) {
+        Span span = CURRENT.get();
+        if (span == null) {
+            return task;
+        }
+        return () -> {
+            Span previous = CURRENT.get();
+            CURRENT.set(span);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static void restore(Span previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.goviesco.orders.tracing;
+
+import com.goviesco.orders.assembler.OrderModelAssembler;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.service.OrderService;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.lang.reflect.Method;
+
+/**
+ * Samples requests with the {@link TracingFilter}, and adds the {@link TracingInterceptor} to the OrderService, the
+ * OrderModelAssembler and the OrderRepository. The advisor is an infrastructure bean, so the auto proxy creator that
+ * applies @Transactional applies it as well. The repository is already a proxy, built by Spring Data, and the
+ * interceptor is added to that one instead.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public TracingFilter tracingFilter(SpanStore store, @Value("${orders.tracing.sample-rate:0.01}") double sampleRate) {
+        return new TracingFilter(store, sampleRate);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor tracingAdvisor() {
+        ClassFilter traced = type -> OrderService.class.isAssignableFrom(type)
+                || OrderModelAssembler.class.isAssignableFrom(type);
+        StaticMethodMatcher declared = new StaticMethodMatcher() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return method.getDeclaringClass() != Object.class;
+            }
+        };
+        return new DefaultPointcutAdvisor(new ComposablePointcut(traced, declared), new TracingInterceptor(null));
+    }
+
+    // Runs before the factory bean creates the repository, in afterPropertiesSet().
+    @Bean
+    public static BeanPostProcessor tracingRepositoryPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxy, information) -> {
+                                if (information.getRepositoryInterface() == OrderRepository.class) {
+                                    proxy.addAdvice(new TracingInterceptor(OrderRepository.class.getSimpleName()));
+                                }
+                            }));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,120 @@
+package com.goviesco.orders.tracing;
+
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Traces orders.tracing.sample-rate of the requests. The root span is named after the endpoint, as in
+ * PUT /orders/{id}, and the trace id is returned in the X-Trace-Id header.
+ * <p>
+ * The OrderController answers asynchronously: the handler runs on a request executor thread, and the response is
+ * serialized in a second dispatch once it returns. That dispatch passes through this filter too, and is traced as the
+ * "serialize" span; the trace finishes when the response is complete.
+ */
+public class TracingFilter extends OncePerRequestFilter implements Ordered {
+
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    private static final String ROOT_ATTRIBUTE = TracingFilter.class.getName() + ".root";
+
+    private final SpanStore store;
+    private final double sampleRate;
+
+    public TracingFilter(SpanStore store, double sampleRate) {
+        this.store = store;
+        this.sampleRate = sampleRate;
+    }
+
+    // Ahead of the other filters, so that the root span covers them.
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Span root = (Span) request.getAttribute(ROOT_ATTRIBUTE);
+        if (isAsyncDispatch(request)) {
+            if (root == null) {
+                chain.doFilter(request, response);
+            } else {
+                serialize(root, request, response, chain);
+            }
+            return;
+        }
+
+        if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        root = Tracing.startTrace(request.getMethod() + " " + request.getRequestURI());
+        request.setAttribute(ROOT_ATTRIBUTE, root);
+        response.setHeader(TRACE_ID_HEADER, root.getTrace().getId());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Tracing.clear();
+            if (request.isAsyncStarted()) {
+                Span started = root;
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        finish(started, request);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                finish(root, request);
+            }
+        }
+    }
+
+    private void serialize(Span root, HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Tracing.resume(root);
+        Span span = Tracing.start("serialize");
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Tracing.end(span);
+            Tracing.clear();
+        }
+    }
+
+    private void finish(Span root, HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) {
+            root.rename(request.getMethod() + " " + pattern);
+        }
+        root.end();
+        store.add(root.getTrace());
+    }
+}
@@ -0,0 +1,32 @@
+package com.goviesco.orders.tracing;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+
+// Opens a span named Type.method around each call of a traced bean, for sampled requests only.
+class TracingInterceptor implements MethodInterceptor {
+
+    // Null to name spans after the class of the target.
+    private final String type;
+
+    TracingInterceptor(String type) {
+        this.type = type;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (!Tracing.isSampled()) {
+            return invocation.proceed();
+        }
+        String name = type != null || invocation.getThis() == null
+                ? type
+                : AopUtils.getTargetClass(invocation.getThis()).getSimpleName();
+        Span span = Tracing.start(name + "." + invocation.getMethod().getName());
+        try {
+            return invocation.proceed();
+        } finally {
+            Tracing.end(span);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.goviesco.orders.tracing;
+
+import org.hibernate.BaseSessionEventListener;
+
+// Opens a span around each JDBC statement and batch Hibernate executes, with the SQL of the statement. Registered
+// with hibernate.session.events.auto, so Hibernate creates one per session.
+public class TracingSessionEventListener extends BaseSessionEventListener {
+
+    private transient Span open;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        open = Tracing.startStatement("JDBC execute");
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        close();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        open = Tracing.startStatement("JDBC batch");
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        close();
+    }
+
+    private void close() {
+        Tracing.end(open);
+        open = null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.goviesco.orders.tracing;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Hands the SQL of each statement Hibernate prepares to the span of its execution. Returns the SQL unchanged.
+public class TracingStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        Tracing.statement(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,25 @@
+package com.goviesco.orders.validation;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+// Replaces @Email(regexp = ...): the format is checked by OrderConstraints.isEmail() without a regular expression.
+@Documented
+@Constraint(validatedBy = EmailAddressValidator.class)
+@Target({FIELD, PARAMETER})
+@Retention(RUNTIME)
+public @interface EmailAddress {
+
+    String message() default "Email format is invalid.";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,227 @@
+package com.goviesco.orders.validation;
+
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderLine;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Hand written checks that mirror the bean validation annotations on {@link Order}, {@link Address} and
+ * {@link OrderLine}. They scan characters in place, so validating a payload allocates nothing per field.
+ * Keep them in sync with the annotations; OrderConstraintsTests compares both for every case it knows about.
+ */
+public final class OrderConstraints {
+
+    private static final int MAX_EMAIL_LOCAL_PART = 64;
+    private static final int MAX_EMAIL_DOMAIN = 255;
+    private static final int MAX_DOMAIN_LABEL = 63;
+
+    private OrderConstraints() {
+    }
+
+    public static boolean isValid(Order order) {
+        if (order == null) {
+            return false;
+        }
+        return isNotBlank(order.getFirstName(), 25)
+                && isNotBlank(order.getLastName(), 25)
+                && isNotBlank(order.getEmail(), Integer.MAX_VALUE)
+                && isEmail(order.getEmail())
+                && isPhone(order.getPhone())
+                && isValid(order.getAddress())
+                && areValid(order.getOrderLines())
+                && isPositiveOrZero(order.getTax())
+                && isPositiveOrZero(order.getShipping());
+    }
+
+    public static boolean isValid(Address address) {
+        return address != null
+                && isNotBlank(address.getAddress1(), 50)
+                && (address.getAddress2() == null || address.getAddress2().length() <= 25)
+                && isNotBlank(address.getCity(), 25)
+                && isNotBlank(address.getState(), 2) && address.getState().length() == 2
+                && isNotBlank(address.getZip(), 10) && address.getZip().length() >= 5;
+    }
+
+    public static boolean isValid(OrderLine line) {
+        return isNotBlank(line.getBrand(), 25)
+                && isNotBlank(line.getModel(), 25)
+                && isPositiveOrZero(line.getCost())
+                && line.getQuantity() != null && line.getQuantity() >= 0;
+    }
+
+    // Note: an indexed loop; an iterator would be allocated for every order.
+    private static boolean areValid(List<OrderLine> lines) {
+        if (lines == null) {
+            return true;
+        }
+        for (int i = 0, size = lines.size(); i < size; i++) {
+            OrderLine line = lines.get(i);
+            if (line != null && !isValid(line)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Same semantics as @NotBlank plus @Size(max = maxLength): trim() would copy the string, so look for any visible char.
+    private static boolean isNotBlank(String value, int maxLength) {
+        if (value == null || value.length() > maxLength) {
+            return false;
+        }
+        for (int i = 0, length = value.length(); i < length; i++) {
+            if (value.charAt(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPositiveOrZero(BigDecimal value) {
+        return value != null && value.signum() >= 0;
+    }
+
+    /**
+     * Equivalent to {@code @Email(regexp = "^[a-zA-Z0-9_!#$%&'*+/=?`{|}~^.-]+@[a-zA-Z0-9.-]+$")}: a dot-atom local part
+     * made of the characters the regexp allows, followed by a host name. Null is valid, as it is for @Email.
+     */
+    public static boolean isEmail(CharSequence value) {
+        if (value == null) {
+            return true;
+        }
+        int length = value.length();
+        int at = -1;
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) == '@') {
+                at = i;
+                break;
+            }
+        }
+        if (at <= 0 || at > MAX_EMAIL_LOCAL_PART || length - at - 1 > MAX_EMAIL_DOMAIN) {
+            return false;
+        }
+        return isLocalPart(value, 0, at) && isDomain(value, at + 1, length);
+    }
+
+    private static boolean isLocalPart(CharSequence value, int start, int end) {
+        char previous = '.';
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c == '.') {
+                if (previous == '.') {
+                    return false;
+                }
+            } else if (!isAlphanumeric(c) && "_!#$%&'*+/=?`{|}~^-".indexOf(c) < 0) {
+                return false;
+            }
+            previous = c;
+        }
+        return previous != '.';
+    }
+
+    private static boolean isDomain(CharSequence value, int start, int end) {
+        if (start == end) {
+            return false;
+        }
+        int labelStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || value.charAt(i) == '.') {
+                if (!isDomainLabel(value, labelStart, i)) {
+                    return false;
+                }
+                labelStart = i + 1;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDomainLabel(CharSequence value, int start, int end) {
+        int length = end - start;
+        if (length < 1 || length > MAX_DOMAIN_LABEL
+                || value.charAt(start) == '-' || value.charAt(end - 1) == '-') {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (!isAlphanumeric(c) && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Equivalent to {@code @Pattern(regexp = "^((\\+\\d{1,3}( )?)?((\\(\\d{3}\\))|\\d{3})[- .]?\\d{3}[- .]?\\d{4})?$")}.
+     * Null and the empty string are valid.
+     */
+    public static boolean isPhone(CharSequence value) {
+        if (value == null || value.length() == 0) {
+            return true;
+        }
+        if (value.charAt(0) != '+') {
+            return isLocalPhone(value, 0);
+        }
+        // The country code is 1 to 3 digits; try each length, as the regexp would by backtracking.
+        for (int digits = 1; digits <= 3; digits++) {
+            if (!isDigits(value, 1, digits)) {
+                return false;
+            }
+            int next = 1 + digits;
+            if (isLocalPhone(value, next)
+                    || (next < value.length() && value.charAt(next) == ' ' && isLocalPhone(value, next + 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Matches ((\(\d{3}\))|\d{3})[- .]?\d{3}[- .]?\d{4}$ from the given position.
+    private static boolean isLocalPhone(CharSequence value, int position) {
+        int length = value.length();
+        if (position < length && value.charAt(position) == '(') {
+            if (!isDigits(value, position + 1, 3) || position + 4 >= length || value.charAt(position + 4) != ')') {
+                return false;
+            }
+            position += 5;
+        } else if (isDigits(value, position, 3)) {
+            position += 3;
+        } else {
+            return false;
+        }
+        position = skipSeparator(value, position);
+        if (!isDigits(value, position, 3)) {
+            return false;
+        }
+        position = skipSeparator(value, position + 3);
+        return isDigits(value, position, 4) && position + 4 == length;
+    }
+
+    private static int skipSeparator(CharSequence value, int position) {
+        if (position < value.length()) {
+            char c = value.charAt(position);
+            if (c == '-' || c == ' ' || c == '.') {
+                return position + 1;
+            }
+        }
+        return position;
+    }
+
+    private static boolean isDigits(CharSequence value, int position, int count) {
+        if (position + count > value.length()) {
+            return false;
+        }
+        for (int i = position; i < position + count; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAlphanumeric(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+}
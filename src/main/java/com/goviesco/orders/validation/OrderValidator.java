@@ -0,0 +1,54 @@
+package com.goviesco.orders.validation;
+
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderLine;
+import org.springframework.validation.Errors;
+import org.springframework.validation.SmartValidator;
+
+/**
+ * Fast path in front of the bean validator used by Spring MVC. Valid orders, the common case, are accepted by
+ * {@link OrderConstraints} without building any constraint violations. Anything else is handed to the bean validator,
+ * so the field errors and their messages are exactly the ones declared on the entities.
+ */
+public class OrderValidator implements SmartValidator {
+
+    private static final Object[] NO_HINTS = new Object[0];
+
+    private final SmartValidator delegate;
+
+    public OrderValidator(SmartValidator delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return delegate.supports(clazz);
+    }
+
+    @Override
+    public void validate(Object target, Errors errors) {
+        validate(target, errors, NO_HINTS);
+    }
+
+    @Override
+    public void validate(Object target, Errors errors, Object... validationHints) {
+        if (validationHints.length == 0 && isValid(target)) {
+            return;
+        }
+        delegate.validate(target, errors, validationHints);
+    }
+
+    private static boolean isValid(Object target) {
+        if (target instanceof Order) {
+            return OrderConstraints.isValid((Order) target);
+        }
+        if (target instanceof Address) {
+            return OrderConstraints.isValid((Address) target);
+        }
+        if (target instanceof OrderLine) {
+            return OrderConstraints.isValid((OrderLine) target);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,116 @@
+package com.goviesco.orders.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.WebhookDelivery;
+import com.goviesco.orders.enumeration.DeliveryState;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.event.OrderTransitionedEvent;
+import com.goviesco.orders.repository.WebhookDeliveryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Queues a callback to every URL of orders.webhooks.endpoints when an order is completed or canceled. The deliveries
+ * are written to the WEBHOOK_DELIVERIES table in the transaction that changes the status, so they are queued if and
+ * only if the change commits; the WebhookDispatcher sends them on threads of its own, so a slow or unreachable partner
+ * never delays the request that changed the order.
+ */
+@Component
+public class OrderWebhooks {
+
+    private final WebhookDeliveryRepository deliveries;
+    private final WebhookDispatcher dispatcher;
+    private final ObjectMapper mapper;
+    private final List<String> endpoints;
+
+    public OrderWebhooks(WebhookDeliveryRepository deliveries, WebhookDispatcher dispatcher, ObjectMapper mapper,
+                         @Value("${orders.webhooks.endpoints:}") String endpoints,
+                         @Value("${orders.webhooks.secret:}") String secret) {
+        this.deliveries = deliveries;
+        this.dispatcher = dispatcher;
+        this.mapper = mapper;
+        this.endpoints = Arrays.stream(endpoints.split(","))
+                .map(String::trim)
+                .filter(endpoint -> !endpoint.isEmpty())
+                .collect(Collectors.toList());
+        // Fails the startup on a malformed URL, rather than every delivery to it.
+        this.endpoints.forEach(URI::create);
+        if (!this.endpoints.isEmpty() && secret.isEmpty()) {
+            throw new IllegalStateException("orders.webhooks.secret must be set to sign the callbacks");
+        }
+    }
+
+    // Queues the callbacks of an order whose status changed to COMPLETED or CANCELED; other statuses have none. A
+    // failure to queue rolls the change back.
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void statusChanged(OrderTransitionedEvent transition) {
+        Order order = transition.getOrder();
+        String event = event(order.getStatus());
+        if (event == null || endpoints.isEmpty()) {
+            return;
+        }
+        String payload = payload(event, order);
+        LocalDateTime now = LocalDateTime.now();
+        List<WebhookDelivery> queued = new ArrayList<>(endpoints.size());
+        for (String endpoint : endpoints) {
+            WebhookDelivery delivery = new WebhookDelivery();
+            delivery.setUrl(endpoint);
+            delivery.setOrderId(order.getId());
+            delivery.setPayload(payload);
+            delivery.setState(DeliveryState.PENDING);
+            delivery.setNextAttemptAt(now);
+            delivery.setCreatedAt(now);
+            delivery.setUpdatedAt(now);
+            queued.add(delivery);
+        }
+        deliveries.saveAll(queued);
+    }
+
+    // The dispatcher would only find the deliveries at its next poll, and must not see them before they commit.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void committed(OrderTransitionedEvent transition) {
+        if (event(transition.getOrder().getStatus()) != null && !endpoints.isEmpty()) {
+            dispatcher.wake();
+        }
+    }
+
+    private static String event(Status status) {
+        if (status == Status.COMPLETED) {
+            return "order.completed";
+        }
+        if (status == Status.CANCELED) {
+            return "order.canceled";
+        }
+        return null;
+    }
+
+    private String payload(String event, Order order) {
+        // A saved order has its totals only once loaded again.
+        order.calculateTotals();
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("event", event);
+        payload.put("orderId", order.getId());
+        payload.put("status", order.getStatus());
+        payload.put("date", order.getDate() == null ? null : order.getDate().toString());
+        payload.put("total", order.getTotal().toPlainString());
+        payload.put("occurredAt", LocalDateTime.now().toString());
+        try {
+            return mapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.goviesco.orders.webhook;
+
+import com.goviesco.orders.entity.WebhookDelivery;
+import com.goviesco.orders.enumeration.DeliveryState;
+import com.goviesco.orders.repository.WebhookDeliveryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the webhook deliveries queued in the WEBHOOK_DELIVERIES table. A poller thread finds the due ones every
+ * orders.webhooks.poll-ms, or as soon as OrderWebhooks queues one, and hands them to a pool of
+ * orders.webhooks.threads senders, never more than the pool can queue. At most orders.webhooks.per-endpoint-concurrency
+ * deliveries to one URL are in flight at a time, so a slow partner holds that many senders and no more; the others
+ * wait in the table, while the deliveries to the other URLs are sent.
+ * <p>
+ * A delivery is answered by any 2xx status. Otherwise it is tried again after orders.webhooks.backoff-ms, doubled for
+ * every attempt up to orders.webhooks.max-backoff-ms, with a random jitter of up to half of it, until
+ * orders.webhooks.max-attempts attempts have failed. Each attempt is leased for orders.webhooks.lease-ms in the
+ * table, so a delivery whose sender stopped is sent again once the lease expires, also by another instance; a partner
+ * may therefore get a callback twice, and can tell by the X-Orders-Delivery header.
+ */
+@Component
+@Lazy(false) // A lazy bean is never created, so deliveries queued before a restart would never be sent.
+public class WebhookDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookDispatcher.class);
+
+    public static final String DELIVERY_HEADER = "X-Orders-Delivery";
+
+    private final WebhookDeliveryRepository deliveries;
+    private final HttpClient client;
+    private final byte[] secret;
+    private final int perEndpoint;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final long pollMs;
+    private final Duration lease;
+    private final Duration timeout;
+    private final ThreadPoolExecutor senders;
+    private final ScheduledThreadPoolExecutor poller;
+
+    // In-flight deliveries per URL.
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    public WebhookDispatcher(WebhookDeliveryRepository deliveries,
+                             @Value("${orders.webhooks.secret:}") String secret,
+                             @Value("${orders.webhooks.threads:4}") int threads,
+                             @Value("${orders.webhooks.queue-capacity:100}") int queueCapacity,
+                             @Value("${orders.webhooks.per-endpoint-concurrency:2}") int perEndpoint,
+                             @Value("${orders.webhooks.max-attempts:8}") int maxAttempts,
+                             @Value("${orders.webhooks.backoff-ms:1000}") long backoffMs,
+                             @Value("${orders.webhooks.max-backoff-ms:3600000}") long maxBackoffMs,
+                             @Value("${orders.webhooks.poll-ms:1000}") long pollMs,
+                             @Value("${orders.webhooks.lease-ms:60000}") long leaseMs,
+                             @Value("${orders.webhooks.timeout-ms:5000}") long timeoutMs) {
+        this.deliveries = deliveries;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.perEndpoint = perEndpoint;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.pollMs = pollMs;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+        AtomicInteger count = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> daemon(task, "webhook-" + count.incrementAndGet()));
+        this.poller = new ScheduledThreadPoolExecutor(1, task -> daemon(task, "webhook-poller"));
+    }
+
+    @PostConstruct
+    public void start() {
+        poller.scheduleWithFixedDelay(this::poll, pollMs, pollMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    // Polls now rather than at the next interval. Returns at once.
+    public void wake() {
+        try {
+            poller.execute(this::poll);
+        } catch (RejectedExecutionException e) {
+            // Shut down; the deliveries stay queued in the table.
+        }
+    }
+
+    // Runs on the poller thread only, so no two polls hand out the same delivery. The due deliveries are read again
+    // without the URLs found busy, until the senders have no more room or none are left, so that the oldest deliveries
+    // of a slow partner do not keep those of the others waiting.
+    private void poll() {
+        try {
+            int room = senders.getQueue().remainingCapacity();
+            LocalDateTime now = LocalDateTime.now();
+            Set<String> busy = new HashSet<>();
+            while (room > 0) {
+                List<WebhookDelivery> due = busy.isEmpty()
+                        ? deliveries.findByStateAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(
+                                DeliveryState.PENDING, now, PageRequest.of(0, room))
+                        : deliveries.findByStateAndNextAttemptAtLessThanEqualAndUrlNotInOrderByNextAttemptAt(
+                                DeliveryState.PENDING, now, busy, PageRequest.of(0, room));
+                boolean skipped = false;
+                for (WebhookDelivery delivery : due) {
+                    Semaphore endpoint = permits.computeIfAbsent(delivery.getUrl(), url -> new Semaphore(perEndpoint));
+                    // The endpoint is busy; its deliveries wait for a later poll.
+                    if (!endpoint.tryAcquire()) {
+                        busy.add(delivery.getUrl());
+                        skipped = true;
+                        continue;
+                    }
+                    // Taken by another instance, which leaves it out of the next read.
+                    if (deliveries.claim(delivery.getId(), DeliveryState.PENDING, now, now.plus(lease)) == 0) {
+                        endpoint.release();
+                        skipped = true;
+                        continue;
+                    }
+                    try {
+                        senders.execute(() -> {
+                            try {
+                                send(delivery);
+                            } finally {
+                                endpoint.release();
+                                // The endpoint may have deliveries waiting for this permit.
+                                wake();
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        // Shut down; the lease expires and the delivery is sent again after a restart.
+                        endpoint.release();
+                        return;
+                    }
+                    room--;
+                }
+                // Every delivery read was handed out, so a short read means none are left.
+                if (!skipped) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule.
+            log.warn("Could not poll the webhook deliveries", e);
+        }
+    }
+
+    private void send(WebhookDelivery delivery) {
+        int attempt = delivery.getAttempts() + 1;
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(delivery.getUrl()))
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .header(DELIVERY_HEADER, delivery.getId().toString())
+                    .header(WebhookSignature.HEADER, WebhookSignature.header(secret,
+                            Instant.now().getEpochSecond(), delivery.getPayload()))
+                    .POST(HttpRequest.BodyPublishers.ofString(delivery.getPayload()))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            // Retrying cannot fix a malformed URL.
+            record(delivery, DeliveryState.FAILED, null, null, String.valueOf(e.getMessage()));
+            return;
+        }
+
+        Integer statusCode = null;
+        String error;
+        try {
+            statusCode = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (statusCode >= 200 && statusCode < 300) {
+                record(delivery, DeliveryState.DELIVERED, null, statusCode, null);
+                return;
+            }
+            error = "HTTP " + statusCode;
+        } catch (IOException e) {
+            error = e.toString();
+        } catch (InterruptedException e) {
+            // Shutting down; the lease expires and the attempt is made again.
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (attempt >= maxAttempts) {
+            log.warn("Giving up webhook delivery " + delivery.getId() + " to " + delivery.getUrl() + " after " +
+                    attempt + " attempts: " + error);
+            record(delivery, DeliveryState.FAILED, null, statusCode, error);
+        } else {
+            record(delivery, DeliveryState.PENDING, LocalDateTime.now().plus(Duration.ofMillis(backoff(attempt))),
+                    statusCode, error);
+        }
+    }
+
+    // The delay after the attempt failed: backoffMs doubled per earlier attempt, capped at maxBackoffMs, of which a
+    // random half is waited so that deliveries failing together are not all tried again together.
+    private long backoff(int attempt) {
+        long delay = attempt > 31 ? maxBackoffMs : Math.min(maxBackoffMs, backoffMs << (attempt - 1));
+        long half = delay / 2;
+        return delay - half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private void record(WebhookDelivery delivery, DeliveryState state, LocalDateTime nextAttemptAt,
+                        Integer statusCode, String error) {
+        String message = error == null || error.length() <= 255 ? error : error.substring(0, 255);
+        deliveries.record(delivery.getId(), state, nextAttemptAt, statusCode, message, LocalDateTime.now());
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
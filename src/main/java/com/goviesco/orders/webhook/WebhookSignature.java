@@ -0,0 +1,44 @@
+package com.goviesco.orders.webhook;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+/**
+ * The X-Orders-Signature header of a callback: t=timestamp,v1=signature, where the signature is the lowercase hex
+ * HMAC-SHA256, keyed with orders.webhooks.secret, of the timestamp in epoch seconds, a dot and the body. A partner
+ * computes the same over the body it received, and rejects the callback unless they match and the timestamp is
+ * recent, so a callback cannot be forged or replayed later.
+ */
+public final class WebhookSignature {
+
+    public static final String HEADER = "X-Orders-Signature";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private WebhookSignature() {
+    }
+
+    public static String header(byte[] secret, long timestamp, String body) {
+        return "t=" + timestamp + ",v1=" + sign(secret, timestamp, body);
+    }
+
+    public static String sign(byte[] secret, long timestamp, String body) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            byte[] digest = mac.doFinal((timestamp + "." + body).getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+                hex[2 * i + 1] = HEX[digest[i] & 0xf];
+            }
+            return new String(hex);
+        } catch (GeneralSecurityException e) {
+            // Every Java runtime provides HmacSHA256.
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.goviesco.orders;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The Swagger document the ApiDocsWriter packages for the fast-start profile.
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ApiDocsTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    public void apiDocsShouldListTheHandlers() throws Exception {
+        String docs = mvc.perform(get("/v2/api-docs"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        assertTrue(docs.contains("\"/orders/{id}\""));
+    }
+}
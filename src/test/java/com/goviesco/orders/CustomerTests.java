@@ -0,0 +1,133 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.repository.CustomerMigration;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.service.CustomerService;
+import com.goviesco.orders.service.OrderService;
+import com.goviesco.orders.service.ProductCatalog;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.goviesco.orders.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@DirtiesContext // The migration test changes the schema of the orders table.
+public class CustomerTests {
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private CustomerMigration migration;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private CustomerService customers;
+
+    @Autowired
+    private ProductCatalog catalog;
+
+    @Autowired
+    private OrderRepository orders;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void ordersWithTheSameEmailAndAddressShouldShareRows() {
+        Order first = service.save(order().name("Ada", "Lovelace").email("ada.lovelace@example.com")
+                .address1("12 St James's Sq").build());
+        Order second = service.save(order().name("Augusta", "Lovelace").email("ada.lovelace@example.com")
+                .address1("12 St James's Sq").build());
+        Order other = service.save(order().name("Augusta", "Lovelace").email("ada.lovelace@example.com")
+                .address1("10 Downing St").build());
+
+        assertEquals(first.getCustomer().getId(), second.getCustomer().getId());
+        assertEquals(first.getAddress().getId(), second.getAddress().getId());
+        assertNotEquals(first.getAddress().getId(), other.getAddress().getId());
+
+        // Each order keeps the name it was placed with; the customer has that of the first.
+        assertEquals("Ada", service.findById(first.getId()).orElseThrow().getFirstName());
+        assertEquals("Augusta", service.findById(second.getId()).orElseThrow().getFirstName());
+        assertEquals("Ada", jdbc.queryForObject("select first_name from customers where id = ?", String.class,
+                first.getCustomer().getId()));
+        List<Order> orders = service.findByCustomer(first.getCustomer().getId()).orElseThrow();
+        assertEquals(List.of(first.getId(), second.getId(), other.getId()),
+                List.of(orders.get(0).getId(), orders.get(1).getId(), orders.get(2).getId()));
+        assertTrue(service.findByCustomer(-1L).isEmpty());
+    }
+
+    @Test
+    public void addressReleasedBeforeTheOrderIsWrittenShouldBeStoredAgain() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Order order = transaction.execute(status -> customers.attach(order().email("marie.curie@example.com")
+                .address1("36 Quai de Bethune").build()));
+        Long released = order.getAddress().getId();
+        // Another order let go of the address before this one referred to it.
+        customers.release(released);
+
+        Order saved = transaction.execute(status -> {
+            customers.hold(order);
+            return orders.saveAndFlush(catalog.attach(order));
+        });
+
+        assertNotEquals(released, saved.getAddress().getId());
+        assertEquals("36 Quai de Bethune", service.findById(saved.getId()).orElseThrow().getAddress().getAddress1());
+        assertEquals(1, jdbc.queryForObject("select count(*) from addresses where id = ?", Integer.class,
+                saved.getAddress().getId()));
+    }
+
+    @Test
+    public void migrationShouldMoveLegacyColumnsToCustomersAndMergeAddresses() {
+        jdbc.execute("alter table orders add column email varchar(50)");
+        String[] address = {"1 Legacy Ln", "", "Phoenix", "AZ", "85017"};
+        Long firstAddress = insertAddress(address);
+        Long secondAddress = insertAddress(address);
+        Long first = insertOrder("Grace", "grace.hopper@example.com", firstAddress);
+        Long second = insertOrder("Amazing Grace", "grace.hopper@example.com", secondAddress);
+
+        migration.migrate();
+
+        assertEquals("Grace", jdbc.queryForObject(
+                "select first_name from customers where email = 'grace.hopper@example.com'", String.class));
+        Order migrated = service.findById(first).orElseThrow();
+        assertEquals("Grace", migrated.getFirstName());
+        assertEquals("Amazing Grace", service.findById(second).orElseThrow().getFirstName());
+        assertEquals("grace.hopper@example.com", migrated.getEmail());
+        assertEquals(firstAddress, migrated.getAddress().getId());
+        assertEquals(firstAddress, service.findById(second).orElseThrow().getAddress().getId());
+        assertEquals(0, jdbc.queryForObject("select count(*) from addresses where id = ?", Integer.class,
+                secondAddress));
+        assertEquals(0, jdbc.queryForObject("select count(*) from information_schema.columns " +
+                "where table_name = 'ORDERS' and column_name = 'EMAIL'", Integer.class));
+    }
+
+    private Long insertAddress(String[] address) {
+        jdbc.update("insert into addresses (address1, address2, city, state, zip) values (?, ?, ?, ?, ?)",
+                (Object[]) address);
+        return jdbc.queryForObject("select max(id) from addresses", Long.class);
+    }
+
+    private Long insertOrder(String firstName, String email, Long addressId) {
+        jdbc.update("insert into orders (date, status, first_name, last_name, email, phone, address_id, tax, " +
+                        "shipping) values (?, ?, ?, ?, ?, ?, ?, ?, ?)", Date.valueOf(LocalDate.now()),
+                Status.PROCESSING.getDbColumn(), firstName, "Hopper", email, "2134541324", addressId,
+                BigDecimal.ONE, BigDecimal.ONE);
+        return jdbc.queryForObject("select max(id) from orders", Long.class);
+    }
+}
@@ -0,0 +1,143 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.assembler.OrderModelAssembler;
+import com.goviesco.orders.controller.OrderController;
+import com.goviesco.orders.deadline.DeadlineFilter;
+import com.goviesco.orders.deadline.DeadlineTransactionManager;
+import com.goviesco.orders.deadline.RequestDeadline;
+import com.goviesco.orders.exception.DeadlineExceededException;
+import com.goviesco.orders.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(OrderController.class)
+@Import({OrderModelAssembler.class})
+public class DeadlineTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private OrderService service;
+
+    private final DeadlineFilter filter = new DeadlineFilter(1000, 5000);
+
+    private final TimeoutProbe transactionManager = new TimeoutProbe();
+
+    @AfterEach
+    public void clearDeadline() {
+        RequestDeadline.clear();
+    }
+
+    @Test
+    public void headerShouldSetTheBudgetWithinTheMaximum() throws Exception {
+        assertBudget(null, 1000);
+        assertBudget("3000", 3000);
+        assertBudget(" 2000 ", 2000);
+        assertBudget("600000", 5000);
+        assertBudget("0", 1000);
+        assertBudget("-5", 1000);
+        assertBudget("soon", 1000);
+        assertFalse(RequestDeadline.isSet());
+    }
+
+    @Test
+    public void transactionShouldTimeOutAtTheDeadline() {
+        assertEquals(TransactionDefinition.TIMEOUT_DEFAULT,
+                transactionManager.determineTimeout(new DefaultTransactionDefinition()));
+
+        RequestDeadline.start(2500);
+        // Rounded up to whole seconds.
+        assertEquals(3, transactionManager.determineTimeout(new DefaultTransactionDefinition()));
+        DefaultTransactionDefinition shorter = new DefaultTransactionDefinition();
+        shorter.setTimeout(1);
+        assertEquals(1, transactionManager.determineTimeout(shorter));
+
+        RequestDeadline.start(0);
+        assertEquals(1, transactionManager.determineTimeout(new DefaultTransactionDefinition()));
+        assertThrows(DeadlineExceededException.class, () -> transactionManager.getTransaction(null));
+    }
+
+    @Test
+    public void exceededDeadlineShouldAnswerGatewayTimeout() throws Exception {
+        given(service.findById(1L)).willThrow(new DeadlineExceededException());
+        given(service.findById(2L)).willThrow(new QueryTimeoutException("Query timed out"));
+
+        for (long id = 1; id <= 2; id++) {
+            perform("/orders/" + id)
+                    .andExpect(status().isGatewayTimeout())
+                    .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE))
+                    .andExpect(jsonPath("$.title", is("Gateway Timeout")));
+        }
+    }
+
+    @Test
+    public void rejectedRequestShouldAnswerServiceUnavailable() throws Exception {
+        given(service.findById(1L)).willThrow(new RejectedExecutionException());
+
+        perform("/orders/1")
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.title", is("Service Unavailable")));
+    }
+
+    // Runs the filter with the header, and checks the budget the request was given.
+    private void assertBudget(String header, long millis) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders");
+        if (header != null) {
+            request.addHeader(DeadlineFilter.TIMEOUT_HEADER, header);
+        }
+        AtomicLong remaining = new AtomicLong();
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (filtered, response) -> remaining.set(RequestDeadline.remainingMillis()));
+
+        assertTrue(remaining.get() <= millis && remaining.get() > millis - 500,
+                "Header " + header + " gave " + remaining.get() + " ms");
+    }
+
+    private ResultActions perform(String path) throws Exception {
+        MvcResult result = mvc.perform(get(path)).andReturn();
+        return mvc.perform(asyncDispatch(result));
+    }
+
+    // Exposes the timeout a transaction would be given. No transaction reaches the factory, which is a mock.
+    private static class TimeoutProbe extends DeadlineTransactionManager {
+
+        TimeoutProbe() {
+            setEntityManagerFactory(mock(EntityManagerFactory.class));
+        }
+
+        @Override
+        public int determineTimeout(TransactionDefinition definition) {
+            return super.determineTimeout(definition);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderEvent;
+import com.goviesco.orders.entity.OrderLine;
+import com.goviesco.orders.enumeration.OrderEventType;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.eventsourcing.OrderEventStore;
+import com.goviesco.orders.eventsourcing.OrderProjector;
+import com.goviesco.orders.exception.OrderConflictException;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.service.OrderExpiryScheduler;
+import com.goviesco.orders.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.goviesco.orders.TestOrders.newOrder;
+import static com.goviesco.orders.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+// The projector only runs when a test runs it.
+@SpringBootTest(properties = {"orders.events.snapshot-every=3", "orders.events.projection-interval-ms=3600000"})
+@ActiveProfiles("event-sourced")
+public class EventSourcedOrderServiceTests {
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private OrderEventStore store;
+
+    @Autowired
+    private OrderProjector projector;
+
+    @Autowired
+    private OrderRepository orders;
+
+    @Autowired
+    private OrderExpiryScheduler expiry;
+
+    @Test
+    public void saveShouldAppendOnlyWhatChanged() {
+        Long id = service.save(newOrder()).getId();
+
+        Order order = service.findById(id).orElseThrow();
+        order.getOrderLines().add(new OrderLine(null, "Apple", "Watch", new BigDecimal("400"), 2));
+        order.setStatus(Status.COMPLETED);
+        service.save(order);
+        service.save(service.findById(id).orElseThrow());
+
+        Order read = service.findById(id).orElseThrow();
+        assertEquals(Status.COMPLETED, read.getStatus());
+        assertEquals(2, read.getOrderLines().size());
+        assertEquals(0, new BigDecimal("1950").compareTo(read.getTotal()));
+        assertEquals(List.of(OrderEventType.CREATED, OrderEventType.LINES_CHANGED,
+                OrderEventType.STATUS_TRANSITIONED), types(store.history(id)));
+    }
+
+    @Test
+    public void projectorShouldRebuildTheOrderAndSnapshotIt() {
+        Long id = service.save(newOrder()).getId();
+        Order order = service.findById(id).orElseThrow();
+        order.setFirstName("Pierre");
+        service.save(order);
+        order.setStatus(Status.CANCELED);
+        service.save(order);
+
+        projector.project();
+
+        Order projected = orders.findById(id).orElseThrow();
+        assertEquals("Pierre", projected.getFirstName());
+        assertEquals(Status.CANCELED, projected.getStatus());
+        assertEquals(0, new BigDecimal("1150").compareTo(projected.getTotal()));
+        // Three events reached snapshot-every, so the order is now read from its snapshot alone.
+        assertEquals(0, store.load(id).orElseThrow().getTail());
+        assertEquals("Pierre", service.findById(id).orElseThrow().getFirstName());
+
+        service.delete(order);
+        projector.project();
+
+        assertTrue(service.findById(id).isEmpty());
+        assertFalse(orders.existsById(id));
+        assertEquals(OrderEventType.DELETED, store.history(id).get(3).getType());
+    }
+
+    @Test
+    public void appendShouldRejectAStaleState() {
+        Long id = service.save(newOrder()).getId();
+        OrderEventStore.State stale = store.load(id).orElseThrow();
+        Order order = service.findById(id).orElseThrow();
+        order.setStatus(Status.COMPLETED);
+        service.save(order);
+
+        assertThrows(OrderConflictException.class,
+                () -> store.append(stale, Collections.singletonList(store.deleted())));
+        assertEquals(Status.COMPLETED, service.findById(id).orElseThrow().getStatus());
+    }
+
+    @Test
+    public void saveShouldRejectAnOrderReadBeforeAnotherChange() {
+        Long id = service.save(newOrder()).getId();
+        Order stale = service.findById(id).orElseThrow();
+        Order order = service.findById(id).orElseThrow();
+        order.setStatus(Status.CANCELED);
+        service.save(order);
+
+        stale.setFirstName("Pierre");
+        assertThrows(OrderConflictException.class, () -> service.save(stale));
+
+        Order read = service.findById(id).orElseThrow();
+        assertEquals("Marie", read.getFirstName());
+        assertEquals(Status.CANCELED, read.getStatus());
+        assertEquals(2, store.history(id).size());
+    }
+
+    @Test
+    public void saveShouldRejectATransitionFromAFinalStatus() {
+        Long id = service.save(newOrder()).getId();
+        Order order = service.findById(id).orElseThrow();
+        order.setStatus(Status.COMPLETED);
+        service.save(order);
+
+        order.setStatus(Status.CANCELED);
+        assertThrows(OrderConflictException.class, () -> service.save(order));
+        assertEquals(Status.COMPLETED, service.findById(id).orElseThrow().getStatus());
+    }
+
+    @Test
+    public void expiredOrderShouldBeTransitionedByAnEvent() {
+        Long id = service.save(order().date(LocalDate.now().minusDays(60)).build()).getId();
+        projector.project();
+
+        assertTrue(expiry.expire() >= 1);
+
+        assertEquals(Status.CANCELED, service.findById(id).orElseThrow().getStatus());
+        assertEquals(List.of(OrderEventType.CREATED, OrderEventType.STATUS_TRANSITIONED), types(store.history(id)));
+        // The projector writes the transition to the table instead of overwriting it.
+        projector.project();
+        assertEquals(Status.CANCELED, orders.findById(id).orElseThrow().getStatus());
+    }
+
+    @Test
+    public void preloadedOrdersShouldBeAdopted() {
+        Order preloaded = orders.findById(1L).orElseThrow();
+
+        assertEquals(OrderEventType.CREATED, store.history(preloaded.getId()).get(0).getType());
+        assertEquals(preloaded.getEmail(), service.findById(preloaded.getId()).orElseThrow().getEmail());
+        assertTrue(service.save(newOrder()).getId() > preloaded.getId());
+    }
+
+    private static List<OrderEventType> types(List<OrderEvent> events) {
+        List<OrderEventType> types = new ArrayList<>();
+        events.forEach(event -> types.add(event.getType()));
+        return types;
+    }
+}
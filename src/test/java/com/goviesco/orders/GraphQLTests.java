@@ -0,0 +1,105 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.graphql.OrderGraph;
+import com.goviesco.orders.service.OrderService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Map;
+
+import static com.goviesco.orders.TestOrders.order;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class GraphQLTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private OrderGraph graph;
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void onlySelectedFieldsShouldBeReturned() {
+        Long id = service.save(order().address1("Mobile St").build()).getId();
+
+        Map<String, Object> result = graph.execute("query($id: ID!) { order(id: $id) { id status total } }", null,
+                Map.of("id", id.toString()));
+
+        assertNull(result.get("errors"));
+        Map<String, Object> order = (Map<String, Object>) ((Map<String, Object>) result.get("data")).get("order");
+        assertEquals(Map.of("id", id.toString(), "status", "PROCESSING", "total", "1150.00"), order);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void addressesAndLinesShouldBeLoadedOncePerLevel() {
+        Long after = service.save(order().address1("Before St").build()).getId();
+        for (int i = 0; i < 10; i++) {
+            service.save(order().address1(i + " Batch St").build());
+        }
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        Statistics statistics = sessionFactory.getStatistics();
+        long statements = statistics.getPrepareStatementCount();
+
+        Map<String, Object> result = graph.execute("{ orders(first: 10, after: \"" + after + "\") { id subtotal " +
+                "address { address1 } orderLines { brand model quantity } } }", null, null);
+
+        // The page, the addresses and the lines.
+        assertEquals(3, statistics.getPrepareStatementCount() - statements);
+        assertNull(result.get("errors"));
+        List<Map<String, Object>> orders = (List<Map<String, Object>>)
+                ((Map<String, Object>) result.get("data")).get("orders");
+        assertEquals(10, orders.size());
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> order = orders.get(i);
+            assertEquals("1000.00", order.get("subtotal"));
+            assertEquals(i + " Batch St", ((Map<String, Object>) order.get("address")).get("address1"));
+            assertEquals(List.of(Map.of("brand", "Apple", "model", "Phone", "quantity", 1)), order.get("orderLines"));
+        }
+    }
+
+    @Test
+    public void tooComplexQueryShouldBeRejected() {
+        Map<String, Object> result = graph.execute("{ orders(first: 500) { id address { address1 city zip } " +
+                "orderLines { brand model cost quantity } } }", null, null);
+
+        assertNotNull(result.get("errors"));
+        assertNull(result.get("data"));
+    }
+
+    @Test
+    public void requestWithoutAQueryShouldGetAnError() throws Exception {
+        MvcResult result = mvc.perform(post("/graphql").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errors[0].message", is("The request has no query")))
+                .andExpect(jsonPath("$.data").doesNotExist());
+    }
+}
@@ -0,0 +1,55 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderLine;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.money.Money;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTests {
+
+    @Test
+    public void arithmeticShouldBeInCents() {
+        long cost = Money.cents(new BigDecimal("19.99"));
+
+        assertEquals(1999, cost);
+        assertEquals(5997, Money.multiply(cost, 3));
+        assertEquals(2049, Money.add(cost, Money.cents(new BigDecimal("0.5"))));
+        assertEquals(new BigDecimal("19.99"), Money.toBigDecimal(cost));
+    }
+
+    @Test
+    public void extraDecimalPlacesShouldRoundHalfUp() {
+        assertEquals(101, Money.cents(new BigDecimal("1.005")));
+        assertEquals(100, Money.cents(new BigDecimal("1.004")));
+        assertEquals(100000, Money.cents(new BigDecimal("1E+3")));
+    }
+
+    @Test
+    public void overflowShouldThrow() {
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.multiply(Long.MAX_VALUE, 2));
+        assertThrows(ArithmeticException.class, () -> Money.cents(new BigDecimal("1E+20")));
+    }
+
+    @Test
+    public void totalsShouldBeSummedInCents() {
+        Address address = new Address(1L, "123 Main St.", "Apt. 123", "Los Angeles", "CA", "90045");
+        Order order = new Order(1L, Status.PROCESSING, "Luke", "Skywalker", "luke.skywalker@gmail.com",
+                "2134541324", address, Arrays.asList(
+                        new OrderLine(1L, "Apple", "Phone", new BigDecimal("999.99"), 3),
+                        new OrderLine(2L, "Apple", "Cable", new BigDecimal("19.5"), 2)),
+                new BigDecimal("100"), new BigDecimal("25.25"), null, null);
+
+        order.calculateTotals();
+
+        assertEquals(new BigDecimal("3038.97"), order.getSubtotal());
+        assertEquals(new BigDecimal("3164.22"), order.getTotal());
+    }
+}
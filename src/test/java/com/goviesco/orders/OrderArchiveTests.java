@@ -0,0 +1,118 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.exception.OrderArchivedException;
+import com.goviesco.orders.repository.ArchivedOrderRepository;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.service.OrderArchiver;
+import com.goviesco.orders.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.goviesco.orders.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+// The archiver only runs when a test runs it. The database is one of its own, so that no other test's old orders are
+// archived.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:archive",
+        "orders.archive.enabled=true",
+        "orders.archive.min-age-days=30",
+        "orders.archive.initial-delay-ms=3600000"})
+public class OrderArchiveTests {
+
+    private static final LocalDate OLD = LocalDate.of(2001, 2, 3);
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private OrderArchiver archiver;
+
+    @Autowired
+    private OrderRepository orders;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrders;
+
+    @Test
+    public void archiverShouldMoveOnlyOldFinishedOrders() {
+        Long archived = completed(OLD);
+        Long processing = service.save(order().date(OLD).build()).getId();
+        Long recent = completed(LocalDate.now());
+
+        archiver.archiveOldOrders();
+
+        assertFalse(orders.existsById(archived));
+        assertTrue(archivedOrders.existsById(archived));
+        assertTrue(orders.existsById(processing));
+        assertTrue(orders.existsById(recent));
+        assertFalse(archivedOrders.existsById(recent));
+    }
+
+    @Test
+    public void archivedOrderShouldBeReadFromTheArchive() {
+        Long id = completed(OLD);
+        archiver.archiveOldOrders();
+
+        Order order = service.findById(id).orElseThrow();
+
+        assertEquals(id, order.getId());
+        assertEquals(Status.COMPLETED, order.getStatus());
+        assertEquals("Marie", order.getFirstName());
+        assertEquals("2213 Camelback Rd", order.getAddress().getAddress1());
+        assertEquals(1, order.getOrderLines().size());
+        assertEquals(OLD, order.getDate());
+    }
+
+    @Test
+    public void archivedOrderShouldNotBeSavedAgain() {
+        Long id = completed(OLD);
+        archiver.archiveOldOrders();
+        long stored = orders.count();
+
+        Order order = service.findById(id).orElseThrow();
+        order.setFirstName("Irene");
+
+        assertThrows(OrderArchivedException.class, () -> service.save(order));
+        assertEquals(stored, orders.count());
+        assertEquals("Marie", service.findById(id).orElseThrow().getFirstName());
+    }
+
+    @Test
+    public void deletedArchivedOrderShouldLeaveTheArchive() {
+        Long id = completed(OLD);
+        archiver.archiveOldOrders();
+
+        service.delete(service.findById(id).orElseThrow());
+
+        assertFalse(archivedOrders.existsById(id));
+        assertTrue(service.findById(id).isEmpty());
+    }
+
+    @Test
+    public void findAllByIdShouldIncludeArchivedOrders() {
+        Long archived = completed(OLD);
+        Long current = service.save(order().build()).getId();
+        archiver.archiveOldOrders();
+
+        Set<Long> found = new HashSet<>();
+        service.findAllById(List.of(archived, current, -1L)).forEach(order -> found.add(order.getId()));
+
+        assertEquals(Set.of(archived, current), found);
+    }
+
+    // Saves an order dated on the day and completes it; returns its id.
+    private Long completed(LocalDate date) {
+        Order order = service.save(order().date(date).build());
+        order.setStatus(Status.COMPLETED);
+        return service.save(order).getId();
+    }
+}
@@ -0,0 +1,106 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderLine;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static com.goviesco.orders.TestOrders.newOrder;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Checks that the second-level cache never serves an order, address or line that was changed or deleted.
+@SpringBootTest
+// A context started for an earlier class may cache orders of a schema that a later context has since created anew.
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+public class OrderCacheTests {
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void readShouldCacheOrderAddressAndLines() {
+        Order order = service.save(newOrder());
+        Cache cache = entityManagerFactory.getCache();
+        cache.evictAll();
+
+        service.findById(order.getId());
+
+        assertTrue(cache.contains(Order.class, order.getId()));
+        assertTrue(cache.contains(Address.class, order.getAddress().getId()));
+        assertTrue(cache.contains(OrderLine.class, order.getOrderLines().get(0).getId()));
+    }
+
+    @Test
+    public void updateShouldBeVisibleThroughCache() {
+        Long id = service.save(newOrder()).getId();
+        Order order = service.findById(id).orElseThrow();
+
+        order.setFirstName("Irene");
+        order.getAddress().setCity("Tempe");
+        order.getOrderLines().clear();
+        order.getOrderLines().add(new OrderLine(null, "LG", "TV", new BigDecimal("800"), 2));
+        service.save(order);
+
+        Order updated = service.findById(id).orElseThrow();
+        assertEquals("Irene", updated.getFirstName());
+        assertEquals("Tempe", updated.getAddress().getCity());
+        assertEquals(1, updated.getOrderLines().size());
+        assertEquals("LG", updated.getOrderLines().get(0).getBrand());
+        assertEquals(0, new BigDecimal("1600").compareTo(updated.getSubtotal()));
+    }
+
+    @Test
+    public void deleteShouldNotBeServedFromCache() {
+        Order unsaved = newOrder();
+        // Addresses are shared; one no other order uses is deleted with the order.
+        unsaved.getAddress().setAddress1("1 Deleted Way");
+        Order order = service.save(unsaved);
+        Long addressId = order.getAddress().getId();
+        Long lineId = order.getOrderLines().get(0).getId();
+        service.delete(service.findById(order.getId()).orElseThrow());
+
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            assertNull(entityManager.find(Order.class, order.getId()));
+            assertNull(entityManager.find(Address.class, addressId));
+            assertNull(entityManager.find(OrderLine.class, lineId));
+        } finally {
+            entityManager.close();
+        }
+        assertTrue(service.findById(order.getId()).isEmpty());
+    }
+
+    @Test
+    public void bulkStatusUpdateShouldBeVisibleThroughCache() {
+        Order order = service.save(newOrder());
+        service.findById(order.getId());
+        repository.findAll();
+
+        repository.updateStatus(Collections.singletonList(order.getId()), Status.PROCESSING, Status.CANCELED,
+                LocalDate.of(1, 1, 1), LocalDate.of(9999, 12, 31));
+
+        assertEquals(Status.CANCELED, service.findById(order.getId()).orElseThrow().getStatus());
+        assertTrue(repository.findAll().stream()
+                .filter(found -> found.getId().equals(order.getId()))
+                .allMatch(found -> found.getStatus() == Status.CANCELED));
+    }
+}
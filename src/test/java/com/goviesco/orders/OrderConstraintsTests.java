@@ -0,0 +1,108 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderLine;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.enumeration.StatusConverter;
+import com.goviesco.orders.validation.OrderConstraints;
+import org.junit.jupiter.api.Test;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Checks that the allocation-free checks in OrderConstraints agree with the bean validation annotations.
+public class OrderConstraintsTests {
+
+    // The phone regexp the entity used before OrderConstraints.isPhone() replaced it.
+    private static final Pattern PHONE =
+            Pattern.compile("^((\\+\\d{1,3}( )?)?((\\(\\d{3}\\))|\\d{3})[- .]?\\d{3}[- .]?\\d{4})?$");
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    public void phoneShouldMatchRegexp() {
+        String[] phones = {"", "2134541324", "(213) 454-1324", "+111 (213) 454-1324", "+1 213 454 1456",
+                "+12134541324", "+1232134541324", "213.454.1324", "213-454-1324", "+1(213)4541324",
+                "invalidPhone", "+12345", "(213454-1324", "+1  2134541324", "2134541324 ", "+1234 2134541324",
+                "+ 2134541324", "21345413245"};
+
+        for (String phone : phones) {
+            assertEquals(PHONE.matcher(phone).matches(), OrderConstraints.isPhone(phone), phone);
+        }
+    }
+
+    @Test
+    public void emailShouldFollowFormat() {
+        assertTrue(OrderConstraints.isEmail("albert@gmail.com"));
+        assertTrue(OrderConstraints.isEmail("steve.hawk@gmail.com"));
+        assertTrue(OrderConstraints.isEmail("a+b@localhost"));
+        assertFalse(OrderConstraints.isEmail("invalidEmail"));
+        assertFalse(OrderConstraints.isEmail("a@@gmail.com"));
+        assertFalse(OrderConstraints.isEmail("a..b@gmail.com"));
+        assertFalse(OrderConstraints.isEmail("a@gmail..com"));
+        assertFalse(OrderConstraints.isEmail("a@-gmail.com"));
+        assertFalse(OrderConstraints.isEmail("a b@gmail.com"));
+        assertFalse(OrderConstraints.isEmail("@gmail.com"));
+    }
+
+    @Test
+    public void validOrderShouldPassBothValidators() {
+        Order order = order();
+
+        assertTrue(validator.validate(order).isEmpty());
+        assertTrue(OrderConstraints.isValid(order));
+    }
+
+    @Test
+    public void invalidOrdersShouldFailBothValidators() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            orders.add(order());
+        }
+        orders.get(0).setFirstName(" ");
+        orders.get(1).setLastName("This is more than twenty five characters");
+        orders.get(2).setEmail("invalidEmail");
+        orders.get(3).setPhone("invalidPhone");
+        orders.get(4).setAddress(null);
+        orders.get(5).getAddress().setState("ARIZONA");
+        orders.get(6).getAddress().setZip("850");
+        orders.get(7).getAddress().setAddress2("This is more than twenty five characters");
+        orders.get(8).getOrderLines().get(0).setBrand("");
+        orders.get(9).getOrderLines().get(0).setCost(new BigDecimal("-1"));
+        orders.get(10).getOrderLines().get(0).setQuantity(null);
+        orders.get(11).setTax(null);
+
+        for (Order order : orders) {
+            assertFalse(validator.validate(order).isEmpty(), order.toString());
+            assertFalse(OrderConstraints.isValid(order), order.toString());
+        }
+    }
+
+    @Test
+    public void statusConverterShouldRoundTrip() {
+        StatusConverter converter = new StatusConverter();
+
+        for (Status status : Status.values()) {
+            assertEquals(status, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(status)));
+        }
+        assertNull(converter.convertToEntityAttribute(null));
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute("DONE"));
+    }
+
+    private static Order order() {
+        List<OrderLine> orderLines = new ArrayList<>();
+        orderLines.add(new OrderLine(1L, "Apple", "Phone", new BigDecimal("1000"), 1));
+        Address address = new Address(1L, "2213 Camelback Rd", "Apt 2", "Phoenix", "AZ", "85017");
+
+        return new Order(1L, Status.PROCESSING, "Marie", "Curie", "marie.curie@gmail.com",
+                "2134543245", address, orderLines, new BigDecimal("100"), new BigDecimal("50"),
+                new BigDecimal("1000"), new BigDecimal("1150"));
+    }
+}
@@ -10,9 +10,11 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.goviesco.orders.assembler.OrderModelAssembler;
 import com.goviesco.orders.controller.OrderController;
 import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.Customer;
 import com.goviesco.orders.entity.Order;
 import com.goviesco.orders.entity.OrderLine;
 import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.exception.OrderConflictException;
 import com.goviesco.orders.service.OrderService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -26,6 +28,9 @@ import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -57,6 +62,13 @@ public class OrderControllerTests {
         orderLines1.clear();
     }
 
+    // The controller answers asynchronously unless the request is rejected before it is called, e.g. when invalid.
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mvc.perform(asyncDispatch(result)) : actions;
+    }
+
     @Test
     public void cancelCanceledOrderShouldCreateProblem() throws Exception {
         Address address = new Address(1L, "2213 Camelback Rd", "Apt 2", "Phoenix", "AZ", "85017");
@@ -69,7 +81,7 @@ public class OrderControllerTests {
                 java.util.Optional.of(order)
         );
 
-        mvc.perform(put("/orders/1/cancel")
+        perform(put("/orders/1/cancel")
                         .accept(MediaTypes.HAL_JSON_VALUE))
                 .andDo(print())
                 .andExpect(status().isMethodNotAllowed())
@@ -91,7 +103,7 @@ public class OrderControllerTests {
                 java.util.Optional.of(order)
         );
 
-        mvc.perform(put("/orders/1/cancel")
+        perform(put("/orders/1/cancel")
                         .accept(MediaTypes.HAL_JSON_VALUE))
                 .andDo(print())
                 .andExpect(status().isMethodNotAllowed())
@@ -112,7 +124,7 @@ public class OrderControllerTests {
         given(repository.findById(1L))
                 .willReturn(java.util.Optional.of(order));
 
-        mvc.perform(put("/orders/1/complete")
+        perform(put("/orders/1/complete")
                         .accept(MediaTypes.HAL_JSON_VALUE))
                 .andDo(print())
                 .andExpect(status().isMethodNotAllowed())
@@ -133,7 +145,7 @@ public class OrderControllerTests {
         given(repository.findById(1L))
                 .willReturn(java.util.Optional.of(order));
 
-        mvc.perform(put("/orders/1/complete")
+        perform(put("/orders/1/complete")
                         .accept(MediaTypes.HAL_JSON_VALUE))
                 .andDo(print())
                 .andExpect(status().isMethodNotAllowed())
@@ -161,7 +173,7 @@ public class OrderControllerTests {
         given(repository.save(ArgumentMatchers.any(Order.class)))
                 .willReturn(order1);
 
-        mvc.perform(put("/orders/1/complete")
+        perform(put("/orders/1/complete")
                         .accept(MediaTypes.HAL_JSON_VALUE))
                 .andDo(print())
                 .andExpect(status().isOk())
@@ -207,7 +219,7 @@ public class OrderControllerTests {
         given(repository.save(ArgumentMatchers.any(Order.class)))
                 .willReturn(order1);
 
-        mvc.perform(put("/orders/1/cancel")
+        perform(put("/orders/1/cancel")
                         .accept(MediaTypes.HAL_JSON_VALUE))
                 .andDo(print())
                 .andExpect(status().isOk())
@@ -257,7 +269,7 @@ public class OrderControllerTests {
         given(repository.save(ArgumentMatchers.any(Order.class)))
                 .willReturn(order2);
 
-        mvc.perform(put("/orders/1")
+        perform(put("/orders/1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\n" +
                                 "    \"firstName\": \"Marie\",\n" +
@@ -323,7 +335,7 @@ public class OrderControllerTests {
         given(repository.save(ArgumentMatchers.any(Order.class)))
                 .willReturn(order);
 
-        mvc.perform(post("/orders")
+        perform(post("/orders")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\n" +
                                 "    \"firstName\": \"Marie\",\n" +
@@ -389,7 +401,7 @@ public class OrderControllerTests {
         given(repository.findById(1L))
                 .willReturn(java.util.Optional.of(order));
 
-        mvc.perform(get("/orders/1")
+        perform(get("/orders/1")
                         .accept(MediaTypes.HAL_JSON_VALUE))
                 .andDo(print())
                 .andExpect(status().isOk())
@@ -448,7 +460,7 @@ public class OrderControllerTests {
         given(repository.findAll())
                 .willReturn(Arrays.asList(order, order2, order3));
 
-        mvc.perform(get("/orders").accept(MediaTypes.HAL_JSON_VALUE))
+        perform(get("/orders").accept(MediaTypes.HAL_JSON_VALUE))
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaTypes.HAL_JSON_VALUE))
@@ -520,13 +532,72 @@ public class OrderControllerTests {
                 .andReturn();
     }
 
+    @Test
+    public void readAllWithStatusShouldReadOnlyOrdersWithStatus() throws Exception {
+        Address address = new Address(1L, "2213 Camelback Rd", "Apt 2", "Phoenix", "AZ", "85017");
+        Order order = new Order(1L, Status.PROCESSING,"Marie", "Curie", "marie.curie@gmail.com",
+                "2134543245", address, orderLines1, new BigDecimal("100"), new BigDecimal("50"),
+                new BigDecimal("1000"), new BigDecimal("1150"));
+
+        given(repository.findByStatus(Status.PROCESSING))
+                .willReturn(List.of(order));
+
+        perform(get("/orders?status=PROCESSING").accept(MediaTypes.HAL_JSON_VALUE))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.orderList.length()", is(1)))
+                .andExpect(jsonPath("$._embedded.orderList[0].id", is(1)))
+                .andExpect(jsonPath("$._embedded.orderList[0].status", is("PROCESSING")))
+                .andExpect(jsonPath("$._embedded.orderList[0]._links.orders.href", is("http://localhost/orders")))
+                .andExpect(jsonPath("$._links.self.href", is("http://localhost/orders?status=PROCESSING")));
+
+        verify(repository, never()).findAll();
+    }
+
+    @Test
+    public void readByCustomerShouldReadTheCustomersOrders() throws Exception {
+        Address address = new Address(1L, "2213 Camelback Rd", "Apt 2", "Phoenix", "AZ", "85017");
+        Order order = new Order(1L, Status.COMPLETED,"Marie", "Curie", "marie.curie@gmail.com",
+                "2134543245", address, orderLines1, new BigDecimal("100"), new BigDecimal("50"),
+                new BigDecimal("1000"), new BigDecimal("1150"));
+        order.setCustomer(new Customer(7L, "marie.curie@gmail.com", "Marie", "Curie", "2134543245"));
+
+        given(repository.findByCustomer(7L))
+                .willReturn(java.util.Optional.of(List.of(order)));
+
+        perform(get("/customers/7/orders").accept(MediaTypes.HAL_JSON_VALUE))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.orderList.length()", is(1)))
+                .andExpect(jsonPath("$._embedded.orderList[0].id", is(1)))
+                .andExpect(jsonPath("$._embedded.orderList[0].email", is("marie.curie@gmail.com")))
+                .andExpect(jsonPath("$._embedded.orderList[0].customer").doesNotExist())
+                .andExpect(jsonPath("$._embedded.orderList[0]._links.customerOrders.href",
+                        is("http://localhost/customers/7/orders")))
+                .andExpect(jsonPath("$._links.self.href", is("http://localhost/customers/7/orders")));
+    }
+
+    @Test
+    public void readByNonExistingCustomerShouldThrowCustomerNotFoundException() throws Exception {
+
+        given(repository.findByCustomer(7L))
+                .willReturn(java.util.Optional.empty());
+
+        perform(get("/customers/7/orders").accept(MediaTypes.HAL_JSON_VALUE))
+                .andDo(print())
+                .andExpect(status().isNotFound())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE))
+                .andExpect(jsonPath("$.title", is("Not Found")))
+                .andExpect(jsonPath("$.detail", is("Customer 7 not found")));
+    }
+
     @Test
     public void readNonExistingOrderShouldThrowOrderNotFoundException() throws Exception {
 
         given(repository.findById(1L))
                 .willReturn(java.util.Optional.empty());
 
-        mvc.perform(get("/orders/1")
+        perform(get("/orders/1")
                         .accept(MediaTypes.HAL_JSON_VALUE))
                 .andDo(print())
                 .andExpect(status().isNotFound())
@@ -542,7 +613,7 @@ public class OrderControllerTests {
         given(repository.findById(1L))
                 .willReturn(java.util.Optional.empty());
 
-        mvc.perform(delete("/orders/1").accept(MediaTypes.HAL_JSON_VALUE))
+        perform(delete("/orders/1").accept(MediaTypes.HAL_JSON_VALUE))
                 .andDo(print())
                 .andExpect(status().isNotFound())
                 .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE))
@@ -557,7 +628,7 @@ public class OrderControllerTests {
         given(repository.findById(1L))
                 .willReturn(java.util.Optional.empty());
 
-        mvc.perform(put("/orders/1/cancel").accept(MediaTypes.HAL_JSON_VALUE))
+        perform(put("/orders/1/cancel").accept(MediaTypes.HAL_JSON_VALUE))
                 .andDo(print())
                 .andExpect(status().isNotFound())
                 .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE))
@@ -572,7 +643,7 @@ public class OrderControllerTests {
         given(repository.findById(1L))
                 .willReturn(java.util.Optional.empty());
 
-        mvc.perform(put("/orders/1/complete").accept(MediaTypes.HAL_JSON_VALUE))
+        perform(put("/orders/1/complete").accept(MediaTypes.HAL_JSON_VALUE))
                 .andDo(print())
                 .andExpect(status().isNotFound())
                 .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE))
@@ -584,7 +655,7 @@ public class OrderControllerTests {
     @Test
     public void postMissingRequiredFieldsShouldReturnValidationRequiredMessages() throws Exception {
 
-        mvc.perform(post("/orders")
+        perform(post("/orders")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\n" +
                                 "    \"orderLines\": [\n" +
@@ -617,7 +688,7 @@ public class OrderControllerTests {
     @Test
     public void putMissingRequiredFieldsShouldReturnValidationRequiredMessages() throws Exception {
 
-        mvc.perform(put("/orders/1")
+        perform(put("/orders/1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\n" +
                                 "    \"orderLines\": [\n" +
@@ -650,7 +721,7 @@ public class OrderControllerTests {
     @Test
     public void postEmptyJsonShouldReturnValidationRequiredMessages() throws Exception {
 
-        mvc.perform(post("/orders")
+        perform(post("/orders")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{}")
                         .accept(MediaTypes.HAL_JSON_VALUE))
@@ -669,7 +740,7 @@ public class OrderControllerTests {
     @Test
     public void putEmptyJsonShouldReturnValidationRequiredMessages() throws Exception {
 
-        mvc.perform(put("/orders/1")
+        perform(put("/orders/1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{}")
                         .accept(MediaTypes.HAL_JSON_VALUE))
@@ -688,7 +759,7 @@ public class OrderControllerTests {
     @Test
     public void postInvalidInputReturnValidationMessages() throws Exception {
 
-        mvc.perform(post("/orders")
+        perform(post("/orders")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\n" +
                                 "    \"firstName\": \"This is more than twenty five characters, even more than 50!\",\n" +
@@ -738,7 +809,7 @@ public class OrderControllerTests {
     @Test
     public void putInvalidInputReturnValidationMessages() throws Exception {
 
-        mvc.perform(put("/orders/1")
+        perform(put("/orders/1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\n" +
                                 "    \"firstName\": \"This is more than twenty five characters, even more than 50!\",\n" +
@@ -791,7 +862,7 @@ public class OrderControllerTests {
         given(repository.findById(1L))
                 .willReturn(java.util.Optional.empty());
 
-        mvc.perform(put("/orders/1")
+        perform(put("/orders/1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\n" +
                                 "    \"firstName\": \"Marie\",\n" +
@@ -825,4 +896,123 @@ public class OrderControllerTests {
                 .andExpect(jsonPath("$.detail", is("Order 1 not found")))
                 .andReturn();
     }
+
+    @Test
+    public void updateCompletedOrderToCanceledShouldCreateProblem() throws Exception {
+        Address address = new Address(1L, "2213 Camelback Rd", "Apt 2", "Phoenix", "AZ", "85017");
+
+        Order order = new Order(1L, Status.COMPLETED, "Marie", "Curie", "marie.curie@gmail.com",
+                "2134543245", address, orderLines1, new BigDecimal("100"), new BigDecimal("50"),
+                new BigDecimal("1000"), new BigDecimal("1150"));
+
+        given(repository.findById(1L))
+                .willReturn(java.util.Optional.of(order));
+
+        perform(put("/orders/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\n" +
+                                "    \"status\": \"CANCELED\",\n" +
+                                "    \"firstName\": \"Marie\",\n" +
+                                "    \"lastName\": \"Curie\",\n" +
+                                "    \"email\": \"marie.curie@gmail.com\",\n" +
+                                "    \"address\": {\n" +
+                                "        \"address1\": \"2213 Camelback Rd\",\n" +
+                                "        \"address2\": \"Apt 2\",\n" +
+                                "        \"city\": \"Phoenix\",\n" +
+                                "        \"state\": \"AZ\",\n" +
+                                "        \"zip\": \"85017\"\n" +
+                                "    },\n" +
+                                "    \"orderLines\": [\n" +
+                                "        {\n" +
+                                "            \"brand\": \"LG\",\n" +
+                                "            \"model\": \"Phone\",\n" +
+                                "            \"cost\": 1200,\n" +
+                                "            \"quantity\": 1\n" +
+                                "        }\n" +
+                                "    ],\n" +
+                                "    \"tax\": 100,\n" +
+                                "    \"shipping\": 200\n" +
+                                "}")
+                        .accept(MediaTypes.HAL_JSON_VALUE))
+                .andDo(print())
+                .andExpect(status().isMethodNotAllowed())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE))
+                .andExpect(jsonPath("$.detail", is("Not allowed to change the status of an order from COMPLETED to CANCELED")))
+                .andReturn();
+        verify(repository, never()).save(ArgumentMatchers.any(Order.class));
+    }
+
+    @Test
+    public void updateOfConcurrentlyChangedOrderShouldCreateConflict() throws Exception {
+        Address address = new Address(1L, "2213 Camelback Rd", "Apt 2", "Phoenix", "AZ", "85017");
+
+        Order order = new Order(1L, Status.PROCESSING, "Marie", "Curie", "marie.curie@gmail.com",
+                "2134543245", address, orderLines1, new BigDecimal("100"), new BigDecimal("50"),
+                new BigDecimal("1000"), new BigDecimal("1150"));
+
+        given(repository.findById(1L))
+                .willReturn(java.util.Optional.of(order));
+        given(repository.save(ArgumentMatchers.any(Order.class)))
+                .willThrow(new OrderConflictException(1L));
+
+        perform(put("/orders/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\n" +
+                                "    \"status\": \"PROCESSING\",\n" +
+                                "    \"firstName\": \"Marie\",\n" +
+                                "    \"lastName\": \"Curie\",\n" +
+                                "    \"email\": \"marie.curie@gmail.com\",\n" +
+                                "    \"address\": {\n" +
+                                "        \"address1\": \"2213 Camelback Rd\",\n" +
+                                "        \"address2\": \"Apt 2\",\n" +
+                                "        \"city\": \"Phoenix\",\n" +
+                                "        \"state\": \"AZ\",\n" +
+                                "        \"zip\": \"85017\"\n" +
+                                "    },\n" +
+                                "    \"orderLines\": [\n" +
+                                "        {\n" +
+                                "            \"brand\": \"LG\",\n" +
+                                "            \"model\": \"Phone\",\n" +
+                                "            \"cost\": 1200,\n" +
+                                "            \"quantity\": 1\n" +
+                                "        }\n" +
+                                "    ],\n" +
+                                "    \"tax\": 100,\n" +
+                                "    \"shipping\": 200\n" +
+                                "}")
+                        .accept(MediaTypes.HAL_JSON_VALUE))
+                .andDo(print())
+                .andExpect(status().isConflict())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaTypes.HTTP_PROBLEM_DETAILS_JSON_VALUE))
+                .andReturn();
+    }
+
+    @Test
+    public void lookupShouldKeepTheOrderOfTheIdsAndListMissingOnes() throws Exception {
+        Address address = new Address(1L, "2213 Camelback Rd", "Apt 2", "Phoenix", "AZ", "85017");
+
+        Order order1 = new Order(1L, Status.PROCESSING, "Marie", "Curie", "marie.curie@gmail.com",
+                "2134543245", address, orderLines1, new BigDecimal("100"), new BigDecimal("50"),
+                new BigDecimal("1000"), new BigDecimal("1150"));
+        Order order2 = new Order(2L, Status.COMPLETED, "Pierre", "Curie", "pierre.curie@gmail.com",
+                "2134543246", address, orderLines1, new BigDecimal("100"), new BigDecimal("50"),
+                new BigDecimal("1000"), new BigDecimal("1150"));
+
+        given(repository.findAllById(ArgumentMatchers.any()))
+                .willReturn(Arrays.asList(order1, order2));
+
+        perform(post("/orders/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[2, 3, 1, 2]")
+                        .accept(MediaTypes.HAL_JSON_VALUE))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders.length()", is(2)))
+                .andExpect(jsonPath("$.orders[0].id", is(2)))
+                .andExpect(jsonPath("$.orders[1].id", is(1)))
+                .andExpect(jsonPath("$.orders[1]._links.self.href", is("http://localhost/orders/1")))
+                .andExpect(jsonPath("$.missing.length()", is(1)))
+                .andExpect(jsonPath("$.missing[0]", is(3)))
+                .andReturn();
+    }
 }
@@ -0,0 +1,69 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.service.OrderExpiryScheduler;
+import com.goviesco.orders.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.goviesco.orders.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+// The chunk is small, so expiring the orders takes several.
+@SpringBootTest(properties = {"orders.expiry.chunk-size=2", "orders.expiry.pause-ms=0"})
+@DirtiesContext // Expiry cancels the PROCESSING orders that LoadDatabase inserts.
+public class OrderExpirySchedulerTests {
+
+    @Autowired
+    private OrderExpiryScheduler scheduler;
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    public void releaseLock() {
+        jdbc.update("delete from scheduler_locks");
+    }
+
+    @Test
+    public void staleProcessingOrdersShouldBeCanceled() {
+        List<Long> stale = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            stale.add(service.save(order().date(LocalDate.now().minusDays(31 + i)).build()).getId());
+        }
+        Long recent = service.save(order().date(LocalDate.now().minusDays(29)).build()).getId();
+
+        assertTrue(scheduler.expire() >= stale.size());
+
+        stale.forEach(id -> assertEquals(Status.CANCELED, service.findById(id).orElseThrow().getStatus()));
+        assertEquals(Status.PROCESSING, service.findById(recent).orElseThrow().getStatus());
+    }
+
+    @Test
+    public void onlyTheInstanceHoldingTheLeaseShouldRun() {
+        Long stale = service.save(order().date(LocalDate.now().minusDays(60)).build()).getId();
+        jdbc.update("insert into scheduler_locks (name, owner, locked_until) values (?, ?, ?)", "order-expiry",
+                "another instance", Timestamp.valueOf(LocalDateTime.now().plusMinutes(5)));
+
+        assertEquals(0, scheduler.expire());
+        assertEquals(Status.PROCESSING, service.findById(stale).orElseThrow().getStatus());
+
+        // Once the other instance's lease expires, this instance takes over.
+        jdbc.update("update scheduler_locks set locked_until = ?", Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)));
+        assertTrue(scheduler.expire() >= 1);
+        assertEquals(Status.CANCELED, service.findById(stale).orElseThrow().getStatus());
+    }
+}
@@ -0,0 +1,168 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.ImportJob;
+import com.goviesco.orders.entity.ImportRowError;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.ImportFormat;
+import com.goviesco.orders.enumeration.JobState;
+import com.goviesco.orders.importing.OrderImportService;
+import com.goviesco.orders.repository.ImportJobRepository;
+import com.goviesco.orders.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Chunks are small, so every file here is read, parsed and written in several of them.
+@SpringBootTest(properties = {"orders.imports.chunk-bytes=512", "orders.imports.chunks-in-flight=2"})
+public class OrderImportTests {
+
+    private static final String HEADER = "firstName,lastName,email,phone,address1,address2,city,state,zip,tax,shipping," +
+            "brand1,model1,cost1,quantity1,brand2,model2,cost2,quantity2\n";
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void importDirectory(DynamicPropertyRegistry registry) {
+        registry.add("orders.imports.directory", () -> directory.resolve("imports").toString());
+    }
+
+    @Autowired
+    private OrderImportService imports;
+
+    @Autowired
+    private ImportJobRepository jobs;
+
+    @Autowired
+    private OrderService service;
+
+    @Test
+    public void csvRowsShouldBeImportedAndInvalidRowsReported() throws Exception {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 40; i++) {
+            csv.append(row("Csv", "luke" + i + "@gmail.com", "1000.50", "2"));
+        }
+        csv.append(row("Csv", "not an email", "1000", "1"));
+        csv.append("\r\n");
+        csv.append(row("Csv", "leia@gmail.com", "a lot", "1"));
+        csv.append("\"Han, \"\"Solo\"\"\",Csv,han@gmail.com,,1 Falcon Way,,Corellia,CA,90045,0,0,Apple,Phone,10,1,,,,");
+
+        ImportJob job = await(imports.submit(ImportFormat.CSV,
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals(JobState.COMPLETED, job.getState());
+        assertEquals(41, job.getImported());
+        assertEquals(2, job.getFailed());
+        List<ImportRowError> errors = errors(job);
+        assertEquals(42, errors.get(0).getLine());
+        assertTrue(errors.get(0).getMessage().contains("email"));
+        assertEquals(44, errors.get(1).getLine());
+        assertEquals("cost1 is not a number: a lot", errors.get(1).getMessage());
+
+        List<Order> imported = withLastName("Csv");
+        assertEquals(41, imported.size());
+        Order han = imported.stream().filter(order -> order.getEmail().equals("han@gmail.com")).findFirst().orElseThrow();
+        assertEquals("Han, \"Solo\"", han.getFirstName());
+        assertEquals(1, han.getOrderLines().size());
+        assertEquals(0, new BigDecimal("10").compareTo(han.getTotal()));
+        Order luke = imported.stream().filter(order -> order.getEmail().equals("luke0@gmail.com")).findFirst().orElseThrow();
+        assertEquals(0, new BigDecimal("2001").compareTo(luke.getSubtotal()));
+    }
+
+    @Test
+    public void ndjsonRowsShouldBeImportedAndMalformedRowsReported() throws Exception {
+        String ndjson = "{\"firstName\":\"Albert\",\"lastName\":\"Ndjson\",\"email\":\"albert@gmail.com\"," +
+                "\"address\":{\"address1\":\"1 Main St\",\"city\":\"Princeton\",\"state\":\"NJ\",\"zip\":\"08540\"}," +
+                "\"orderLines\":[{\"brand\":\"Apple\",\"model\":\"Phone\",\"cost\":1000,\"quantity\":1}]," +
+                "\"tax\":100,\"shipping\":50}\n" +
+                "{\"firstName\":\"Broken\"\n";
+
+        ImportJob job = await(imports.submit(ImportFormat.NDJSON,
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals(JobState.COMPLETED, job.getState());
+        assertEquals(1, job.getImported());
+        assertEquals(1, job.getFailed());
+        assertEquals(2, errors(job).get(0).getLine());
+        List<Order> imported = withLastName("Ndjson");
+        assertEquals(1, imported.size());
+        assertEquals(0, new BigDecimal("1150").compareTo(imported.get(0).getTotal()));
+    }
+
+    @Test
+    public void resumedJobShouldStartAfterTheLastChunkWritten() throws Exception {
+        String written = HEADER + row("Written", "obi@gmail.com", "10", "1");
+        String csv = written + row("Resumed", "yoda@gmail.com", "10", "1");
+        Path file = directory.resolve("interrupted.csv");
+        Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+
+        // As a job that failed after writing its first chunk, the header and one row.
+        ImportJob job = new ImportJob();
+        job.setFormat(ImportFormat.CSV);
+        job.setFile(file.toString());
+        job.setSize(Files.size(file));
+        job.setState(JobState.FAILED);
+        job.setPosition(written.getBytes(StandardCharsets.UTF_8).length);
+        job.setLine(2);
+        job.setImported(1);
+        job.setCreatedAt(LocalDateTime.now());
+        job.setUpdatedAt(LocalDateTime.now());
+        job = jobs.save(job);
+
+        assertTrue(imports.resume(job.getId()));
+        job = await(job);
+
+        assertEquals(JobState.COMPLETED, job.getState());
+        assertEquals(2, job.getImported());
+        assertEquals(3, job.getLine());
+        assertTrue(withLastName("Written").isEmpty());
+        assertEquals(1, withLastName("Resumed").size());
+    }
+
+    private ImportJob await(ImportJob job) throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            ImportJob current = imports.findById(job.getId()).orElseThrow();
+            if (current.getState() != JobState.PENDING && current.getState() != JobState.RUNNING) {
+                return current;
+            }
+            Thread.sleep(100);
+        }
+        fail("Import job " + job.getId() + " did not finish");
+        return null;
+    }
+
+    private List<ImportRowError> errors(ImportJob job) {
+        List<ImportRowError> errors = new ArrayList<>();
+        imports.forEachError(job.getId(), errors::add);
+        return errors;
+    }
+
+    private List<Order> withLastName(String lastName) {
+        List<Order> orders = new ArrayList<>();
+        service.findAll().forEach(order -> {
+            if (lastName.equals(order.getLastName())) {
+                orders.add(order);
+            }
+        });
+        return orders;
+    }
+
+    private static String row(String lastName, String email, String cost, String quantity) {
+        return "Luke," + lastName + "," + email + ",2134541324,123 Main St.,Apt. 123,Los Angeles,CA,90045,1,1," +
+                "Apple,Phone," + cost + "," + quantity + ",,,,\n";
+    }
+}
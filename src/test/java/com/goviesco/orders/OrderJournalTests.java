@@ -0,0 +1,129 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.enumeration.JournalRecordType;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.journal.JournalRecord;
+import com.goviesco.orders.journal.JournalReplayer;
+import com.goviesco.orders.journal.OrderJournal;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.repository.OrderTableWriter;
+import com.goviesco.orders.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.goviesco.orders.TestOrders.newOrder;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Journals to a temporary directory, in segments small enough that the tests roll over to new ones.
+@SpringBootTest(properties = {"orders.journal.enabled=true", "orders.journal.segment-bytes=4096"})
+public class OrderJournalTests {
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) {
+        registry.add("orders.journal.directory", () -> directory.resolve("journal").toString());
+    }
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private OrderJournal journal;
+
+    @Autowired
+    private JournalReplayer replayer;
+
+    @Autowired
+    private OrderTableWriter writer;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void everyMutationShouldBeJournaled() {
+        Order order = service.save(newOrder());
+        Long id = order.getId();
+        order.setStatus(Status.CANCELED);
+        service.save(order);
+        service.delete(order);
+
+        List<JournalRecordType> types = new ArrayList<>();
+        journal.forEach(record -> {
+            if (id.equals(record.getOrderId())) {
+                types.add(record.getType());
+            }
+        });
+
+        assertEquals(List.of(JournalRecordType.SAVED, JournalRecordType.SAVED, JournalRecordType.DELETED), types);
+        Map<Long, Order> state = replayer.replay();
+        assertTrue(state.containsKey(id));
+        assertNull(state.get(id));
+    }
+
+    @Test
+    public void rebuildDatabaseShouldRestoreLostOrders() {
+        Order order = service.save(newOrder());
+        order.setStatus(Status.COMPLETED);
+        service.save(order);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> writer.replace(order.getId(), null));
+        assertFalse(repository.existsById(order.getId()));
+
+        replayer.rebuildDatabase();
+
+        Order restored = service.findById(order.getId()).orElseThrow();
+        assertEquals(Status.COMPLETED, restored.getStatus());
+        assertEquals("marie.curie@example.com", restored.getEmail());
+        assertEquals(1, restored.getOrderLines().size());
+        assertEquals(0, new BigDecimal("1150").compareTo(restored.getTotal()));
+        assertTrue(service.save(newOrder()).getId() > order.getId());
+    }
+
+    @Test
+    public void tornRecordShouldBeClearedOnOpen() throws Exception {
+        Path tornDirectory = directory.resolve("torn");
+        OrderJournal first = new OrderJournal(tornDirectory.toString(), 4096);
+        first.append(JournalRecord.deleted(1L));
+        first.append(JournalRecord.deleted(2L));
+        first.close();
+        // Damages the last byte of the second record, as a crash in the middle of writing it would.
+        try (Stream<Path> files = Files.list(tornDirectory);
+             RandomAccessFile file = new RandomAccessFile(files.findFirst().orElseThrow().toFile(), "rw")) {
+            byte[] bytes = new byte[4096];
+            file.readFully(bytes);
+            int end = bytes.length - 1;
+            while (bytes[end] == 0) {
+                end--;
+            }
+            file.seek(end);
+            file.write(bytes[end] ^ 0x55);
+        }
+
+        OrderJournal reopened = new OrderJournal(tornDirectory.toString(), 4096);
+        reopened.append(JournalRecord.deleted(3L));
+
+        List<Long> ids = new ArrayList<>();
+        reopened.forEach(record -> ids.add(record.getOrderId()));
+        assertEquals(List.of(1L, 3L), ids);
+    }
+}
@@ -0,0 +1,296 @@
+package com.goviesco.orders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Updates, cancels, completes, deletes and reads a few orders from many threads at once, against the embedded app, and
+ * checks that every order ends in a state some serial order of the successful requests explains:
+ * <ul>
+ * <li>no request fails with a server error;</li>
+ * <li>an order is canceled or completed, never both, and keeps that status;</li>
+ * <li>an order has the lines of a successful update that no later successful update followed, so no update is lost;</li>
+ * <li>a deleted order stays deleted, and nothing succeeds on it after the delete.</li>
+ * </ul>
+ * Each update sets the quantity of the line to a number no other update uses, so the final lines tell which update
+ * they came from. Throughput is logged per operation. It only runs when asked for; orders.stresstest.threads,
+ * orders.stresstest.orders and orders.stresstest.seconds make it longer or harsher, e.g.
+ *
+ *   mvn test -Dtest=OrderLifecycleStressTests -Dorders.stresstest=true -Dorders.stresstest.threads=32 -Dorders.stresstest.seconds=120
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "orders.stresstest", matches = "true")
+public class OrderLifecycleStressTests {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderLifecycleStressTests.class);
+
+    private enum Operation { UPDATE, CANCEL, COMPLETE, DELETE, READ }
+
+    // Percentage of the requests per operation, in the order of Operation.
+    private static final int[] MIX = {40, 20, 20, 5, 15};
+
+    private static final String LAST_NAME = "Stress";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Value("${orders.stresstest.threads:8}")
+    private int threads;
+
+    @Value("${orders.stresstest.orders:16}")
+    private int orderCount;
+
+    @Value("${orders.stresstest.seconds:5}")
+    private int seconds;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // Quantities set by updates; created orders have quantity 1.
+    private final AtomicInteger quantities = new AtomicInteger(1000);
+
+    @Test
+    public void concurrentLifecycleRequestsShouldKeepEveryOrderConsistent() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < orderCount; i++) {
+            ids.add(create(i));
+        }
+
+        long started = System.nanoTime();
+        List<Outcome> outcomes = run(ids);
+        double elapsed = (System.nanoTime() - started) / 1_000_000_000.0;
+        report(outcomes, elapsed);
+
+        List<Outcome> errors = outcomes.stream()
+                .filter(outcome -> outcome.code >= 500 || outcome.code < 0)
+                .collect(Collectors.toList());
+        assertTrue(errors.isEmpty(), () -> errors.size() + " requests failed, e.g. " + errors.get(0));
+
+        Map<Long, List<Outcome>> byOrder = outcomes.stream().collect(Collectors.groupingBy(outcome -> outcome.id));
+        long remaining = 0;
+        for (Long id : ids) {
+            remaining += check(id, byOrder.getOrDefault(id, List.of()));
+        }
+
+        // A deleted order is never saved again under a new id.
+        Long stored = jdbc.queryForObject("select count(*) from orders where last_name = ?", Long.class,
+                LAST_NAME);
+        assertEquals(remaining, stored);
+    }
+
+    // Checks the invariants of one order. Returns 1 if the order still exists, else 0.
+    private int check(Long id, List<Outcome> outcomes) throws Exception {
+        List<Outcome> succeeded = outcomes.stream().filter(Outcome::succeeded).collect(Collectors.toList());
+        HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/orders/" + id)).GET().build());
+
+        Outcome delete = first(succeeded, Operation.DELETE);
+        if (delete != null) {
+            assertEquals(404, response.statusCode(), "Order " + id + " was deleted but can still be read");
+            for (Outcome outcome : succeeded) {
+                assertTrue(outcome == delete || outcome.started < delete.ended,
+                        () -> outcome + " succeeded after order " + id + " was deleted");
+            }
+            return 0;
+        }
+        assertEquals(200, response.statusCode(), "Order " + id + " was not deleted but cannot be read");
+        JsonNode order = mapper.readTree(response.body());
+
+        Outcome cancel = first(succeeded, Operation.CANCEL);
+        Outcome complete = first(succeeded, Operation.COMPLETE);
+        assertFalse(cancel != null && complete != null, "Order " + id + " was both canceled and completed");
+        String status = cancel != null ? "CANCELED" : complete != null ? "COMPLETED" : "PROCESSING";
+        assertEquals(status, order.get("status").asText(), "Status of order " + id);
+        assertTrue(succeeded.stream().filter(outcome -> outcome.operation == Operation.CANCEL
+                || outcome.operation == Operation.COMPLETE).count() <= 1, "Order " + id + " changed status twice");
+
+        // The lines are those of an update that no successful update started after.
+        List<Outcome> updates = succeeded.stream()
+                .filter(outcome -> outcome.operation == Operation.UPDATE)
+                .collect(Collectors.toList());
+        Set<Integer> latest = updates.stream()
+                .filter(update -> updates.stream().noneMatch(other -> other.started > update.ended))
+                .map(update -> update.quantity)
+                .collect(Collectors.toSet());
+        if (latest.isEmpty()) {
+            latest = Set.of(1);
+        }
+        int quantity = order.get("orderLines").get(0).get("quantity").asInt();
+        assertTrue(latest.contains(quantity), "Order " + id + " has quantity " + quantity + ", not one of " + latest);
+        return 1;
+    }
+
+    // Runs the operations on all threads until the time is up, and merges what each thread recorded.
+    private List<Outcome> run(List<Long> ids) throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Outcome>>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> worker(ids, deadline)));
+        }
+
+        List<Outcome> outcomes = new ArrayList<>();
+        for (Future<List<Outcome>> future : futures) {
+            outcomes.addAll(future.get());
+        }
+        executor.shutdown();
+        return outcomes;
+    }
+
+    private List<Outcome> worker(List<Long> ids, long deadline) {
+        List<Outcome> outcomes = new ArrayList<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (System.nanoTime() < deadline) {
+            int index = random.nextInt(ids.size());
+            Outcome outcome = new Outcome(pick(random.nextInt(100)), ids.get(index));
+            HttpRequest request = request(outcome, index);
+            outcome.started = System.nanoTime();
+            try {
+                outcome.code = send(request).statusCode();
+            } catch (Exception e) {
+                outcome.code = -1;
+            }
+            outcome.ended = System.nanoTime();
+            outcomes.add(outcome);
+        }
+        return outcomes;
+    }
+
+    private HttpRequest request(Outcome outcome, int index) {
+        String path = "/orders/" + outcome.id;
+        switch (outcome.operation) {
+            case UPDATE:
+                outcome.quantity = quantities.incrementAndGet();
+                return json(uri(path)).PUT(HttpRequest.BodyPublishers.ofString(orderJson(index, outcome.quantity)))
+                        .build();
+            case CANCEL:
+                return HttpRequest.newBuilder(uri(path + "/cancel")).PUT(HttpRequest.BodyPublishers.noBody()).build();
+            case COMPLETE:
+                return HttpRequest.newBuilder(uri(path + "/complete")).PUT(HttpRequest.BodyPublishers.noBody()).build();
+            case DELETE:
+                return HttpRequest.newBuilder(uri(path)).DELETE().build();
+            default:
+                return HttpRequest.newBuilder(uri(path)).GET().build();
+        }
+    }
+
+    private Long create(int index) throws Exception {
+        HttpResponse<String> response = send(json(uri("/orders"))
+                .POST(HttpRequest.BodyPublishers.ofString(orderJson(index, 1))).build());
+        assertEquals(201, response.statusCode(), response.body());
+        String location = response.headers().firstValue("Location").orElseThrow();
+        return Long.valueOf(location.substring(location.lastIndexOf('/') + 1));
+    }
+
+    // Each order has a customer and an address of its own, so orders only contend with themselves. Updates send no
+    // status, so they keep the status of the order.
+    private static String orderJson(int index, int quantity) {
+        return "{\"firstName\": \"Order" + index + "\", \"lastName\": \"" + LAST_NAME + "\", " +
+                "\"email\": \"stress" + index + "@example.com\", \"phone\": \"2134541324\", " +
+                "\"address\": {\"address1\": \"" + index + " Contention Ave\", \"address2\": \"\", " +
+                "\"city\": \"Phoenix\", \"state\": \"AZ\", \"zip\": \"85017\"}, " +
+                "\"orderLines\": [{\"brand\": \"Apple\", \"model\": \"Phone\", \"cost\": 1000, " +
+                "\"quantity\": " + quantity + "}], \"tax\": 100, \"shipping\": 50}";
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder json(URI uri) {
+        return HttpRequest.newBuilder(uri).header("Content-Type", "application/json");
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static void report(List<Outcome> outcomes, double elapsed) {
+        Map<Operation, List<Outcome>> byOperation = new EnumMap<>(Operation.class);
+        outcomes.forEach(outcome -> byOperation.computeIfAbsent(outcome.operation, o -> new ArrayList<>()).add(outcome));
+
+        StringBuilder table = new StringBuilder(String.format("%n%-10s %9s %9s %9s %9s %9s%n", "operation",
+                "requests", "req/s", "success", "conflict", "not found"));
+        byOperation.forEach((operation, list) -> table.append(String.format("%-10s %9d %9.1f %9d %9d %9d%n",
+                operation, list.size(), list.size() / elapsed,
+                list.stream().filter(Outcome::succeeded).count(),
+                list.stream().filter(outcome -> outcome.code == 409 || outcome.code == 405).count(),
+                list.stream().filter(outcome -> outcome.code == 404).count())));
+        table.append(String.format("%-10s %9d %9.1f", "total", outcomes.size(), outcomes.size() / elapsed));
+        log.info(table.toString());
+    }
+
+    private static Outcome first(List<Outcome> outcomes, Operation operation) {
+        return outcomes.stream().filter(outcome -> outcome.operation == operation).findFirst().orElse(null);
+    }
+
+    private static Operation pick(int percent) {
+        for (int i = 0; i < MIX.length; i++) {
+            percent -= MIX[i];
+            if (percent < 0) {
+                return Operation.values()[i];
+            }
+        }
+        return Operation.READ;
+    }
+
+    // One request: what it did, when it was sent and answered (System.nanoTime()), and its HTTP status, or -1.
+    private static class Outcome {
+
+        private final Operation operation;
+        private final Long id;
+        private int quantity;
+        private long started;
+        private long ended;
+        private int code;
+
+        private Outcome(Operation operation, Long id) {
+            this.operation = operation;
+            this.id = id;
+        }
+
+        // Reads are left out: they change nothing.
+        private boolean succeeded() {
+            return operation != Operation.READ && code >= 200 && code < 300;
+        }
+
+        @Override
+        public String toString() {
+            return operation + " of order " + id + " answered " + code;
+        }
+    }
+}
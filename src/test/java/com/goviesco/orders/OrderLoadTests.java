@@ -0,0 +1,211 @@
+package com.goviesco.orders;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mixed read, write and status transition workload against the embedded app, seeded by the OrderDataGenerator.
+ * Reports throughput and latency percentiles per operation. It only runs when asked for, e.g.
+ *
+ *   mvn test -Dtest=OrderLoadTests -Dorders.loadtest=true -Dorders.generator.count=1000000 -Dorders.loadtest.seconds=600
+ *
+ * A long orders.loadtest.seconds turns it into a soak test.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"orders.generator.enabled=true", "spring.jpa.show-sql=false"})
+@EnabledIfSystemProperty(named = "orders.loadtest", matches = "true")
+public class OrderLoadTests {
+
+    private enum Operation { READ, CREATE, UPDATE, TRANSITION, SEARCH }
+
+    // Percentage of the requests per operation, in the order of Operation.
+    private static final int[] MIX = {60, 15, 10, 10, 5};
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${orders.generator.count}")
+    private long orders;
+
+    @Value("${orders.loadtest.threads:16}")
+    private int threads;
+
+    @Value("${orders.loadtest.seconds:60}")
+    private int seconds;
+
+    @Value("${orders.loadtest.warmup-seconds:10}")
+    private int warmupSeconds;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @Test
+    public void mixedWorkload() throws Exception {
+        run(warmupSeconds);
+        Map<Operation, Samples> samples = run(seconds);
+
+        long requests = 0;
+        long errors = 0;
+        System.out.println(String.format("%n%-10s %9s %7s %9s %8s %8s %8s %8s %8s", "operation", "requests", "errors",
+                "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Operation operation : Operation.values()) {
+            Samples result = samples.get(operation);
+            long[] latencies = result.sorted();
+            requests += latencies.length;
+            errors += result.errors;
+            System.out.println(String.format("%-10s %9d %7d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f", operation,
+                    latencies.length, result.errors, latencies.length / (double) seconds,
+                    millis(latencies, 0.50), millis(latencies, 0.90), millis(latencies, 0.99),
+                    millis(latencies, 0.999), millis(latencies, 1.0)));
+        }
+        System.out.println(String.format("%-10s %9d %7d %9.1f%n", "total", requests, errors, requests / (double) seconds));
+
+        assertTrue(errors <= requests / 100, "More than 1% of the requests failed");
+    }
+
+    // Runs the workload on all threads for the given time and merges what each thread recorded.
+    private Map<Operation, Samples> run(int runSeconds) throws Exception {
+        long deadline = System.nanoTime() + runSeconds * 1_000_000_000L;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Map<Operation, Samples>>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> worker(deadline)));
+        }
+
+        Map<Operation, Samples> merged = samples();
+        for (Future<Map<Operation, Samples>> future : futures) {
+            future.get().forEach((operation, result) -> merged.get(operation).addAll(result));
+        }
+        executor.shutdown();
+        return merged;
+    }
+
+    private Map<Operation, Samples> worker(long deadline) {
+        Map<Operation, Samples> samples = samples();
+        List<Long> created = new ArrayList<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (System.nanoTime() < deadline) {
+            Operation operation = pick(random.nextInt(100));
+            HttpRequest request = request(operation, random, created);
+            long started = System.nanoTime();
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                samples.get(operation).add(System.nanoTime() - started, response.statusCode() >= 500);
+                if (operation == Operation.CREATE && response.statusCode() == 201) {
+                    response.headers().firstValue("Location")
+                            .ifPresent(location -> created.add(Long.valueOf(location.substring(location.lastIndexOf('/') + 1))));
+                }
+            } catch (Exception e) {
+                samples.get(operation).add(System.nanoTime() - started, true);
+            }
+        }
+        return samples;
+    }
+
+    private HttpRequest request(Operation operation, ThreadLocalRandom random, List<Long> created) {
+        long id = 1 + random.nextLong(orders);
+        switch (operation) {
+            case CREATE:
+                return json(uri("/orders")).POST(HttpRequest.BodyPublishers.ofString(TestOrders.ORDER_JSON)).build();
+            case UPDATE:
+                // Updates go to orders created by this thread, so they do not reopen generated orders.
+                long updated = created.isEmpty() ? id : created.get(random.nextInt(created.size()));
+                return json(uri("/orders/" + updated)).PUT(HttpRequest.BodyPublishers.ofString(TestOrders.ORDER_JSON)).build();
+            case TRANSITION:
+                String transition = random.nextBoolean() ? "/cancel" : "/complete";
+                return HttpRequest.newBuilder(uri("/orders/" + id + transition))
+                        .PUT(HttpRequest.BodyPublishers.noBody()).build();
+            case SEARCH:
+                return HttpRequest.newBuilder(uri("/orders/search?q=curie&limit=20")).GET().build();
+            default:
+                return HttpRequest.newBuilder(uri("/orders/" + id)).GET().build();
+        }
+    }
+
+    private HttpRequest.Builder json(URI uri) {
+        return HttpRequest.newBuilder(uri).header("Content-Type", "application/json");
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static Operation pick(int percent) {
+        for (int i = 0; i < MIX.length; i++) {
+            percent -= MIX[i];
+            if (percent < 0) {
+                return Operation.values()[i];
+            }
+        }
+        return Operation.READ;
+    }
+
+    private static Map<Operation, Samples> samples() {
+        Map<Operation, Samples> samples = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            samples.put(operation, new Samples());
+        }
+        return samples;
+    }
+
+    private static double millis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    // Latencies in nanoseconds, kept in a growing primitive array so recording does not box.
+    private static class Samples {
+
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+
+        private void add(long latency, boolean error) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latency;
+            if (error) {
+                errors++;
+            }
+        }
+
+        private void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.latencies[i], false);
+            }
+            errors += other.errors;
+        }
+
+        private long[] sorted() {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.search.OrderSearchIndex;
+import com.goviesco.orders.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.goviesco.orders.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class OrderSearchTests {
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private OrderSearchIndex index;
+
+    @Test
+    public void rebuildShouldIndexEveryPage() throws Exception {
+        // More orders than the rebuild reads at once.
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 501; i++) {
+            orders.add(order().name("Hedy", "Lamarr").date(LocalDate.of(2007, 8, 9)).build());
+        }
+        Set<Long> ids = new HashSet<>();
+        service.saveAll(orders).forEach(order -> ids.add(order.getId()));
+
+        index.rebuild();
+
+        assertEquals(ids, new HashSet<>(index.search("lamarr", 1000)));
+    }
+}
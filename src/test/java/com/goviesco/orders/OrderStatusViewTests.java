@@ -0,0 +1,125 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.StatusTransitionJob;
+import com.goviesco.orders.enumeration.JobState;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.service.OrderService;
+import com.goviesco.orders.service.OrderStatusView;
+import com.goviesco.orders.service.StatusTransitionJobService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.goviesco.orders.TestOrders.newOrder;
+import static org.junit.jupiter.api.Assertions.*;
+
+// PROCESSING orders are read from the OrderStatusView, which follows every path that changes an order's status.
+@SpringBootTest
+public class OrderStatusViewTests {
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private StatusTransitionJobService jobs;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OrderStatusView view;
+
+    @Autowired
+    private OrderRepository orders;
+
+    @Test
+    public void processingOrdersShouldBeReadWithoutAQuery() {
+        Long id = service.save(newOrder()).getId();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long statements = statistics.getPrepareStatementCount();
+
+        List<Order> processing = list(service.findByStatus(Status.PROCESSING));
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        Order order = find(processing, id);
+        assertNotNull(order);
+        assertEquals(0, new BigDecimal("1150").compareTo(order.getTotal()));
+        // Preloaded at startup.
+        assertNotNull(find(processing, 1L));
+    }
+
+    @Test
+    public void completedOrderShouldLeaveTheView() {
+        Long id = service.save(newOrder()).getId();
+        Order order = service.findById(id).orElseThrow();
+
+        order.setStatus(Status.COMPLETED);
+        service.save(order);
+
+        assertNull(find(list(service.findByStatus(Status.PROCESSING)), id));
+        assertNotNull(find(list(service.findByStatus(Status.COMPLETED)), id));
+    }
+
+    @Test
+    public void deletedOrderShouldLeaveTheView() {
+        Order order = service.save(newOrder());
+
+        service.delete(order);
+
+        assertNull(find(list(service.findByStatus(Status.PROCESSING)), order.getId()));
+    }
+
+    @Test
+    public void statusTransitionJobShouldMoveOrdersOutOfTheView() throws InterruptedException {
+        Long id = service.save(newOrder()).getId();
+        StatusTransitionJob job = new StatusTransitionJob();
+        job.setTargetStatus(Status.CANCELED);
+        job.setOrderIds(new ArrayList<>(List.of(id)));
+
+        Long jobId = jobs.submit(job).getId();
+        for (int i = 0; i < 100 && jobs.findById(jobId).orElseThrow().getState() != JobState.COMPLETED; i++) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(JobState.COMPLETED, jobs.findById(jobId).orElseThrow().getState());
+        assertNull(find(list(service.findByStatus(Status.PROCESSING)), id));
+    }
+
+    @Test
+    public void rebuildShouldLoadEveryProcessingOrder() {
+        for (int i = 0; i < 3; i++) {
+            service.save(newOrder());
+        }
+
+        view.rebuild();
+
+        Set<Long> expected = list(orders.findWithLinesByStatus(Status.PROCESSING)).stream()
+                .map(Order::getId)
+                .collect(Collectors.toSet());
+        Set<Long> held = view.findByStatus(Status.PROCESSING).orElseThrow().stream()
+                .map(Order::getId)
+                .collect(Collectors.toSet());
+        assertEquals(expected, held);
+    }
+
+    private static List<Order> list(Iterable<Order> orders) {
+        List<Order> list = new ArrayList<>();
+        orders.forEach(list::add);
+        return list;
+    }
+
+    private static Order find(List<Order> orders, Long id) {
+        return orders.stream().filter(order -> order.getId().equals(id)).findFirst().orElse(null);
+    }
+}
@@ -0,0 +1,140 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.StatusTransitionJob;
+import com.goviesco.orders.enumeration.JobState;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.service.OrderService;
+import com.goviesco.orders.service.OrderSummaries;
+import com.goviesco.orders.service.OrderSummaryReport;
+import com.goviesco.orders.service.StatusTransitionJobService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.goviesco.orders.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Each test dates its orders on a day of its own, so the rows it checks count nothing else. The requests go through
+// the controller with the session open in view, where the order a request changes is the one the service saves.
+@SpringBootTest
+@AutoConfigureMockMvc
+public class OrderSummaryTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private OrderSummaries summaries;
+
+    @Autowired
+    private StatusTransitionJobService jobs;
+
+    @Test
+    public void savesAndDeletesShouldMoveOrdersBetweenRows() {
+        LocalDate day = LocalDate.of(2001, 2, 3);
+        Order completed = service.save(order().date(day).build());
+        Order deleted = service.save(order().date(day).build());
+        service.save(order().date(day.plusDays(1)).build());
+        assertTotals(day, Status.PROCESSING, 2, "2300.00");
+
+        completed.setStatus(Status.COMPLETED);
+        completed.getOrderLines().get(0).setQuantity(2);
+        service.save(completed);
+        service.delete(deleted);
+
+        assertTotals(day, Status.PROCESSING, 0, "0.00");
+        assertTotals(day, Status.COMPLETED, 1, "2150.00");
+        OrderSummaryReport twoDays = summaries.report(day, day.plusDays(1));
+        assertEquals(1, twoDays.getTotals().get(Status.PROCESSING).getOrderCount());
+        assertEquals(1, twoDays.getTotals().get(Status.COMPLETED).getOrderCount());
+    }
+
+    @Test
+    public void saveAllShouldCountEveryOrder() {
+        LocalDate day = LocalDate.of(2005, 6, 7);
+
+        List<Order> saved = service.saveAll(List.of(order().date(day).build(),
+                order().date(day).line("Apple", "Watch", "400", 2).build(),
+                order().date(day).status(Status.COMPLETED).build()));
+
+        assertEquals(3, saved.size());
+        assertTrue(saved.stream().allMatch(order -> service.findById(order.getId()).isPresent()));
+        assertTotals(day, Status.PROCESSING, 2, "2100.00");
+        assertTotals(day, Status.COMPLETED, 1, "1150.00");
+    }
+
+    @Test
+    public void statusTransitionJobShouldMoveOnlyTheOrdersItChanged() throws InterruptedException {
+        LocalDate day = LocalDate.of(2002, 3, 4);
+        Long canceled = service.save(order().date(day).build()).getId();
+        Order completed = service.save(order().date(day).build());
+        completed.setStatus(Status.COMPLETED);
+        service.save(completed);
+
+        StatusTransitionJob job = new StatusTransitionJob();
+        job.setTargetStatus(Status.CANCELED);
+        job.setOrderIds(new ArrayList<>(List.of(canceled, completed.getId())));
+        Long jobId = jobs.submit(job).getId();
+        for (int i = 0; i < 100 && jobs.findById(jobId).orElseThrow().getState() != JobState.COMPLETED; i++) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(JobState.COMPLETED, jobs.findById(jobId).orElseThrow().getState());
+        assertTotals(day, Status.PROCESSING, 0, "0.00");
+        assertTotals(day, Status.CANCELED, 1, "1150.00");
+        assertTotals(day, Status.COMPLETED, 1, "1150.00");
+    }
+
+    @Test
+    public void transitionRequestsShouldMoveOrdersBetweenRows() throws Exception {
+        LocalDate day = LocalDate.of(2004, 5, 6);
+        Long canceled = service.save(order().date(day).build()).getId();
+        Long completed = service.save(order().date(day).build()).getId();
+        Long updated = service.save(order().date(day).build()).getId();
+
+        perform(put("/orders/" + canceled + "/cancel"), 200);
+        perform(put("/orders/" + completed + "/complete"), 200);
+        perform(put("/orders/" + updated).contentType(MediaType.APPLICATION_JSON)
+                .content(TestOrders.ORDER_JSON.replace("PROCESSING", "COMPLETED").replace("\"quantity\": 1",
+                        "\"quantity\": 2")), 201);
+
+        assertTotals(day, Status.PROCESSING, 0, "0.00");
+        assertTotals(day, Status.CANCELED, 1, "1150.00");
+        assertTotals(day, Status.COMPLETED, 2, "3300.00");
+    }
+
+    @Test
+    public void longRangeShouldBeRejected() {
+        LocalDate day = LocalDate.of(2003, 4, 5);
+        assertThrows(IllegalArgumentException.class, () -> summaries.report(day, day.plusYears(2)));
+        assertThrows(IllegalArgumentException.class, () -> summaries.report(day, day.minusDays(1)));
+    }
+
+    private void perform(RequestBuilder request, int expected) throws Exception {
+        MvcResult result = mvc.perform(request).andReturn();
+        mvc.perform(asyncDispatch(result)).andExpect(status().is(expected));
+    }
+
+    private void assertTotals(LocalDate day, Status status, long orders, String revenue) {
+        OrderSummaryReport.Totals totals = summaries.report(day, day).getTotals().get(status);
+        assertEquals(orders, totals.getOrderCount(), status + " orders of " + day);
+        assertEquals(new BigDecimal(revenue), totals.getRevenue(), status + " revenue of " + day);
+    }
+}
@@ -0,0 +1,67 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderLine;
+import com.goviesco.orders.repository.ProductMigration;
+import com.goviesco.orders.service.OrderService;
+import com.goviesco.orders.service.ProductCatalog;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+
+import static com.goviesco.orders.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@DirtiesContext // The migration test changes the schema of the order_lines table.
+public class ProductCatalogTests {
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private ProductCatalog catalog;
+
+    @Autowired
+    private ProductMigration migration;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    public void linesOfTheSameProductShouldShareOneRow() {
+        Order first = service.save(order().line("Nokia", "3310", "100", 1).build());
+        Order second = service.save(order().line("Nokia", "3310", "100", 1).build());
+
+        Long product = first.getOrderLines().get(0).getProduct().getId();
+        assertEquals(product, second.getOrderLines().get(0).getProduct().getId());
+        assertSame(catalog.intern("Nokia", "3310"), catalog.intern("Nokia", "3310"));
+        assertNotEquals(product, catalog.intern("Nokia", "6310").getId());
+        assertEquals(1, jdbc.queryForObject("select count(*) from products where brand = 'Nokia' and model = '3310'",
+                Integer.class));
+
+        OrderLine line = service.findById(second.getId()).orElseThrow().getOrderLines().get(0);
+        assertEquals("Nokia", line.getBrand());
+        assertEquals("3310", line.getModel());
+    }
+
+    @Test
+    public void migrationShouldMoveLegacyColumnsToProducts() {
+        Long orderId = service.save(order().line("Motorola", "Razr", "100", 1).build()).getId();
+        Long lineId = service.findById(orderId).orElseThrow().getOrderLines().get(0).getId();
+        jdbc.execute("alter table order_lines add column brand varchar(25)");
+        jdbc.execute("alter table order_lines add column model varchar(25)");
+        jdbc.update("update order_lines set brand = 'Siemens', model = 'S55', product_id = null where id = ?", lineId);
+
+        migration.migrate();
+
+        OrderLine line = service.findById(orderId).orElseThrow().getOrderLines().get(0);
+        assertEquals("Siemens", line.getBrand());
+        assertEquals("S55", line.getModel());
+        assertEquals(0, jdbc.queryForObject("select count(*) from information_schema.columns " +
+                "where table_name = 'ORDER_LINES' and column_name = 'BRAND'", Integer.class));
+    }
+}
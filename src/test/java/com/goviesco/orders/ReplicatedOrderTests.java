@@ -0,0 +1,122 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.event.OrderSavedEvent;
+import com.goviesco.orders.replication.ReadYourWritesFilter;
+import com.goviesco.orders.replication.ReplicationStub;
+import com.goviesco.orders.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Reads from a replica that is only brought up to date when the test replicates. Saving an order of Irene takes longer
+// than a client stays on the primary after it wrote.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"orders.replication.interval-ms=3600000", "orders.replication.sticky-ms=1000"})
+@ActiveProfiles("replicated")
+public class ReplicatedOrderTests {
+
+    @TestConfiguration
+    static class SlowWrites {
+
+        @EventListener
+        public void saved(OrderSavedEvent event) throws InterruptedException {
+            if ("Irene".equals(event.getOrder().getFirstName())) {
+                Thread.sleep(1500);
+            }
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ReplicationStub replication;
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    public void writerShouldReadItsWritesAndOthersShouldReadTheReplica() throws Exception {
+        replication.replicate();
+        HttpResponse<String> created = send("writer", HttpRequest.newBuilder(uri("/orders"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(TestOrders.ORDER_JSON)));
+        assertEquals(201, created.statusCode());
+        // Quoted, so that the link of order 5 does not match that of order 50.
+        String location = "\"" + created.headers().firstValue("Location").orElseThrow() + "\"";
+
+        assertTrue(list("writer").contains(location));
+        assertFalse(list("reader").contains(location));
+
+        replication.replicate();
+
+        assertTrue(list("reader").contains(location));
+    }
+
+    @Test
+    public void slowWriterShouldReadItsWritesAfterTheWriteIsDone() throws Exception {
+        replication.replicate();
+        HttpResponse<String> created = send("slow-writer", HttpRequest.newBuilder(uri("/orders"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(TestOrders.ORDER_JSON.replace("Marie", "Irene"))));
+        assertEquals(201, created.statusCode());
+        String location = "\"" + created.headers().firstValue("Location").orElseThrow() + "\"";
+
+        // The write began longer ago than the client stays on the primary, but was done just now.
+        assertTrue(list("slow-writer").contains(location));
+    }
+
+    @Test
+    public void replicaReadShouldNotFillTheCache() throws Exception {
+        HttpResponse<String> created = send("cache-writer", HttpRequest.newBuilder(uri("/orders"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(TestOrders.ORDER_JSON)));
+        assertEquals(201, created.statusCode());
+        URI location = URI.create(created.headers().firstValue("Location").orElseThrow());
+        Long id = Long.valueOf(location.getPath().substring("/orders/".length()));
+        replication.replicate();
+        Cache cache = entityManagerFactory.getCache();
+        cache.evictAll();
+
+        assertEquals(200, send("cache-reader", HttpRequest.newBuilder(location).GET()).statusCode());
+        assertFalse(cache.contains(Order.class, id));
+
+        // Outside a request the order is read from the primary, which fills the cache.
+        service.findById(id).orElseThrow();
+        assertTrue(cache.contains(Order.class, id));
+    }
+
+    private String list(String client) throws Exception {
+        HttpResponse<String> response = send(client, HttpRequest.newBuilder(uri("/orders")).GET());
+        assertEquals(200, response.statusCode());
+        return response.body();
+    }
+
+    private HttpResponse<String> send(String client, HttpRequest.Builder request) throws Exception {
+        return this.client.send(request.header(ReadYourWritesFilter.CLIENT_HEADER, client).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -0,0 +1,275 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderSummary;
+import com.goviesco.orders.entity.StatusTransitionJob;
+import com.goviesco.orders.enumeration.JobState;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.graphql.OrderGraph;
+import com.goviesco.orders.repository.OrderRepository;
+import com.goviesco.orders.search.OrderSearchIndex;
+import com.goviesco.orders.service.OrderArchiver;
+import com.goviesco.orders.service.OrderExpiryScheduler;
+import com.goviesco.orders.service.OrderService;
+import com.goviesco.orders.service.OrderStatusView;
+import com.goviesco.orders.service.OrderSummaries;
+import com.goviesco.orders.service.OrderSummaryReport;
+import com.goviesco.orders.service.StatusTransitionJobService;
+import com.goviesco.orders.sharding.ShardContext;
+import com.goviesco.orders.sharding.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.goviesco.orders.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the OrderService on four in-memory H2 shards. The archiver runs only when a test runs it.
+@SpringBootTest(properties = {"orders.archive.enabled=true", "orders.archive.initial-delay-ms=3600000"})
+@ActiveProfiles("sharded")
+public class ShardedOrderServiceTests {
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private OrderSearchIndex index;
+
+    @Autowired
+    private OrderStatusView statusView;
+
+    @Autowired
+    private StatusTransitionJobService jobs;
+
+    @Autowired
+    private OrderGraph graph;
+
+    @Autowired
+    private OrderExpiryScheduler expiry;
+
+    @Autowired
+    private OrderArchiver archiver;
+
+    @Autowired
+    private OrderRepository orders;
+
+    @Autowired
+    private OrderSummaries summaries;
+
+    @Test
+    public void saveShouldSpreadOrdersOverShards() {
+        Set<Integer> shards = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            Order order = service.save(order().email("customer" + i + "@gmail.com").build());
+            assertEquals(router.shardFor(order), router.shardOf(order.getId()));
+            shards.add(router.shardOf(order.getId()));
+        }
+        assertEquals(router.getShards(), shards.size());
+    }
+
+    @Test
+    public void findByIdShouldReadFromOwningShard() {
+        Order saved = service.save(order().email("ada.lovelace@gmail.com").build());
+
+        Order found = service.findById(saved.getId()).orElseThrow();
+
+        assertEquals("ada.lovelace@gmail.com", found.getEmail());
+        assertEquals(1, found.getOrderLines().size());
+        assertTrue(service.findById(saved.getId() + 1_000_000).isEmpty());
+        assertTrue(service.findById(-1L).isEmpty());
+    }
+
+    @Test
+    public void updateShouldStayOnItsShard() {
+        Order saved = service.save(order().email("grace.hopper@gmail.com").build());
+
+        Order order = service.findById(saved.getId()).orElseThrow();
+        order.setStatus(Status.COMPLETED);
+        Order updated = service.save(order);
+
+        assertEquals(saved.getId(), updated.getId());
+        assertEquals(Status.COMPLETED, service.findById(saved.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    public void findAllShouldMergeShardsInIdOrder() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(service.save(order().email("merge" + i + "@gmail.com").build()).getId());
+        }
+
+        List<Long> all = new ArrayList<>();
+        service.findAll().forEach(order -> all.add(order.getId()));
+
+        assertTrue(all.containsAll(ids));
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1) < all.get(i));
+        }
+
+        List<Long> found = new ArrayList<>();
+        service.findAllById(ids).forEach(order -> found.add(order.getId()));
+        ids.sort(Long::compare);
+        assertEquals(ids, found);
+    }
+
+    @Test
+    public void searchRebuildShouldIndexEveryShard() throws Exception {
+        Set<Long> ids = new HashSet<>();
+        Set<Integer> shards = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            Order saved = service.save(order().name("Katherine", "Johnson").email("johnson" + i + "@gmail.com").build());
+            ids.add(saved.getId());
+            shards.add(router.shardOf(saved.getId()));
+        }
+        assertEquals(router.getShards(), shards.size());
+
+        index.rebuild();
+
+        assertEquals(ids, new HashSet<>(index.search("johnson", 100)));
+    }
+
+    @Test
+    public void statusViewShouldHoldTheOrdersOfEveryShard() {
+        Set<Long> ids = saveOnEveryShard("view", LocalDate.now());
+
+        statusView.rebuild();
+
+        List<Long> processing = new ArrayList<>();
+        service.findByStatus(Status.PROCESSING).forEach(order -> processing.add(order.getId()));
+        assertTrue(processing.containsAll(ids));
+        assertEquals(processing.size(), new HashSet<>(processing).size());
+    }
+
+    @Test
+    public void statusJobShouldChangeTheOrdersOfEveryShard() throws InterruptedException {
+        LocalDate day = LocalDate.of(2008, 9, 10);
+        Set<Long> ids = saveOnEveryShard("job", day);
+        StatusTransitionJob job = new StatusTransitionJob();
+        job.setTargetStatus(Status.COMPLETED);
+        job.setFromDate(day);
+        job.setToDate(day);
+
+        Long jobId = jobs.submit(job).getId();
+
+        assertEquals(ids.size(), jobs.findById(jobId).orElseThrow().getTotal());
+        StatusTransitionJob finished = finished(jobId);
+        assertEquals(JobState.COMPLETED, finished.getState());
+        assertEquals(ids.size(), finished.getProcessed());
+        ids.forEach(id -> assertEquals(Status.COMPLETED, service.findById(id).orElseThrow().getStatus()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void graphQLShouldPageThroughEveryShard() {
+        Set<Long> ids = saveOnEveryShard("graph", LocalDate.now());
+        List<Long> all = new ArrayList<>();
+        service.findAll().forEach(order -> all.add(order.getId()));
+
+        List<Long> paged = new ArrayList<>();
+        List<Map<String, Object>> page;
+        do {
+            String after = paged.isEmpty() ? "" : ", after: \"" + paged.get(paged.size() - 1) + "\"";
+            Map<String, Object> result = graph.execute("{ orders(first: 7" + after + ") { id total } }", null, null);
+            assertNull(result.get("errors"));
+            page = (List<Map<String, Object>>) ((Map<String, Object>) result.get("data")).get("orders");
+            page.forEach(order -> paged.add(Long.valueOf((String) order.get("id"))));
+        } while (page.size() == 7);
+
+        assertEquals(all, paged);
+        Long id = ids.iterator().next();
+        Map<String, Object> order = (Map<String, Object>) ((Map<String, Object>) graph.execute(
+                "{ order(id: \"" + id + "\") { id total } }", null, null).get("data")).get("order");
+        assertEquals(Map.of("id", id.toString(), "total", "1150.00"), order);
+    }
+
+    @Test
+    public void expiryShouldCancelTheOrdersOfEveryShard() {
+        Set<Long> ids = saveOnEveryShard("expiry", LocalDate.now().minusDays(60));
+
+        assertTrue(expiry.expire() >= ids.size());
+
+        ids.forEach(id -> assertEquals(Status.CANCELED, service.findById(id).orElseThrow().getStatus()));
+    }
+
+    @Test
+    public void archiverShouldArchiveTheOrdersOfEveryShard() {
+        Set<Long> ids = new HashSet<>();
+        for (Long id : saveOnEveryShard("archive", LocalDate.of(2001, 2, 3))) {
+            Order order = service.findById(id).orElseThrow();
+            order.setStatus(Status.COMPLETED);
+            ids.add(service.save(order).getId());
+        }
+
+        archiver.archiveOldOrders();
+
+        for (Long id : ids) {
+            assertFalse(ShardContext.call(router.shardOf(id), () -> orders.existsById(id)));
+            assertEquals(Status.COMPLETED, service.findById(id).orElseThrow().getStatus());
+        }
+    }
+
+    @Test
+    public void summaryShouldCountTheOrdersOfEveryShard() {
+        LocalDate day = LocalDate.of(2002, 3, 4);
+        Set<Long> ids = saveOnEveryShard("summary", day);
+
+        OrderSummaryReport report = summaries.report(day, day);
+
+        long count = report.getTotals().values().stream().mapToLong(OrderSummaryReport.Totals::getOrderCount).sum();
+        BigDecimal revenue = report.getTotals().values().stream().map(OrderSummaryReport.Totals::getRevenue)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(ids.size(), count);
+        assertEquals(new BigDecimal("1150.00").multiply(BigDecimal.valueOf(ids.size())), revenue);
+        // One row per status, however many shards hold orders of the day.
+        assertEquals(report.getDays().stream().map(OrderSummary::getStatus).distinct().count(),
+                report.getDays().size());
+    }
+
+    @Test
+    public void deleteShouldRemoveFromOwningShard() {
+        Order saved = service.save(order().email("alan.turing@gmail.com").build());
+
+        service.delete(saved);
+
+        assertTrue(service.findById(saved.getId()).isEmpty());
+    }
+
+    // Saves PROCESSING orders dated on the day until every shard holds some. Returns their ids.
+    private Set<Long> saveOnEveryShard(String name, LocalDate day) {
+        Set<Long> ids = new HashSet<>();
+        Set<Integer> shards = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            Order saved = service.save(order().email(name + i + "@gmail.com").date(day).build());
+            ids.add(saved.getId());
+            shards.add(router.shardOf(saved.getId()));
+        }
+        assertEquals(router.getShards(), shards.size());
+        return ids;
+    }
+
+    // Waits for the job to leave PENDING and RUNNING, and returns it.
+    private StatusTransitionJob finished(Long id) throws InterruptedException {
+        StatusTransitionJob job = null;
+        for (int i = 0; i < 100; i++) {
+            job = jobs.findById(id).orElseThrow();
+            if (job.getState() != JobState.PENDING && job.getState() != JobState.RUNNING) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        fail("Job " + id + " did not finish: " + job.getState());
+        return null;
+    }
+}
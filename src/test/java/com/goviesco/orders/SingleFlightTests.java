@@ -0,0 +1,147 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.service.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTests {
+
+    private static final int CALLERS = 8;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight<Long, String> flight = new SingleFlight<>("test", registry);
+
+    @Test
+    public void concurrentCallsShouldShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        AtomicInteger snapshots = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> flight.call(1L, () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "order";
+            }, loaded -> {
+                snapshots.incrementAndGet();
+                return loaded + " snapshot";
+            }, snapshot -> snapshot + " copy")));
+            waitFor(() -> count("loaded") == 1);
+            for (int i = 1; i < CALLERS; i++) {
+                results.add(executor.submit(() -> flight.call(1L, () -> {
+                    loads.incrementAndGet();
+                    return "order";
+                }, loaded -> loaded, snapshot -> snapshot + " copy")));
+            }
+            waitFor(() -> count("coalesced") == CALLERS - 1);
+            release.countDown();
+
+            assertEquals("order", results.get(0).get(5, TimeUnit.SECONDS));
+            for (int i = 1; i < CALLERS; i++) {
+                assertEquals("order snapshot copy", results.get(i).get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, snapshots.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sequentialCallsShouldEachLoadWithoutSnapshot() {
+        AtomicInteger snapshots = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("order", flight.call(1L, () -> "order", loaded -> {
+                snapshots.incrementAndGet();
+                return loaded;
+            }, snapshot -> snapshot));
+        }
+
+        assertEquals(3.0, count("loaded"));
+        assertEquals(0.0, count("coalesced"));
+        assertEquals(0, snapshots.get());
+    }
+
+    @Test
+    public void failureShouldReachWaitingCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> flight.call(1L, () -> {
+                await(release);
+                throw new IllegalStateException("database down");
+            }, loaded -> loaded, snapshot -> snapshot));
+            waitFor(() -> count("loaded") == 1);
+            Future<String> follower = executor.submit(() -> flight.call(1L, () -> "order",
+                    loaded -> loaded, snapshot -> snapshot));
+            waitFor(() -> count("coalesced") == 1);
+            release.countDown();
+
+            ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            ExecutionException followerFailure = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertEquals("database down", leaderFailure.getCause().getMessage());
+            assertEquals("database down", followerFailure.getCause().getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void forgottenCallShouldNotBeJoined() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> stale = executor.submit(() -> flight.call(1L, () -> {
+                await(release);
+                return "before the write";
+            }, loaded -> loaded, snapshot -> snapshot));
+            waitFor(() -> count("loaded") == 1);
+
+            flight.forget(key -> key == 1L);
+
+            assertEquals("after the write", flight.call(1L, () -> "after the write",
+                    loaded -> loaded, snapshot -> snapshot));
+            release.countDown();
+            assertEquals("before the write", stale.get(5, TimeUnit.SECONDS));
+            assertEquals(2.0, count("loaded"));
+            assertEquals(0.0, count("coalesced"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private double count(String result) {
+        return registry.get("orders.single.flight").tag("call", "test").tag("result", result).counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(1);
+        }
+    }
+}
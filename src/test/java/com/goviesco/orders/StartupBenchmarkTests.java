@@ -0,0 +1,92 @@
+package com.goviesco.orders;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts the application orders.startup.runs times in a new JVM with the default and the fast-start profile, and
+ * logs the time until it is ready. It only runs when asked for:
+ *
+ *   mvn test -Dtest=StartupBenchmarkTests -Dorders.startup.benchmark=true
+ *
+ * JVM options such as an AppCDS archive are passed with -Dorders.startup.jvm-options.
+ */
+@EnabledIfSystemProperty(named = "orders.startup.benchmark", matches = "true")
+public class StartupBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupBenchmarkTests.class);
+
+    private static final Pattern STARTED = Pattern.compile("Started OrdersApplication in ([0-9.]+) seconds");
+
+    private final int runs = Integer.getInteger("orders.startup.runs", 5);
+
+    @Test
+    public void startupTime() throws Exception {
+        StringBuilder table = new StringBuilder(String.format("%n%-12s %10s %10s %10s %10s", "profile", "min ms",
+                "median ms", "max ms", "spring ms"));
+        for (String profile : new String[]{"default", "fast-start"}) {
+            long[] wall = new long[runs];
+            long[] spring = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                long[] run = start(profile);
+                wall[i] = run[0];
+                spring[i] = run[1];
+            }
+            Arrays.sort(wall);
+            Arrays.sort(spring);
+            table.append(String.format("%n%-12s %10d %10d %10d %10d", profile, wall[0], wall[runs / 2],
+                    wall[runs - 1], spring[runs / 2]));
+        }
+        log.info(table.toString());
+    }
+
+    // Returns the milliseconds until the JVM exited and those Spring Boot reports for starting the context.
+    private long[] start(String profile) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        String options = System.getProperty("orders.startup.jvm-options", "");
+        if (!options.isBlank()) {
+            command.addAll(Arrays.asList(options.trim().split("\\s+")));
+        }
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"),
+                OrdersApplication.class.getName(),
+                "--orders.exit-after-startup=true", "--server.port=0", "--spring.jpa.show-sql=false"));
+        if (!"default".equals(profile)) {
+            command.add("--spring.profiles.active=" + profile);
+        }
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long springMillis = -1;
+        try (BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                Matcher matcher = STARTED.matcher(line);
+                if (matcher.find()) {
+                    springMillis = Math.round(Double.parseDouble(matcher.group(1)) * 1000);
+                }
+            }
+        }
+        assertEquals(0, process.waitFor(), "The application did not start with profile " + profile);
+        long wallMillis = (System.nanoTime() - started) / 1_000_000;
+        assertTrue(springMillis >= 0, "The application did not report its startup time");
+        return new long[]{wallMillis, springMillis};
+    }
+}
@@ -0,0 +1,199 @@
+package com.goviesco.orders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.goviesco.orders.entity.StatusTransitionJob;
+import com.goviesco.orders.enumeration.JobState;
+import com.goviesco.orders.enumeration.Status;
+import com.goviesco.orders.repository.StatusTransitionJobRepository;
+import com.goviesco.orders.service.OrderService;
+import com.goviesco.orders.service.StatusTransitionJobService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.goviesco.orders.TestOrders.order;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Chunks are two orders, so every job here runs in several of them. Each test dates its orders on a day of its own.
+@SpringBootTest(properties = "orders.jobs.chunk-size=2")
+@AutoConfigureMockMvc
+public class StatusTransitionJobTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private StatusTransitionJobRepository jobs;
+
+    @Autowired
+    private StatusTransitionJobService jobService;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void jobShouldChangeTheOrdersMatchingItsFilter() throws Exception {
+        LocalDate day = LocalDate.of(2006, 7, 8);
+        List<Long> ids = save(day, 5);
+        Long other = save(day.plusDays(1), 1).get(0);
+
+        MvcResult submitted = mvc.perform(post("/jobs/status-transitions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"targetStatus\": \"COMPLETED\", \"fromDate\": \"" + day + "\", \"toDate\": \"" +
+                                day + "\"}"))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        JsonNode job = finished(submitted.getResponse().getHeader("Location"));
+
+        assertEquals("COMPLETED", job.get("state").asText());
+        assertEquals(5, job.get("total").asLong());
+        assertEquals(5, job.get("processed").asLong());
+        assertEquals(ids.get(4).longValue(), job.get("lastOrderId").asLong());
+        for (Long id : ids) {
+            assertEquals(Status.COMPLETED, service.findById(id).orElseThrow().getStatus());
+        }
+        assertEquals(Status.PROCESSING, service.findById(other).orElseThrow().getStatus());
+    }
+
+    @Test
+    public void listedIdsShouldBeWalkedInOrderOnce() throws Exception {
+        List<Long> ids = save(LocalDate.of(2006, 8, 9), 3);
+
+        MvcResult submitted = mvc.perform(post("/jobs/status-transitions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"targetStatus\": \"CANCELED\", \"orderIds\": [" + ids.get(2) + ", " + ids.get(0) +
+                                ", " + ids.get(1) + ", " + ids.get(0) + "]}"))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        JsonNode job = finished(submitted.getResponse().getHeader("Location"));
+
+        assertEquals("COMPLETED", job.get("state").asText());
+        assertEquals(3, job.get("processed").asLong());
+        assertEquals(ids.get(2).longValue(), job.get("lastOrderId").asLong());
+        List<Long> orderIds = new ArrayList<>();
+        job.get("orderIds").forEach(orderId -> orderIds.add(orderId.asLong()));
+        assertEquals(ids, orderIds);
+        for (Long id : ids) {
+            assertEquals(Status.CANCELED, service.findById(id).orElseThrow().getStatus());
+        }
+    }
+
+    @Test
+    public void resumedJobShouldStartAfterTheLastOrderHandled() throws Exception {
+        List<Long> ids = save(LocalDate.of(2006, 9, 10), 4);
+        // A job canceled after its first chunk.
+        StatusTransitionJob job = new StatusTransitionJob();
+        job.setStatus(Status.PROCESSING);
+        job.setTargetStatus(Status.CANCELED);
+        job.setOrderIds(new ArrayList<>(ids));
+        job.setState(JobState.CANCELED);
+        job.setTotal(4);
+        job.setProcessed(2);
+        job.setLastOrderId(ids.get(1));
+        job.setCreatedAt(LocalDateTime.now());
+        job.setUpdatedAt(LocalDateTime.now());
+        Long id = jobs.save(job).getId();
+
+        mvc.perform(put("/jobs/status-transitions/" + id + "/resume"))
+                .andExpect(status().isOk());
+        JsonNode resumed = finished("/jobs/status-transitions/" + id);
+
+        assertEquals("COMPLETED", resumed.get("state").asText());
+        assertEquals(4, resumed.get("processed").asLong());
+        assertEquals(Status.PROCESSING, service.findById(ids.get(0)).orElseThrow().getStatus());
+        assertEquals(Status.PROCESSING, service.findById(ids.get(1)).orElseThrow().getStatus());
+        assertEquals(Status.CANCELED, service.findById(ids.get(2)).orElseThrow().getStatus());
+        assertEquals(Status.CANCELED, service.findById(ids.get(3)).orElseThrow().getStatus());
+
+        mvc.perform(put("/jobs/status-transitions/" + id + "/resume"))
+                .andExpect(status().isMethodNotAllowed());
+        mvc.perform(put("/jobs/status-transitions/" + id + "/cancel"))
+                .andExpect(status().isMethodNotAllowed());
+    }
+
+    @Test
+    public void onlyJobsRunningPastTheLeaseShouldBeTakenOver() throws Exception {
+        List<Long> ids = save(LocalDate.of(2006, 10, 11), 3);
+        // One job run by a live instance, and one left RUNNING by an instance that stopped an hour ago.
+        Long live = jobs.save(running(ids, LocalDateTime.now())).getId();
+        Long stale = jobs.save(running(ids, LocalDateTime.now().minusHours(1))).getId();
+
+        // At startup and again at the next sweep, while the resumed job may still run.
+        jobService.resumeInterruptedJobs();
+        jobService.resumeInterruptedJobs();
+        JsonNode resumed = finished("/jobs/status-transitions/" + stale);
+
+        assertEquals("COMPLETED", resumed.get("state").asText());
+        assertEquals(3, resumed.get("processed").asLong());
+        for (Long id : ids) {
+            assertEquals(Status.CANCELED, service.findById(id).orElseThrow().getStatus());
+        }
+        StatusTransitionJob running = jobs.findById(live).orElseThrow();
+        assertEquals(JobState.RUNNING, running.getState());
+        assertEquals(0, running.getProcessed());
+    }
+
+    @Test
+    public void transitionNotAllowedForAnOrderShouldBeRejected() throws Exception {
+        mvc.perform(post("/jobs/status-transitions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"COMPLETED\", \"targetStatus\": \"CANCELED\"}"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/jobs/status-transitions/-1"))
+                .andExpect(status().isNotFound());
+    }
+
+    // A job that cancels the orders, RUNNING since it was last updated at updatedAt, before its first chunk.
+    private static StatusTransitionJob running(List<Long> ids, LocalDateTime updatedAt) {
+        StatusTransitionJob job = new StatusTransitionJob();
+        job.setStatus(Status.PROCESSING);
+        job.setTargetStatus(Status.CANCELED);
+        job.setOrderIds(new ArrayList<>(ids));
+        job.setState(JobState.RUNNING);
+        job.setTotal(ids.size());
+        job.setLastOrderId(0L);
+        job.setCreatedAt(updatedAt);
+        job.setUpdatedAt(updatedAt);
+        return job;
+    }
+
+    // Saves PROCESSING orders dated on the day; returns their ids, in ascending order.
+    private List<Long> save(LocalDate day, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(service.save(order().date(day).build()).getId());
+        }
+        return ids;
+    }
+
+    // Waits for the job to leave PENDING and RUNNING, and returns it as read from its location.
+    private JsonNode finished(String location) throws Exception {
+        JsonNode job = null;
+        for (int i = 0; i < 100; i++) {
+            job = mapper.readTree(mvc.perform(get(location)).andReturn().getResponse().getContentAsString());
+            String state = job.get("state").asText();
+            if (!state.equals("PENDING") && !state.equals("RUNNING")) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        fail("The job at " + location + " did not finish: " + job);
+        return null;
+    }
+}
@@ -0,0 +1,109 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.entity.Address;
+import com.goviesco.orders.entity.Order;
+import com.goviesco.orders.entity.OrderLine;
+import com.goviesco.orders.enumeration.Status;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unsaved orders for the tests. Unless a test says otherwise, an order is Marie Curie's, PROCESSING and dated today,
+ * for one Apple Phone at 1000 with 100 tax and 50 shipping, so its total is 1150, sent to 2213 Camelback Rd, Phoenix.
+ * A test sets only what it is about, e.g. order().date(day).build().
+ */
+final class TestOrders {
+
+    // The default order as a request body.
+    static final String ORDER_JSON = "{\"firstName\": \"Marie\", \"lastName\": \"Curie\", " +
+            "\"email\": \"marie.curie@example.com\", \"phone\": \"(213) 454-1324\", \"status\": \"PROCESSING\", " +
+            "\"address\": {\"address1\": \"2213 Camelback Rd\", \"address2\": \"Apt 2\", \"city\": \"Phoenix\", " +
+            "\"state\": \"AZ\", \"zip\": \"85017\"}, " +
+            "\"orderLines\": [{\"brand\": \"Apple\", \"model\": \"Phone\", \"cost\": 1000, \"quantity\": 1}], " +
+            "\"tax\": 100, \"shipping\": 50}";
+
+    private LocalDate date = LocalDate.now();
+    private Status status = Status.PROCESSING;
+    private String firstName = "Marie";
+    private String lastName = "Curie";
+    private String email = "marie.curie@example.com";
+    private String address1 = "2213 Camelback Rd";
+    private final List<OrderLine> orderLines = new ArrayList<>();
+    private BigDecimal tax = new BigDecimal("100");
+    private BigDecimal shipping = new BigDecimal("50");
+
+    private TestOrders() {
+    }
+
+    static TestOrders order() {
+        return new TestOrders();
+    }
+
+    static Order newOrder() {
+        return order().build();
+    }
+
+    TestOrders date(LocalDate date) {
+        this.date = date;
+        return this;
+    }
+
+    TestOrders status(Status status) {
+        this.status = status;
+        return this;
+    }
+
+    TestOrders name(String firstName, String lastName) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+        return this;
+    }
+
+    TestOrders email(String email) {
+        this.email = email;
+        return this;
+    }
+
+    // Orders with different address lines are sent to different address rows.
+    TestOrders address1(String address1) {
+        this.address1 = address1;
+        return this;
+    }
+
+    // Replaces the Apple Phone; called again, adds another line.
+    TestOrders line(String brand, String model, String cost, int quantity) {
+        orderLines.add(new OrderLine(null, brand, model, new BigDecimal(cost), quantity));
+        return this;
+    }
+
+    TestOrders charges(String tax, String shipping) {
+        this.tax = new BigDecimal(tax);
+        this.shipping = new BigDecimal(shipping);
+        return this;
+    }
+
+    Order build() {
+        List<OrderLine> lines = new ArrayList<>();
+        if (orderLines.isEmpty()) {
+            lines.add(new OrderLine(null, "Apple", "Phone", new BigDecimal("1000"), 1));
+        } else {
+            orderLines.forEach(line -> lines.add(new OrderLine(null, line.getBrand(), line.getModel(), line.getCost(),
+                    line.getQuantity())));
+        }
+
+        Order order = new Order();
+        order.setDate(date);
+        order.setStatus(status);
+        order.setFirstName(firstName);
+        order.setLastName(lastName);
+        order.setEmail(email);
+        order.setAddress(new Address(null, address1, "Apt 2", "Phoenix", "AZ", "85017"));
+        order.setOrderLines(lines);
+        order.setTax(tax);
+        order.setShipping(shipping);
+        return order;
+    }
+}
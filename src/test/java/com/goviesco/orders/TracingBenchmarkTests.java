@@ -0,0 +1,99 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.service.OrderService;
+import com.goviesco.orders.tracing.SpanStore;
+import com.goviesco.orders.tracing.TracingFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Arrays;
+
+import static com.goviesco.orders.TestOrders.newOrder;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Reads one order orders.tracing.benchmark.requests times through a TracingFilter per sample rate, and logs the
+ * latency of each and its overhead over that of the requests that are never sampled. The rates take turns, so that
+ * the JIT and the caches treat them alike. It only runs when asked for:
+ *
+ *   mvn test -Dtest=TracingBenchmarkTests -Dorders.tracing.benchmark=true
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "orders.tracing.benchmark", matches = "true")
+public class TracingBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(TracingBenchmarkTests.class);
+
+    private static final double[] SAMPLE_RATES = {0, 0.01, 1};
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private SpanStore store;
+
+    private final int requests = Integer.getInteger("orders.tracing.benchmark.requests", 20000);
+
+    @Test
+    public void tracingOverhead() throws Exception {
+        String path = "/orders/" + service.save(newOrder()).getId();
+        MockMvc[] mvcs = new MockMvc[SAMPLE_RATES.length];
+        for (int i = 0; i < SAMPLE_RATES.length; i++) {
+            mvcs[i] = MockMvcBuilders.webAppContextSetup(context)
+                    .addFilters(new TracingFilter(store, SAMPLE_RATES[i]))
+                    .build();
+        }
+        for (int i = 0; i < requests / 10; i++) {
+            read(mvcs[i % mvcs.length], path);
+        }
+
+        long[][] nanos = new long[SAMPLE_RATES.length][requests];
+        for (int i = 0; i < requests; i++) {
+            for (int rate = 0; rate < SAMPLE_RATES.length; rate++) {
+                nanos[rate][i] = read(mvcs[rate], path);
+            }
+        }
+
+        StringBuilder table = new StringBuilder(String.format("%n%-12s %10s %10s %10s", "sample rate", "p50 us",
+                "p99 us", "overhead"));
+        double baseline = 0;
+        for (int rate = 0; rate < SAMPLE_RATES.length; rate++) {
+            Arrays.sort(nanos[rate]);
+            double median = micros(nanos[rate], 0.50);
+            if (rate == 0) {
+                baseline = median;
+            }
+            table.append(String.format("%n%-12s %10.1f %10.1f %9.1f%%", SAMPLE_RATES[rate], median,
+                    micros(nanos[rate], 0.99), (median - baseline) * 100 / baseline));
+        }
+        log.info(table.toString());
+        assertFalse(store.findAll().isEmpty());
+    }
+
+    // Returns the nanoseconds until the order was serialized.
+    private static long read(MockMvc mvc, String path) throws Exception {
+        long started = System.nanoTime();
+        MvcResult result = mvc.perform(get(path)).andReturn();
+        mvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        return System.nanoTime() - started;
+    }
+
+    private static double micros(long[] sorted, double percentile) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1000.0;
+    }
+}
@@ -0,0 +1,74 @@
+package com.goviesco.orders;
+
+import com.goviesco.orders.service.OrderService;
+import com.goviesco.orders.tracing.Span;
+import com.goviesco.orders.tracing.SpanStore;
+import com.goviesco.orders.tracing.Trace;
+import com.goviesco.orders.tracing.TracingFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.goviesco.orders.TestOrders.newOrder;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Every request is sampled.
+@SpringBootTest(properties = "orders.tracing.sample-rate=1")
+@AutoConfigureMockMvc
+public class TracingTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private SpanStore store;
+
+    @Test
+    public void updateShouldBeTracedFromTheControllerToJdbcAndSerialization() throws Exception {
+        Long id = service.save(newOrder()).getId();
+        String body = "{\"status\":\"PROCESSING\",\"firstName\":\"Samuel\",\"lastName\":\"Morse\"," +
+                "\"email\":\"samuel.morse@example.com\",\"phone\":\"2134541324\",\"address\":{\"address1\":\"1 Wire St\"," +
+                "\"address2\":\"\",\"city\":\"Washington\",\"state\":\"DC\",\"zip\":\"20001\"},\"orderLines\":" +
+                "[{\"brand\":\"Apple\",\"model\":\"Phone\",\"cost\":1000,\"quantity\":2}],\"tax\":120,\"shipping\":50}";
+
+        MvcResult result = mvc.perform(put("/orders/" + id).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andReturn();
+        mvc.perform(asyncDispatch(result)).andExpect(status().isCreated());
+
+        String traceId = result.getResponse().getHeader(TracingFilter.TRACE_ID_HEADER);
+        Trace trace = store.findById(traceId).orElseThrow();
+        assertEquals("PUT /orders/{id}", trace.getName());
+        assertTrue(trace.getDurationMillis() >= 0);
+
+        Map<String, Span> byName = trace.getSpans().stream()
+                .collect(Collectors.toMap(Span::getName, span -> span, (first, second) -> first));
+        Span save = byName.get("OrderServiceImpl.save");
+        assertNotNull(save);
+        assertEquals(trace.getSpans().get(0).getId(), byName.get("OrderServiceImpl.findById").getParentId());
+        assertNotNull(byName.get("OrderRepository.save"));
+        assertNotNull(byName.get("OrderModelAssembler.toModel"));
+        assertNotNull(byName.get("serialize"));
+
+        List<Span> statements = trace.getSpans().stream()
+                .filter(span -> span.getName().startsWith("JDBC"))
+                .collect(Collectors.toList());
+        assertFalse(statements.isEmpty());
+        assertTrue(statements.stream().anyMatch(span -> span.getDetail() != null
+                && span.getDetail().toLowerCase().contains("update orders")));
+        trace.getSpans().forEach(span -> assertTrue(span.getDurationNanos() >= 0, span.getName()));
+    }
+}
@@ -0,0 +1,290 @@
+package com.goviesco.orders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.goviesco.orders.entity.WebhookDelivery;
+import com.goviesco.orders.enumeration.DeliveryState;
+import com.goviesco.orders.repository.WebhookDeliveryRepository;
+import com.goviesco.orders.service.OrderService;
+import com.goviesco.orders.webhook.WebhookDispatcher;
+import com.goviesco.orders.webhook.WebhookSignature;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.goviesco.orders.TestOrders.newOrder;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Sends the webhooks to a stub partner on a local port, which answers per order as the test tells it to. The database
+// is one of its own, so that no dispatcher of another test's context sends these deliveries.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:webhooks",
+        "orders.webhooks.secret=" + WebhookTests.SECRET,
+        "orders.webhooks.per-endpoint-concurrency=2",
+        "orders.webhooks.backoff-ms=100",
+        "orders.webhooks.max-backoff-ms=200",
+        "orders.webhooks.poll-ms=100"})
+public class WebhookTests {
+
+    static final String SECRET = "test-secret";
+
+    private static final HttpServer partner;
+    private static final ObjectMapper mapper = new ObjectMapper();
+    // Per order, how many callbacks the partner fails with 500, and how long it takes to answer.
+    private static final Map<Long, AtomicInteger> failures = new ConcurrentHashMap<>();
+    private static final Map<Long, Long> delays = new ConcurrentHashMap<>();
+    private static final ConcurrentLinkedQueue<Callback> received = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicInteger maxInFlight = new AtomicInteger();
+
+    static {
+        try {
+            partner = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        partner.createContext("/hooks", WebhookTests::answer);
+        // Another partner, which answers every callback after a second.
+        partner.createContext("/slow", exchange -> {
+            try {
+                exchange.getRequestBody().readAllBytes();
+                Thread.sleep(1000);
+                exchange.sendResponseHeaders(200, -1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.sendResponseHeaders(503, -1);
+            } finally {
+                exchange.close();
+            }
+        });
+        // Many threads, so that the partner never limits how many callbacks are in flight.
+        partner.setExecutor(Executors.newCachedThreadPool());
+        partner.start();
+    }
+
+    @DynamicPropertySource
+    static void endpoint(DynamicPropertyRegistry registry) {
+        registry.add("orders.webhooks.endpoints",
+                () -> "http://localhost:" + partner.getAddress().getPort() + "/hooks");
+    }
+
+    @AfterAll
+    static void stopPartner() {
+        partner.stop(0);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private WebhookDeliveryRepository deliveries;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    public void completedOrderShouldBeSentSigned() throws Exception {
+        Long id = service.save(newOrder()).getId();
+
+        assertEquals(200, put("/orders/" + id + "/complete").statusCode());
+
+        WebhookDelivery delivery = delivered(id);
+        assertEquals(1, delivery.getAttempts());
+        Callback callback = callbacks(id).get(0);
+        assertEquals(delivery.getId().toString(), callback.delivery);
+        JsonNode body = mapper.readTree(callback.body);
+        assertEquals("order.completed", body.get("event").asText());
+        assertEquals("COMPLETED", body.get("status").asText());
+        assertEquals("1150.00", body.get("total").asText());
+
+        String[] signature = callback.signature.split(",");
+        long timestamp = Long.parseLong(signature[0].substring("t=".length()));
+        assertEquals("v1=" + WebhookSignature.sign(SECRET.getBytes(StandardCharsets.UTF_8), timestamp, callback.body),
+                signature[1]);
+    }
+
+    @Test
+    public void failedCallbackShouldBeRetriedUntilDelivered() throws Exception {
+        Long id = service.save(newOrder()).getId();
+        failures.put(id, new AtomicInteger(2));
+
+        assertEquals(200, put("/orders/" + id + "/cancel").statusCode());
+
+        WebhookDelivery delivery = delivered(id);
+        assertEquals(3, delivery.getAttempts());
+        assertEquals(200, delivery.getLastStatusCode());
+        assertNull(delivery.getLastError());
+        List<Callback> callbacks = callbacks(id);
+        assertEquals(3, callbacks.size());
+        // Every attempt is the same delivery, with the same body.
+        assertEquals(1, callbacks.stream().map(callback -> callback.delivery + callback.body).distinct().count());
+        assertEquals("order.canceled", mapper.readTree(callbacks.get(0).body).get("event").asText());
+    }
+
+    @Test
+    public void slowPartnerShouldNotDelayTransitions() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Long id = service.save(newOrder()).getId();
+            delays.put(id, 2000L);
+            ids.add(id);
+        }
+
+        for (Long id : ids) {
+            long start = System.nanoTime();
+            assertEquals(200, put("/orders/" + id + "/complete").statusCode());
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(millis < 2000, "The transition took " + millis + " ms");
+        }
+
+        for (Long id : ids) {
+            delivered(id);
+        }
+        assertTrue(maxInFlight.get() <= 2, maxInFlight.get() + " callbacks were in flight at once");
+    }
+
+    @Test
+    public void slowPartnerShouldNotStarveTheOthers() throws Exception {
+        String base = "http://localhost:" + partner.getAddress().getPort();
+        LocalDateTime due = LocalDateTime.now().minusMinutes(1);
+        // More deliveries to the slow partner, all due before the other one, than the senders can queue.
+        List<WebhookDelivery> slow = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            slow.add(delivery(base + "/slow", -1L - i, due));
+        }
+        deliveries.saveAll(slow);
+        Long id = -1000L;
+        deliveries.save(delivery(base + "/hooks", id, LocalDateTime.now()));
+
+        try {
+            assertEquals(1, delivered(id).getAttempts());
+        } finally {
+            // Not sent to the slow partner while the other tests run.
+            for (WebhookDelivery delivery : slow) {
+                deliveries.record(delivery.getId(), DeliveryState.FAILED, null, null, "Test over",
+                        LocalDateTime.now());
+            }
+        }
+    }
+
+    @Test
+    public void updateThatKeepsTheStatusShouldSendNothing() throws Exception {
+        Long id = service.save(newOrder()).getId();
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port +
+                        "/orders/" + id))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(TestOrders.ORDER_JSON.replace("Marie", "Irene")))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(201, response.statusCode(), response.body());
+        // Several polls of the dispatcher.
+        Thread.sleep(500);
+
+        assertTrue(deliveries.findAll().stream().noneMatch(delivery -> id.equals(delivery.getOrderId())));
+        assertTrue(callbacks(id).isEmpty());
+    }
+
+    private static void answer(HttpExchange exchange) throws IOException {
+        int inFlightNow = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlightNow, Math::max);
+        try {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            Long orderId = mapper.readTree(body).get("orderId").asLong();
+            received.add(new Callback(orderId, exchange.getRequestHeaders().getFirst(WebhookDispatcher.DELIVERY_HEADER),
+                    exchange.getRequestHeaders().getFirst(WebhookSignature.HEADER), body));
+            Long delay = delays.get(orderId);
+            if (delay != null) {
+                Thread.sleep(delay);
+            }
+            AtomicInteger failing = failures.get(orderId);
+            exchange.sendResponseHeaders(failing != null && failing.getAndDecrement() > 0 ? 500 : 200, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    // Waits for the only delivery of the order to be delivered, and returns it.
+    private WebhookDelivery delivered(Long orderId) throws InterruptedException {
+        WebhookDelivery delivery = null;
+        for (int i = 0; i < 400; i++) {
+            delivery = deliveries.findAll().stream()
+                    .filter(candidate -> orderId.equals(candidate.getOrderId()))
+                    .findFirst()
+                    .orElse(null);
+            if (delivery != null && delivery.getState() == DeliveryState.DELIVERED) {
+                return delivery;
+            }
+            Thread.sleep(50);
+        }
+        fail("The webhook of order " + orderId + " was not delivered: " + delivery);
+        return null;
+    }
+
+    private static WebhookDelivery delivery(String url, Long orderId, LocalDateTime nextAttemptAt) {
+        WebhookDelivery delivery = new WebhookDelivery();
+        delivery.setUrl(url);
+        delivery.setOrderId(orderId);
+        delivery.setPayload("{\"orderId\":" + orderId + "}");
+        delivery.setState(DeliveryState.PENDING);
+        delivery.setNextAttemptAt(nextAttemptAt);
+        delivery.setCreatedAt(nextAttemptAt);
+        delivery.setUpdatedAt(nextAttemptAt);
+        return delivery;
+    }
+
+    private static List<Callback> callbacks(Long orderId) {
+        return received.stream()
+                .filter(callback -> callback.orderId.equals(orderId))
+                .collect(Collectors.toList());
+    }
+
+    private HttpResponse<String> put(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static final class Callback {
+
+        private final Long orderId;
+        private final String delivery;
+        private final String signature;
+        private final String body;
+
+        private Callback(Long orderId, String delivery, String signature, String body) {
+            this.orderId = orderId;
+            this.delivery = delivery;
+            this.signature = signature;
+            this.body = body;
+        }
+    }
+}